@@ -0,0 +1,54 @@
+#!/usr/bin/env bash
+# Misst die Zeit vom Start der JVM bis zum ersten erfolgreich beantworteten GET /basket.
+#
+# Verwendung:
+#   mvn package -Pfast-startup
+#   java -Dquarkus.profile=migrate -jar target/verteilte-anwendung-runner.jar   # einmalige Migration
+#   bench/startup-benchmark.sh [Anzahl Durchläufe]
+#
+# Verglichen werden der Standardmodus (Migration beim Start, ohne AppCDS), das Profil fast-startup
+# ohne AppCDS (nur die Checksummen-Prüfung statt Liquibase) und mit AppCDS-Archiv.
+set -euo pipefail
+
+RUNS="${1:-5}"
+JAR="${JAR:-target/verteilte-anwendung-runner.jar}"
+CDS="${CDS:-target/app-cds.jsa}"
+URL="${URL:-http://localhost:8080/basket}"
+USER_ID="${USER_ID:-5}"
+
+now_ms() {
+    date +%s%3N
+}
+
+measure() {
+    local label="$1"
+    shift
+    local total=0
+    for run in $(seq 1 "$RUNS"); do
+        local start
+        start=$(now_ms)
+        java "$@" -jar "$JAR" > /dev/null 2>&1 &
+        local pid=$!
+        until curl -s -o /dev/null -f -H "X-User-Id: $USER_ID" "$URL"; do
+            if ! kill -0 "$pid" 2> /dev/null; then
+                echo "$label: application exited before serving $URL" >&2
+                exit 1
+            fi
+            sleep 0.01
+        done
+        local elapsed=$(( $(now_ms) - start ))
+        total=$(( total + elapsed ))
+        echo "$label run $run: first /basket after ${elapsed} ms"
+        kill "$pid"
+        wait "$pid" 2> /dev/null || true
+    done
+    echo "$label average: $(( total / RUNS )) ms"
+}
+
+measure "default" -Dquarkus.profile=prod
+measure "fast-startup (without AppCDS)" -Dquarkus.profile=fast-startup
+if [ -f "$CDS" ]; then
+    measure "fast-startup" -XX:SharedArchiveFile="$CDS" -Dquarkus.profile=fast-startup
+else
+    echo "No AppCDS archive at $CDS, build with: mvn package -Pfast-startup" >&2
+fi
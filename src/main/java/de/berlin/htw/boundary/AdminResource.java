@@ -0,0 +1,258 @@
+package de.berlin.htw.boundary;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.UriInfo;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.boundary.dto.RecordingInfo;
+import de.berlin.htw.boundary.dto.TopUpImport;
+import de.berlin.htw.boundary.filter.PrincipalRequestFilter;
+import de.berlin.htw.control.TopUpImporter;
+import de.berlin.htw.control.TopUpReader.Format;
+import de.berlin.htw.control.jfr.FlightRecordings;
+import io.quarkus.runtime.configuration.DurationConverter;
+
+/**
+ * JAX-RS-Ressource für Betriebsaufgaben (JFR-Aufzeichnungen, Import von Aufladungen). Nur erreichbar, wenn
+ * {@code app.admin.enabled} gesetzt ist, sonst antworten alle Pfade mit 404. Aufrufer ohne die Rolle
+ * {@value PrincipalRequestFilter#ADMIN_ROLE} ({@code app.admin.users}) erhalten 403.
+ */
+@Path("/admin")
+public class AdminResource {
+
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    @Context
+    UriInfo uri;
+
+    @Context
+    SecurityContext context;
+
+    @Inject
+    FlightRecordings flightRecordings;
+
+    @Inject
+    TopUpImporter topUpImporter;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.admin.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @POST
+    @Path("recordings")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Start a JDK Flight Recorder recording that is written to the server's disk when it ends.")
+    @APIResponse(responseCode = "201", description = "Recording started",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = RecordingInfo.class)))
+    @APIResponse(responseCode = "400", description = "Invalid name, duration or settings")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Admin endpoints disabled")
+    @APIResponse(responseCode = "409", description = "Another recording is still running")
+    public Response startRecording(
+            @Parameter(description = "Name of the recording, part of the file name") @QueryParam("name") @DefaultValue("va-lab") final String name,
+            @Parameter(description = "Maximum duration, e.g. 30s, 5m or PT1H (default app.jfr.max-duration)") @QueryParam("duration") final String duration,
+            @Parameter(description = "JFR settings: default (low overhead) or profile") @QueryParam("settings") @DefaultValue("default") final String settings) {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+
+        final RecordingInfo recording = flightRecordings.start(name, parseDuration(duration), settings);
+        return Response.created(uri.getAbsolutePathBuilder().path(String.valueOf(recording.getId())).build())
+                .entity(recording)
+                .build();
+    }
+
+    @GET
+    @Path("recordings")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "List the recordings started through this endpoint.")
+    @APIResponse(responseCode = "200", description = "The recordings, oldest first",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = RecordingInfo.class)))
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Admin endpoints disabled")
+    public Response listRecordings() {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return Response.ok(flightRecordings.list()).build();
+    }
+
+    @GET
+    @Path("recordings/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Retrieve the state of a recording.")
+    @APIResponse(responseCode = "200", description = "The recording",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = RecordingInfo.class)))
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Recording not found or admin endpoints disabled")
+    public Response getRecording(
+            @Parameter(description = "ID of the recording", required = true) @PathParam("id") final long id) {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return Response.ok(flightRecordings.get(id)).build();
+    }
+
+    @POST
+    @Path("recordings/{id}/stop")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Stop a recording before its duration has elapsed and write the .jfr file.")
+    @APIResponse(responseCode = "200", description = "Recording stopped and written",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = RecordingInfo.class)))
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Recording not found or admin endpoints disabled")
+    public Response stopRecording(
+            @Parameter(description = "ID of the recording", required = true) @PathParam("id") final long id) {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return Response.ok(flightRecordings.stop(id)).build();
+    }
+
+    @POST
+    @Path("topups")
+    @Consumes(TEXT_CSV)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Upload a CSV file of top-ups (header with reference, userId and amount) and import it in the "
+            + "background. Rows whose reference was already booked for the user are skipped, so a failed import can be "
+            + "repeated with the same file. Files above the request body limit go through /admin/topups/files/{name}.")
+    @APIResponse(responseCode = "202", description = "Import accepted, progress under the Location header",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = TopUpImport.class)))
+    @APIResponse(responseCode = "400", description = "Missing or incomplete CSV header")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Admin endpoints disabled")
+    @APIResponse(responseCode = "413", description = "File larger than the request body limit")
+    public Response importCsvTopUps(final InputStream file) {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return accepted(topUpImporter.submit(file, Format.CSV));
+    }
+
+    @POST
+    @Path("topups")
+    @Consumes(APPLICATION_NDJSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Upload a newline-delimited JSON file of top-ups ({\"reference\", \"userId\", \"amount\"} "
+            + "per line) and import it in the background. Rows whose reference was already booked for the user are skipped.")
+    @APIResponse(responseCode = "202", description = "Import accepted, progress under the Location header",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = TopUpImport.class)))
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Admin endpoints disabled")
+    @APIResponse(responseCode = "413", description = "File larger than the request body limit")
+    public Response importNdjsonTopUps(final InputStream file) {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return accepted(topUpImporter.submit(file, Format.NDJSON));
+    }
+
+    @POST
+    @Path("topups/files/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Import a top-up file from the server's import directory (app.balance.import.directory) in the "
+            + "background, e.g. files of several million rows. The format follows from the extension: .csv, .ndjson or .jsonl.")
+    @APIResponse(responseCode = "202", description = "Import accepted, progress under the Location header",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = TopUpImport.class)))
+    @APIResponse(responseCode = "400", description = "Invalid file name, unknown extension or missing CSV header")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "File not found, no import directory configured or admin endpoints disabled")
+    public Response importTopUpFile(
+            @Parameter(description = "Name of the file in the import directory", required = true) @PathParam("name") final String name) {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return accepted(topUpImporter.submitFile(name));
+    }
+
+    @GET
+    @Path("topups")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "List progress and result of the recent top-up imports, including running ones.")
+    @APIResponse(responseCode = "200", description = "The imports, oldest first",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = TopUpImport.class)))
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Admin endpoints disabled")
+    public Response listTopUpImports() {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return Response.ok(topUpImporter.list()).build();
+    }
+
+    @GET
+    @Path("topups/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Retrieve progress or result of a top-up import.")
+    @APIResponse(responseCode = "200", description = "The import",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = TopUpImport.class)))
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an administrator")
+    @APIResponse(responseCode = "404", description = "Import not found or admin endpoints disabled")
+    public Response getTopUpImport(
+            @Parameter(description = "ID of the import", required = true) @PathParam("id") final long id) {
+        checkAccess();
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return Response.ok(topUpImporter.get(id)).build();
+    }
+
+    private Response accepted(final TopUpImport topUpImport) {
+        return Response.accepted(topUpImport)
+                .location(uri.getBaseUriBuilder().path(AdminResource.class).path("topups/{id}").build(topUpImport.getId()))
+                .build();
+    }
+
+    private void checkAccess() {
+        if (!enabled) {
+            throw new NotFoundException();
+        }
+        if (!context.isUserInRole(PrincipalRequestFilter.ADMIN_ROLE)) {
+            logger.warn(context.getUserPrincipal().getName() + " is not allowed to call " + uri.getAbsolutePath());
+            throw new ForbiddenException("Nur für Administratoren");
+        }
+    }
+
+    private static Duration parseDuration(final String duration) {
+        if (duration == null || duration.isBlank()) {
+            return null;
+        }
+        try {
+            // dasselbe Format wie in application.properties
+            return DurationConverter.parseDuration(duration);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Ungültige Dauer: " + duration);
+        }
+    }
+}
@@ -17,6 +17,9 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.core.UriInfo;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
@@ -30,7 +33,8 @@ import de.berlin.htw.boundary.dto.Basket;
 import de.berlin.htw.boundary.dto.Item;
 import de.berlin.htw.boundary.dto.Order;
 import de.berlin.htw.control.BasketController;
-import de.berlin.htw.control.OrderController;
+import de.berlin.htw.control.BasketEventBus;
+import de.berlin.htw.control.CheckoutCoordinator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
@@ -39,8 +43,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
  * Stellt HTTP-Endpunkte zum Anzeigen, Leeren, Hinzufügen von Artikeln,
  * Entfernen von Artikeln, Ändern der Artikelanzahl und zum Checkout des Warenkorbs bereit.
  * Verwendet {@link BasketController} für die Logik des Warenkorbs
- * und {@link OrderController} für die Auftragsabwicklung.
+ * und {@link CheckoutCoordinator} für die Auftragsabwicklung.
  * Die Benutzeridentifikation erfolgt über {@link SecurityContext}.
+ * Anfragen und Antworten sind standardmäßig JSON; per {@code Accept}/{@code Content-Type}
+ * kann stattdessen CBOR verwendet werden (siehe {@link CborProvider}).
+ * Änderungen am Warenkorb lassen sich über {@code GET /basket/events} als Server-Sent Events abonnieren,
+ * statt den Warenkorb regelmäßig abzufragen (siehe {@link BasketEventBus}).
  *
  * @author Alexander Stanik [alexander.stanik@htw-berlin.de]
  */
@@ -57,17 +65,21 @@ public class BasketResource {
     BasketController basket; // Injizierter Controller zur Verwaltung der Geschäftslogik des Warenkorbs.
 
     @Inject
-    OrderController orderController; // Injizierter Controller zur Abwicklung von Bestellungen.
+    CheckoutCoordinator checkoutCoordinator; // Injizierter Koordinator zur Abwicklung von Bestellungen (ggf. mit Group Commit).
+
+    @Inject
+    BasketEventBus basketEvents; // Verteilt Warenkorb-Änderungen an offene Event-Streams.
 
     @Inject
     Logger logger; // Injizierter Logger zum Protokollieren von Nachrichten.
 
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
     @Operation(summary = "Retrieve the basket with all items.")
     @APIResponse(responseCode = "200", description = "Retrieve all items in basket successfully",
             content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Basket.class)))
     @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "503", description = "Basket storage temporarily unavailable, retry after the given delay")
     @APIResponse(responseCode = "415", description = "Unsupported Media Type")
     public Response getBasket() {
         String userId = context.getUserPrincipal().getName();
@@ -94,10 +106,28 @@ public class BasketResource {
         return Response.ok(userBasket).build();
     }
 
+    @GET
+    @Path("events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @Operation(summary = "Stream changes of the basket as Server-Sent Events.")
+    @APIResponse(responseCode = "200", description = "Event stream. Events are named item-added, item-changed, item-removed, cleared "
+            + "or expired and carry the change and the new basket summary as JSON")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    public void streamEvents(@Context final SseEventSink sink, @Context final Sse sse) {
+        String userId = context.getUserPrincipal().getName();
+        logger.info(userId + " is calling " + uri.getAbsolutePath());
+
+        // Die Methode kehrt sofort zurück; die Verbindung bleibt offen, ohne einen Worker-Thread zu belegen.
+        SseSubscriber subscriber = new SseSubscriber(sink, sse);
+        basketEvents.subscribe(userId, subscriber);
+        subscriber.ping(); // Antwort-Header sofort senden, damit der Client die Verbindung als offen erkennt
+    }
+
     @DELETE
     @Operation(summary = "Remove all items from basket.")
     @APIResponse(responseCode = "204", description = "Items removed successfully")
     @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "503", description = "Basket storage temporarily unavailable, retry after the given delay")
     public Response clearBasket() {
         String userId = context.getUserPrincipal().getName();
         logger.info(userId + " is calling " + uri.getAbsolutePath());
@@ -107,14 +137,16 @@ public class BasketResource {
     }
 
     @POST
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
     @Operation(summary = "Create an order from basket.")
     @APIResponse(responseCode = "201", description = "Order created successfully",
             content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Order.class)))
+    @APIResponse(responseCode = "202", description = "Group commit still pending, the result is available at the Location header")
     @APIResponse(responseCode = "400", description = "Invalid basket")
     @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
     @APIResponse(responseCode = "402", description = "Not enough money on account")
     @APIResponse(responseCode = "404", description = "Empty basket")
+    @APIResponse(responseCode = "503", description = "Too many concurrent checkouts or basket storage unavailable, retry later")
     public Response checkout() {
         String userId = context.getUserPrincipal().getName();
         logger.info(userId + " is calling " + uri.getAbsolutePath());
@@ -129,8 +161,9 @@ public class BasketResource {
         }
 
         try {
-            // Delegiere an OrderController, um die Bestellung mit dem aktuellen Warenkorb des Benutzers aufzugeben.
-            Order order = orderController.placeOrder(userId);
+            // Delegiere an den CheckoutCoordinator, um die Bestellung mit dem aktuellen Warenkorb des Benutzers aufzugeben
+            // (je nach Konfiguration als eigene Transaktion oder gesammelt mit anderen Checkouts).
+            Order order = checkoutCoordinator.checkout(userId);
 
             // Bei Erfolg 201 Created zurückgeben, mit dem neu erstellten Order-Objekt im Antwortkörper.
             return Response.status(Status.CREATED).entity(order).build();
@@ -145,15 +178,36 @@ public class BasketResource {
         }
     }
 
+    @GET
+    @Path("checkouts/{reference}")
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
+    @Operation(summary = "Retrieve the result of a checkout that was answered with 202.")
+    @APIResponse(responseCode = "200", description = "Order created successfully",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Order.class)))
+    @APIResponse(responseCode = "202", description = "Checkout still pending, retry after the given delay")
+    @APIResponse(responseCode = "400", description = "Not enough money on account")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "404", description = "Unknown or expired reference")
+    public Response getCheckoutResult(
+            @Parameter(description = "Reference from the Location header of the 202 response", required = true) @PathParam("reference") final String reference) {
+        String userId = context.getUserPrincipal().getName();
+        logger.info(userId + " is calling " + uri.getAbsolutePath());
+
+        // 202, solange der Group Commit noch läuft (siehe CheckoutCoordinator)
+        Order order = checkoutCoordinator.result(userId, reference);
+        return Response.ok(order).build();
+    }
+
     @POST
     @Path("{productId}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR })
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
     @Operation(summary = "Add an item to basket.")
     @APIResponse(responseCode = "201", description = "Item added successfully",
             content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Basket.class)))
     @APIResponse(responseCode = "400", description = "Invalid request message")
     @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "503", description = "Basket storage temporarily unavailable, retry after the given delay")
     @APIResponse(responseCode = "409", description = "Another product with this ID already exists in the basket")
     @APIResponse(responseCode = "501", description = "Not Implemented")
     public Response addItem(
@@ -177,11 +231,12 @@ public class BasketResource {
 
     @DELETE
     @Path("{productId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
     @Operation(summary = "Remove an item from basket.")
     @APIResponse(responseCode = "200", description = "Item removed successfully",
             content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Basket.class)))
     @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "503", description = "Basket storage temporarily unavailable, retry after the given delay")
     @APIResponse(responseCode = "404", description = "No product with this ID in the basket")
     public Response removeItem(
             @Parameter(description = "ID of the product", required = true) @PathParam("productId") final String productId) {
@@ -197,13 +252,14 @@ public class BasketResource {
 
     @PATCH
     @Path("{productId}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR })
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
     @Operation(summary = "Change the number of an item in the basket.")
     @APIResponse(responseCode = "200", description = "Number changed successfully",
             content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = Basket.class)))
     @APIResponse(responseCode = "400", description = "Invalid request message (e.g., validation failure for Item DTO, invalid count)")
     @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "503", description = "Basket storage temporarily unavailable, retry after the given delay")
     @APIResponse(responseCode = "404", description = "No product with this ID in the basket")
     public Response changeCount(
             @Parameter(description = "ID of the product", required = true) @PathParam("productId") final String productId,
@@ -218,4 +274,44 @@ public class BasketResource {
         return Response.ok(updatedBasket).build();
     }
 
-}
\ No newline at end of file
+    /**
+     * Leitet Warenkorb-Events an eine offene SSE-Verbindung weiter.
+     * Schlägt das Senden fehl (Client weg), wird die Verbindung geschlossen und beim
+     * nächsten Event bzw. Heartbeat abgemeldet.
+     */
+    private static final class SseSubscriber implements BasketEventBus.Subscriber {
+
+        private final SseEventSink sink;
+        private final Sse sse;
+
+        private SseSubscriber(final SseEventSink sink, final Sse sse) {
+            this.sink = sink;
+            this.sse = sse;
+        }
+
+        @Override
+        public void send(final String name, final String data) {
+            send(sse.newEventBuilder().name(name).data(data).build());
+        }
+
+        @Override
+        public void ping() {
+            send(sse.newEventBuilder().comment("ping").build());
+        }
+
+        @Override
+        public boolean isClosed() {
+            return sink.isClosed();
+        }
+
+        private void send(final OutboundSseEvent event) {
+            if (sink.isClosed()) {
+                return;
+            }
+            sink.send(event).exceptionally(failure -> {
+                sink.close();
+                return null;
+            });
+        }
+    }
+}
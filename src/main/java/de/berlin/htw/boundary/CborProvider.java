@@ -0,0 +1,77 @@
+package de.berlin.htw.boundary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import jakarta.ws.rs.ext.Provider;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Liest und schreibt Request- und Response-Bodies als CBOR (RFC 8949) für Clients, die
+ * {@code Content-Type: application/cbor} senden oder es per {@code Accept} bevorzugen. JSON bleibt der Standard;
+ * die Ressourcen führen CBOR mit einem niedrigeren Qualitätsfaktor. Bean Validation läuft auf dem gelesenen DTO
+ * genauso wie bei JSON, weil sie über {@code @Valid} am Ressourcen-Parameter ausgelöst wird.
+ * Datumswerte ({@code java.time}) werden wie bei JSON-B als ISO-8601-Text geschrieben.
+ */
+@Provider
+@Consumes(CborProvider.APPLICATION_CBOR)
+@Produces(CborProvider.APPLICATION_CBOR)
+public class CborProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    public static final String APPLICATION_CBOR = "application/cbor";
+
+    // wie JSON-B: unbekannte Felder werden ignoriert, Datumswerte als ISO-8601-Text
+    private static final CBORMapper MAPPER = CBORMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    /**
+     * @return Der gemeinsam genutzte, threadsichere Mapper (z.B. für Tests und Messungen)
+     */
+    public static CBORMapper mapper() {
+        return MAPPER;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return true;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        try {
+            return MAPPER.readValue(entityStream, MAPPER.constructType(genericType));
+        } catch (JacksonException e) {
+            throw new BadRequestException("Ungültiger CBOR-Inhalt: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return true;
+    }
+
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        MAPPER.writeValue(entityStream, entity);
+    }
+}
@@ -3,9 +3,14 @@ package de.berlin.htw.boundary;
 import java.util.List;
 
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
@@ -15,11 +20,14 @@ import jakarta.ws.rs.core.UriInfo;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.media.Content;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.jboss.logging.Logger;
 
 import de.berlin.htw.boundary.dto.Order;
+import de.berlin.htw.boundary.dto.OrderStats;
 import de.berlin.htw.control.OrderController;
+import de.berlin.htw.control.limit.PriorityScheduler;
 
 /**
  * @author Alexander Stanik [alexander.stanik@htw-berlin.de]
@@ -27,6 +35,12 @@ import de.berlin.htw.control.OrderController;
 @Path("/orders")
 public class OrderResource {
 
+    /** Gesetzt, wenn die Antwort wegen Überlast gekürzt wurde. */
+    public static final String DEGRADED_HEADER = "X-Degraded";
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Context
     UriInfo uri;
     
@@ -36,18 +50,25 @@ public class OrderResource {
     @Inject
     OrderController orderController;
 
+    @Inject
+    PriorityScheduler priorityScheduler;
+
     @Inject
     Logger logger;
 
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
     @Operation(summary = "List all completed orders.")
-    @APIResponse(responseCode = "200", description = "The completed orders",
+    @APIResponse(responseCode = "200", description = "The completed orders, only the first page (header X-Degraded) while the node is overloaded",
         content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = List.class)) )
     @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
     @APIResponse(responseCode = "404", description = "User not found")
     @APIResponse(responseCode = "415", description = "Unsupported Media Type")
-    public Response getOrders() {
+    @APIResponse(responseCode = "400", description = "Invalid page or page size")
+    @APIResponse(responseCode = "503", description = "Too many concurrent history requests, or a page after the first while the node is overloaded, retry later")
+    public Response getOrders(
+    		@Parameter(description = "Page number starting at 0, all orders if neither page nor size is given") @QueryParam("page") final Integer page,
+    		@Parameter(description = "Orders per page (1 to " + MAX_PAGE_SIZE + ")") @QueryParam("size") final Integer size) {
     	logger.info(context.getUserPrincipal().getName() 
     			+ " is calling " + uri.getAbsolutePath());
     	
@@ -55,13 +76,34 @@ public class OrderResource {
     	if (context.getUserPrincipal().getName().equals("1")) {
     		return Response.status(Response.Status.UNSUPPORTED_MEDIA_TYPE).build();
     	}
+    	if ((page != null && page < 0) || (size != null && (size < 1 || size > MAX_PAGE_SIZE))) {
+    		throw new BadRequestException("Ungültige Seite oder Seitengröße");
+    	}
     	
     	try {
+    		final String userName = context.getUserPrincipal().getName();
+    		// Unter Last bekommt die Historie nur die erste Seite, damit Checkouts Vorrang haben;
+    		// eine spätere Seite gibt es dann nicht, statt stillschweigend wieder die erste zu liefern
+    		if (priorityScheduler.shouldDegrade()) {
+    			if (page != null && page > 0) {
+    				throw new ServiceUnavailableException(1L);
+    			}
+    			final int firstPageSize = Math.min(size == null ? MAX_PAGE_SIZE : size, priorityScheduler.getDegradedPageSize());
+    			return Response.ok(orderController.getCompletedOrders(userName, 0, firstPageSize))
+    					.header(DEGRADED_HEADER, "first-page")
+    					.build();
+    		}
+    		
     		// Hole die abgeschlossenen Bestellungen des Benutzers
-    		List<Order> orders = orderController.getCompletedOrders(context.getUserPrincipal().getName());
+    		List<Order> orders = page == null && size == null
+    				? orderController.getCompletedOrders(userName)
+    				: orderController.getCompletedOrders(userName, page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size);
     		
     		// Gib die Bestellungen zurück
     		return Response.ok(orders).build();
+    	} catch (WebApplicationException e) {
+    		// z.B. 404 oder 503 vom Bulkhead unverändert weiterreichen
+    		throw e;
     	} catch (Exception e) {
     		return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
     			.entity("Fehler beim Abrufen der Bestellungen: " + e.getMessage())
@@ -69,4 +111,58 @@ public class OrderResource {
     	}
     }
 
+    @GET
+    @Path("search")
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
+    @Operation(summary = "Find completed orders containing a product whose name or product ID starts with the query words.")
+    @APIResponse(responseCode = "200", description = "The matching orders",
+        content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = List.class)) )
+    @APIResponse(responseCode = "400", description = "Missing query")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "404", description = "User not found")
+    @APIResponse(responseCode = "503", description = "Too many concurrent history requests, retry later")
+    public Response searchOrders(
+    		@Parameter(description = "Search query, e.g. a product name prefix", required = true) @QueryParam("q") final String query) {
+    	logger.info(context.getUserPrincipal().getName() 
+    			+ " is calling " + uri.getAbsolutePath());
+
+    	if (query == null || query.isBlank()) {
+    		throw new BadRequestException("Suchbegriff fehlt");
+    	}
+    	List<Order> orders = orderController.searchOrders(context.getUserPrincipal().getName(), query);
+    	return Response.ok(orders).build();
+    }
+
+    @POST
+    @Path("search/index")
+    @Operation(summary = "Rebuild the order search index of the user from the database.")
+    @APIResponse(responseCode = "204", description = "Index rebuilt")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "404", description = "User not found")
+    @APIResponse(responseCode = "503", description = "Too many concurrent history requests, retry later")
+    public Response rebuildSearchIndex() {
+    	logger.info(context.getUserPrincipal().getName() 
+    			+ " is calling " + uri.getAbsolutePath());
+
+    	orderController.rebuildSearchIndex(context.getUserPrincipal().getName());
+    	return Response.noContent().build();
+    }
+
+    @GET
+    @Path("stats")
+    @Produces({ MediaType.APPLICATION_JSON, CborProvider.APPLICATION_CBOR + ";qs=0.9" })
+    @Operation(summary = "Lifetime spend, order count and last order date of the user.")
+    @APIResponse(responseCode = "200", description = "The order statistics",
+        content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = OrderStats.class)) )
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "404", description = "User not found")
+    @APIResponse(responseCode = "503", description = "Too many concurrent history requests, retry later")
+    public Response getOrderStats() {
+    	logger.info(context.getUserPrincipal().getName() 
+    			+ " is calling " + uri.getAbsolutePath());
+
+    	OrderStats stats = orderController.getOrderStats(context.getUserPrincipal().getName());
+    	return Response.ok(stats).build();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package de.berlin.htw.boundary;
+
+import java.util.List;
+
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.ForbiddenException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.UriInfo;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.boundary.dto.Product;
+import de.berlin.htw.boundary.dto.TopProduct;
+import de.berlin.htw.boundary.filter.PrincipalRequestFilter;
+import de.berlin.htw.control.BestSellerRanking;
+import de.berlin.htw.control.ProductCatalog;
+
+/**
+ * JAX-RS-Ressource für den Produktkatalog.
+ * 
+ * @author Alexander Stanik [alexander.stanik@htw-berlin.de]
+ */
+@Path("/products")
+public class ProductResource {
+
+    @Context
+    UriInfo uri;
+
+    @Context
+    SecurityContext context;
+
+    @Inject
+    ProductCatalog catalog;
+
+    @Inject
+    BestSellerRanking bestSellerRanking;
+
+    @Inject
+    Logger logger;
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Bulk load products into the catalog (insert or update by product ID).")
+    @APIResponse(responseCode = "204", description = "Products loaded successfully")
+    @APIResponse(responseCode = "400", description = "Invalid request message")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "403", description = "Caller is not an admin")
+    public Response bulkLoad(@NotNull @Valid final List<@Valid Product> products) {
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        // Preise des Katalogs darf nur ein Admin ändern
+        if (!context.isUserInRole(PrincipalRequestFilter.ADMIN_ROLE)) {
+            throw new ForbiddenException("Nur für Administratoren");
+        }
+
+        final int loaded = catalog.bulkLoad(products);
+        logger.info(loaded + " products loaded into the catalog");
+        return Response.noContent().build();
+    }
+
+    @GET
+    @Path("top")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Retrieve the best-selling products of a recent time window.")
+    @APIResponse(responseCode = "200", description = "Best sellers ordered by quantity sold",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON,
+                    schema = @Schema(type = SchemaType.ARRAY, implementation = TopProduct.class)))
+    @APIResponse(responseCode = "400", description = "Invalid window or limit")
+    @APIResponse(responseCode = "401", description = "No or wrong User Id provided as header")
+    @APIResponse(responseCode = "503", description = "Ranking storage temporarily unavailable, retry later")
+    public Response getTopProducts(
+            @Parameter(description = "Time window, e.g. 15m, 1h, 24h or 7d") @QueryParam("window") @DefaultValue("1h") final String window,
+            @Parameter(description = "Maximum number of products (1-100)") @QueryParam("limit") @DefaultValue("10") final int limit) {
+        logger.info(context.getUserPrincipal().getName() + " is calling " + uri.getAbsolutePath());
+        return Response.ok(bestSellerRanking.top(window, limit)).build();
+    }
+
+}
@@ -0,0 +1,35 @@
+package de.berlin.htw.boundary;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.jboss.logging.Logger;
+
+/**
+ * Exception mapper to fail fast with HTTP 503 and Retry-After when Redis commands time out
+ * or the Redis circuit breaker is open
+ */
+@Provider
+public class RedisUnavailableExceptionMapper implements ExceptionMapper<FaultToleranceException> {
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.redis.retry-after", defaultValue = "5")
+    long retryAfterSeconds;
+
+    @Override
+    public Response toResponse(FaultToleranceException exception) {
+        logger.debug("Redis unavailable: " + exception.getMessage());
+
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity("Der Warenkorb ist vorübergehend nicht verfügbar")
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package de.berlin.htw.boundary;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+import de.berlin.htw.control.WarmUp;
+
+/**
+ * Readiness-Check, der DOWN bleibt, bis der Warm-up nach dem Start abgeschlossen ist,
+ * damit der Load Balancer keinen Knoten mit kaltem JIT-Code und leeren Pools anspricht
+ */
+@Readiness
+@ApplicationScoped
+public class WarmUpReadinessCheck implements HealthCheck {
+
+    @Inject
+    WarmUp warmUp;
+
+    @Override
+    public HealthCheckResponse call() {
+        final HealthCheckResponseBuilder response = HealthCheckResponse.named("warm-up").status(warmUp.isDone());
+        warmUp.getLastReport().forEach((step, stats) -> response.withData(step, stats.toString()));
+        return response.build();
+    }
+}
@@ -0,0 +1,113 @@
+package de.berlin.htw.boundary.dto;
+
+/**
+ * Data Transfer Object (DTO) für eine Änderung am Warenkorb, wie sie über
+ * {@code GET /basket/events} (Server-Sent Events) verschickt wird.
+ * Enthält die Änderung selbst (Typ, Produkt, Artikel) und die neue Zusammenfassung des Warenkorbs.
+ */
+public class BasketEvent {
+
+    public static final String ITEM_ADDED = "item-added";
+    public static final String ITEM_CHANGED = "item-changed";
+    public static final String ITEM_REMOVED = "item-removed";
+    public static final String CLEARED = "cleared";
+    public static final String EXPIRED = "expired";
+
+    /**
+     * Art der Änderung, zugleich der Name des SSE-Events.
+     */
+    private String type;
+
+    /**
+     * Produktnummer des geänderten Artikels, null bei {@link #CLEARED} und {@link #EXPIRED}.
+     */
+    private String productId;
+
+    /**
+     * Der Artikel nach der Änderung, null wenn er entfernt wurde.
+     */
+    private Item item;
+
+    /**
+     * Anzahl unterschiedlicher Artikel im Warenkorb nach der Änderung.
+     */
+    private Integer itemCount;
+
+    /**
+     * Gesamtsumme des Warenkorbs nach der Änderung.
+     */
+    private Float total;
+
+    /**
+     * Guthaben des Benutzers, null wenn es für die Änderung nicht gelesen wurde.
+     */
+    private Float remainingBalance;
+
+    /**
+     * Erzeugt ein Event aus dem Warenkorb nach der Änderung.
+     *
+     * @param type Art der Änderung
+     * @param productId Produktnummer oder null
+     * @param item Artikel nach der Änderung oder null
+     * @param basket Warenkorb nach der Änderung oder null, wenn er nicht mehr existiert
+     * @return Das Event
+     */
+    public static BasketEvent of(final String type, final String productId, final Item item, final Basket basket) {
+        final BasketEvent event = new BasketEvent();
+        event.setType(type);
+        event.setProductId(productId);
+        event.setItem(item);
+        event.setItemCount(basket == null || basket.getItems() == null ? 0 : basket.getItems().size());
+        event.setTotal(basket == null ? 0f : basket.getTotal());
+        event.setRemainingBalance(basket == null ? null : basket.getRemainingBalance());
+        return event;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public Item getItem() {
+        return item;
+    }
+
+    public void setItem(Item item) {
+        this.item = item;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public Float getTotal() {
+        return total;
+    }
+
+    public void setTotal(Float total) {
+        this.total = total;
+    }
+
+    public Float getRemainingBalance() {
+        return remainingBalance;
+    }
+
+    public void setRemainingBalance(Float remainingBalance) {
+        this.remainingBalance = remainingBalance;
+    }
+}
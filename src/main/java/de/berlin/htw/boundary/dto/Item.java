@@ -8,6 +8,8 @@ package de.berlin.htw.boundary.dto;
 
 import jakarta.validation.constraints.*;
 
+import de.berlin.htw.boundary.dto.validation.ValidProductId;
+
 /**
  * @author Alexander Stanik [alexander.stanik@htw-berlin.de]
  */
@@ -24,12 +26,13 @@ public class Item {
 
     /**
      * Die eindeutige ID des Produkts.
-     * Muss dem Format 'X-X-X-X-X-X' entsprechen, wobei X eine Ziffer ist.
+     * Muss dem Format 'X-X-X-X-X-X' entsprechen, wobei X eine Zahl zwischen 0 und 1023 ist.
+     * Intern wird die Nummer gepackt als long verarbeitet (siehe {@link de.berlin.htw.control.ProductIds}).
      * Darf nicht leer sein.
      */
     
     @NotBlank(message = "Produktnummer darf nicht null sein")
-    @Pattern(regexp = "^\\d+(?:-\\d+){5}$", message = "Produktnummer muss aus 6 Zahlen bestehen, die durch Bindestriche getrennt sind")
+    @ValidProductId
     private String productId;
 
     /**
@@ -0,0 +1,49 @@
+package de.berlin.htw.boundary.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object (DTO) für die Bestell-Statistik eines Benutzers.
+ */
+public class OrderStats {
+
+    /**
+     * Anzahl aller abgeschlossenen Bestellungen.
+     */
+    private Integer orderCount;
+
+    /**
+     * Summe aller Bestellungen (Lifetime Spend).
+     */
+    private Float totalSpent;
+
+    /**
+     * Zeitpunkt der letzten Bestellung oder null, wenn noch nie bestellt wurde.
+     */
+    private LocalDateTime lastOrderDate;
+
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public Float getTotalSpent() {
+        return totalSpent;
+    }
+
+    public void setTotalSpent(Float totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
+    public LocalDateTime getLastOrderDate() {
+        return lastOrderDate;
+    }
+
+    public void setLastOrderDate(LocalDateTime lastOrderDate) {
+        this.lastOrderDate = lastOrderDate;
+    }
+
+}
@@ -0,0 +1,54 @@
+package de.berlin.htw.boundary.dto;
+
+/**
+ * Data Transfer Object (DTO) für ein Produkt des Katalogs.
+ * Es gelten dieselben Regeln wie für einen {@link Item}.
+ */
+
+import jakarta.validation.constraints.*;
+
+import de.berlin.htw.boundary.dto.validation.ValidProductId;
+
+/**
+ * @author Alexander Stanik [alexander.stanik@htw-berlin.de]
+ */
+public class Product {
+
+    @NotBlank(message = "Produktname darf nicht null sein")
+    @Size(max = 255, message = "Produktname darf nicht länger als 255 Zeichen sein")
+    private String productName;
+
+    @NotBlank(message = "Produktnummer darf nicht null sein")
+    @ValidProductId
+    private String productId;
+
+    @NotNull(message = "Preis darf nicht null sein")
+    @DecimalMin(value = "10.0", inclusive = true, message = "Preis muss mindestens 10 Euro betragen")
+    @DecimalMax(value = "100.0", inclusive = true, message = "Preis darf maximal 100 Euro betragen")
+    private Float price;
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public Float getPrice() {
+        return price;
+    }
+
+    public void setPrice(Float price) {
+        this.price = price;
+    }
+
+}
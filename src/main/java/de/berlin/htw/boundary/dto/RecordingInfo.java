@@ -0,0 +1,95 @@
+package de.berlin.htw.boundary.dto;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) für eine JFR-Aufzeichnung.
+ */
+public class RecordingInfo {
+
+    /**
+     * ID der Aufzeichnung in der JVM.
+     */
+    private Long id;
+
+    private String name;
+
+    /**
+     * NEW, DELAYED, RUNNING, STOPPED oder CLOSED.
+     */
+    private String state;
+
+    /**
+     * Name der verwendeten JFR-Konfiguration, z.B. default oder profile.
+     */
+    private String settings;
+
+    private Instant startTime;
+
+    /**
+     * Maximale Dauer in Sekunden, danach wird die Aufzeichnung automatisch beendet und geschrieben.
+     */
+    private Long durationSeconds;
+
+    /**
+     * Pfad der .jfr-Datei auf dem Server, vollständig erst nach dem Ende der Aufzeichnung.
+     */
+    private String file;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Instant startTime) {
+        this.startTime = startTime;
+    }
+
+    public Long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(Long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+}
@@ -0,0 +1,60 @@
+package de.berlin.htw.boundary.dto;
+
+/**
+ * Data Transfer Object (DTO) für einen Eintrag der Bestseller-Liste.
+ */
+public class TopProduct {
+
+    /**
+     * Produktnummer im Format 1-2-3-4-5-6.
+     */
+    private String productId;
+
+    /**
+     * Aktueller Name aus dem Produktkatalog oder null, wenn das Produkt nicht mehr existiert.
+     */
+    private String productName;
+
+    /**
+     * Verkaufte Stückzahl im abgefragten Zeitfenster.
+     */
+    private Long quantity;
+
+    /**
+     * Umsatz im abgefragten Zeitfenster.
+     */
+    private Float revenue;
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Long quantity) {
+        this.quantity = quantity;
+    }
+
+    public Float getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(Float revenue) {
+        this.revenue = revenue;
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.berlin.htw.boundary.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) für den Fortschritt bzw. das Ergebnis eines Aufladungs-Imports.
+ */
+public class TopUpImport {
+
+    private Long id;
+
+    /**
+     * csv oder ndjson.
+     */
+    private String format;
+
+    /**
+     * QUEUED, RUNNING, COMPLETED oder FAILED.
+     */
+    private String state;
+
+    private Instant startTime;
+
+    private Instant endTime;
+
+    /**
+     * Gelesene Datenzeilen (ohne Kopfzeile und Leerzeilen).
+     */
+    private Long rowsRead;
+
+    /**
+     * Gebuchte Aufladungen.
+     */
+    private Long applied;
+
+    /**
+     * Übersprungene Zeilen, deren Referenz für den Benutzer schon gebucht war.
+     */
+    private Long duplicates;
+
+    /**
+     * Übersprungene Zeilen für nicht existierende Benutzer.
+     */
+    private Long unknownUsers;
+
+    /**
+     * Ungültige Zeilen (Format, Betrag, Referenz).
+     */
+    private Long rejected;
+
+    private Double rowsPerSecond;
+
+    /**
+     * Die ersten Fehlermeldungen mit Zeilennummer.
+     */
+    private List<String> errors;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Instant startTime) {
+        this.startTime = startTime;
+    }
+
+    public Instant getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Instant endTime) {
+        this.endTime = endTime;
+    }
+
+    public Long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(Long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public Long getApplied() {
+        return applied;
+    }
+
+    public void setApplied(Long applied) {
+        this.applied = applied;
+    }
+
+    public Long getDuplicates() {
+        return duplicates;
+    }
+
+    public void setDuplicates(Long duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    public Long getUnknownUsers() {
+        return unknownUsers;
+    }
+
+    public void setUnknownUsers(Long unknownUsers) {
+        this.unknownUsers = unknownUsers;
+    }
+
+    public Long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Long rejected) {
+        this.rejected = rejected;
+    }
+
+    public Double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(Double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+}
@@ -0,0 +1,17 @@
+package de.berlin.htw.boundary.dto.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import de.berlin.htw.control.ProductIds;
+
+/**
+ * Validator für {@link ValidProductId}.
+ */
+public class ProductIdValidator implements ConstraintValidator<ValidProductId, CharSequence> {
+
+    @Override
+    public boolean isValid(final CharSequence value, final ConstraintValidatorContext context) {
+        return value == null || ProductIds.isValid(value);
+    }
+}
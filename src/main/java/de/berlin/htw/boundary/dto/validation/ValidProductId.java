@@ -0,0 +1,28 @@
+package de.berlin.htw.boundary.dto.validation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+/**
+ * Die Produktnummer muss aus 6 Zahlen bestehen, die durch Bindestriche getrennt sind.
+ * Ersetzt das bisherige Regex-Pattern durch den handgeschriebenen Parser aus
+ * {@link de.berlin.htw.control.ProductIds}. {@code null} gilt als gültig (dafür gibt es {@code @NotBlank}).
+ */
+@Documented
+@Constraint(validatedBy = ProductIdValidator.class)
+@Target({ ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ValidProductId {
+
+    String message() default "Produktnummer muss aus 6 Zahlen (je 0 bis 1023) bestehen, die durch Bindestriche getrennt sind";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,84 @@
+package de.berlin.htw.boundary.filter;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import de.berlin.htw.control.limit.ConcurrencyLimiter;
+import de.berlin.htw.control.limit.EndpointGroup;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Setzt die adaptiven Concurrency-Limits ({@link ConcurrencyLimiter}) für {@code /basket} und {@code /orders} durch.
+ * Läuft als Vert.x-Route vor RESTEasy auf dem Event-Loop: Abgelehnte Anfragen belegen weder einen
+ * Worker-Thread noch einen Platz in dessen Warteschlange. Die Latenz wird bis zum Ende der Antwort gemessen;
+ * der Platz wird auch bei Verbindungsabbrüchen und unbehandelten Fehlern wieder freigegeben.
+ * Der Event-Stream {@code /basket/events} ist ausgenommen, er bleibt absichtlich lange offen.
+ * Abgelehnte Anfragen bekommen 503 mit {@code Retry-After} und dem aktuellen Limit der Gruppe in
+ * {@value #LIMIT_HEADER}.
+ */
+@ApplicationScoped
+public class ConcurrencyLimitFilter {
+
+    // Vor der RESTEasy-Route (Standard-Reihenfolge)
+    private static final int ROUTE_ORDER = -100;
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    static final String LIMIT_HEADER = "X-Concurrency-Limit";
+
+    @Inject
+    ConcurrencyLimiter limiter;
+
+    void register(@Observes final Router router) {
+        if (!limiter.isEnabled()) {
+            return;
+        }
+        router.route().order(ROUTE_ORDER).handler(this::limit);
+    }
+
+    private void limit(final RoutingContext context) {
+        final EndpointGroup group = classify(context.request().method(), context.normalizedPath());
+        if (group == null) {
+            context.next();
+            return;
+        }
+        final int inFlight = limiter.tryAcquire(group);
+        if (inFlight == 0) {
+            context.response()
+                    .setStatusCode(Response.Status.SERVICE_UNAVAILABLE.getStatusCode())
+                    .putHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .putHeader(LIMIT_HEADER, String.valueOf(limiter.getLimit(group)))
+                    .end();
+            return;
+        }
+        final long start = System.nanoTime();
+        context.addEndHandler(result -> limiter.release(group, inFlight, System.nanoTime() - start,
+                context.response().getStatusCode() == Response.Status.SERVICE_UNAVAILABLE.getStatusCode()));
+        context.next();
+    }
+
+    /**
+     * Ordnet eine Anfrage ihrer Endpunkt-Gruppe zu.
+     *
+     * @param method Die HTTP-Methode
+     * @param path Der normalisierte Pfad
+     * @return Die Gruppe oder null, wenn die Anfrage nicht begrenzt wird
+     */
+    static EndpointGroup classify(final HttpMethod method, final String path) {
+        if (path.equals("/basket") || path.equals("/basket/")) {
+            return HttpMethod.POST.equals(method) ? EndpointGroup.CHECKOUT : EndpointGroup.BASKET;
+        }
+        if (path.startsWith("/basket/")) {
+            return path.equals("/basket/events") ? null : EndpointGroup.BASKET;
+        }
+        if (path.equals("/orders") || path.startsWith("/orders/")) {
+            return EndpointGroup.ORDERS;
+        }
+        return null;
+    }
+}
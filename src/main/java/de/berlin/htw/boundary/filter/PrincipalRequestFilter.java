@@ -2,6 +2,8 @@ package de.berlin.htw.boundary.filter;
 
 import java.io.IOException;
 import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
 
 import jakarta.annotation.Priority;
 import jakarta.inject.Inject;
@@ -12,6 +14,7 @@ import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.ext.Provider;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import de.berlin.htw.entity.dao.UserRepository;
@@ -23,11 +26,20 @@ import de.berlin.htw.entity.dao.UserRepository;
 @Priority(Priorities.AUTHENTICATION)
 public class PrincipalRequestFilter implements ContainerRequestFilter {
 
+    /**
+     * Rolle für Betriebs- und Katalogfunktionen (/admin, Katalog-Import), siehe {@code app.admin.users}.
+     */
+    public static final String ADMIN_ROLE = "admin";
+
     @Inject
     Logger logger;
 
 	@Inject
 	UserRepository repository;
+
+    // Namen der Principals mit der Rolle admin
+    @ConfigProperty(name = "app.admin.users")
+    Optional<List<String>> adminUsers;
 	
     @Override
     public void filter(ContainerRequestContext requestContext)
@@ -57,7 +69,7 @@ public class PrincipalRequestFilter implements ContainerRequestFilter {
         }
         
         // Standardfall für nicht-Test User-IDs
-        final Principal principal = repository.findUserById(Integer.valueOf(userId));
+        final Principal principal = repository.findUserByIdReadOnly(Integer.valueOf(userId));
         if (principal == null) {
         	logger.error("Principal not found in database");
         	throw new NotAuthorizedException("X-User-Id");
@@ -78,7 +90,9 @@ public class PrincipalRequestFilter implements ContainerRequestFilter {
 
             @Override
             public boolean isUserInRole(String role) {
-                return true;
+                // Weitere Rollen gibt es nicht, jeder Benutzer darf einkaufen
+                return ADMIN_ROLE.equals(role)
+                        && adminUsers.map(users -> users.contains(principal.getName())).orElse(false);
             }
 
             @Override
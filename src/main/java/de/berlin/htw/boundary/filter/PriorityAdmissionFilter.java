@@ -0,0 +1,113 @@
+package de.berlin.htw.boundary.filter;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import de.berlin.htw.control.limit.PriorityGate;
+import de.berlin.htw.control.limit.PriorityScheduler;
+import de.berlin.htw.control.limit.RequestPriority;
+import io.vertx.core.Context;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Lässt Anfragen an {@code /basket} und {@code /orders} nach Priorität zu ({@link PriorityScheduler}).
+ * Läuft als Vert.x-Route nach dem {@link ConcurrencyLimitFilter} und vor RESTEasy: Eine Anfrage wird erst
+ * an die Worker-Threads weitergereicht, wenn ihre Priorität einen Platz bekommt. So stehen Checkouts bei
+ * Überlast nicht hinter einer Welle von {@code GET /orders} in der Warteschlange des Worker-Pools.
+ * Wer nach der maximalen Wartezeit seiner Priorität noch wartet, bekommt 503.
+ */
+@ApplicationScoped
+public class PriorityAdmissionFilter {
+
+    // Nach dem ConcurrencyLimitFilter, vor der RESTEasy-Route
+    private static final int ROUTE_ORDER = -90;
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private static final long NO_TIMER = -1;
+
+    @Inject
+    PriorityScheduler scheduler;
+
+    void register(@Observes final Router router) {
+        if (!scheduler.isEnabled()) {
+            return;
+        }
+        router.route().order(ROUTE_ORDER).handler(this::admit);
+    }
+
+    private void admit(final RoutingContext context) {
+        final RequestPriority priority = classify(context.request().method(), context.normalizedPath());
+        if (priority == null) {
+            context.next();
+            return;
+        }
+        // Den Body erst lesen, wenn die Anfrage zugelassen ist; RESTEasy holt ihn danach selbst ab
+        context.request().pause();
+        final Context eventLoop = context.vertx().getOrCreateContext();
+        final Admission admission = new Admission();
+        admission.ticket = scheduler.submit(priority,
+                () -> eventLoop.runOnContext(v -> proceed(context, priority, admission)));
+        if (!admission.ticket.isAdmitted()) {
+            admission.timerId = context.vertx().setTimer(scheduler.getMaxWait(priority).toMillis(),
+                    id -> reject(context, admission));
+        }
+    }
+
+    private void proceed(final RoutingContext context, final RequestPriority priority, final Admission admission) {
+        if (admission.timerId != NO_TIMER) {
+            context.vertx().cancelTimer(admission.timerId);
+        }
+        if (context.response().ended() || context.response().closed()) {
+            // Client hat während des Wartens aufgegeben
+            scheduler.release(priority);
+            return;
+        }
+        context.addEndHandler(result -> scheduler.release(priority));
+        context.next();
+    }
+
+    private void reject(final RoutingContext context, final Admission admission) {
+        if (!scheduler.reject(admission.ticket) || context.response().closed()) {
+            return;
+        }
+        context.response()
+                .setStatusCode(Response.Status.SERVICE_UNAVAILABLE.getStatusCode())
+                .putHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .end();
+    }
+
+    /**
+     * Ordnet eine Anfrage ihrer Priorität zu.
+     *
+     * @param method Die HTTP-Methode
+     * @param path Der normalisierte Pfad
+     * @return Die Priorität oder null, wenn die Anfrage nicht eingereiht wird
+     */
+    static RequestPriority classify(final HttpMethod method, final String path) {
+        if (path.equals("/basket") || path.equals("/basket/") || path.startsWith("/basket/")) {
+            if (path.equals("/basket/events")) {
+                return null;
+            }
+            return HttpMethod.GET.equals(method) ? RequestPriority.NORMAL : RequestPriority.HIGH;
+        }
+        if (path.equals("/orders") || path.startsWith("/orders/")) {
+            return RequestPriority.LOW;
+        }
+        return null;
+    }
+
+    /**
+     * Zustand einer wartenden Anfrage; wird nur auf ihrem Event-Loop gelesen und geschrieben.
+     */
+    private static final class Admission {
+
+        private PriorityGate.Ticket ticket;
+        private long timerId = NO_TIMER;
+    }
+}
@@ -0,0 +1,247 @@
+package de.berlin.htw.control;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.inject.Inject;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.Transactional;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.entity.dao.BalanceRepository;
+import de.berlin.htw.entity.dao.BalanceRepository.Type;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Guthaben der Benutzer auf Basis des Journals in {@link BalanceRepository}, statt einer Zeile USER.BALANCE,
+ * die jeder Checkout ändert.
+ * <ul>
+ * <li>Lesen ({@link #getBalance(Integer)}) geht über einen Cache mit kurzer TTL ({@code app.balance.cache-ttl});
+ * nach jeder Buchung wird der Eintrag nach dem Ende der Transaktion verworfen. Das Ergebnis ist für Vorprüfungen
+ * gedacht, verbindlich ist nur {@link #checkCoverage(Integer, float)}.</li>
+ * <li>Abbuchungen sperren das Konto und prüfen den aktuellen Stand, parallele Checkouts desselben Benutzers
+ * laufen dadurch weiterhin nacheinander, können das Guthaben aber nicht ins Minus ziehen.</li>
+ * <li>Ein Job schreibt für Konten mit mindestens {@code app.balance.snapshot.threshold} Buchungen seit dem letzten
+ * Snapshot einen neuen, damit die Summe beim Lesen kurz bleibt.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class BalanceLedger {
+
+    @Inject
+    BalanceRepository balanceRepository;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.balance.cache-ttl", defaultValue = "2s")
+    Duration cacheTtl;
+
+    @ConfigProperty(name = "app.balance.cache-max-size", defaultValue = "100000")
+    int cacheMaxSize;
+
+    @ConfigProperty(name = "app.balance.snapshot.threshold", defaultValue = "100")
+    int snapshotThreshold;
+
+    @ConfigProperty(name = "app.balance.snapshot.batch-size", defaultValue = "500")
+    int snapshotBatchSize;
+
+    private final Map<Integer, CachedBalance> cache = new ConcurrentHashMap<>();
+
+    // wird bei jeder Invalidierung erhöht; ein Leser übernimmt sein Ergebnis nur, wenn sich der Zähler
+    // während des Lesens nicht geändert hat (sonst könnte ein veralteter Stand nach der Invalidierung landen)
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = Counter.builder("balance.cache.requests").tag("result", "hit").register(registry);
+        misses = Counter.builder("balance.cache.requests").tag("result", "miss").register(registry);
+        Gauge.builder("balance.cache.size", cache, Map::size).register(registry);
+    }
+
+    /**
+     * Liefert das Guthaben eines Benutzers, ggf. aus dem Cache.
+     *
+     * @param userId Die ID des Benutzers
+     * @return Das Guthaben, 0 wenn das Konto kein Journal hat
+     */
+    public float getBalance(final Integer userId) {
+        final long now = System.nanoTime();
+        final CachedBalance cached = cache.get(userId);
+        if (cached != null && now - cached.expiresAt < 0) {
+            hits.increment();
+            return cached.balance;
+        }
+        misses.increment();
+        final long generation = invalidations.get();
+        final BigDecimal stored = balanceRepository.findBalance(userId);
+        final float balance = stored == null ? 0f : stored.floatValue();
+        if (invalidations.get() == generation && (cache.size() < cacheMaxSize || cached != null)) {
+            cache.put(userId, new CachedBalance(balance, now + cacheTtl.toNanos()));
+        }
+        return balance;
+    }
+
+    /**
+     * Sperrt das Konto bis zum Ende der Transaktion und prüft, ob das aktuelle Guthaben den Betrag deckt.
+     * Eine anschließende {@link #debit(Integer, float, Integer)} in derselben Transaktion ist damit sicher.
+     *
+     * @param userId Die ID des Benutzers
+     * @param amount Der abzubuchende Betrag
+     * @return true, wenn das Guthaben reicht
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public boolean checkCoverage(final Integer userId, final float amount) {
+        if (!balanceRepository.lockAccount(userId)) {
+            return false;
+        }
+        final BigDecimal balance = balanceRepository.findCurrentBalance(userId);
+        return balance != null && balance.compareTo(BalanceRepository.toAmount(amount)) >= 0;
+    }
+
+    /**
+     * Bucht einen Betrag ab. Setzt eine erfolgreiche {@link #checkCoverage(Integer, float)} in derselben
+     * Transaktion voraus.
+     *
+     * @param userId Die ID des Benutzers
+     * @param amount Der Betrag (positiv)
+     * @param orderId Die bezahlte Bestellung
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void debit(final Integer userId, final float amount, final Integer orderId) {
+        balanceRepository.append(userId, Type.DEBIT, BalanceRepository.toAmount(amount).negate(), orderId, null);
+        invalidateAfterCompletion(userId);
+    }
+
+    /**
+     * Schreibt einem Benutzer einen Betrag gut (Aufladung oder Erstattung).
+     *
+     * @param userId Die ID des Benutzers
+     * @param type {@link Type#TOPUP} oder {@link Type#REFUND}
+     * @param amount Der Betrag (positiv)
+     * @param reference Eine je Benutzer eindeutige externe Referenz oder null
+     * @throws IllegalArgumentException bei einem nicht positiven Betrag oder einer Abbuchung
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void credit(final Integer userId, final Type type, final float amount, final String reference) {
+        if (type != Type.TOPUP && type != Type.REFUND) {
+            throw new IllegalArgumentException("Not a credit: " + type);
+        }
+        if (!(amount > 0f)) {
+            throw new IllegalArgumentException("Credit must be positive: " + amount);
+        }
+        balanceRepository.lockAccount(userId);
+        balanceRepository.append(userId, type, BalanceRepository.toAmount(amount), null, reference);
+        invalidateAfterCompletion(userId);
+    }
+
+    /**
+     * Setzt das Guthaben über eine Ausgleichsbuchung auf einen festen Wert (z.B. für Tests und Verwaltung).
+     *
+     * @param userId Die ID des Benutzers
+     * @param balance Das neue Guthaben
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void adjustBalance(final Integer userId, final float balance) {
+        balanceRepository.lockAccount(userId);
+        final BigDecimal current = balanceRepository.findCurrentBalance(userId);
+        final BigDecimal target = BalanceRepository.toAmount(balance);
+        if (current == null) {
+            balanceRepository.openAccount(userId, target);
+        } else if (current.compareTo(target) != 0) {
+            balanceRepository.append(userId, Type.ADJUSTMENT, target.subtract(current), null, null);
+        }
+        invalidateAfterCompletion(userId);
+    }
+
+    /**
+     * Verwirft den Cache-Eintrag eines Benutzers sofort.
+     *
+     * @param userId Die ID des Benutzers
+     */
+    public void invalidate(final Integer userId) {
+        invalidations.incrementAndGet();
+        cache.remove(userId);
+    }
+
+    private void invalidateAfterCompletion(final Integer userId) {
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+                // nichts zu tun
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                // auch nach einem Rollback, der Eintrag ist dann nur unnötig verworfen
+                invalidate(userId);
+            }
+        });
+    }
+
+    /**
+     * Schreibt Snapshots für Konten mit vielen Buchungen seit dem letzten Snapshot.
+     *
+     * @return Die Anzahl geschriebener Snapshots
+     */
+    @Scheduled(every = "{app.balance.snapshot.interval}")
+    @ActivateRequestContext
+    public int snapshot() {
+        int written = 0;
+        try {
+            final List<Integer> userIds = balanceRepository.findSnapshotCandidates(snapshotThreshold, snapshotBatchSize);
+            for (Integer userId : userIds) {
+                if (snapshotAccount(userId)) {
+                    written++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // nächster Lauf versucht es erneut, Lesen funktioniert auch ohne neuen Snapshot
+            logger.error("Balance snapshot failed", e);
+        }
+        if (written > 0) {
+            registry.counter("balance.snapshots").increment(written);
+            logger.debugf("Wrote %d balance snapshots", written);
+        }
+        return written;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    boolean snapshotAccount(final Integer userId) {
+        balanceRepository.lockAccount(userId);
+        return balanceRepository.appendSnapshot(userId);
+    }
+
+    private static final class CachedBalance {
+
+        private final float balance;
+        private final long expiresAt;
+
+        private CachedBalance(final float balance, final long expiresAt) {
+            this.balance = balance;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package de.berlin.htw.control;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.RedisConnection;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+import io.vertx.redis.client.ResponseType;
+
+/**
+ * Optionaler In-Process-L1-Cache für Warenkörbe mit serverseitig unterstütztem Client-Side-Caching von Redis.
+ * Eine eigene Verbindung meldet sich per RESP3 mit {@code CLIENT TRACKING ON BCAST PREFIX basket:} an;
+ * Redis schickt darüber Invalidierungen, sobald irgendein Knoten einen Warenkorb ändert oder dieser abläuft.
+ * Solange diese Verbindung nicht steht, wird der Cache weder gelesen noch befüllt.
+ * Einträge leben höchstens so lange wie {@link BasketController#BASKET_TIMEOUT} und die Anzahl ist begrenzt.
+ */
+@ApplicationScoped
+public class BasketCache {
+
+    @Inject
+    Redis redis;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.basket.l1.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.basket.l1.max-entries", defaultValue = "10000")
+    int maxEntries;
+
+    @ConfigProperty(name = "app.basket.l1.ttl", defaultValue = "2M")
+    Duration ttl;
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    // Wird bei jeder Invalidierung erhöht; ein Ladevorgang darf nur cachen, wenn sich die Epoche nicht geändert hat
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final AtomicBoolean connecting = new AtomicBoolean();
+
+    private volatile RedisConnection trackingConnection;
+
+    private volatile boolean tracking;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        if (ttl.compareTo(BasketController.BASKET_TIMEOUT) > 0) {
+            ttl = BasketController.BASKET_TIMEOUT;
+        }
+        hits = Counter.builder("basket.l1.requests").tag("result", "hit").register(registry);
+        misses = Counter.builder("basket.l1.requests").tag("result", "miss").register(registry);
+        Gauge.builder("basket.l1.size", cache, Map::size).register(registry);
+        Gauge.builder("basket.l1.hit.ratio", this, BasketCache::hitRatio).register(registry);
+    }
+
+    void onStart(@Observes final StartupEvent event) {
+        if (enabled) {
+            connect();
+        }
+    }
+
+    void onStop(@Observes final ShutdownEvent event) {
+        tracking = false;
+        final RedisConnection connection = trackingConnection;
+        if (connection != null) {
+            connection.closeAndForget();
+        }
+    }
+
+    /**
+     * Baut die Tracking-Verbindung nach einem Verbindungsabbruch wieder auf.
+     */
+    @Scheduled(every = "5s")
+    void ensureTracking() {
+        if (enabled && !tracking) {
+            connect();
+        }
+    }
+
+    /**
+     * Liefert den gecachten Inhalt eines Warenkorbs.
+     * 
+     * @param basketKey Der Redis-Schlüssel des Warenkorbs
+     * @return Die Felder des Hashs oder null bei einem Cache-Miss
+     */
+    public Map<Long, String> get(final String basketKey) {
+        if (!tracking) {
+            return null;
+        }
+        final Entry entry = cache.get(basketKey);
+        if (entry == null || entry.expiresAt - System.nanoTime() < 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.fields;
+    }
+
+    /**
+     * Muss vor dem Lesen aus Redis aufgerufen werden.
+     * 
+     * @return Die aktuelle Epoche für {@link #put(String, Map, long)}
+     */
+    public long beginLoad() {
+        return epoch.get();
+    }
+
+    /**
+     * Übernimmt einen aus Redis gelesenen Warenkorb, sofern seit {@link #beginLoad()}
+     * keine Invalidierung eingetroffen ist (sonst könnte ein veralteter Stand gecacht werden).
+     * 
+     * @param basketKey Der Redis-Schlüssel des Warenkorbs
+     * @param fields Die gelesenen Felder
+     * @param loadEpoch Die Epoche von {@link #beginLoad()}
+     */
+    public void put(final String basketKey, final Map<Long, String> fields, final long loadEpoch) {
+        if (!tracking || epoch.get() != loadEpoch) {
+            return;
+        }
+        if (cache.size() >= maxEntries && !cache.containsKey(basketKey)) {
+            evict();
+        }
+        cache.put(basketKey, new Entry(Map.copyOf(fields), System.nanoTime() + ttl.toNanos()));
+    }
+
+    /**
+     * Entfernt einen Warenkorb aus dem Cache, z.B. direkt nach einer eigenen Änderung.
+     * 
+     * @param basketKey Der Redis-Schlüssel des Warenkorbs
+     */
+    public void invalidate(final String basketKey) {
+        epoch.incrementAndGet();
+        cache.remove(basketKey);
+    }
+
+    private void invalidateAll() {
+        epoch.incrementAndGet();
+        cache.clear();
+    }
+
+    private void evict() {
+        // Zuerst abgelaufene Einträge entfernen, sonst einen beliebigen Eintrag verdrängen
+        final long now = System.nanoTime();
+        cache.values().removeIf(entry -> entry.expiresAt - now < 0);
+        final Iterator<String> keys = cache.keySet().iterator();
+        if (cache.size() >= maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private void connect() {
+        if (!connecting.compareAndSet(false, true)) {
+            return;
+        }
+        redis.connect()
+                .onItem().transformToUni(connection -> {
+                    connection.handler(this::onPush);
+                    connection.exceptionHandler(this::onConnectionLost);
+                    connection.endHandler(() -> onConnectionLost(null));
+                    return connection.send(Request.cmd(Command.HELLO).arg(3))
+                            .onItem().transformToUni(ignored -> connection.send(Request.cmd(Command.CLIENT)
+                                    .arg("TRACKING").arg("ON").arg("BCAST")
+                                    .arg("PREFIX").arg(BasketController.BASKET_KEY_PREFIX)))
+                            .onFailure().invoke(connection::closeAndForget)
+                            .replaceWith(connection);
+                })
+                .subscribe().with(connection -> {
+                    trackingConnection = connection;
+                    invalidateAll();
+                    tracking = true;
+                    connecting.set(false);
+                    logger.info("Basket L1 cache enabled, Redis client tracking active");
+                }, failure -> {
+                    connecting.set(false);
+                    logger.warn("Could not enable Redis client tracking, basket L1 cache stays off: "
+                            + failure.getMessage());
+                });
+    }
+
+    private void onPush(final Response response) {
+        if (response.type() != ResponseType.PUSH || response.size() < 2
+                || !"invalidate".equals(response.get(0).toString())) {
+            return;
+        }
+        final Response keys = response.get(1);
+        if (keys == null || keys.type() == ResponseType.NULL) {
+            // z.B. nach FLUSHALL
+            invalidateAll();
+            return;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            invalidate(keys.get(i).toString());
+        }
+    }
+
+    private void onConnectionLost(final Throwable cause) {
+        if (!tracking) {
+            return;
+        }
+        // Ohne Tracking-Verbindung gehen Invalidierungen verloren, daher Cache sofort abschalten
+        tracking = false;
+        trackingConnection = null;
+        invalidateAll();
+        logger.warn("Redis tracking connection lost, basket L1 cache disabled until reconnect"
+                + (cause != null ? ": " + cause.getMessage() : ""));
+    }
+
+    private double hitRatio() {
+        final double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * Ein gecachter Warenkorb mit Ablaufzeitpunkt (System.nanoTime).
+     */
+    private static final class Entry {
+
+        private final Map<Long, String> fields;
+        private final long expiresAt;
+
+        private Entry(final Map<Long, String> fields, final long expiresAt) {
+            this.fields = fields;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
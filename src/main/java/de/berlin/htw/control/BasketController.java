@@ -2,7 +2,7 @@ package de.berlin.htw.control;
 
 /**
  * Controller für die Verwaltung von Warenkörben.
- * Nutzt Redis zur Speicherung der Warenkorbdaten und implementiert die Geschäftslogik
+ * Speichert die Warenkorbdaten im {@link BasketStore} (Redis oder In-Memory) und implementiert die Geschäftslogik
  * wie Guthabenprüfung, maximale Artikelanzahl und Warenkorb-Timeout.
  */
 
@@ -15,13 +15,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import de.berlin.htw.boundary.dto.Basket;
+import de.berlin.htw.boundary.dto.BasketEvent;
 import de.berlin.htw.boundary.dto.Item;
+import de.berlin.htw.control.jfr.BasketMutationEvent;
+import de.berlin.htw.control.store.BasketStore;
 import de.berlin.htw.entity.dao.UserRepository;
 import de.berlin.htw.entity.dto.UserEntity;
-import io.quarkus.redis.datasource.RedisDataSource;
-import io.quarkus.redis.datasource.hash.HashCommands;
-import io.quarkus.redis.datasource.keys.KeyCommands;
-import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.Dependent;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
@@ -44,105 +43,160 @@ public class BasketController {
     private static final int MAX_ITEMS_IN_BASKET = 10;
 
     // Konstante für das Timeout des Warenkorbs (2 Minuten gemäß Aufgabe 3)
-    private static final Duration BASKET_TIMEOUT = Duration.ofMinutes(2);
+    public static final Duration BASKET_TIMEOUT = Duration.ofMinutes(2);
+
+    // Präfix aller Warenkorb-Schlüssel in Redis (auch Schlüssel der Warenkörbe in der Unit of Work)
+    public static final String BASKET_KEY_PREFIX = "basket:";
 
     @Inject
-    protected RedisDataSource redisDS; // Redis-Datenquelle für den Zugriff auf Redis
+    protected BasketStore basketStore; // Speicher der Warenkörbe (Redis oder In-Memory, siehe app.basket.store)
 
     @Inject
-    protected UserRepository userRepository; // Repository für den Zugriff auf Benutzerdaten (z.B. Guthaben)
+    protected UserRepository userRepository; // Repository für den Zugriff auf Benutzerdaten
 
     @Inject
-    protected Validator validator; // Bean Validation Validator (hier weniger genutzt, da Annotationen dominieren)
+    protected BalanceLedger balanceLedger; // Guthaben aus dem Journal (mit Cache)
 
     @Inject
-    protected ObjectMapper objectMapper; // Für die Serialisierung/Deserialisierung von Item-Objekten zu/von JSON
+    protected ProductCatalog productCatalog; // Serverseitiger Produktkatalog für Name und Preis
 
     @Inject
-    Logger logger; // Logger injiziert
+    protected Validator validator; // Bean Validation Validator (hier weniger genutzt, da Annotationen dominieren)
 
-    // Redis Commands für Hash-Operationen (jedes Item im Warenkorb ist ein Feld im Hash des Benutzers)
-    protected HashCommands<String, String, String> hashCommands;
+    @Inject
+    protected ObjectMapper objectMapper; // Für die Serialisierung/Deserialisierung von Item-Objekten zu/von JSON
 
-    // Redis Commands für Key-Operationen (z.B. zum Löschen des gesamten Warenkorbs oder Setzen des Timeouts)
-    protected KeyCommands<String> keyCommands;
+    @Inject
+    protected BasketEventBus basketEvents; // Verteilt Änderungen an offene Event-Streams (SSE) aller Knoten
 
-    /**
-     * Initialisiert die Redis-Command-Objekte nach der Injektion der Abhängigkeiten.
-     */
-    @PostConstruct
-    protected void init() {
-        // Initialisiert HashCommands für <Key, Field, Value> wobei Key=basketKey, Field=productId, Value=itemAsJson
-        hashCommands = redisDS.hash(String.class);
-        // Initialisiert KeyCommands für Operationen auf dem Basket-Key selbst
-        keyCommands = redisDS.key();
-    }
+    @Inject
+    Logger logger; // Logger injiziert
 
     /**
-     * Erstellt einen eindeutigen Redis-Schlüssel für den Warenkorb eines bestimmten Benutzers.
+     * Erstellt einen eindeutigen Schlüssel für den Warenkorb eines bestimmten Benutzers (in der Unit of Work).
      * Format: "basket:userId"
      * @param userId Die ID des Benutzers.
-     * @return Der generierte Redis-Schlüssel für den Warenkorb.
+     * @return Der generierte Schlüssel für den Warenkorb.
      */
     private String getBasketKey(String userId) {
-        return "basket:" + userId;
+        return BASKET_KEY_PREFIX + userId;
     }
 
     /**
-     * Ruft den Warenkorb eines Benutzers aus dem Redis Cache ab.
+     * Ruft den Warenkorb eines Benutzers aus dem {@link BasketStore} ab.
      * Berechnet die Gesamtsumme und das verbleibende Guthaben.
-     * Erneuert das Timeout des Warenkorbs bei Zugriff, falls er nicht leer ist.
+     * Das Timeout wird nur bei Änderungen erneuert (Aufgabe 3), nicht beim Lesen.
      * @param userId Die ID des Benutzers, dessen Warenkorb abgerufen werden soll.
      * @return Das {@link Basket}-DTO mit den Artikeln, der Gesamtsumme und dem Restguthaben.
      * @throws NotFoundException wenn der Benutzer nicht existiert.
      * @throws WebApplicationException wenn ein Fehler beim Deserialisieren der Artikel auftritt.
      */
     public Basket getBasket(String userId) {
-        // Benutzerdaten abrufen, um das Guthaben zu kennen und Existenz zu prüfen
-        UserEntity user = userRepository.findByName(userId);
+        BasketUnitOfWork work = BasketUnitOfWork.current();
+
+        // Benutzerdaten abrufen, um das Guthaben zu kennen und Existenz zu prüfen (höchstens einmal pro Request)
+        UserEntity user = work.user(userId, userRepository::findByName);
         if (user == null) {
             throw new NotFoundException("Benutzer nicht gefunden");
         }
 
         String basketKey = getBasketKey(userId);
-        // Alle Artikel (als JSON-Strings) aus dem Hash des Benutzers abrufen
-        Map<String, String> itemsMap = hashCommands.hgetall(basketKey);
+        // Alle Artikel (als JSON-Strings) des Benutzers abrufen: bereits in diesem Request geladen, sonst aus dem Store
+        Map<Long, String> itemsMap = work.basket(basketKey);
+        if (itemsMap == null) {
+            itemsMap = work.setBasket(basketKey, basketStore.getItems(userId));
+        }
+
+        return toBasket(itemsMap, user);
+    }
+
+    /**
+     * Der Inhalt des Warenkorbs, wie ihn {@link #getBasket(String)} in diesem Request gelesen hat.
+     * @param userId Die ID des Benutzers.
+     * @return Gepackte Produktnummer auf Item-JSON, null wenn der Warenkorb in diesem Request noch nicht gelesen wurde.
+     */
+    Map<Long, String> getBasketItems(String userId) {
+        return BasketUnitOfWork.current().basket(getBasketKey(userId));
+    }
+
+    /**
+     * Baut das Basket-DTO aus dem Inhalt des Warenkorbs.
+     * @param itemsMap Der Inhalt des Warenkorbs (gepackte Produktnummer auf Item-JSON).
+     * @param user Der Benutzer (für das Restguthaben).
+     * @return Das {@link Basket}-DTO mit den Artikeln, der Gesamtsumme und dem Restguthaben.
+     * @throws WebApplicationException wenn ein Fehler beim Deserialisieren der Artikel auftritt.
+     */
+    private Basket toBasket(Map<Long, String> itemsMap, UserEntity user) {
+        return toBasket(itemsMap, user.getId());
+    }
 
+    private Basket toBasket(Map<Long, String> itemsMap, Integer userId) {
         Basket basket = new Basket();
         List<Item> itemsList = new ArrayList<>();
         float total = 0.0f;
 
         // Artikel-JSONs deserialisieren und Gesamtsumme berechnen
-        for (Map.Entry<String, String> entry : itemsMap.entrySet()) {
+        for (Map.Entry<Long, String> entry : itemsMap.entrySet()) {
             try {
                 Item item = objectMapper.readValue(entry.getValue(), Item.class);
                 itemsList.add(item);
                 total += item.getPrice() * item.getCount();
             } catch (JsonProcessingException e) {
                 // Fehler bei der Deserialisierung ist ein Serverfehler
-                throw new WebApplicationException("Fehler beim Lesen des Warenkorbs aus Redis", e, Response.Status.INTERNAL_SERVER_ERROR);
+                throw new WebApplicationException("Fehler beim Lesen des Warenkorbs", e, Response.Status.INTERNAL_SERVER_ERROR);
             }
         }
 
         basket.setItems(itemsList);
         basket.setTotal(total);
-        basket.setRemainingBalance(user.getBalance()); // Aktuelles Guthaben des Nutzers setzen
-
-        // Wenn der Warenkorb Artikel enthält, das Timeout erneuern (Aufgabe 3)
-        if (!itemsList.isEmpty()) {
-            refreshTimeout(basketKey);
-        }
+        basket.setRemainingBalance(balanceLedger.getBalance(userId)); // Aktuelles Guthaben des Nutzers setzen
 
         return basket;
     }
 
     /**
-     * Leert den Warenkorb eines Benutzers, indem der entsprechende Redis-Key gelöscht wird.
+     * Leert den Warenkorb eines Benutzers, indem er im Store gelöscht wird.
      * @param userId Die ID des Benutzers, dessen Warenkorb geleert werden soll.
      */
     public void clearBasket(String userId) {
+        BasketMutationEvent event = BasketMutationEvent.begin(userId, BasketMutationEvent.CLEAR);
         String basketKey = getBasketKey(userId);
-        keyCommands.del(basketKey); // Löscht den gesamten Hash für diesen Warenkorb
+        long storeStart = System.nanoTime();
+        boolean deleted = basketStore.clear(userId); // Löscht den gesamten Warenkorb
+        event.storeTime = System.nanoTime() - storeStart;
+        BasketUnitOfWork.current().setBasket(basketKey, Map.of());
+        if (deleted) {
+            basketEvents.publish(userId, BasketEvent.of(BasketEvent.CLEARED, null, null, null));
+        }
+        event.commit();
+    }
+
+    /**
+     * Entfernt nach einem Checkout die bestellten Artikel aus dem Warenkorb. Artikel, die nach dem Lesen
+     * hinzugefügt oder geändert wurden, bleiben erhalten, statt ungekauft verloren zu gehen.
+     * @param userId Die ID des Benutzers.
+     * @param accountId Die ID des Guthabenkontos (für das Restguthaben in den Events).
+     * @param ordered Die bestellten Artikel, wie sie beim Checkout gelesen wurden.
+     */
+    public void clearOrderedItems(String userId, Integer accountId, Map<Long, String> ordered) {
+        BasketMutationEvent event = BasketMutationEvent.begin(userId, BasketMutationEvent.CLEAR);
+        String basketKey = getBasketKey(userId);
+        long storeStart = System.nanoTime();
+        Map<Long, String> remainingItems = basketStore.removeItems(userId, ordered);
+        event.storeTime = System.nanoTime() - storeStart;
+        BasketUnitOfWork.current().setBasket(basketKey, remainingItems);
+        if (remainingItems.isEmpty()) {
+            basketEvents.publish(userId, BasketEvent.of(BasketEvent.CLEARED, null, null, null));
+        } else {
+            Basket updatedBasket = toBasket(remainingItems, accountId);
+            for (Long productKey : ordered.keySet()) {
+                if (!remainingItems.containsKey(productKey)) {
+                    basketEvents.publish(userId, BasketEvent.of(BasketEvent.ITEM_REMOVED, ProductIds.render(productKey), null, updatedBasket));
+                }
+            }
+        }
+        event.itemCount = remainingItems.size();
+        event.commit();
     }
 
     /**
@@ -154,7 +208,7 @@ public class BasketController {
      * @param item Das hinzuzufügende {@link Item}-DTO (validiert durch @Valid).
      * @return Der aktualisierte {@link Basket}.
      * @throws BadRequestException wenn Produkt-IDs nicht übereinstimmen, Guthaben nicht reicht oder Warenkorb voll ist.
-     * @throws NotFoundException wenn der Benutzer nicht existiert.
+     * @throws NotFoundException wenn der Benutzer oder das Produkt nicht existiert.
      * @throws ClientErrorException wenn das Produkt bereits im Warenkorb ist (Status 409).
      * @throws WebApplicationException bei Serialisierungsfehlern.
      */
@@ -162,45 +216,61 @@ public class BasketController {
         final String userId,
         final String productId,
         @NotNull @Valid final Item item) {
+        BasketMutationEvent event = BasketMutationEvent.begin(userId, BasketMutationEvent.ADD);
         // Konsistenzprüfung: Produkt-ID im Pfad muss mit der im Request-Body übereinstimmen
-        if (!productId.equals(item.getProductId())) {
+        final long productKey = ProductIds.tryPack(productId);
+        if (productKey == ProductIds.INVALID || productKey != ProductIds.tryPack(item.getProductId())) {
             throw new BadRequestException("Produktnummer im Pfad und im Item stimmen nicht überein");
         }
 
-        UserEntity user = userRepository.findByName(userId);
+        BasketUnitOfWork work = BasketUnitOfWork.current();
+        UserEntity user = work.user(userId, userRepository::findByName);
         if (user == null) {
             throw new NotFoundException("Benutzer nicht gefunden");
         }
 
+        // Name und Preis kommen aus dem Katalog, nicht vom Client
+        applyCatalogData(item, productKey);
+
         String basketKey = getBasketKey(userId);
-        // Prüfen, ob der Artikel bereits im Warenkorb ist (ein Artikel kann nur einmal hinzugefügt werden, Anzahl wird ggf. geändert)
-        if (hashCommands.hexists(basketKey, productId)) {
-            // HTTP 409 Conflict, wenn versucht wird, ein bereits vorhandenes Produkt erneut hinzuzufügen
-            throw new ClientErrorException("Produkt bereits im Warenkorb. Nutzen Sie die Update-Funktion, um die Anzahl zu ändern.", 409);
-        }
 
         // Guthabenprüfung (Aufgabe "Prepaid-Zahlungsmethode")
         float itemCost = item.getPrice() * item.getCount();
-        if (user.getBalance() < itemCost) {
+        if (balanceLedger.getBalance(user.getId()) < itemCost) {
             throw new BadRequestException("Nicht genügend Guthaben für diesen Artikel");
         }
 
-        // Prüfung der maximalen Anzahl unterschiedlicher Artikel im Warenkorb (Aufgabe 2)
-        if (hashCommands.hlen(basketKey) >= MAX_ITEMS_IN_BASKET) {
-            throw new ClientErrorException("Der Warenkorb darf nicht mehr als " + MAX_ITEMS_IN_BASKET + " unterschiedliche Artikel enthalten.", Response.Status.CONFLICT);
-        }
-                
+        final String itemJson;
         try {
-            // Artikel zu JSON serialisieren und in Redis speichern
-            String itemJson = objectMapper.writeValueAsString(item);
-            hashCommands.hset(basketKey, productId, itemJson);
-
-            refreshTimeout(basketKey); // Timeout bei jeder Änderung erneuern
-
-            return getBasket(userId); // Aktualisierten Warenkorb zurückgeben
+            // Artikel zu JSON serialisieren
+            itemJson = objectMapper.writeValueAsString(item);
         } catch (JsonProcessingException e) {
             throw new WebApplicationException("Fehler beim Speichern des Items im Warenkorb", e, Response.Status.INTERNAL_SERVER_ERROR);
         }
+
+        // Prüfungen und Schreiben laufen atomar im Store (bei Redis unter WATCH), damit parallele Requests
+        // weder dasselbe Produkt doppelt anlegen noch das Limit überschreiten können
+        // Der geprüfte Stand ist zugleich die Grundlage für die Antwort
+        long storeStart = System.nanoTime();
+        Map<Long, String> updatedItems = basketStore.putItem(userId, productKey, itemJson, current -> {
+            // Prüfen, ob der Artikel bereits im Warenkorb ist (ein Artikel kann nur einmal hinzugefügt werden, Anzahl wird ggf. geändert)
+            if (current.containsKey(productKey)) {
+                // HTTP 409 Conflict, wenn versucht wird, ein bereits vorhandenes Produkt erneut hinzuzufügen
+                throw new ClientErrorException("Produkt bereits im Warenkorb. Nutzen Sie die Update-Funktion, um die Anzahl zu ändern.", 409);
+            }
+            // Prüfung der maximalen Anzahl unterschiedlicher Artikel im Warenkorb (Aufgabe 2)
+            if (current.size() >= MAX_ITEMS_IN_BASKET) {
+                throw new ClientErrorException("Der Warenkorb darf nicht mehr als " + MAX_ITEMS_IN_BASKET + " unterschiedliche Artikel enthalten.", Response.Status.CONFLICT);
+            }
+        });
+        event.storeTime = System.nanoTime() - storeStart;
+
+        // Antwort aus dem fortgeschriebenen Stand statt den Warenkorb erneut zu lesen
+        Basket updatedBasket = toBasket(work.setBasket(basketKey, updatedItems), user);
+        basketEvents.publish(userId, BasketEvent.of(BasketEvent.ITEM_ADDED, item.getProductId(), item, updatedBasket));
+        event.itemCount = updatedItems.size();
+        event.commit();
+        return updatedBasket; // Aktualisierten Warenkorb zurückgeben
     }
 
     /**
@@ -212,47 +282,101 @@ public class BasketController {
      * @throws NotFoundException wenn das Produkt nicht im Warenkorb gefunden wurde.
      */
     public Basket removeItemFromBasket(String userId, String productId) {
+        BasketMutationEvent event = BasketMutationEvent.begin(userId, BasketMutationEvent.REMOVE);
         String basketKey = getBasketKey(userId);
-        if (!hashCommands.hexists(basketKey, productId)) {
+        final long productKey = ProductIds.tryPack(productId);
+        if (productKey == ProductIds.INVALID) {
             throw new NotFoundException("Produkt nicht im Warenkorb gefunden");
         }
 
-        hashCommands.hdel(basketKey, productId); // Artikel aus dem Hash entfernen
-        refreshTimeout(basketKey);
+        // Entfernen, Timeout erneuern (Aufgabe 3) und neuen Stand lesen in einem Schritt
+        long storeStart = System.nanoTime();
+        Map<Long, String> remainingItems = basketStore.removeItem(userId, productKey);
+        event.storeTime = System.nanoTime() - storeStart;
+        if (remainingItems == null) {
+            throw new NotFoundException("Produkt nicht im Warenkorb gefunden");
+        }
 
-        return getBasket(userId);
+        BasketUnitOfWork work = BasketUnitOfWork.current();
+        UserEntity user = work.user(userId, userRepository::findByName);
+        if (user == null) {
+            throw new NotFoundException("Benutzer nicht gefunden");
+        }
+        Basket updatedBasket = toBasket(work.setBasket(basketKey, remainingItems), user);
+        basketEvents.publish(userId, BasketEvent.of(BasketEvent.ITEM_REMOVED, ProductIds.render(productKey), null, updatedBasket));
+        event.itemCount = remainingItems.size();
+        event.commit();
+        return updatedBasket;
     }
 
     /**
-     * Ändert die Anzahl eines bereits im Warenkorb befindlichen Artikels.
-     * HINWEIS: Die Implementierung dieser Methode ist im bereitgestellten Code unvollständig.
-     * Eine vollständige Implementierung müsste:
-     * 1. Prüfen, ob der Artikel existiert.
-     * 2. Das neue Item validieren (Anzahl > 0).
-     * 3. Das Guthaben des Nutzers prüfen (Gesamtkosten des Warenkorbs mit neuer Anzahl vs. Guthaben).
-     * 4. Die Gesamtanzahl aller Artikel im Warenkorb prüfen (darf 10 nicht überschreiten).
-     * 5. Das Item in Redis aktualisieren (hset mit dem neuen Item-JSON).
-     * 6. Das Timeout erneuern.
-     * 7. Den aktualisierten Warenkorb zurückgeben.
+     * Ändert die Anzahl eines bereits im Warenkorb befindlichen Artikels. Name und Preis kommen aus dem Katalog.
+     * Die Prüfungen aus {@link #checkChangedBasket} (Artikel vorhanden, höchstens 10 Artikel, Guthaben reicht)
+     * laufen im Store in derselben bewachten Transaktion wie das Schreiben und die Erneuerung des Timeouts,
+     * ein paralleler Request kann den geprüften Stand also nicht überholen. Danach wird ITEM_CHANGED veröffentlicht.
      *
      * @param userId Die ID des Benutzers.
      * @param productId Die ID des Produkts, dessen Anzahl geändert werden soll.
      * @param item Das {@link Item}-DTO mit der neuen Anzahl (und ggf. anderen validierten Daten).
      * @return Der aktualisierte {@link Basket}.
+     * @throws BadRequestException wenn die Produktnummern im Pfad und im Item nicht übereinstimmen.
+     * @throws NotFoundException wenn Benutzer oder Artikel nicht gefunden werden.
      */
     public Basket changeItemCount(String userId, String productId, @NotNull @Valid Item item) {
         // Konsistenzprüfung: Produkt-ID im Pfad muss mit der im Request-Body übereinstimmen
-        if (!productId.equals(item.getProductId())) {
+        final long productKey = ProductIds.tryPack(productId);
+        if (productKey == ProductIds.INVALID || productKey != ProductIds.tryPack(item.getProductId())) {
             throw new BadRequestException("Produktnummer im Pfad und im Item stimmen nicht überein");
         }
 
-        UserEntity user = userRepository.findByName(userId);
+        BasketMutationEvent event = BasketMutationEvent.begin(userId, BasketMutationEvent.CHANGE);
+        BasketUnitOfWork work = BasketUnitOfWork.current();
+        UserEntity user = work.user(userId, userRepository::findByName);
         if (user == null) {
             throw new NotFoundException("Benutzer nicht gefunden: " + userId);
         }
 
+        // Name und Preis kommen aus dem Katalog, nicht vom Client
+        applyCatalogData(item, productKey);
+
         String basketKey = getBasketKey(userId);
-        if (!hashCommands.hexists(basketKey, productId)) {
+
+        final String itemJson;
+        try {
+            itemJson = objectMapper.writeValueAsString(item); // item enthält bereits die neue Anzahl
+        } catch (JsonProcessingException e) {
+            logger.error("Fehler beim Serialisieren des Artikels " + productId + " für Benutzer " + userId, e);
+            throw new WebApplicationException("Fehler beim Aktualisieren des Warenkorbs", Response.Status.INTERNAL_SERVER_ERROR);
+        }
+
+        // Prüfungen und Schreiben laufen atomar im Store (siehe addItemToBasket)
+        long storeStart = System.nanoTime();
+        Map<Long, String> updatedItems = basketStore.putItem(userId, productKey, itemJson,
+                current -> checkChangedBasket(current, userId, productId, productKey, item, user));
+        event.storeTime = System.nanoTime() - storeStart;
+
+        Basket updatedBasket = toBasket(work.setBasket(basketKey, updatedItems), user);
+        basketEvents.publish(userId, BasketEvent.of(BasketEvent.ITEM_CHANGED, item.getProductId(), item, updatedBasket));
+        event.itemCount = updatedItems.size();
+        event.commit();
+        return updatedBasket;
+    }
+
+    /**
+     * Prüft, ob der Warenkorb mit der geänderten Anzahl noch gültig ist.
+     * @param basketItemsMap Der aktuelle Inhalt des Warenkorbs.
+     * @param userId Die ID des Benutzers.
+     * @param productId Die ID des Produkts aus dem Pfad.
+     * @param productKey Die gepackte Produktnummer.
+     * @param item Der Artikel mit der neuen Anzahl.
+     * @param user Der Benutzer (für die Guthabenprüfung).
+     * @throws NotFoundException wenn der Artikel nicht im Warenkorb ist.
+     * @throws BadRequestException wenn die maximale Artikelanzahl überschritten wird.
+     * @throws WebApplicationException wenn das Guthaben nicht reicht (402).
+     */
+    private void checkChangedBasket(Map<Long, String> basketItemsMap, String userId, String productId,
+            long productKey, Item item, UserEntity user) {
+        if (!basketItemsMap.containsKey(productKey)) {
             throw new NotFoundException("Produkt " + productId + " nicht im Warenkorb gefunden.");
         }
 
@@ -260,17 +384,16 @@ public class BasketController {
         // Die Validierung der Artikelanzahl (>0) erfolgt durch @Valid auf dem Parameter.
 
         // Alle Artikel sammeln, um Gesamtanzahl und Gesamtkosten neu zu berechnen.
-        Map<String, String> basketItemsMap = hashCommands.hgetall(basketKey);
         List<Item> currentItemsInBasket = new ArrayList<>();
         BigDecimal newTotalBasketCost = BigDecimal.ZERO;
         int newTotalItemCount = 0;
 
-        for (Map.Entry<String, String> entry : basketItemsMap.entrySet()) {
+        for (Map.Entry<Long, String> entry : basketItemsMap.entrySet()) {
             try {
                 Item currentItem = objectMapper.readValue(entry.getValue(), Item.class);
-                if (entry.getKey().equals(productId)) { // Dies ist der Artikel, dessen Anzahl geändert wird
+                if (entry.getKey() == productKey) { // Dies ist der Artikel, dessen Anzahl geändert wird
                     currentItem.setCount(item.getCount()); // Neue Anzahl aus dem Request übernehmen
-                    // Preis und Name aus dem Request übernehmen, falls sie sich geändert haben könnten
+                    // Aktuellen Preis und Namen aus dem Katalog übernehmen
                     currentItem.setPrice(item.getPrice());
                     currentItem.setProductName(item.getProductName());
                 }
@@ -294,40 +417,29 @@ public class BasketController {
         // Hinweis: Die ursprüngliche Prüfung auf user.getPaymentType() wurde entfernt,
         // da UserEntity aktuell keine Methode getPaymentType() besitzt.
         // Die Guthabenprüfung erfolgt nun für alle Benutzer, falls das Guthaben nicht ausreicht.
-        if (user.getBalance() == null || BigDecimal.valueOf(user.getBalance()).compareTo(newTotalBasketCost) < 0) {
+        float balance = balanceLedger.getBalance(user.getId());
+        if (BigDecimal.valueOf(balance).compareTo(newTotalBasketCost) < 0) {
             throw new WebApplicationException(
-                "Nicht genügend Guthaben vorhanden. Benötigt: " + newTotalBasketCost + ", Verfügbar: " + (user.getBalance() != null ? user.getBalance() : "0"),
+                "Nicht genügend Guthaben vorhanden. Benötigt: " + newTotalBasketCost + ", Verfügbar: " + balance,
                 Response.Status.PAYMENT_REQUIRED
             );
         }
-
-        // Artikel in Redis aktualisieren
-        try {
-            String itemJson = objectMapper.writeValueAsString(item); // item enthält bereits die neue Anzahl
-            hashCommands.hset(basketKey, productId, itemJson);
-        } catch (JsonProcessingException e) {
-            logger.error("Fehler beim Serialisieren des Artikels " + productId + " für Benutzer " + userId, e);
-            throw new WebApplicationException("Fehler beim Aktualisieren des Warenkorbs", Response.Status.INTERNAL_SERVER_ERROR);
-        }
-
-        refreshTimeout(basketKey);
-        return getBasket(userId);
     }
 
     /**
-     * Hilfsmethode, um das Timeout für einen Warenkorb-Key in Redis zu erneuern.
-     * Diese Methode wird nach jeder relevanten Warenkorb-Aktion aufgerufen, um sicherzustellen,
-     * dass der Warenkorb nicht vorzeitig abläuft, solange der Benutzer aktiv ist.
-     * Die eigentliche Implementierung würde `keyCommands.expire(basketKey, BASKET_TIMEOUT.getSeconds())` verwenden.
-     * @param basketKey Der Redis-Schlüssel des Warenkorbs.
+     * Überschreibt Produktname und Preis eines Artikels mit den Daten aus dem Produktkatalog
+     * und bringt die Produktnummer in ihre kanonische Form.
+     * @param item Der Artikel aus dem Request.
+     * @param productKey Die gepackte Produktnummer.
+     * @throws NotFoundException wenn das Produkt nicht im Katalog existiert.
      */
-    private void refreshTimeout(String basketKey) {
-        // Setzt die Ablauffrist für den Key neu auf BASKET_TIMEOUT Sekunden (Aufgabe 3)
-        // Beispiel: keyCommands.expire(basketKey, BASKET_TIMEOUT.getSeconds());
-        // Da die Methode hier nur als Platzhalter für die Erklärung dient, erfolgt keine echte Redis-Operation.
-        // In der echten Implementierung ist dies entscheidend für das automatische Löschen.
-        if (keyCommands != null && basketKey != null && !basketKey.trim().isEmpty()) {
-             keyCommands.expire(basketKey, BASKET_TIMEOUT.getSeconds());
-        } 
+    private void applyCatalogData(final Item item, final long productKey) {
+        ProductCatalog.CatalogEntry product = productCatalog.resolve(productKey);
+        if (product == null) {
+            throw new NotFoundException("Produkt " + item.getProductId() + " nicht im Katalog gefunden.");
+        }
+        item.setProductId(ProductIds.render(productKey));
+        item.setProductName(product.getName());
+        item.setPrice(product.getPrice());
     }
 }
@@ -0,0 +1,263 @@
+package de.berlin.htw.control;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.berlin.htw.boundary.dto.BasketEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.mutiny.redis.client.Command;
+import io.vertx.mutiny.redis.client.Redis;
+import io.vertx.mutiny.redis.client.RedisConnection;
+import io.vertx.mutiny.redis.client.Request;
+import io.vertx.mutiny.redis.client.Response;
+
+/**
+ * Verteilt Warenkorb-Änderungen an alle Knoten über Redis Pub/Sub.
+ * {@link BasketController} veröffentlicht jede Änderung auf dem Kanal {@code basket-events:<user>};
+ * jeder Knoten hält genau eine eigene Verbindung mit {@code PSUBSCRIBE basket-events:*} und verteilt
+ * die Nachrichten an seine lokalen Abonnenten (z.B. SSE-Verbindungen). Die Zahl der Abonnenten
+ * kostet also weder Redis-Verbindungen noch Threads.
+ * Abgelaufene Warenkörbe meldet Redis über Keyspace-Notifications ({@code notify-keyspace-events Ex},
+ * siehe docker-compose.yml); ohne diese Einstellung fehlen nur die {@code expired}-Events.
+ * Die Zustellung läuft im Worker-Pool, damit ein langsamer Client nicht den Event-Loop der
+ * Redis-Verbindung blockiert.
+ */
+@ApplicationScoped
+public class BasketEventBus {
+
+    static final String CHANNEL_PREFIX = "basket-events:";
+
+    private static final String EXPIRED_PATTERN = "__keyevent@*__:expired";
+
+    @Inject
+    Redis redis;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    // sonst baut erst der Heartbeat die Verbindung auf
+    @ConfigProperty(name = "app.basket.events.connect-at-start", defaultValue = "true")
+    boolean connectAtStart;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final AtomicBoolean connecting = new AtomicBoolean();
+
+    private volatile RedisConnection subscription;
+
+    private Counter published;
+    private Counter delivered;
+
+    /**
+     * Ein lokaler Empfänger von Warenkorb-Events, z.B. eine SSE-Verbindung.
+     */
+    public interface Subscriber {
+
+        /**
+         * @param name Name des Events (siehe {@link BasketEvent#getType()})
+         * @param data Das Event als JSON
+         */
+        void send(String name, String data);
+
+        /**
+         * Hält die Verbindung offen und erkennt geschlossene Verbindungen.
+         */
+        void ping();
+
+        boolean isClosed();
+    }
+
+    @PostConstruct
+    void init() {
+        published = registry.counter("basket.events.published");
+        delivered = registry.counter("basket.events.delivered");
+        Gauge.builder("basket.events.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Offene Abonnements auf Warenkorb-Änderungen auf diesem Knoten")
+                .register(registry);
+    }
+
+    void onStart(@Observes final StartupEvent event) {
+        if (connectAtStart) {
+            connect();
+        }
+    }
+
+    void onStop(@Observes final ShutdownEvent event) {
+        final RedisConnection connection = subscription;
+        subscription = null;
+        if (connection != null) {
+            connection.closeAndForget();
+        }
+    }
+
+    /**
+     * Baut die Pub/Sub-Verbindung nach einem Verbindungsabbruch wieder auf und entfernt
+     * geschlossene Abonnements.
+     */
+    @Scheduled(every = "{app.basket.events.heartbeat}")
+    void heartbeat() {
+        if (subscription == null) {
+            connect();
+        }
+        subscribers.forEach((userName, userSubscribers) -> {
+            for (Subscriber subscriber : userSubscribers) {
+                if (subscriber.isClosed()) {
+                    unsubscribe(userName, subscriber);
+                } else {
+                    subscriber.ping();
+                }
+            }
+        });
+    }
+
+    /**
+     * Meldet einen lokalen Empfänger für die Änderungen am Warenkorb eines Benutzers an.
+     *
+     * @param userName Der Benutzername
+     * @param subscriber Der Empfänger
+     */
+    public void subscribe(final String userName, final Subscriber subscriber) {
+        subscribers.computeIfAbsent(userName, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriberCount.incrementAndGet();
+    }
+
+    /**
+     * Meldet einen Empfänger ab.
+     *
+     * @param userName Der Benutzername
+     * @param subscriber Der Empfänger
+     */
+    public void unsubscribe(final String userName, final Subscriber subscriber) {
+        subscribers.computeIfPresent(userName, (key, userSubscribers) -> {
+            if (userSubscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    /**
+     * Veröffentlicht eine Änderung für alle Knoten. Blockiert nicht; Fehler werden nur protokolliert,
+     * die Änderung am Warenkorb selbst ist davon nicht betroffen.
+     *
+     * @param userName Der Benutzername
+     * @param event Die Änderung
+     */
+    public void publish(final String userName, final BasketEvent event) {
+        final String message;
+        try {
+            // Format: "<type>\n<json>", damit Empfänger den Event-Namen nicht aus dem JSON lesen müssen
+            message = event.getType() + '\n' + objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not serialize basket event for " + userName, e);
+            return;
+        }
+        redis.send(Request.cmd(Command.PUBLISH).arg(CHANNEL_PREFIX + userName).arg(message))
+                .subscribe().with(
+                        response -> published.increment(),
+                        failure -> logger.debug("Could not publish basket event for " + userName + ": " + failure.getMessage()));
+    }
+
+    private void connect() {
+        if (!connecting.compareAndSet(false, true)) {
+            return;
+        }
+        redis.connect()
+                .onItem().transformToUni(connection -> {
+                    connection.handler(this::onMessage);
+                    connection.exceptionHandler(this::onConnectionLost);
+                    connection.endHandler(() -> onConnectionLost(null));
+                    return connection.send(Request.cmd(Command.PSUBSCRIBE).arg(CHANNEL_PREFIX + "*").arg(EXPIRED_PATTERN))
+                            .onFailure().invoke(connection::closeAndForget)
+                            .replaceWith(connection);
+                })
+                .subscribe().with(connection -> {
+                    subscription = connection;
+                    connecting.set(false);
+                    logger.info("Basket event subscription active");
+                }, failure -> {
+                    connecting.set(false);
+                    logger.warn("Could not subscribe to basket events, retrying: " + failure.getMessage());
+                });
+    }
+
+    private void onMessage(final Response response) {
+        // RESP2: [pmessage, pattern, channel, message]
+        if (response.size() < 4 || !"pmessage".equals(response.get(0).toString())) {
+            return;
+        }
+        final String channel = response.get(2).toString();
+        final String message = response.get(3).toString();
+        if (channel.startsWith(CHANNEL_PREFIX)) {
+            final int separator = message.indexOf('\n');
+            if (separator > 0) {
+                deliver(channel.substring(CHANNEL_PREFIX.length()), message.substring(0, separator),
+                        message.substring(separator + 1));
+            }
+        } else if (message.startsWith(BasketController.BASKET_KEY_PREFIX)) {
+            // Keyspace-Notification: der Warenkorb ist per TTL abgelaufen
+            final String userName = message.substring(BasketController.BASKET_KEY_PREFIX.length());
+            try {
+                deliver(userName, BasketEvent.EXPIRED,
+                        objectMapper.writeValueAsString(BasketEvent.of(BasketEvent.EXPIRED, null, null, null)));
+            } catch (JsonProcessingException e) {
+                logger.error("Could not serialize basket event for " + userName, e);
+            }
+        }
+    }
+
+    private void deliver(final String userName, final String name, final String data) {
+        final Set<Subscriber> userSubscribers = subscribers.get(userName);
+        if (userSubscribers == null || userSubscribers.isEmpty()) {
+            return;
+        }
+        Infrastructure.getDefaultWorkerPool().execute(() -> {
+            for (Subscriber subscriber : userSubscribers) {
+                if (subscriber.isClosed()) {
+                    unsubscribe(userName, subscriber);
+                    continue;
+                }
+                subscriber.send(name, data);
+                delivered.increment();
+            }
+        });
+    }
+
+    private void onConnectionLost(final Throwable cause) {
+        if (subscription == null) {
+            return;
+        }
+        // Events bis zum Wiederaufbau gehen verloren; jedes weitere Event enthält wieder die vollständige Zusammenfassung
+        subscription = null;
+        logger.warn("Basket event subscription lost, reconnecting with next heartbeat"
+                + (cause != null ? ": " + cause.getMessage() : ""));
+    }
+}
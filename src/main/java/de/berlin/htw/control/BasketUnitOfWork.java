@@ -0,0 +1,77 @@
+package de.berlin.htw.control;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import jakarta.enterprise.context.RequestScoped;
+
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ArcContainer;
+
+/**
+ * Merkt sich pro Request den Benutzer und den Stand seines Warenkorbs, damit beide höchstens einmal
+ * aus der Datenbank bzw. aus Redis geladen werden, auch wenn mehrere Controller-Aufrufe sie brauchen
+ * (z.B. Checkout: {@link OrderController#prepareCheckout(String)} und {@link BasketController#getBasket(String)}).
+ * Änderungen am Warenkorb schreiben den neuen Stand hier fort, Antworten werden daraus gebaut,
+ * statt den Warenkorb nach jeder Änderung erneut zu lesen.
+ * Die Einheit lebt nur einen Request lang; zwischen Requests wird nichts gemerkt.
+ */
+@RequestScoped
+public class BasketUnitOfWork {
+
+    private final Map<String, UserEntity> users = new HashMap<>();
+
+    private final Map<String, Map<Long, String>> baskets = new HashMap<>();
+
+    /**
+     * Liefert die Einheit des aktuellen Requests. Außerhalb eines Requests (z.B. im Group-Commit-Thread)
+     * gibt es eine neue Einheit, die nur für den jeweiligen Aufruf gilt.
+     *
+     * @return Die Einheit für den aktuellen Aufruf
+     */
+    public static BasketUnitOfWork current() {
+        final ArcContainer container = Arc.container();
+        if (container != null && container.requestContext().isActive()) {
+            return container.instance(BasketUnitOfWork.class).get();
+        }
+        return new BasketUnitOfWork();
+    }
+
+    /**
+     * Liefert den Benutzer und lädt ihn nur beim ersten Aufruf pro Request.
+     *
+     * @param userName Der Benutzername
+     * @param loader Lädt den Benutzer (z.B. {@code userRepository::findByName})
+     * @return Der Benutzer oder null, wenn es ihn nicht gibt
+     */
+    public UserEntity user(final String userName, final Function<String, UserEntity> loader) {
+        if (!users.containsKey(userName)) {
+            users.put(userName, loader.apply(userName));
+        }
+        return users.get(userName);
+    }
+
+    /**
+     * @param basketKey Der Redis-Schlüssel des Warenkorbs
+     * @return Der gemerkte Inhalt des Warenkorbs oder null, wenn er in diesem Request noch nicht geladen wurde
+     */
+    public Map<Long, String> basket(final String basketKey) {
+        return baskets.get(basketKey);
+    }
+
+    /**
+     * Merkt sich den aktuellen Inhalt eines Warenkorbs, z.B. nach dem Laden oder einer Änderung.
+     *
+     * @param basketKey Der Redis-Schlüssel des Warenkorbs
+     * @param fields Die Felder des Hashs (werden kopiert)
+     * @return Die gemerkte Kopie
+     */
+    public Map<Long, String> setBasket(final String basketKey, final Map<Long, String> fields) {
+        final Map<Long, String> snapshot = new LinkedHashMap<>(fields);
+        baskets.put(basketKey, snapshot);
+        return snapshot;
+    }
+}
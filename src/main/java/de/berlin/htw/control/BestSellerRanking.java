@@ -0,0 +1,202 @@
+package de.berlin.htw.control;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.boundary.dto.TopProduct;
+import de.berlin.htw.control.ProductCatalog.CatalogEntry;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.sortedset.ScoredValue;
+import io.quarkus.redis.datasource.sortedset.SortedSetCommands;
+import io.quarkus.redis.datasource.sortedset.TransactionalSortedSetCommands;
+
+/**
+ * Bestseller-Ranking in Redis: jede committete Bestellung erhöht Stückzahl und Umsatz der Produkte
+ * in zeitlichen Buckets (Sorted Sets pro Minute und pro Stunde). Eine Abfrage vereinigt die Buckets
+ * des gewünschten Zeitfensters per ZUNION, statt ORDER_ITEM in SQL zu aggregieren.
+ * Die Buckets laufen automatisch ab, der Speicherbedarf bleibt dadurch begrenzt.
+ */
+@ApplicationScoped
+public class BestSellerRanking {
+
+    static final String KEY_PREFIX = "bestseller:";
+
+    // Fenster bis zu dieser Länge werden minutengenau aus Minuten-Buckets berechnet, längere aus Stunden-Buckets
+    static final Duration MINUTE_BUCKET_LIMIT = Duration.ofHours(1);
+    static final Duration MAX_WINDOW = Duration.ofDays(7);
+
+    // Lebensdauer der Buckets: etwas länger als das größte Fenster, das aus ihnen gelesen wird
+    private static final Duration MINUTE_BUCKET_TTL = MINUTE_BUCKET_LIMIT.plusMinutes(10);
+    private static final Duration HOUR_BUCKET_TTL = MAX_WINDOW.plusHours(2);
+
+    private static final int MAX_LIMIT = 100;
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @Inject
+    RedisCommandGuard redisGuard;
+
+    @Inject
+    ProductCatalog productCatalog;
+
+    @Inject
+    Logger logger;
+
+    /**
+     * Zählt eine Bestellung in die aktuellen Minuten- und Stunden-Buckets ein (eine MULTI/EXEC-Transaktion).
+     * Läuft erst nach dem Commit; ein Fehler hier wirkt sich nicht auf die Bestellung aus.
+     *
+     * @param event Die platzierte Bestellung
+     */
+    void onOrderPlaced(@Observes(during = TransactionPhase.AFTER_SUCCESS) final OrderPlacedEvent event) {
+        final long now = System.currentTimeMillis();
+        final long minute = now / Duration.ofMinutes(1).toMillis();
+        final long hour = now / Duration.ofHours(1).toMillis();
+        try {
+            redisGuard.call(() -> redisDS.withTransaction(tx -> {
+                final TransactionalSortedSetCommands<String, Long> zset = tx.sortedSet(Long.class);
+                for (OrderPlacedEvent.Line line : event.getLines()) {
+                    final double revenue = (double) line.getPrice() * line.getCount();
+                    zset.zincrby(quantityKey('m', minute), line.getCount(), line.getProductId());
+                    zset.zincrby(revenueKey('m', minute), revenue, line.getProductId());
+                    zset.zincrby(quantityKey('h', hour), line.getCount(), line.getProductId());
+                    zset.zincrby(revenueKey('h', hour), revenue, line.getProductId());
+                }
+                tx.key().expire(quantityKey('m', minute), MINUTE_BUCKET_TTL.getSeconds());
+                tx.key().expire(revenueKey('m', minute), MINUTE_BUCKET_TTL.getSeconds());
+                tx.key().expire(quantityKey('h', hour), HOUR_BUCKET_TTL.getSeconds());
+                tx.key().expire(revenueKey('h', hour), HOUR_BUCKET_TTL.getSeconds());
+            }));
+        } catch (RuntimeException e) {
+            // Das Ranking ist eine Auswertung, die Bestellung ist bereits committet
+            logger.warn("Could not update best-seller ranking for order " + event.getOrderId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Liefert die meistverkauften Produkte im angegebenen Zeitfenster, sortiert nach Stückzahl.
+     *
+     * @param window Zeitfenster, z.B. 15m, 1h, 24h oder 7d
+     * @param limit Maximale Anzahl Einträge (1 bis 100)
+     * @return Die Bestseller, absteigend nach Stückzahl
+     * @throws BadRequestException bei ungültigem Zeitfenster oder Limit
+     */
+    public List<TopProduct> top(final String window, final int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit muss zwischen 1 und " + MAX_LIMIT + " liegen");
+        }
+        final Duration duration = parseWindow(window);
+        final long now = System.currentTimeMillis();
+
+        final SortedSetCommands<String, Long> zset = redisDS.sortedSet(Long.class);
+        final String[] quantityKeys = bucketKeys("qty", duration, now);
+        final String[] revenueKeys = bucketKeys("rev", duration, now);
+        final List<ScoredValue<Long>> quantities = redisGuard.call(() -> zset.zunionWithScores(quantityKeys));
+        final List<ScoredValue<Long>> revenues = redisGuard.call(() -> zset.zunionWithScores(revenueKeys));
+
+        final Map<Long, Double> revenueByProduct = new HashMap<>();
+        for (ScoredValue<Long> revenue : revenues) {
+            revenueByProduct.put(revenue.value(), revenue.score());
+        }
+
+        final List<ScoredValue<Long>> ranked = new ArrayList<>(quantities);
+        ranked.sort(Comparator.comparingDouble((ScoredValue<Long> v) -> v.score()).reversed());
+
+        final List<TopProduct> result = new ArrayList<>();
+        for (ScoredValue<Long> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+            final TopProduct product = new TopProduct();
+            product.setProductId(ProductIds.render(entry.value()));
+            final CatalogEntry catalogEntry = productCatalog.resolve(entry.value());
+            product.setProductName(catalogEntry == null ? null : catalogEntry.getName());
+            product.setQuantity(Math.round(entry.score()));
+            product.setRevenue(revenueByProduct.getOrDefault(entry.value(), 0d).floatValue());
+            result.add(product);
+        }
+        return result;
+    }
+
+    /**
+     * Ermittelt die Buckets, die ein Zeitfenster abdecken: alle Buckets, die den Bereich {@code [now - window, now]}
+     * berühren, vom laufenden (angebrochenen) bis zu dem, in den der Beginn des Fensters fällt. Das Fenster wird
+     * damit nie unterschritten und um höchstens einen Bucket überschritten, z.B. deckt 90m zwischen 90 Minuten und
+     * 2,5 Stunden ab (Stunden-Buckets), 15m zwischen 15 und 16 Minuten (Minuten-Buckets).
+     *
+     * @param metric "qty" oder "rev"
+     * @param window Das Zeitfenster
+     * @param nowMillis Der aktuelle Zeitpunkt
+     * @return Die Redis-Schlüssel der Buckets, der laufende zuerst
+     */
+    public static String[] bucketKeys(final String metric, final Duration window, final long nowMillis) {
+        final boolean minutes = window.compareTo(MINUTE_BUCKET_LIMIT) <= 0;
+        final long bucketMillis = (minutes ? Duration.ofMinutes(1) : Duration.ofHours(1)).toMillis();
+        final long current = Math.floorDiv(nowMillis, bucketMillis);
+        final long oldest = Math.floorDiv(nowMillis - window.toMillis(), bucketMillis);
+        final int count = (int) (current - oldest + 1);
+        final String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = KEY_PREFIX + metric + ':' + (minutes ? 'm' : 'h') + ':' + (current - i);
+        }
+        return keys;
+    }
+
+    /**
+     * Wandelt ein Zeitfenster wie 30m, 1h oder 7d in eine Dauer um.
+     *
+     * @param window Das Zeitfenster (Zahl gefolgt von m, h oder d)
+     * @return Die Dauer
+     * @throws BadRequestException bei ungültigem Format oder einem Fenster über 7 Tagen
+     */
+    public static Duration parseWindow(final String window) {
+        if (window == null || window.length() < 2) {
+            throw new BadRequestException("Ungültiges Zeitfenster: " + window);
+        }
+        final long amount;
+        try {
+            amount = Long.parseLong(window.substring(0, window.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Ungültiges Zeitfenster: " + window);
+        }
+        if (amount <= 0 || amount > MAX_WINDOW.toMinutes()) {
+            throw new BadRequestException("Das Zeitfenster muss zwischen 1m und 7d liegen");
+        }
+        final Duration duration;
+        switch (window.charAt(window.length() - 1)) {
+            case 'm':
+                duration = Duration.ofMinutes(amount);
+                break;
+            case 'h':
+                duration = Duration.ofHours(amount);
+                break;
+            case 'd':
+                duration = Duration.ofDays(amount);
+                break;
+            default:
+                throw new BadRequestException("Ungültiges Zeitfenster: " + window);
+        }
+        if (duration.compareTo(MAX_WINDOW) > 0) {
+            throw new BadRequestException("Das Zeitfenster muss zwischen 1m und 7d liegen");
+        }
+        return duration;
+    }
+
+    private static String quantityKey(final char granularity, final long bucket) {
+        return KEY_PREFIX + "qty:" + granularity + ':' + bucket;
+    }
+
+    private static String revenueKey(final char granularity, final long bucket) {
+        return KEY_PREFIX + "rev:" + granularity + ':' + bucket;
+    }
+}
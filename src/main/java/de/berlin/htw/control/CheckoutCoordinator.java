@@ -0,0 +1,305 @@
+package de.berlin.htw.control;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import de.berlin.htw.boundary.dto.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+
+/**
+ * Optionaler Group Commit für Checkouts ({@code app.checkout.group-commit.enabled}).
+ * Checkouts, die innerhalb von {@code window} eintreffen, werden (bis {@code max-batch}) von einem
+ * Hintergrund-Thread in einer gemeinsamen Datenbank-Transaktion abgeschlossen, sodass sich viele
+ * Bestellungen einen Commit (und damit einen fsync) teilen.
+ * Jede Anfrage wird einzeln beantwortet: Reicht das Guthaben eines Benutzers nicht, bekommt nur dieser
+ * eine Fehlermeldung, weil die bedingte Abbuchung vor allen anderen Schreibzugriffen scheitert.
+ * Scheitert dagegen die gemeinsame Transaktion, werden alle Anfragen des Batches einzeln wiederholt.
+ * Ist ein Checkout nach {@code max-wait} noch offen, kann er trotzdem noch committet werden; statt eines
+ * wiederholbaren 503 (das eine doppelte Bestellung riskiert) bekommt der Client 202 mit einer Referenz unter
+ * {@code /basket/checkouts/{reference}}, dort ist das Ergebnis für {@code reference-ttl} abrufbar. Die Referenzen
+ * liegen nur im Speicher des Knotens, der den Checkout angenommen hat.
+ * Der Hintergrund-Thread läuft nur bei eingeschaltetem Group Commit. Beim Herunterfahren wird der laufende Batch
+ * noch abgeschlossen, noch nicht begonnene Checkouts scheitern mit 503 (es wurde nichts geschrieben).
+ */
+@ApplicationScoped
+public class CheckoutCoordinator {
+
+    @Inject
+    OrderController orderController;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.checkout.group-commit.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.checkout.group-commit.window", defaultValue = "5ms")
+    Duration window;
+
+    @ConfigProperty(name = "app.checkout.group-commit.max-batch", defaultValue = "32")
+    int maxBatch;
+
+    @ConfigProperty(name = "app.checkout.group-commit.max-wait", defaultValue = "5S")
+    Duration maxWait;
+
+    @ConfigProperty(name = "app.checkout.group-commit.reference-ttl", defaultValue = "10M")
+    Duration referenceTtl;
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final BlockingQueue<PendingCheckout> queue = new LinkedBlockingQueue<>();
+    // Checkouts, deren Ergebnis der Client nach einem 202 noch abfragen kann
+    private final Map<String, PendingCheckout> unresolved = new ConcurrentHashMap<>();
+    private Thread worker;
+    private volatile boolean running;
+
+    private DistributionSummary batchSize;
+    private Counter fallbacks;
+
+    @PostConstruct
+    void init() {
+        batchSize = DistributionSummary.builder("checkout.group.batch.size")
+                .description("Anzahl Checkouts pro gemeinsamer Transaktion")
+                .register(registry);
+        fallbacks = Counter.builder("checkout.group.fallbacks")
+                .description("Batches, die nach einem Fehler einzeln wiederholt wurden")
+                .register(registry);
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::processBatches, "checkout-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        // laufenden Batch noch abschließen lassen, der Thread prüft running spätestens nach IDLE_POLL_MILLIS
+        worker.join(maxWait.toMillis());
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+        failQueued();
+    }
+
+    /**
+     * Führt einen Checkout aus, je nach Konfiguration gesammelt oder als eigene Transaktion.
+     *
+     * @param username Der Benutzername
+     * @return Die platzierte Bestellung
+     * @throws JsonProcessingException Bei JSON-Verarbeitungsfehlern
+     */
+    public Order checkout(final String username) throws JsonProcessingException {
+        return enabled ? submit(username) : orderController.placeOrder(username);
+    }
+
+    /**
+     * Führt einen Checkout über den Group Commit aus (nur wenn dieser eingeschaltet ist). Benutzer und Warenkorb werden im aufrufenden
+     * Thread geprüft, nur die Schreibzugriffe laufen gesammelt. Kein Checkout-Bulkhead: alle Schreibzugriffe
+     * laufen ohnehin über den einen Hintergrund-Thread, ein Bulkhead würde nur die Batch-Größe begrenzen.
+     *
+     * @param username Der Benutzername
+     * @return Die platzierte Bestellung
+     * @throws BadRequestException wenn der Warenkorb leer ist oder das Guthaben nicht reicht
+     * @throws WebApplicationException mit 202 und der Referenz, wenn die Bestellung nicht rechtzeitig abgeschlossen wurde
+     * @throws ServiceUnavailableException wenn der Group Commit abgeschaltet ist oder gerade herunterfährt
+     */
+    public Order submit(final String username) {
+        if (!running) {
+            throw new ServiceUnavailableException(1L);
+        }
+        final PendingCheckout pending = new PendingCheckout(username, orderController.prepareCheckout(username));
+        queue.add(pending);
+        if (!running) {
+            // shutdown() lief parallel, der Checkout wird evtl. nicht mehr abgearbeitet
+            failQueued();
+        }
+        try {
+            return pending.result.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Ergebnis ist offen, die Bestellung kann trotzdem noch committet werden
+            evictExpiredReferences();
+            unresolved.put(pending.reference, pending);
+            throw accepted(pending.reference);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unresolved.put(pending.reference, pending);
+            throw accepted(pending.reference);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Liefert das Ergebnis eines Checkouts, der nach {@code max-wait} noch offen war.
+     *
+     * @param username Der Benutzername
+     * @param reference Die Referenz aus dem 202
+     * @return Die platzierte Bestellung
+     * @throws WebApplicationException mit 202, solange der Checkout noch offen ist
+     * @throws NotFoundException wenn die Referenz unbekannt, abgelaufen oder von einem anderen Benutzer ist
+     * @throws BadRequestException wenn das Guthaben nicht gereicht hat
+     */
+    public Order result(final String username, final String reference) {
+        final PendingCheckout pending = unresolved.get(reference);
+        if (pending == null || !pending.username.equals(username)) {
+            throw new NotFoundException("Checkout nicht gefunden: " + reference);
+        }
+        if (!pending.result.isDone()) {
+            throw accepted(reference);
+        }
+        try {
+            return pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw accepted(reference);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static WebApplicationException accepted(final String reference) {
+        return new WebApplicationException(Response.accepted()
+                .header(HttpHeaders.LOCATION, "/basket/checkouts/" + reference)
+                .header(HttpHeaders.RETRY_AFTER, 1)
+                .build());
+    }
+
+    private static RuntimeException unwrap(final ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+            return (RuntimeException) e.getCause();
+        }
+        return new IllegalStateException(e.getCause());
+    }
+
+    private void evictExpiredReferences() {
+        final long now = System.nanoTime();
+        unresolved.values().removeIf(p -> now - p.submittedAt > referenceTtl.toNanos());
+    }
+
+    private void failQueued() {
+        PendingCheckout pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new ServiceUnavailableException(1L));
+        }
+    }
+
+    private void processBatches() {
+        while (running) {
+            final List<PendingCheckout> batch = new ArrayList<>(maxBatch);
+            try {
+                final PendingCheckout first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = System.nanoTime() + window.toNanos();
+                while (batch.size() < maxBatch) {
+                    final PendingCheckout next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(p -> p.result.completeExceptionally(new ServiceUnavailableException(1L)));
+                return;
+            }
+            batchSize.record(batch.size());
+            try {
+                commitBatch(batch);
+            } catch (RuntimeException e) {
+                logger.warn("Group commit of " + batch.size() + " checkouts failed, retrying individually: " + e.getMessage());
+                fallbacks.increment();
+                batch.forEach(this::commitSingle);
+            }
+        }
+    }
+
+    private void commitBatch(final List<PendingCheckout> batch) {
+        final List<Order> orders = QuarkusTransaction.requiringNew().call(() -> {
+            final List<Order> placed = new ArrayList<>(batch.size());
+            for (PendingCheckout pending : batch) {
+                placed.add(orderController.completeCheckout(pending.checkout));
+            }
+            return placed;
+        });
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), orders.get(i));
+        }
+    }
+
+    private void commitSingle(final PendingCheckout pending) {
+        try {
+            complete(pending, QuarkusTransaction.requiringNew().call(() -> orderController.completeCheckout(pending.checkout)));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private void complete(final PendingCheckout pending, final Order order) {
+        if (order == null) {
+            pending.result.completeExceptionally(new BadRequestException("Nicht genügend Guthaben"));
+            return;
+        }
+        try {
+            orderController.finishCheckout(pending.checkout);
+        } catch (RuntimeException e) {
+            // Bestellung ist committet, nur das Leeren des Warenkorbs ist fehlgeschlagen
+            logger.warn("Could not clear basket of " + pending.checkout.getUsername() + " after checkout: " + e.getMessage());
+        }
+        pending.result.complete(order);
+    }
+
+    private static final class PendingCheckout {
+
+        private final String reference = UUID.randomUUID().toString();
+        private final long submittedAt = System.nanoTime();
+        private final String username;
+        private final PreparedCheckout checkout;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+
+        PendingCheckout(final String username, final PreparedCheckout checkout) {
+            this.username = username;
+            this.checkout = checkout;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package de.berlin.htw.control;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.entity.dao.OrderArchive;
+import de.berlin.htw.entity.dao.OrderArchiveFile.Row;
+import de.berlin.htw.entity.dao.OrderPartitionRepository;
+import de.berlin.htw.entity.dao.OrderPartitionRepository.MaintenanceLock;
+import de.berlin.htw.entity.dao.OrderPartitionRepository.Partition;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Pflegt die Monatspartitionen von ORDERS und ORDER_ITEM und lagert alte Partitionen ins {@link OrderArchive} aus.
+ * <ul>
+ * <li>Es gibt immer Partitionen bis {@code app.orders.partitions.months-ahead} Monate in die Zukunft,
+ * sie werden aus {@code p_future} abgespalten.</li>
+ * <li>Mit {@code app.orders.archive.enabled} werden Partitionen, die vollständig vor den letzten
+ * {@code app.orders.archive.retention} Monaten liegen, älteste zuerst archiviert: Zeilen lesen (Positionen aus
+ * ITEMS_DATA oder ORDER_ITEM), Archivdatei schreiben, Partition löschen, Archiv veröffentlichen.</li>
+ * </ul>
+ * Bricht der Job zwischen Schreiben und Veröffentlichen ab, entscheidet der nächste Lauf anhand von ORDERS
+ * (wird vor ORDER_ITEM gelöscht): Existiert die Partition noch, wird das Archiv verworfen, sonst veröffentlicht
+ * und die Partition in ORDER_ITEM nachträglich gelöscht.
+ * Mit mehreren Knoten pflegt immer nur der Knoten die Partitionen, der die Sperre
+ * {@link OrderPartitionRepository#tryLock()} bekommt; die anderen überspringen den Lauf. Das Archivverzeichnis
+ * muss dann von allen Knoten gemeinsam genutzt werden (z.B. ein Netzlaufwerk), jeder Knoten liest es im Abstand
+ * von {@code app.orders.archive.refresh-interval} neu ein.
+ * USER_ORDER_STATS bleibt unverändert; der Backfill ({@link OrderStatsBackfill}) rechnet die Summen je Benutzer
+ * aus den Archivverzeichnissen hinzu. Der Suchindex kennt nur Bestellungen in der Datenbank.
+ */
+@ApplicationScoped
+public class OrderArchiver {
+
+    // Erster Monat nach p_old, falls noch keine Monatspartition existiert
+    private static final YearMonth FIRST_MONTH = YearMonth.of(2025, 1);
+
+    @Inject
+    OrderPartitionRepository partitionRepository;
+
+    @Inject
+    OrderArchive archive;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.orders.partitions.maintain", defaultValue = "true")
+    boolean maintainPartitions;
+
+    @ConfigProperty(name = "app.orders.partitions.months-ahead", defaultValue = "3")
+    int monthsAhead;
+
+    @ConfigProperty(name = "app.orders.archive.enabled", defaultValue = "false")
+    boolean archiveEnabled;
+
+    @ConfigProperty(name = "app.orders.archive.retention", defaultValue = "12")
+    int retentionMonths;
+
+    @ActivateRequestContext
+    void onStart(@Observes final StartupEvent event) {
+        run();
+    }
+
+    @Scheduled(cron = "{app.orders.archive.cron}")
+    @ActivateRequestContext
+    void scheduled() {
+        run();
+    }
+
+    /**
+     * Übernimmt Archive, die ein anderer Knoten im gemeinsamen Verzeichnis veröffentlicht hat.
+     */
+    @Scheduled(every = "{app.orders.archive.refresh-interval}")
+    void refreshArchive() {
+        try {
+            archive.refresh();
+        } catch (RuntimeException e) {
+            logger.error("Could not refresh the order archive", e);
+        }
+    }
+
+    /**
+     * Legt fehlende Monatspartitionen an und archiviert abgelaufene Partitionen,
+     * sofern kein anderer Knoten gerade die Partitionen pflegt.
+     *
+     * @return Die Anzahl archivierter Bestellungen
+     */
+    public synchronized int run() {
+        if (!maintainPartitions) {
+            return 0;
+        }
+        try (MaintenanceLock lock = partitionRepository.tryLock()) {
+            if (lock == null) {
+                logger.info("Order partition maintenance is running on another node, skipping");
+                return 0;
+            }
+            for (String table : OrderPartitionRepository.TABLES) {
+                final List<Partition> partitions = partitionRepository.findPartitions(table);
+                // leer: nicht partitioniert (z.B. andere Datenbank als MySQL)
+                if (!partitions.isEmpty()) {
+                    ensurePartitions(table, partitions, YearMonth.now().plusMonths(monthsAhead));
+                }
+            }
+            if (!archiveEnabled) {
+                return 0;
+            }
+            final List<Partition> partitions = partitionRepository.findPartitions("ORDERS");
+            recover(partitions);
+            return archive(partitions, YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay());
+        } catch (RuntimeException e) {
+            // nächster Lauf versucht es erneut, die Anwendung bleibt benutzbar
+            logger.error("Order partition maintenance failed", e);
+            return 0;
+        }
+    }
+
+    private void ensurePartitions(final String table, final List<Partition> partitions, final YearMonth until) {
+        YearMonth next = FIRST_MONTH;
+        for (Partition partition : partitions) {
+            if (partition.getUpperDate() != null) {
+                // Obergrenze ist der Erste des Folgemonats
+                next = YearMonth.from(partition.getUpperDate());
+            }
+        }
+        final List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month = next; !month.isAfter(until); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        if (months.isEmpty()) {
+            return;
+        }
+        partitionRepository.addMonthlyPartitions(table, months);
+        logger.infof("Added %s partitions %s to %s", table, months.get(0), months.get(months.size() - 1));
+    }
+
+    private void recover(final List<Partition> partitions) {
+        final Set<String> existing = new HashSet<>();
+        partitions.forEach(partition -> existing.add(partition.getName()));
+        for (String partition : archive.findUnpublished()) {
+            if (existing.contains(partition)) {
+                archive.discard(partition);
+            } else {
+                archive.publish(partition);
+                logger.infof("Published order archive %s left over from an interrupted run", partition);
+            }
+        }
+        // Positionen bereits archivierter Bestellungen
+        final List<String> published = archive.findPublished();
+        for (Partition partition : partitionRepository.findPartitions("ORDER_ITEM")) {
+            if (!existing.contains(partition.getName()) && published.contains(partition.getName())) {
+                partitionRepository.dropPartition("ORDER_ITEM", partition.getName());
+            }
+        }
+    }
+
+    private int archive(final List<Partition> partitions, final LocalDateTime cutoff) {
+        int archived = 0;
+        for (Partition partition : partitions) {
+            if (partition.getUpperDate() == null || partition.getUpperDate().isAfter(cutoff)) {
+                // aufsteigend sortiert, alle weiteren sind jünger
+                break;
+            }
+            final long start = System.nanoTime();
+            final List<Row> rows = readPartition(partition.getName());
+            archive.write(partition.getName(), partition.getUpperBound(), rows);
+            partitionRepository.dropPartition("ORDERS", partition.getName());
+            archive.publish(partition.getName());
+            partitionRepository.dropPartition("ORDER_ITEM", partition.getName());
+            registry.counter("orders.archived").increment(rows.size());
+            archived += rows.size();
+            logger.infof("Archived partition %s with %d orders in %d ms", partition.getName(), rows.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        return archived;
+    }
+
+    @Transactional
+    List<Row> readPartition(final String partition) {
+        // Positionen von Bestellungen ohne ITEMS_DATA (normalisiertes Layout) nach Bestellung gruppieren
+        final Map<Integer, List<OrderItemEntity>> items = new HashMap<>();
+        for (Object[] item : partitionRepository.findPartitionItems(partition)) {
+            final OrderItemEntity entity = new OrderItemEntity();
+            entity.setProductId(((Number) item[1]).longValue());
+            entity.setProductName((String) item[2]);
+            entity.setCount(((Number) item[3]).intValue());
+            entity.setPrice(((Number) item[4]).floatValue());
+            items.computeIfAbsent(((Number) item[0]).intValue(), id -> new ArrayList<>()).add(entity);
+        }
+
+        final List<Object[]> orders = partitionRepository.findPartitionOrders(partition);
+        final List<Row> rows = new ArrayList<>(orders.size());
+        for (Object[] order : orders) {
+            final int orderId = ((Number) order[0]).intValue();
+            byte[] itemsData = (byte[]) order[4];
+            if (itemsData == null) {
+                itemsData = OrderItemsCodec.encode(items.getOrDefault(orderId, List.of()));
+            }
+            rows.add(new Row(orderId, ((Number) order[1]).intValue(), ((Number) order[2]).floatValue(),
+                    (LocalDateTime) order[3], itemsData));
+        }
+        return rows;
+    }
+}
@@ -1,9 +1,9 @@
 package de.berlin.htw.control;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.BadRequestException;
 import jakarta.ws.rs.InternalServerErrorException;
@@ -12,18 +12,30 @@ import jakarta.ws.rs.NotFoundException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import de.berlin.htw.boundary.dto.Basket;
 import de.berlin.htw.boundary.dto.Item;
 import de.berlin.htw.boundary.dto.Order;
+import de.berlin.htw.boundary.dto.OrderStats;
 import de.berlin.htw.boundary.dto.Orders;
+import de.berlin.htw.control.bulkhead.Bulkheaded;
+import de.berlin.htw.control.bulkhead.WorkloadClass;
+import de.berlin.htw.control.jfr.CheckoutPhaseEvent;
+import de.berlin.htw.control.jfr.OrderHistoryLoadEvent;
 import de.berlin.htw.entity.dao.OrderRepository;
+import de.berlin.htw.entity.dao.ReadReplicaRouter;
+import de.berlin.htw.entity.dao.UserOrderStatsRepository;
 import de.berlin.htw.entity.dao.UserRepository;
 import de.berlin.htw.entity.dto.OrderEntity;
 import de.berlin.htw.entity.dto.OrderItemEntity;
 import de.berlin.htw.entity.dto.UserEntity;
+import de.berlin.htw.entity.dto.UserOrderStatsEntity;
 
 /**
  * @author Alexander Stanik [alexander.stanik@htw-berlin.de]
@@ -37,11 +49,38 @@ public class OrderController {
     @Inject
     UserRepository userRepository;
 
+    @Inject
+    UserOrderStatsRepository statsRepository;
+
     @Inject
     BasketController basketController;
-    
-    @PersistenceContext
-    EntityManager entityManager;
+
+    @Inject
+    ReadReplicaRouter readReplicaRouter;
+
+    @Inject
+    Event<OrderPlacedEvent> orderPlacedEvent;
+
+    @Inject
+    OrderSearchIndex searchIndex;
+
+    @Inject
+    OrderStorage orderStorage;
+
+    @Inject
+    BalanceLedger balanceLedger;
+
+    @Inject
+    MeterRegistry registry;
+
+    Timer debitTimer;
+
+    @PostConstruct
+    void initMetrics() {
+        debitTimer = Timer.builder("checkout.balance.debit")
+                .description("Dauer der Guthabenprüfung inkl. Warten auf die Kontosperre")
+                .register(registry);
+    }
 
     /**
      * Holt die Liste der abgeschlossenen Bestellungen eines Benutzers
@@ -49,20 +88,111 @@ public class OrderController {
      * @param username Der Benutzername
      * @return Liste der Bestellungen
      */
+    @Bulkheaded(WorkloadClass.HISTORY)
     public List<Order> getCompletedOrders(String username) {
-        // Benutzer suchen
-        UserEntity user = userRepository.findByName(username);
+        // Benutzer suchen (reiner Lesezugriff, daher über das Read-Replica)
+        UserEntity user = userRepository.findByNameReadOnly(username);
         if (user == null) {
             throw new NotFoundException("Benutzer nicht gefunden: " + username);
         }
 
         // Bestellungen des Benutzers laden
+        OrderHistoryLoadEvent event = OrderHistoryLoadEvent.begin(username, -1);
         List<OrderEntity> orderEntities = orderRepository.findOrdersByUser(user);
+        event.rowCount = orderEntities.size();
+        event.commit();
 
         // Konvertiere Entity-Objekte in DTO-Objekte
         return convertToOrderDTOs(orderEntities);
     }
 
+    /**
+     * Holt eine Seite der abgeschlossenen Bestellungen eines Benutzers, neueste zuerst
+     * 
+     * @param username Der Benutzername
+     * @param page Nummer der Seite, beginnend bei 0
+     * @param size Anzahl Bestellungen pro Seite
+     * @return Die Bestellungen der Seite
+     */
+    @Bulkheaded(WorkloadClass.HISTORY)
+    public List<Order> getCompletedOrders(String username, int page, int size) {
+        UserEntity user = userRepository.findByNameReadOnly(username);
+        if (user == null) {
+            throw new NotFoundException("Benutzer nicht gefunden: " + username);
+        }
+        int firstResult = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        OrderHistoryLoadEvent event = OrderHistoryLoadEvent.begin(username, page);
+        List<OrderEntity> orderEntities = orderRepository.findOrdersByUser(user, firstResult, size);
+        event.rowCount = orderEntities.size();
+        event.commit();
+        return convertToOrderDTOs(orderEntities);
+    }
+
+    /**
+     * Sucht die Bestellungen eines Benutzers, die ein Produkt enthalten, dessen Name oder Produktnummer
+     * mit den Wörtern der Anfrage beginnt. Die Treffer kommen aus dem Suchindex, nur die gefundenen
+     * Bestellungen werden aus der Datenbank geladen.
+     * 
+     * @param username Der Benutzername
+     * @param query Die Suchanfrage
+     * @return Die passenden Bestellungen, neueste zuerst
+     */
+    @Bulkheaded(WorkloadClass.HISTORY)
+    public List<Order> searchOrders(String username, String query) {
+        UserEntity user = userRepository.findByNameReadOnly(username);
+        if (user == null) {
+            throw new NotFoundException("Benutzer nicht gefunden: " + username);
+        }
+
+        Set<Integer> orderIds = searchIndex.search(user, query);
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return convertToOrderDTOs(orderRepository.findOrdersByIds(user, orderIds));
+    }
+
+    /**
+     * Baut den Suchindex eines Benutzers aus der Datenbank neu auf
+     * 
+     * @param username Der Benutzername
+     * @return Die Anzahl der Index-Einträge
+     */
+    @Bulkheaded(WorkloadClass.HISTORY)
+    public int rebuildSearchIndex(String username) {
+        UserEntity user = userRepository.findByNameReadOnly(username);
+        if (user == null) {
+            throw new NotFoundException("Benutzer nicht gefunden: " + username);
+        }
+        return searchIndex.rebuild(user);
+    }
+
+    /**
+     * Holt die aggregierte Bestell-Statistik eines Benutzers (eine Zeile statt der ganzen Historie)
+     * 
+     * @param username Der Benutzername
+     * @return Anzahl, Summe und Datum der letzten Bestellung
+     */
+    @Bulkheaded(WorkloadClass.HISTORY)
+    public OrderStats getOrderStats(String username) {
+        UserEntity user = userRepository.findByNameReadOnly(username);
+        if (user == null) {
+            throw new NotFoundException("Benutzer nicht gefunden: " + username);
+        }
+
+        OrderStats stats = new OrderStats();
+        UserOrderStatsEntity entity = statsRepository.findByUser(user);
+        if (entity == null) {
+            // Benutzer hat noch nie bestellt
+            stats.setOrderCount(0);
+            stats.setTotalSpent(0f);
+        } else {
+            stats.setOrderCount(entity.getOrderCount());
+            stats.setTotalSpent(entity.getTotalSpent());
+            stats.setLastOrderDate(entity.getLastOrderDate());
+        }
+        return stats;
+    }
+
     /**
      * Platziert eine Bestellung mit dem aktuellen Inhalt des Warenkorbs
      * 
@@ -71,15 +201,40 @@ public class OrderController {
      * @throws JsonProcessingException Bei JSON-Verarbeitungsfehlern
      */
     @Transactional
+    @Bulkheaded(WorkloadClass.CHECKOUT)
     public Order placeOrder(String username) throws JsonProcessingException {
-        // Benutzer suchen
-        UserEntity user = userRepository.findByName(username);
+        PreparedCheckout checkout = prepareCheckout(username);
+
+        Order order = completeCheckout(checkout);
+        if (order == null) {
+            throw new BadRequestException("Nicht genügend Guthaben");
+        }
+
+        finishCheckout(checkout);
+        return order;
+    }
+
+    /**
+     * Erster Teil des Checkouts ohne Schreibzugriffe: prüft Benutzer und Warenkorb und berechnet die Summe.
+     * 
+     * @param username Der Benutzername
+     * @return Die vorbereitete Bestellung
+     * @throws NotFoundException wenn der Benutzer nicht existiert
+     * @throws BadRequestException wenn der Warenkorb leer ist oder das Guthaben offensichtlich nicht reicht
+     */
+    public PreparedCheckout prepareCheckout(String username) {
+        // Benutzer suchen; getBasket verwendet denselben Benutzer, statt ihn erneut zu laden
+        CheckoutPhaseEvent phase = CheckoutPhaseEvent.begin(username, CheckoutPhaseEvent.LOOKUP);
+        UserEntity user = BasketUnitOfWork.current().user(username, userRepository::findByName);
         if (user == null) {
             throw new NotFoundException("Benutzer nicht gefunden: " + username);
         }
 
         // Hole den Warenkorb
         Basket basket = basketController.getBasket(username);
+        phase.commit();
+
+        phase = CheckoutPhaseEvent.begin(username, CheckoutPhaseEvent.VALIDATION);
         if (basket.getItems().isEmpty()) {
             throw new BadRequestException("Der Warenkorb ist leer");
         }
@@ -89,55 +244,93 @@ public class OrderController {
                 .map(item -> item.getPrice() * item.getCount())
                 .reduce(0f, Float::sum);
 
-        // Prüfen, ob der Benutzer genug Guthaben hat
-        if (user.getBalance() < total) {
+        // Schnelle Vorprüfung; verbindlich ist erst die Abbuchung in completeCheckout
+        if (balanceLedger.getBalance(user.getId()) < total) {
             throw new BadRequestException("Nicht genügend Guthaben");
         }
+        phase.commit();
+
+        return new PreparedCheckout(username, user.getId(), basket.getItems(),
+                basketController.getBasketItems(username), total);
+    }
+
+    /**
+     * Zweiter Teil des Checkouts, muss in einer Transaktion laufen: bucht das Guthaben ab und speichert
+     * Bestellung und Statistik. Reicht das Guthaben nicht, wird nichts geschrieben und null zurückgegeben;
+     * die Transaktion bleibt dabei intakt (wichtig für Sammel-Transaktionen, siehe CheckoutCoordinator).
+     * 
+     * @param checkout Die vorbereitete Bestellung
+     * @return Die platzierte Bestellung oder null, wenn das Guthaben nicht reicht
+     */
+    public Order completeCheckout(PreparedCheckout checkout) {
+        // Zuerst das Konto sperren und das Guthaben prüfen: bei parallelen Checkouts gewinnt nur der, für den
+        // das Guthaben noch reicht. Die Wartezeit auf die Kontosperre wird als Timer erfasst.
+        CheckoutPhaseEvent phase = CheckoutPhaseEvent.begin(checkout.getUsername(), CheckoutPhaseEvent.DEBIT);
+        boolean covered = debitTimer.record(() -> balanceLedger.checkCoverage(checkout.getUserId(), checkout.getTotal()));
+        phase.commit();
+        if (!covered) {
+            return null;
+        }
+
+        phase = CheckoutPhaseEvent.begin(checkout.getUsername(), CheckoutPhaseEvent.INSERT);
 
         // Neue Bestellung erstellen
         OrderEntity order = new OrderEntity();
-        order.setUser(user);
-        order.setTotal(total);
+        order.setUser(userRepository.findUserById(checkout.getUserId()));
+        order.setTotal(checkout.getTotal());
         order.setOrderDate(LocalDateTime.now());
 
-        // Speichere Bestellung, um ID zu generieren
-        orderRepository.saveOrder(order);
-
-        // Füge Bestellpositionen hinzu
+        // Bestellpositionen aufbauen
         List<OrderItemEntity> orderItems = new ArrayList<>();
-        for (Item item : basket.getItems()) {
+        for (Item item : checkout.getItems()) {
             OrderItemEntity orderItem = new OrderItemEntity();
             orderItem.setOrder(order);
-            orderItem.setProductId(item.getProductId());
+            orderItem.setProductId(ProductIds.pack(item.getProductId()));
             orderItem.setProductName(item.getProductName());
             orderItem.setCount(item.getCount());
             orderItem.setPrice(item.getPrice());
             orderItems.add(orderItem);
-
-            // Speichere das OrderItem
-            entityManager.persist(orderItem);
         }
-        order.setItems(orderItems);
 
-        // Ziehe den Betrag vom Guthaben des Benutzers ab
-        user.setBalance(user.getBalance() - total);
-        // Aktualisiere den Benutzer
-        entityManager.merge(user);
+        // Speichere Bestellung und Positionen im konfigurierten Layout (ORDER_ITEM und/oder ITEMS_DATA)
+        orderStorage.saveOrder(order, orderItems);
 
-        // Leere den Warenkorb
-        basketController.clearBasket(username);
+        // Abbuchung mit Verweis auf die Bestellung ins Journal schreiben (Konto ist noch gesperrt)
+        balanceLedger.debit(checkout.getUserId(), checkout.getTotal(), order.getId());
+
+        // Statistik des Benutzers in derselben Transaktion fortschreiben
+        statsRepository.recordOrder(checkout.getUserId(), checkout.getTotal(), order.getOrderDate());
+        phase.commit();
+
+        // Beobachter (z.B. Bestseller-Ranking) werden erst nach erfolgreichem Commit benachrichtigt
+        orderPlacedEvent.fire(new OrderPlacedEvent(checkout.getUsername(), order, orderItems));
 
         // Gib die Bestellung zurück
         return convertToOrderDTO(order);
     }
 
     /**
-     * Konvertiert eine Liste von OrderEntity-Objekten in Order-DTOs
+     * Letzter Teil des Checkouts: entfernt die bestellten Artikel aus dem Warenkorb und sorgt für Read-your-writes auf der Historie.
+     * 
+     * @param checkout Die vorbereitete Bestellung
+     */
+    public void finishCheckout(PreparedCheckout checkout) {
+        // Nur die bestellten Artikel entfernen; was seit dem Lesen hinzukam oder geändert wurde, bleibt liegen
+        CheckoutPhaseEvent phase = CheckoutPhaseEvent.begin(checkout.getUsername(), CheckoutPhaseEvent.REDIS_CLEAR);
+        basketController.clearOrderedItems(checkout.getUsername(), checkout.getUserId(), checkout.getBasketItems());
+        phase.commit();
+
+        // Die eigene Historie für kurze Zeit von der primären Datenbank lesen (Read-your-writes)
+        readReplicaRouter.markWrite(checkout.getUsername());
+    }
+
+    /**
+     * Konvertiert eine Liste von OrderEntity-Objekten in Order-DTOs (auch für den {@link WarmUp})
      * 
      * @param orderEntities Liste der Entity-Objekte
      * @return Liste der DTO-Objekte
      */
-    private List<Order> convertToOrderDTOs(List<OrderEntity> orderEntities) {
+    List<Order> convertToOrderDTOs(List<OrderEntity> orderEntities) {
         List<Order> orders = new ArrayList<>();
         for (OrderEntity entity : orderEntities) {
             orders.add(convertToOrderDTO(entity));
@@ -156,9 +349,9 @@ public class OrderController {
 
         // Konvertiere OrderItems zu Items
         List<Item> items = new ArrayList<>();
-        for (OrderItemEntity itemEntity : entity.getItems()) {
+        for (OrderItemEntity itemEntity : orderStorage.readItems(entity)) {
             Item item = new Item();
-            item.setProductId(itemEntity.getProductId());
+            item.setProductId(ProductIds.render(itemEntity.getProductId()));
             item.setProductName(itemEntity.getProductName());
             item.setCount(itemEntity.getCount());
             item.setPrice(itemEntity.getPrice());
@@ -0,0 +1,72 @@
+package de.berlin.htw.control;
+
+import java.util.List;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.entity.dao.OrderRepository;
+import de.berlin.htw.entity.dto.OrderEntity;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Backfill-Job für ORDERS.ITEMS_DATA: kodiert die ORDER_ITEM-Zeilen bestehender Bestellungen
+ * in kleinen Transaktionen in das kompakte Format (siehe {@link OrderItemsCodec}).
+ * Voraussetzung, um vom Modus {@code dual} auf {@code embedded} umzustellen.
+ * Die ORDER_ITEM-Zeilen bleiben erhalten.
+ */
+@ApplicationScoped
+public class OrderItemsBackfill {
+
+    @Inject
+    OrderRepository orderRepository;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.orders.embed-backfill-at-start", defaultValue = "false")
+    boolean backfillAtStart;
+
+    @ConfigProperty(name = "app.orders.embed-backfill-batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ActivateRequestContext
+    void onStart(@Observes final StartupEvent event) {
+        if (backfillAtStart) {
+            run();
+        }
+    }
+
+    /**
+     * Bettet die Positionen aller Bestellungen ein, die noch kein ITEMS_DATA haben.
+     * 
+     * @return Die Anzahl der umgeschriebenen Bestellungen
+     */
+    public int run() {
+        final long start = System.nanoTime();
+        int total = 0;
+        int batch;
+        do {
+            batch = embedBatch();
+            total += batch;
+        } while (batch == batchSize);
+        logger.info("Embedded the line items of " + total + " orders into ITEMS_DATA in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return total;
+    }
+
+    @Transactional
+    int embedBatch() {
+        final List<OrderEntity> orders = orderRepository.findOrdersWithoutItemsData(batchSize);
+        for (OrderEntity order : orders) {
+            order.setItemsData(OrderItemsCodec.encode(order.getItems()));
+        }
+        return orders.size();
+    }
+}
@@ -0,0 +1,117 @@
+package de.berlin.htw.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.berlin.htw.entity.dto.OrderItemEntity;
+
+/**
+ * Kompaktes Binärformat für die Positionen einer Bestellung, gespeichert in ORDERS.ITEMS_DATA.
+ * Aufbau (Version 1):
+ * <pre>
+ * byte    Version (1)
+ * byte    Anzahl Positionen (max. 255)
+ * je Position:
+ *   long    gepackte Produktnummer (siehe ProductIds)
+ *   varint  Anzahl
+ *   float   Einzelpreis
+ *   UTF     Produktname (modifiziertes UTF-8 mit 2 Byte Länge)
+ * </pre>
+ * Eine Bestellung mit zehn Positionen belegt damit typischerweise unter 300 Byte, statt zehn
+ * ORDER_ITEM-Zeilen mit eigenem Primärschlüssel, Fremdschlüssel und Zeitstempeln.
+ */
+public final class OrderItemsCodec {
+
+    /** Aktuelle Formatversion, steht im ersten Byte. */
+    public static final int VERSION = 1;
+
+    private static final int MAX_ITEMS = 255;
+
+    private OrderItemsCodec() {
+    }
+
+    /**
+     * Serialisiert die Positionen einer Bestellung.
+     *
+     * @param items Die Positionen (Produktnummer, Name, Anzahl und Preis müssen gesetzt sein)
+     * @return Die kodierten Positionen
+     * @throws IllegalArgumentException bei mehr als 255 Positionen
+     */
+    public static byte[] encode(final List<OrderItemEntity> items) {
+        if (items.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Zu viele Positionen für das kompakte Format: " + items.size());
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + items.size() * 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(items.size());
+            for (OrderItemEntity item : items) {
+                out.writeLong(item.getProductId());
+                writeVarInt(out, item.getCount());
+                out.writeFloat(item.getPrice());
+                out.writeUTF(item.getProductName());
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream wirft keine IOException
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Liest die Positionen einer Bestellung. Die zurückgegebenen Entities sind nicht persistent
+     * und dürfen nur gelesen werden.
+     *
+     * @param data Die kodierten Positionen
+     * @return Die Positionen in der ursprünglichen Reihenfolge
+     * @throws IllegalArgumentException bei unbekannter Version oder beschädigten Daten
+     */
+    public static List<OrderItemEntity> decode(final byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            final int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unbekannte Version der Bestellpositionen: " + version);
+            }
+            final int size = in.readUnsignedByte();
+            final List<OrderItemEntity> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                final OrderItemEntity item = new OrderItemEntity();
+                item.setProductId(in.readLong());
+                item.setCount(readVarInt(in));
+                item.setPrice(in.readFloat());
+                item.setProductName(in.readUTF());
+                items.add(item);
+            }
+            return items;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Beschädigte Bestellpositionen", e);
+        }
+    }
+
+    private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint zu lang");
+    }
+}
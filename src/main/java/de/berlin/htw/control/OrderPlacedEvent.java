@@ -0,0 +1,88 @@
+package de.berlin.htw.control;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.berlin.htw.entity.dto.OrderEntity;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+
+/**
+ * CDI-Event, das beim Platzieren einer Bestellung gefeuert wird.
+ * Beobachter, die Daten außerhalb der Datenbank fortschreiben (z.B. Redis), sollten
+ * {@code @Observes(during = TransactionPhase.AFTER_SUCCESS)} verwenden, damit nur
+ * tatsächlich committete Bestellungen gezählt werden.
+ * Das Event enthält eine unveränderliche Kopie der Bestellung, keine Entities.
+ */
+public final class OrderPlacedEvent {
+
+    private final String userName;
+    private final Integer orderId;
+    private final LocalDateTime orderDate;
+    private final List<Line> lines;
+
+    OrderPlacedEvent(final String userName, final OrderEntity order, final List<OrderItemEntity> items) {
+        this.userName = userName;
+        this.orderId = order.getId();
+        this.orderDate = order.getOrderDate();
+        final List<Line> copy = new ArrayList<>();
+        for (OrderItemEntity item : items) {
+            copy.add(new Line(item.getProductId(), item.getProductName(), item.getCount(), item.getPrice()));
+        }
+        this.lines = Collections.unmodifiableList(copy);
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public Integer getOrderId() {
+        return orderId;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    /**
+     * Eine Bestellposition.
+     */
+    public static final class Line {
+
+        private final long productId;
+        private final String productName;
+        private final int count;
+        private final float price;
+
+        Line(final long productId, final String productName, final int count, final float price) {
+            this.productId = productId;
+            this.productName = productName;
+            this.count = count;
+            this.price = price;
+        }
+
+        /**
+         * @return Die gepackte Produktnummer (siehe {@link ProductIds})
+         */
+        public long getProductId() {
+            return productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public float getPrice() {
+            return price;
+        }
+    }
+}
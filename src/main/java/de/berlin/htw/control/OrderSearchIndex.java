@@ -0,0 +1,224 @@
+package de.berlin.htw.control;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.entity.dao.OrderRepository;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.sortedset.Range;
+import io.quarkus.redis.datasource.sortedset.SortedSetCommands;
+
+/**
+ * Invertierter Index pro Benutzer für die Suche in der Bestellhistorie.
+ * Jeder Benutzer hat ein Sorted Set, in dem alle Einträge den Score 0 haben und als
+ * {@code token\0orderId} gespeichert sind. Durch die lexikografische Sortierung liefert
+ * ZRANGEBYLEX alle Bestellungen zu einem Token-Präfix, ohne ORDER_ITEM zu lesen.
+ * Tokens sind die Wörter des Produktnamens und die Produktnummer (klein geschrieben).
+ * Der Eintrag {@value #BUILT_MARKER} zeigt an, dass der Index vollständig aufgebaut ist;
+ * fehlt er (z.B. nach Ablauf des Keys), wird der Index bei der nächsten Suche aus der Datenbank neu aufgebaut.
+ */
+@ApplicationScoped
+public class OrderSearchIndex {
+
+    static final String KEY_PREFIX = "orders:search:";
+    static final String BUILT_MARKER = "#";
+    private static final char SEPARATOR = '\0';
+    // Obergrenze für Präfix-Abfragen, sortiert hinter jedem Zeichen, das in einem Token vorkommen kann
+    private static final char MAX_CHAR = '\uffff';
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @Inject
+    RedisCommandGuard redisGuard;
+
+    @Inject
+    OrderRepository orderRepository;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.orders.search.index-ttl", defaultValue = "7D")
+    Duration indexTtl;
+
+    /**
+     * Sucht alle Bestellungen eines Benutzers, die zu jedem Wort der Anfrage ein Token mit diesem Präfix enthalten.
+     *
+     * @param user Der Benutzer
+     * @param query Die Suchanfrage, z.B. "schoko" oder "1-2-3"
+     * @return Die IDs der passenden Bestellungen (leer, wenn die Anfrage keine Tokens enthält)
+     */
+    public Set<Integer> search(final UserEntity user, final String query) {
+        final Set<String> prefixes = tokenize(query);
+        if (prefixes.isEmpty()) {
+            return Set.of();
+        }
+        final String key = KEY_PREFIX + user.getName();
+        final SortedSetCommands<String, String> zset = redisDS.sortedSet(String.class);
+        if (redisGuard.call(() -> zset.zscore(key, BUILT_MARKER)) == null) {
+            rebuild(user);
+        } else {
+            redisGuard.call(() -> redisDS.key().expire(key, indexTtl.getSeconds()));
+        }
+
+        Set<Integer> result = null;
+        for (String prefix : prefixes) {
+            final Range<String> range = new Range<>(prefix, true, prefix + MAX_CHAR, true);
+            final List<String> members = redisGuard.call(() -> zset.zrangebylex(key, range));
+            final Set<Integer> orderIds = new LinkedHashSet<>();
+            for (String member : members) {
+                orderIds.add(Integer.valueOf(member.substring(member.indexOf(SEPARATOR) + 1)));
+            }
+            if (result == null) {
+                result = orderIds;
+            } else {
+                result.retainAll(orderIds);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Baut den Index eines Benutzers aus der primären Datenbank neu auf. Löschen und Neuschreiben laufen
+     * in einer MULTI/EXEC-Transaktion, Leser sehen also nie einen halb aufgebauten Index.
+     * Eine Bestellung, die während des Lesens committet wird, fehlt im gelesenen Stand, und ihr
+     * {@link #onOrderPlaced} schreibt entweder ins alte (gleich gelöschte) Set oder gar nicht, weil der Marker
+     * fehlt. Deshalb werden nach dem EXEC die Bestell-IDs erneut gelesen und fehlende Bestellungen nachgetragen;
+     * alles, was danach committet wird, findet den Marker und trägt sich selbst ein.
+     *
+     * @param user Der Benutzer
+     * @return Die Anzahl der Index-Einträge
+     */
+    public int rebuild(final UserEntity user) {
+        final long start = System.nanoTime();
+        final Set<Integer> indexed = new HashSet<>();
+        final Map<String, Double> members = new HashMap<>();
+        collectMembers(members, indexed, orderRepository.findItemSearchData(user),
+                orderRepository.findEmbeddedItemData(user));
+        members.put(BUILT_MARKER, 0d);
+
+        final String key = KEY_PREFIX + user.getName();
+        redisGuard.call(() -> redisDS.withTransaction(tx -> {
+            tx.key().del(key);
+            tx.sortedSet(String.class).zadd(key, members);
+            tx.key().expire(key, indexTtl.getSeconds());
+        }));
+
+        final List<Integer> missing = new ArrayList<>(orderRepository.findOrderIds(user));
+        missing.removeAll(indexed);
+        int entries = members.size() - 1;
+        if (!missing.isEmpty()) {
+            final Map<String, Double> late = new HashMap<>();
+            collectMembers(late, indexed, orderRepository.findItemSearchData(user, missing),
+                    orderRepository.findEmbeddedItemData(user, missing));
+            if (!late.isEmpty()) {
+                redisGuard.call(() -> redisDS.sortedSet(String.class).zadd(key, late));
+                entries += late.size();
+            }
+        }
+        logger.debug("Order search index of " + user.getName() + " rebuilt with " + entries + " entries ("
+                + missing.size() + " orders committed during the rebuild) in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return entries;
+    }
+
+    private static void collectMembers(final Map<String, Double> members, final Set<Integer> orderIds,
+            final List<Object[]> itemRows, final List<Object[]> embeddedRows) {
+        for (Object[] row : itemRows) {
+            orderIds.add((Integer) row[0]);
+            addMembers(members, (Integer) row[0], (Long) row[1], (String) row[2]);
+        }
+        // Bestellungen mit eingebetteten Positionen (ITEMS_DATA), siehe OrderStorage
+        for (Object[] row : embeddedRows) {
+            orderIds.add((Integer) row[0]);
+            for (OrderItemEntity item : OrderItemsCodec.decode((byte[]) row[1])) {
+                addMembers(members, (Integer) row[0], item.getProductId(), item.getProductName());
+            }
+        }
+    }
+
+    /**
+     * Trägt eine neue Bestellung nach dem Commit in den Index ein. Ist der Index des Benutzers
+     * nicht aufgebaut, wird nichts geschrieben; die nächste Suche baut ihn ohnehin vollständig auf.
+     *
+     * @param event Die platzierte Bestellung
+     */
+    void onOrderPlaced(@Observes(during = TransactionPhase.AFTER_SUCCESS) final OrderPlacedEvent event) {
+        final String key = KEY_PREFIX + event.getUserName();
+        final Map<String, Double> members = new HashMap<>();
+        for (OrderPlacedEvent.Line line : event.getLines()) {
+            addMembers(members, event.getOrderId(), line.getProductId(), line.getProductName());
+        }
+        try {
+            final SortedSetCommands<String, String> zset = redisDS.sortedSet(String.class);
+            if (redisGuard.call(() -> zset.zscore(key, BUILT_MARKER)) != null) {
+                redisGuard.call(() -> zset.zadd(key, members));
+            }
+        } catch (RuntimeException e) {
+            // Index verwerfen, damit die nächste Suche ihn vollständig neu aufbaut
+            logger.warn("Could not update order search index of " + event.getUserName() + ": " + e.getMessage());
+            try {
+                redisGuard.call(() -> redisDS.sortedSet(String.class).zrem(key, BUILT_MARKER));
+            } catch (RuntimeException ignored) {
+                // Redis nicht erreichbar, der Index läuft spätestens nach der TTL ab
+            }
+        }
+    }
+
+    private static void addMembers(final Map<String, Double> members, final Integer orderId,
+            final Long productId, final String productName) {
+        final Set<String> tokens = tokenize(productName);
+        if (productId != null) {
+            tokens.add(ProductIds.render(productId));
+        }
+        for (String token : tokens) {
+            members.put(token + SEPARATOR + orderId, 0d);
+        }
+    }
+
+    /**
+     * Zerlegt einen Text in klein geschriebene Tokens aus Buchstaben, Ziffern und Bindestrichen
+     * (Bindestriche bleiben erhalten, damit Produktnummern wie 1-2-3-4-5-6 ein Token bilden).
+     *
+     * @param text Der Text, z.B. ein Produktname oder eine Suchanfrage
+     * @return Die Tokens in der Reihenfolge ihres Auftretens
+     */
+    static Set<String> tokenize(final String text) {
+        final Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        final StringBuilder token = new StringBuilder();
+        final String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            final char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c) || c == '-') {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+}
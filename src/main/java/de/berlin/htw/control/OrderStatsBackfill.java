@@ -0,0 +1,45 @@
+package de.berlin.htw.control;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.entity.dao.UserOrderStatsRepository;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Backfill-Job für USER_ORDER_STATS. Die initiale Befüllung erfolgt bereits per Liquibase;
+ * der Job dient dazu, die Statistik bei Bedarf (z.B. nach manuellen Korrekturen in ORDERS)
+ * komplett neu aus den Bestellungen in der Datenbank und im Archiv aufzubauen.
+ */
+@ApplicationScoped
+public class OrderStatsBackfill {
+
+    @Inject
+    UserOrderStatsRepository statsRepository;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.stats.backfill-at-start", defaultValue = "false")
+    boolean backfillAtStart;
+
+    void onStart(@Observes final StartupEvent event) {
+        if (backfillAtStart) {
+            run();
+        }
+    }
+
+    /**
+     * Baut die Statistik aller Benutzer aus ORDERS und dem Bestellarchiv neu auf.
+     */
+    public void run() {
+        final long start = System.nanoTime();
+        final int rows = statsRepository.rebuildAll();
+        logger.info("Rebuilt USER_ORDER_STATS (" + rows + " users) in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
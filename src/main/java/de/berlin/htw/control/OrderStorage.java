@@ -0,0 +1,98 @@
+package de.berlin.htw.control;
+
+import java.util.List;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import de.berlin.htw.entity.dao.OrderRepository;
+import de.berlin.htw.entity.dto.OrderEntity;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+
+/**
+ * Entscheidet, wie die Positionen einer Bestellung gespeichert und gelesen werden ({@code app.orders.storage}).
+ * <ul>
+ * <li>{@code normalized}: eine ORDER_ITEM-Zeile pro Position (bisheriges Layout)</li>
+ * <li>{@code embedded}: alle Positionen kompakt in ORDERS.ITEMS_DATA (siehe {@link OrderItemsCodec})</li>
+ * <li>{@code dual}: schreibt beides und liest bevorzugt ITEMS_DATA (Übergangsphase)</li>
+ * </ul>
+ * Beim Lesen wird immer auf das jeweils andere Layout zurückgegriffen, wenn eine Bestellung nur dort
+ * gespeichert ist; ein Wechsel des Modus macht also keine Bestellungen unlesbar.
+ */
+@ApplicationScoped
+public class OrderStorage {
+
+    public enum Mode {
+        NORMALIZED, EMBEDDED, DUAL
+    }
+
+    @Inject
+    OrderRepository orderRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @ConfigProperty(name = "app.orders.storage", defaultValue = "dual")
+    Mode mode;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Speichert eine neue Bestellung mit ihren Positionen im konfigurierten Modus.
+     *
+     * @param order Die neue Bestellung
+     * @param items Die Positionen (order muss bereits gesetzt sein)
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void saveOrder(final OrderEntity order, final List<OrderItemEntity> items) {
+        saveOrder(order, items, mode);
+    }
+
+    /**
+     * Speichert eine neue Bestellung mit ihren Positionen im angegebenen Modus (z.B. für Vergleichsmessungen).
+     *
+     * @param order Die neue Bestellung
+     * @param items Die Positionen (order muss bereits gesetzt sein)
+     * @param storageMode Der zu verwendende Modus
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void saveOrder(final OrderEntity order, final List<OrderItemEntity> items, final Mode storageMode) {
+        if (storageMode != Mode.NORMALIZED) {
+            // vor dem Persistieren setzen, damit kein zusätzliches UPDATE entsteht
+            order.setItemsData(OrderItemsCodec.encode(items));
+        }
+        orderRepository.saveOrder(order);
+        if (storageMode != Mode.EMBEDDED) {
+            for (OrderItemEntity item : items) {
+                // Positionen liegen in derselben Monatspartition wie ihre Bestellung
+                item.setOrderDate(order.getOrderDate());
+                entityManager.persist(item);
+            }
+            order.setItems(items);
+        }
+    }
+
+    /**
+     * Liest die Positionen einer Bestellung aus dem passenden Layout.
+     *
+     * @param order Die Bestellung
+     * @return Die Positionen (nur lesen, bei ITEMS_DATA nicht persistent)
+     */
+    public List<OrderItemEntity> readItems(final OrderEntity order) {
+        final byte[] itemsData = order.getItemsData();
+        if (itemsData == null) {
+            return order.getItems() == null ? List.of() : order.getItems();
+        }
+        if (mode == Mode.NORMALIZED && order.getItems() != null && !order.getItems().isEmpty()) {
+            return order.getItems();
+        }
+        return OrderItemsCodec.decode(itemsData);
+    }
+}
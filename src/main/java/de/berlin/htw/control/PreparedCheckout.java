@@ -0,0 +1,51 @@
+package de.berlin.htw.control;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.berlin.htw.boundary.dto.Item;
+
+/**
+ * Ergebnis der Vorbereitung eines Checkouts (Benutzer, Warenkorb-Inhalt und Summe).
+ * Enthält keine Entities und kann deshalb in einer anderen Transaktion bzw. einem anderen
+ * Thread abgeschlossen werden, z.B. gesammelt im {@link CheckoutCoordinator}.
+ */
+public final class PreparedCheckout {
+
+    private final String username;
+    private final Integer userId;
+    private final List<Item> items;
+    // gelesener Stand des Warenkorbs, nur diese Artikel werden danach entfernt
+    private final Map<Long, String> basketItems;
+    private final float total;
+
+    PreparedCheckout(final String username, final Integer userId, final List<Item> items,
+            final Map<Long, String> basketItems, final float total) {
+        this.username = username;
+        this.userId = userId;
+        this.items = Collections.unmodifiableList(items);
+        this.basketItems = Collections.unmodifiableMap(basketItems);
+        this.total = total;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public Map<Long, String> getBasketItems() {
+        return basketItems;
+    }
+
+    public float getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,243 @@
+package de.berlin.htw.control;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.boundary.dto.Product;
+import de.berlin.htw.entity.dao.ProductRepository;
+import de.berlin.htw.entity.dto.ProductEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+
+/**
+ * Serverseitiger Produktkatalog mit begrenztem In-Process-Cache (Read-Through).
+ * Der Cache wird beim Start vorgewärmt und danach inkrementell über MODIFIED_AT aktualisiert,
+ * sodass Name und Preis beim Hinzufügen und Ändern von Artikeln ohne Datenbankzugriff
+ * aufgelöst werden. Die Angaben des Clients zu Name und Preis werden damit nicht mehr verwendet.
+ * <p>
+ * Die Grenze für den nächsten Refresh kommt von der Uhr der Datenbank (die auch MODIFIED_AT schreibt) und
+ * überlappt um {@code app.catalog.refresh-overlap}, damit Änderungen aus Transaktionen, die erst nach der
+ * Abfrage festgeschrieben werden, nicht verloren gehen. Gelöschte Produkte tauchen in MODIFIED_AT nicht auf;
+ * sie entfernt {@link #evictDeleted()} im Abstand von {@code app.catalog.eviction-interval} aus dem Cache.
+ */
+@ApplicationScoped
+public class ProductCatalog {
+
+    @Inject
+    ProductRepository productRepository;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.catalog.max-size", defaultValue = "100000")
+    int maxSize;
+
+    @ConfigProperty(name = "app.catalog.refresh-overlap", defaultValue = "10s")
+    Duration refreshOverlap;
+
+    @ConfigProperty(name = "app.catalog.warm-up-at-start", defaultValue = "true")
+    boolean warmUpAtStart;
+
+    // Anzahl Produkte pro Abfrage beim Prüfen auf gelöschte Produkte
+    private static final int EVICTION_CHUNK_SIZE = 1000;
+
+    // Schlüssel ist die gepackte Produktnummer (siehe ProductIds)
+    private final Map<Long, CatalogEntry> cache = new ConcurrentHashMap<>();
+
+    // Zeitpunkt, ab dem beim nächsten Refresh nach Änderungen gesucht wird
+    private volatile Date lastRefresh = new Date(0);
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        hits = Counter.builder("catalog.cache.requests").tag("result", "hit").register(registry);
+        misses = Counter.builder("catalog.cache.requests").tag("result", "miss").register(registry);
+        Gauge.builder("catalog.cache.size", cache, Map::size).register(registry);
+        Gauge.builder("catalog.cache.hit.ratio", this, ProductCatalog::hitRatio).register(registry);
+    }
+
+    /**
+     * Wärmt den Cache beim Start der Anwendung mit bis zu {@code app.catalog.max-size} Produkten vor
+     * (abschaltbar mit {@code app.catalog.warm-up-at-start}, z.B. im Migrations-Job).
+     */
+    @ActivateRequestContext
+    void warmUp(@Observes final StartupEvent event) {
+        if (!warmUpAtStart) {
+            return;
+        }
+        final Date started = refreshBound();
+        for (ProductEntity product : productRepository.findAll(maxSize)) {
+            cache.put(product.getProductId(), CatalogEntry.of(product));
+        }
+        lastRefresh = started;
+        logger.info("Product catalog cache warmed with " + cache.size() + " products");
+    }
+
+    /**
+     * Übernimmt alle seit dem letzten Lauf geänderten Produkte in den Cache.
+     */
+    @ActivateRequestContext
+    @Scheduled(every = "{app.catalog.refresh-interval}")
+    void refresh() {
+        final Date started = refreshBound();
+        final List<ProductEntity> modified = productRepository.findModifiedSince(lastRefresh);
+        for (ProductEntity product : modified) {
+            put(CatalogEntry.of(product));
+        }
+        lastRefresh = started;
+        if (!modified.isEmpty()) {
+            logger.debug("Product catalog cache refreshed with " + modified.size() + " changed products");
+        }
+    }
+
+    /**
+     * Entfernt Produkte aus dem Cache, die in der Datenbank nicht mehr existieren.
+     * 
+     * @return Die Anzahl der entfernten Einträge
+     */
+    @ActivateRequestContext
+    public int evictDeleted() {
+        int evicted = 0;
+        final Iterator<Long> productIds = cache.keySet().iterator();
+        final Set<Long> chunk = new HashSet<>();
+        while (productIds.hasNext()) {
+            chunk.add(productIds.next());
+            if (chunk.size() == EVICTION_CHUNK_SIZE || !productIds.hasNext()) {
+                chunk.removeAll(productRepository.findExistingProductIds(chunk));
+                for (Long productId : chunk) {
+                    // ein inzwischen wieder angelegtes Produkt lädt der nächste Cache-Miss erneut
+                    cache.remove(productId);
+                }
+                evicted += chunk.size();
+                chunk.clear();
+            }
+        }
+        if (evicted > 0) {
+            logger.info("Evicted " + evicted + " deleted products from the product catalog cache");
+        }
+        return evicted;
+    }
+
+    @Scheduled(every = "{app.catalog.eviction-interval}")
+    void scheduledEviction() {
+        evictDeleted();
+    }
+
+    /**
+     * Löst ein Produkt anhand seiner ID auf. Bei einem Cache-Miss wird das Produkt
+     * aus der Datenbank gelesen und, sofern noch Platz ist, in den Cache übernommen.
+     * 
+     * @param productId Die gepackte Produktnummer
+     * @return Der Katalogeintrag oder null, wenn das Produkt nicht existiert
+     */
+    public CatalogEntry resolve(final long productId) {
+        final CatalogEntry cached = cache.get(productId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        final ProductEntity product = productRepository.findByProductId(productId);
+        if (product == null) {
+            return null;
+        }
+        final CatalogEntry entry = CatalogEntry.of(product);
+        put(entry);
+        return entry;
+    }
+
+    /**
+     * Importiert einen ganzen Katalog bzw. eine Teilmenge davon in einem Rutsch
+     * und übernimmt die Einträge direkt in den Cache.
+     * 
+     * @param products Die zu importierenden Produkte
+     * @return Die Anzahl der importierten Produkte
+     */
+    public int bulkLoad(final List<Product> products) {
+        final List<ProductEntity> entities = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductEntity entity = new ProductEntity();
+            entity.setProductId(ProductIds.pack(product.getProductId()));
+            entity.setName(product.getProductName());
+            entity.setPrice(product.getPrice());
+            entities.add(entity);
+        }
+        productRepository.bulkUpsert(entities);
+        for (ProductEntity entity : entities) {
+            put(CatalogEntry.of(entity));
+        }
+        return entities.size();
+    }
+
+    private Date refreshBound() {
+        return new Date(productRepository.currentTimestamp().getTime() - refreshOverlap.toMillis());
+    }
+
+    private void put(final CatalogEntry entry) {
+        // Bekannte Einträge immer aktualisieren, neue nur solange die Obergrenze nicht erreicht ist
+        if (cache.size() < maxSize || cache.containsKey(entry.getProductId())) {
+            cache.put(entry.getProductId(), entry);
+        }
+    }
+
+    private double hitRatio() {
+        final double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * Unveränderlicher Eintrag im Katalog-Cache.
+     */
+    public static final class CatalogEntry {
+
+        private final long productId;
+        private final String name;
+        private final Float price;
+
+        private CatalogEntry(final long productId, final String name, final Float price) {
+            this.productId = productId;
+            this.name = name;
+            this.price = price;
+        }
+
+        private static CatalogEntry of(final ProductEntity product) {
+            return new CatalogEntry(product.getProductId(), product.getName(), product.getPrice());
+        }
+
+        public long getProductId() {
+            return productId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Float getPrice() {
+            return price;
+        }
+    }
+}
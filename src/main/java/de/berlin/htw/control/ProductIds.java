@@ -0,0 +1,108 @@
+package de.berlin.htw.control;
+
+/**
+ * Kanonische, gepackte Darstellung der Produktnummern.
+ * Eine Produktnummer besteht aus sechs Zahlen, die durch Bindestriche getrennt sind (z.B. '1-2-3-4-5-6').
+ * Jede Zahl wird mit {@value #BITS_PER_COMPONENT} Bit in einen {@code long} gepackt, die erste Zahl in den
+ * höchstwertigen Bits. Damit lassen sich Produktnummern ohne String-Vergleiche und ohne Regex prüfen,
+ * vergleichen und als Redis-Feld bzw. BIGINT-Spalte speichern. Die Darstellung mit Bindestrichen
+ * wird nur noch an der API-Grenze erzeugt.
+ * Führende Nullen gehen beim Packen verloren, d.h. '01-2-3-4-5-6' und '1-2-3-4-5-6' sind dasselbe Produkt.
+ */
+public final class ProductIds {
+
+    /** Anzahl der Zahlen einer Produktnummer. */
+    public static final int COMPONENTS = 6;
+
+    /** Anzahl Bits pro Zahl im gepackten Wert. */
+    public static final int BITS_PER_COMPONENT = 10;
+
+    /** Größter erlaubter Wert einer einzelnen Zahl. */
+    public static final int MAX_COMPONENT = (1 << BITS_PER_COMPONENT) - 1;
+
+    /** Rückgabewert von {@link #tryPack(CharSequence)} für ungültige Produktnummern. */
+    public static final long INVALID = -1L;
+
+    private ProductIds() {
+    }
+
+    /**
+     * Parst und packt eine Produktnummer ohne Ausnahmen und ohne Zwischenobjekte.
+     * 
+     * @param productId Die Produktnummer, z.B. '1-2-3-4-5-6'
+     * @return Der gepackte Wert oder {@link #INVALID}, wenn die Produktnummer ungültig ist
+     */
+    public static long tryPack(final CharSequence productId) {
+        if (productId == null) {
+            return INVALID;
+        }
+        final int length = productId.length();
+        long packed = 0;
+        int component = 0;
+        int digits = 0;
+        int separators = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = productId.charAt(i);
+            if (c >= '0' && c <= '9') {
+                component = component * 10 + (c - '0');
+                if (component > MAX_COMPONENT) {
+                    return INVALID;
+                }
+                digits++;
+            } else if (c == '-' && digits > 0 && separators < COMPONENTS - 1) {
+                packed = (packed << BITS_PER_COMPONENT) | component;
+                component = 0;
+                digits = 0;
+                separators++;
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits == 0 || separators != COMPONENTS - 1) {
+            return INVALID;
+        }
+        return (packed << BITS_PER_COMPONENT) | component;
+    }
+
+    /**
+     * Parst und packt eine Produktnummer.
+     * 
+     * @param productId Die Produktnummer, z.B. '1-2-3-4-5-6'
+     * @return Der gepackte Wert
+     * @throws IllegalArgumentException wenn die Produktnummer ungültig ist
+     */
+    public static long pack(final CharSequence productId) {
+        final long packed = tryPack(productId);
+        if (packed == INVALID) {
+            throw new IllegalArgumentException("Ungültige Produktnummer: " + productId);
+        }
+        return packed;
+    }
+
+    /**
+     * Prüft, ob eine Produktnummer gültig ist.
+     * 
+     * @param productId Die Produktnummer
+     * @return true, wenn sie aus sechs Zahlen zwischen 0 und {@value #MAX_COMPONENT} besteht
+     */
+    public static boolean isValid(final CharSequence productId) {
+        return tryPack(productId) != INVALID;
+    }
+
+    /**
+     * Erzeugt aus dem gepackten Wert wieder die Darstellung mit Bindestrichen.
+     * 
+     * @param packed Der gepackte Wert
+     * @return Die Produktnummer, z.B. '1-2-3-4-5-6'
+     */
+    public static String render(final long packed) {
+        final StringBuilder productId = new StringBuilder(COMPONENTS * 5);
+        for (int i = COMPONENTS - 1; i >= 0; i--) {
+            productId.append((packed >>> (i * BITS_PER_COMPONENT)) & MAX_COMPONENT);
+            if (i > 0) {
+                productId.append('-');
+            }
+        }
+        return productId.toString();
+    }
+}
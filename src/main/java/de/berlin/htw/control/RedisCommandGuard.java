@@ -0,0 +1,99 @@
+package de.berlin.htw.control;
+
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.faulttolerance.api.CircuitBreakerMaintenance;
+import io.smallrye.faulttolerance.api.CircuitBreakerName;
+import io.smallrye.faulttolerance.api.CircuitBreakerState;
+
+/**
+ * Führt Redis-Befehle mit Zeitlimit und hinter einem gemeinsamen Circuit Breaker aus.
+ * Ist Redis langsam oder nicht erreichbar, öffnet der Breaker und alle weiteren Befehle
+ * scheitern sofort mit {@link org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException},
+ * statt Worker-Threads zu blockieren. Nach {@code delay} werden einzelne Probebefehle durchgelassen.
+ * Zeitlimit und Schwellwerte lassen sich über MicroProfile-Fault-Tolerance-Properties
+ * ({@code de.berlin.htw.control.RedisCommandGuard/call/Timeout/value} usw.) anpassen.
+ */
+@ApplicationScoped
+public class RedisCommandGuard {
+
+    public static final String CIRCUIT_BREAKER_NAME = "redis";
+
+    @Inject
+    CircuitBreakerMaintenance circuitBreakerMaintenance;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    private Counter commands;
+
+    @PostConstruct
+    void init() {
+        commands = Counter.builder("redis.commands")
+                .description("Über den Guard ausgeführte Redis-Aufrufe (eine Transaktion zählt als ein Aufruf)")
+                .register(registry);
+    }
+
+    void onStart(@Observes final StartupEvent event) {
+        circuitBreakerMaintenance.onStateChange(CIRCUIT_BREAKER_NAME, this::stateChanged);
+        Gauge.builder("redis.circuit.state", this, guard -> guard.getState().ordinal())
+                .description("Zustand des Redis-Circuit-Breakers (0 = geschlossen, 1 = offen, 2 = halb offen)")
+                .register(registry);
+    }
+
+    /**
+     * Führt einen Redis-Befehl aus. Fachliche Fehler ({@link WebApplicationException}, z.B. 409 aus
+     * einer Prüfung innerhalb einer Redis-Transaktion) zählen nicht als Fehlschlag des Breakers.
+     *
+     * @param command Der Redis-Befehl
+     * @return Das Ergebnis des Befehls
+     */
+    @Timeout(500)
+    @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 3,
+            skipOn = WebApplicationException.class)
+    @CircuitBreakerName(CIRCUIT_BREAKER_NAME)
+    public <T> T call(final Supplier<T> command) {
+        commands.increment();
+        return command.get();
+    }
+
+    /**
+     * @return Der aktuelle Zustand des Redis-Circuit-Breakers
+     */
+    public CircuitBreakerState getState() {
+        return circuitBreakerMaintenance.currentState(CIRCUIT_BREAKER_NAME);
+    }
+
+    /**
+     * Setzt den Circuit Breaker zurück (z.B. nach einem Redis-Failover).
+     */
+    public void reset() {
+        circuitBreakerMaintenance.reset(CIRCUIT_BREAKER_NAME);
+    }
+
+    private void stateChanged(final CircuitBreakerState state) {
+        if (state == CircuitBreakerState.OPEN) {
+            logger.warn("Redis circuit breaker opened, basket requests fail fast until Redis recovers");
+        } else {
+            logger.info("Redis circuit breaker is now " + state);
+        }
+        registry.counter("redis.circuit.transitions", "state", state.name().toLowerCase()).increment();
+    }
+}
@@ -0,0 +1,118 @@
+package de.berlin.htw.control;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import io.quarkus.runtime.Quarkus;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Prüft beim Start, ob das Datenbankschema aktuell ist, statt die Migration selbst auszuführen.
+ * Im Startup-optimierten Modus (Profil {@code fast-startup}) migrieren die App-Knoten nicht mehr selbst,
+ * sondern vergleichen nur die SHA-256-Checksumme ihres Changelogs mit den Checksummen in SCHEMA_FINGERPRINT,
+ * die jede Migration nach dem Lauf einträgt: eine Abfrage auf den Primärschlüssel, ohne den Changelog mit
+ * Liquibase zu parsen oder DATABASECHANGELOG zu lesen. Fehlt die Checksumme, bricht der Start ab. Ältere
+ * Stände bleiben eingetragen, Knoten mit dem vorherigen Changelog starten also während eines Rolling
+ * Deployments weiter. Die Migration übernimmt ein einmaliger Job (Profil {@code migrate}), der sich nach
+ * der Migration selbst beendet.
+ */
+@ApplicationScoped
+public class SchemaVerifier {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "quarkus.liquibase.change-log", defaultValue = "db/changeLog.xml")
+    String changeLog;
+
+    @ConfigProperty(name = "quarkus.liquibase.migrate-at-start", defaultValue = "false")
+    boolean migrateAtStart;
+
+    @ConfigProperty(name = "app.schema.verify-at-start", defaultValue = "false")
+    boolean verifyAtStart;
+
+    @ConfigProperty(name = "app.schema.exit-after-migration", defaultValue = "false")
+    boolean exitAfterMigration;
+
+    void onStart(@Observes final StartupEvent event) {
+        if (migrateAtStart) {
+            // Migration ist bereits durch quarkus.liquibase.migrate-at-start gelaufen
+            recordFingerprint();
+        }
+        if (exitAfterMigration) {
+            logger.info("Database migration finished, shutting down migration job");
+            Quarkus.asyncExit();
+            return;
+        }
+        if (verifyAtStart) {
+            verify();
+        }
+    }
+
+    /**
+     * Trägt die Checksumme des Changelogs als migriert ein. Nur nach einer erfolgreichen Migration aufrufen.
+     */
+    @Transactional
+    public void recordFingerprint() {
+        entityManager.createNativeQuery(
+                "INSERT IGNORE INTO SCHEMA_FINGERPRINT (CHANGELOG_SHA256, APPLIED_AT) VALUES (?1, CURRENT_TIMESTAMP)")
+                .setParameter(1, fingerprint())
+                .executeUpdate();
+    }
+
+    /**
+     * Prüft, dass der Changelog dieses Knotens in genau diesem Stand bereits migriert wurde.
+     *
+     * @throws IllegalStateException wenn das Schema nicht aktuell ist
+     */
+    @Transactional
+    public void verify() {
+        final long start = System.nanoTime();
+        final String fingerprint = fingerprint();
+        final boolean migrated = !entityManager.createNativeQuery(
+                "SELECT 1 FROM SCHEMA_FINGERPRINT WHERE CHANGELOG_SHA256 = ?1")
+                .setParameter(1, fingerprint)
+                .getResultList()
+                .isEmpty();
+        if (!migrated) {
+            throw new IllegalStateException("Database schema is not up to date, change log " + changeLog
+                    + " (SHA-256 " + fingerprint + ") has not been migrated."
+                    + " Run the migration job before starting the application.");
+        }
+        logger.info("Database schema is up to date (verified in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms)");
+    }
+
+    /**
+     * @return Die SHA-256-Checksumme des Changelogs (hexadezimal)
+     */
+    public String fingerprint() {
+        try (InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(changeLog)) {
+            if (input == null) {
+                throw new IllegalStateException("Change log not found on the class path: " + changeLog);
+            }
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(input.readAllBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read change log " + changeLog, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
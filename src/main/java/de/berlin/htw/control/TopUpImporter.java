@@ -0,0 +1,421 @@
+package de.berlin.htw.control;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.berlin.htw.boundary.dto.TopUpImport;
+import de.berlin.htw.control.TopUpReader.Format;
+import de.berlin.htw.control.TopUpReader.Line;
+import de.berlin.htw.entity.dao.BalanceRepository;
+import de.berlin.htw.entity.dao.BalanceRepository.TopUp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bucht Aufladungen aus Importdateien des Zahlungsdienstleisters ins Guthaben-Journal.
+ * Importe werden angenommen und nacheinander im Hintergrund ausgeführt (Status über {@link #get(long)}).
+ * Die Datei wird gestreamt und in Blöcken von {@code app.balance.import.chunk-size} Zeilen verarbeitet, jeder Block
+ * in einer eigenen Transaktion: Konten sperren (aufsteigend), Aufladungen mit einer INSERT-Anweisung anhängen,
+ * danach die Cache-Einträge der Konten verwerfen. Die Referenz ist je Benutzer eindeutig, ein abgebrochener Import
+ * kann daher einfach mit derselben Datei wiederholt werden. Fortschritt und Ergebnis der letzten Importe liefert
+ * {@link #list()}.
+ */
+@ApplicationScoped
+public class TopUpImporter {
+
+    private static final int MAX_ERRORS = 20;
+    private static final int MAX_KEPT = 20;
+
+    @Inject
+    BalanceRepository balanceRepository;
+
+    @Inject
+    BalanceLedger balanceLedger;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.balance.import.chunk-size", defaultValue = "1000")
+    int chunkSize;
+
+    @ConfigProperty(name = "app.balance.import.log-interval", defaultValue = "100000")
+    long logInterval;
+
+    @ConfigProperty(name = "app.balance.import.directory")
+    Optional<String> importDirectory;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, Job> jobs = new ConcurrentSkipListMap<>();
+
+    private ExecutorService executor;
+
+    private Counter appliedRows;
+    private Counter duplicateRows;
+    private Counter unknownUserRows;
+    private Counter rejectedRows;
+
+    @PostConstruct
+    void init() {
+        // Importe laufen nacheinander, damit sich ihre Sammelbuchungen nicht gegenseitig sperren
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "top-up-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        appliedRows = Counter.builder("balance.import.rows").tag("result", "applied").register(registry);
+        duplicateRows = Counter.builder("balance.import.rows").tag("result", "duplicate").register(registry);
+        unknownUserRows = Counter.builder("balance.import.rows").tag("result", "unknown-user").register(registry);
+        rejectedRows = Counter.builder("balance.import.rows").tag("result", "rejected").register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Nimmt eine hochgeladene Datei an: sie wird in eine temporäre Datei geschrieben (der Request endet danach)
+     * und im Hintergrund importiert, die temporäre Datei wird anschließend gelöscht.
+     *
+     * @param input Die Datei (UTF-8)
+     * @param format Das Format
+     * @return Der angenommene Import (QUEUED)
+     * @throws BadRequestException bei fehlender CSV-Kopfzeile
+     */
+    public TopUpImport submit(final InputStream input, final Format format) {
+        final Path file;
+        try {
+            file = Files.createTempFile("topups-", "." + format.name().toLowerCase(Locale.ROOT));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create a temporary file for a top-up import", e);
+        }
+        try {
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            delete(file);
+            throw new UncheckedIOException("Could not store an uploaded top-up import", e);
+        }
+        return submit(file, format, true);
+    }
+
+    /**
+     * Nimmt eine Datei aus {@code app.balance.import.directory} an, z.B. Dateien über der Größengrenze für
+     * Requests. Das Format ergibt sich aus der Endung ({@code .csv}, {@code .ndjson} oder {@code .jsonl}).
+     *
+     * @param name Der Dateiname im Importverzeichnis
+     * @return Der angenommene Import (QUEUED)
+     * @throws NotFoundException wenn kein Importverzeichnis konfiguriert ist oder die Datei fehlt
+     * @throws BadRequestException bei einem Namen außerhalb des Verzeichnisses, unbekannter Endung
+     *             oder fehlender CSV-Kopfzeile
+     */
+    public TopUpImport submitFile(final String name) {
+        final Path directory = Paths.get(importDirectory
+                .orElseThrow(() -> new NotFoundException("Kein Importverzeichnis konfiguriert")))
+                .toAbsolutePath().normalize();
+        final Path file = directory.resolve(name).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new BadRequestException("Ungültiger Dateiname: " + name);
+        }
+        final String lowerName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        final Format format;
+        if (lowerName.endsWith(".csv")) {
+            format = Format.CSV;
+        } else if (lowerName.endsWith(".ndjson") || lowerName.endsWith(".jsonl")) {
+            format = Format.NDJSON;
+        } else {
+            throw new BadRequestException("Unbekanntes Format, erwartet .csv, .ndjson oder .jsonl: " + name);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new NotFoundException("Datei nicht gefunden: " + name);
+        }
+        return submit(file, format, false);
+    }
+
+    private TopUpImport submit(final Path file, final Format format, final boolean temporary) {
+        BufferedReader input = null;
+        final TopUpReader reader;
+        try {
+            input = new BufferedReader(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), 1 << 16);
+            reader = new TopUpReader(input, format, objectMapper);
+            // eine Datei ohne gültige Kopfzeile wird sofort mit 400 abgelehnt
+            reader.readHeader();
+        } catch (IOException e) {
+            discard(input, file, temporary);
+            throw new UncheckedIOException("Could not read top-up import " + file, e);
+        } catch (RuntimeException e) {
+            discard(input, file, temporary);
+            throw e;
+        }
+
+        final Job job = new Job(ids.incrementAndGet(), format);
+        jobs.put(job.id, job);
+        while (jobs.size() > MAX_KEPT) {
+            jobs.pollFirstEntry();
+        }
+        final BufferedReader opened = input;
+        try {
+            executor.execute(() -> {
+                try {
+                    run(job, reader);
+                } finally {
+                    discard(opened, file, temporary);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            discard(opened, file, temporary);
+            job.fail(e);
+            throw new ServiceUnavailableException("Importe werden gerade beendet");
+        }
+        logger.infof("Queued top-up import %d (%s)", job.id, format);
+        return job.toDto();
+    }
+
+    private void run(final Job job, final TopUpReader reader) {
+        job.start();
+        logger.infof("Started top-up import %d (%s)", job.id, job.format);
+        try {
+            final List<TopUp> chunk = new ArrayList<>(chunkSize);
+            Line line;
+            while ((line = reader.next()) != null) {
+                job.rowsRead++;
+                if (line.getError() != null) {
+                    job.reject("Zeile " + line.getNumber() + ": " + line.getError());
+                    rejectedRows.increment();
+                } else {
+                    chunk.add(line.getTopUp());
+                    if (chunk.size() >= chunkSize) {
+                        apply(job, chunk);
+                        chunk.clear();
+                    }
+                }
+                if (job.rowsRead % logInterval == 0) {
+                    logger.infof("Top-up import %d: %d rows read, %d applied, %.0f rows/s", job.id, job.rowsRead,
+                            job.applied, job.rowsPerSecond());
+                }
+            }
+            if (!chunk.isEmpty()) {
+                apply(job, chunk);
+            }
+        } catch (IOException | RuntimeException e) {
+            job.fail(e);
+            logger.errorf(e, "Top-up import %d failed after %d rows", job.id, job.rowsRead);
+            return;
+        }
+        job.finish();
+        logger.infof("Finished top-up import %d: %d rows, %d applied, %d duplicates, %d unknown users, %d rejected in %s",
+                job.id, job.rowsRead, job.applied, job.duplicates, job.unknownUsers, job.rejected,
+                Duration.between(job.startTime, job.endTime));
+    }
+
+    private void discard(final BufferedReader input, final Path file, final boolean temporary) {
+        if (input != null) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                logger.warn("Could not close top-up import " + file + ": " + e.getMessage());
+            }
+        }
+        if (temporary) {
+            delete(file);
+        }
+    }
+
+    private void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete temporary top-up import " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param id Die ID des Imports
+     * @return Fortschritt bzw. Ergebnis
+     * @throws NotFoundException wenn der Import nicht (mehr) bekannt ist
+     */
+    public TopUpImport get(final long id) {
+        final Job job = jobs.get(id);
+        if (job == null) {
+            throw new NotFoundException("Import nicht gefunden: " + id);
+        }
+        return job.toDto();
+    }
+
+    /**
+     * @return Fortschritt bzw. Ergebnis der letzten Importe, älteste zuerst
+     */
+    public List<TopUpImport> list() {
+        final List<TopUpImport> imports = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            imports.add(job.toDto());
+        }
+        return imports;
+    }
+
+    private void apply(final Job job, final List<TopUp> chunk) {
+        final ChunkResult result = applyChunk(chunk);
+        // erst nach dem Commit, sonst könnte ein paralleler Leser den alten Stand erneut cachen
+        for (Integer userId : result.userIds) {
+            balanceLedger.invalidate(userId);
+        }
+        job.applied += result.applied;
+        job.duplicates += result.known - result.applied;
+        job.unknownUsers += chunk.size() - result.known;
+        appliedRows.increment(result.applied);
+        duplicateRows.increment(result.known - result.applied);
+        unknownUserRows.increment(chunk.size() - result.known);
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    ChunkResult applyChunk(final List<TopUp> chunk) {
+        final Set<Integer> userIds = new TreeSet<>();
+        for (TopUp topUp : chunk) {
+            userIds.add(topUp.getUserId());
+        }
+        final Set<Integer> existing = balanceRepository.lockAccounts(userIds);
+        final List<TopUp> known = new ArrayList<>(chunk.size());
+        for (TopUp topUp : chunk) {
+            if (existing.contains(topUp.getUserId())) {
+                known.add(topUp);
+            }
+        }
+        final int applied = known.isEmpty() ? 0 : balanceRepository.appendTopUps(known);
+        return new ChunkResult(existing, known.size(), applied);
+    }
+
+    static final class ChunkResult {
+
+        private final Set<Integer> userIds;
+        private final int known;
+        private final int applied;
+
+        ChunkResult(final Set<Integer> userIds, final int known, final int applied) {
+            this.userIds = userIds;
+            this.known = known;
+            this.applied = applied;
+        }
+    }
+
+    /**
+     * Zustand eines Imports; Zähler schreibt nur der importierende Thread, gelesen wird von beliebigen Threads.
+     */
+    private static final class Job {
+
+        private final long id;
+        private final Format format;
+        private final List<String> errors = new CopyOnWriteArrayList<>();
+
+        private volatile String state = "QUEUED";
+        private volatile Instant startTime;
+        private volatile long startNanos;
+        private volatile Instant endTime;
+        private volatile long endNanos;
+        private volatile long rowsRead;
+        private volatile long applied;
+        private volatile long duplicates;
+        private volatile long unknownUsers;
+        private volatile long rejected;
+
+        private Job(final long id, final Format format) {
+            this.id = id;
+            this.format = format;
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+            startTime = Instant.now();
+            state = "RUNNING";
+        }
+
+        private void reject(final String error) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        private void fail(final Exception e) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(e.toString());
+            }
+            end("FAILED");
+        }
+
+        private void finish() {
+            end("COMPLETED");
+        }
+
+        private void end(final String finalState) {
+            endNanos = System.nanoTime();
+            endTime = Instant.now();
+            state = finalState;
+        }
+
+        private double rowsPerSecond() {
+            if (startTime == null) {
+                return 0;
+            }
+            final long elapsed = (endTime == null ? System.nanoTime() : endNanos) - startNanos;
+            return elapsed <= 0 ? 0 : rowsRead * 1e9 / elapsed;
+        }
+
+        private TopUpImport toDto() {
+            final TopUpImport dto = new TopUpImport();
+            dto.setId(id);
+            dto.setFormat(format.name().toLowerCase(Locale.ROOT));
+            dto.setState(state);
+            dto.setStartTime(startTime);
+            dto.setEndTime(endTime);
+            dto.setRowsRead(rowsRead);
+            dto.setApplied(applied);
+            dto.setDuplicates(duplicates);
+            dto.setUnknownUsers(unknownUsers);
+            dto.setRejected(rejected);
+            dto.setRowsPerSecond(rowsPerSecond());
+            dto.setErrors(List.copyOf(errors));
+            return dto;
+        }
+    }
+}
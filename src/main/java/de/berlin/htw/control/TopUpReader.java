@@ -0,0 +1,230 @@
+package de.berlin.htw.control;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Locale;
+
+import jakarta.ws.rs.BadRequestException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.berlin.htw.entity.dao.BalanceRepository.TopUp;
+
+/**
+ * Liest Aufladungen zeilenweise aus einer Importdatei, ohne die Datei im Speicher zu halten.
+ * <ul>
+ * <li>CSV: Kopfzeile mit den Spalten {@code reference}, {@code userId} und {@code amount} in beliebiger
+ * Reihenfolge, Trennzeichen Komma, Werte ohne Kommas (umschließende Anführungszeichen werden entfernt).</li>
+ * <li>NDJSON: ein Objekt {@code {"reference": "...", "userId": 42, "amount": 12.50}} pro Zeile.</li>
+ * </ul>
+ * Ungültige Zeilen werden mit Fehlermeldung geliefert und brechen den Import nicht ab.
+ */
+public final class TopUpReader {
+
+    /** Format der Importdatei. */
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    /** Länge von BALANCE_TRANSACTION.REFERENCE. */
+    static final int MAX_REFERENCE_LENGTH = 64;
+
+    /** Größter Wert von DECIMAL(12,2). */
+    static final BigDecimal MAX_AMOUNT = new BigDecimal("9999999999.99");
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+
+    private long lineNumber;
+
+    // Spaltenpositionen aus der CSV-Kopfzeile
+    private int referenceColumn = -1;
+    private int userIdColumn = -1;
+    private int amountColumn = -1;
+    private int columnCount;
+
+    /**
+     * Eine gelesene Datenzeile: entweder eine gültige Aufladung oder eine Fehlermeldung.
+     */
+    public static final class Line {
+
+        private final long number;
+        private final TopUp topUp;
+        private final String error;
+
+        private Line(final long number, final TopUp topUp, final String error) {
+            this.number = number;
+            this.topUp = topUp;
+            this.error = error;
+        }
+
+        /**
+         * @return Die Zeilennummer in der Datei, beginnend bei 1
+         */
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * @return Die Aufladung oder null, wenn die Zeile ungültig ist
+         */
+        public TopUp getTopUp() {
+            return topUp;
+        }
+
+        /**
+         * @return Die Fehlermeldung oder null
+         */
+        public String getError() {
+            return error;
+        }
+    }
+
+    public TopUpReader(final BufferedReader reader, final Format format, final ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.format = format;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Liest bei CSV die Kopfzeile, damit eine ungültige Datei abgelehnt wird, bevor der Import startet.
+     * Ohne Aufruf liest {@link #next()} die Kopfzeile beim ersten Aufruf.
+     *
+     * @throws IOException beim Lesen
+     * @throws BadRequestException wenn die CSV-Kopfzeile fehlt oder unvollständig ist
+     */
+    public void readHeader() throws IOException {
+        if (format != Format.CSV || columnCount != 0) {
+            return;
+        }
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return;
+            }
+            lineNumber++;
+        } while (text.isBlank());
+        parseHeader(text);
+    }
+
+    /**
+     * Liest die nächste Datenzeile, Leerzeilen werden übersprungen.
+     *
+     * @return Die Zeile oder null am Ende der Datei
+     * @throws IOException beim Lesen
+     * @throws BadRequestException wenn die CSV-Kopfzeile fehlt oder unvollständig ist
+     */
+    public Line next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (text.isBlank());
+
+        if (format == Format.CSV && columnCount == 0) {
+            parseHeader(text);
+            return next();
+        }
+        try {
+            return new Line(lineNumber, format == Format.CSV ? parseCsv(text) : parseJson(text), null);
+        } catch (IllegalArgumentException e) {
+            return new Line(lineNumber, null, e.getMessage());
+        }
+    }
+
+    private void parseHeader(final String text) {
+        final String[] columns = text.split(",", -1);
+        for (int i = 0; i < columns.length; i++) {
+            switch (unquote(columns[i]).toLowerCase(Locale.ROOT)) {
+                case "reference":
+                    referenceColumn = i;
+                    break;
+                case "userid":
+                case "user_id":
+                    userIdColumn = i;
+                    break;
+                case "amount":
+                    amountColumn = i;
+                    break;
+                default:
+                    // weitere Spalten des Zahlungsdienstleisters werden ignoriert
+                    break;
+            }
+        }
+        if (referenceColumn < 0 || userIdColumn < 0 || amountColumn < 0) {
+            throw new BadRequestException("CSV-Kopfzeile muss die Spalten reference, userId und amount enthalten");
+        }
+        columnCount = columns.length;
+    }
+
+    private TopUp parseCsv(final String text) {
+        final String[] values = text.split(",", -1);
+        if (values.length != columnCount) {
+            throw new IllegalArgumentException("erwartet " + columnCount + " Spalten, gefunden " + values.length);
+        }
+        return toTopUp(unquote(values[referenceColumn]), unquote(values[userIdColumn]), unquote(values[amountColumn]));
+    }
+
+    private TopUp parseJson(final String text) {
+        final JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("kein gültiges JSON");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("kein JSON-Objekt");
+        }
+        return toTopUp(text(node, "reference"), text(node, "userId"), text(node, "amount"));
+    }
+
+    private static String text(final JsonNode node, final String field) {
+        final JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static TopUp toTopUp(final String reference, final String userId, final String amount) {
+        if (reference == null || reference.isBlank()) {
+            throw new IllegalArgumentException("Referenz fehlt");
+        }
+        if (reference.length() > MAX_REFERENCE_LENGTH) {
+            throw new IllegalArgumentException("Referenz länger als " + MAX_REFERENCE_LENGTH + " Zeichen");
+        }
+        final int user;
+        try {
+            user = Integer.parseInt(userId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ungültige Benutzer-ID: " + userId);
+        }
+        if (user <= 0) {
+            throw new IllegalArgumentException("ungültige Benutzer-ID: " + userId);
+        }
+        final BigDecimal value;
+        try {
+            value = new BigDecimal(amount);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("ungültiger Betrag: " + amount);
+        }
+        // Beträge werden nicht gerundet, mehr als zwei Nachkommastellen sind ein Fehler der Datei
+        if (value.signum() <= 0 || value.compareTo(MAX_AMOUNT) > 0 || value.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("ungültiger Betrag: " + amount);
+        }
+        return new TopUp(user, value.setScale(2), reference);
+    }
+
+    private static String unquote(final String value) {
+        final String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+}
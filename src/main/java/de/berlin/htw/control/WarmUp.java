@@ -0,0 +1,362 @@
+package de.berlin.htw.control;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.validation.Validator;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.berlin.htw.boundary.dto.Item;
+import de.berlin.htw.boundary.dto.Order;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.OrderEntity;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Wärmt nach dem Start die heißen Pfade auf, bevor der Knoten als bereit gilt (siehe Readiness-Check).
+ * Mehrere Threads führen für {@code app.warmup.duration} wiederholt JSON-(De-)Serialisierung von {@link Item},
+ * Bean Validation, einen Warenkorb-Zyklus im {@link BasketController}, die Konvertierung von Bestellungen
+ * und die JPA-Abfragen der Historie aus. Dabei kompiliert der JIT die Pfade und die Verbindungspools
+ * von MySQL und Redis füllen sich. Jeder Thread nutzt einen eigenen Scratch-Benutzer
+ * ({@code app.warmup.user}-Prozesskennung-n) und damit einen eigenen Warenkorb-Schlüssel; die Prozesskennung
+ * trennt die Benutzer von Knoten, die gleichzeitig starten (Rolling Deployment). Die Scratch-Benutzer brauchen
+ * Guthaben für den Warenkorb-Zyklus; sie werden deshalb nach dem Lauf mit Warenkorb und Guthaben-Journal
+ * wieder gelöscht, auch wenn der Warm-up fehlschlägt. Nur nach einem harten Abbruch des Prozesses bleiben sie
+ * (erkennbar am Präfix) stehen.
+ * Am Ende wird die Latenz jedes Schritts beim ersten Aufruf und im aufgewärmten Zustand geloggt.
+ */
+@ApplicationScoped
+public class WarmUp {
+
+    private static final String PRODUCT_ID = "1-2-3-4-5-0";
+
+    // Anteil der Laufzeit am Ende, der als "aufgewärmt" gemessen wird
+    private static final double WARM_SHARE = 0.2;
+
+    @Inject
+    BasketController basketController;
+
+    @Inject
+    OrderController orderController;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    BalanceLedger balanceLedger;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    Jsonb jsonb;
+
+    @Inject
+    Validator validator;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.warmup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.warmup.duration", defaultValue = "10s")
+    Duration duration;
+
+    @ConfigProperty(name = "app.warmup.threads", defaultValue = "4")
+    int threads;
+
+    @ConfigProperty(name = "app.warmup.user", defaultValue = "warmup")
+    String userPrefix;
+
+    // trennt die Scratch-Benutzer gleichzeitig startender Knoten
+    private final String processId = UUID.randomUUID().toString().substring(0, 8);
+
+    private volatile boolean done;
+
+    private volatile Map<String, StepStats> lastReport = Map.of();
+
+    void onStart(@Observes final StartupEvent event) {
+        if (!enabled) {
+            done = true;
+            return;
+        }
+        final Thread thread = new Thread(() -> {
+            try {
+                run(duration, threads);
+            } catch (RuntimeException e) {
+                // Ein fehlgeschlagener Warm-up darf den Knoten nicht dauerhaft aus dem Load Balancer halten
+                logger.error("Warm-up failed, marking node ready anyway", e);
+            } finally {
+                done = true;
+            }
+        }, "warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return true, sobald der Warm-up abgeschlossen (oder abgeschaltet) ist
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return Die Messwerte des letzten Laufs je Schritt, leer vor dem ersten Lauf
+     */
+    public Map<String, StepStats> getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Führt den Warm-up aus und blockiert, bis er beendet ist.
+     *
+     * @param runFor Laufzeit
+     * @param threadCount Anzahl paralleler Threads (bestimmt auch, wie weit sich die Pools füllen)
+     * @return Die Messwerte je Schritt in Ausführungsreihenfolge
+     */
+    public Map<String, StepStats> run(final Duration runFor, final int threadCount) {
+        final Map<String, StepStats> report = new LinkedHashMap<>();
+        for (String step : List.of("json", "validation", "basket", "order-dto", "jpa")) {
+            report.put(step, new StepStats());
+        }
+        final List<String> users = new ArrayList<>();
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                users.add(ensureScratchUser(userPrefix + "-" + processId + "-" + i));
+            }
+            runWorkers(users, report, runFor);
+        } finally {
+            users.forEach(this::removeScratchUser);
+        }
+        lastReport = report;
+        return report;
+    }
+
+    private void runWorkers(final List<String> users, final Map<String, StepStats> report, final Duration runFor) {
+        final int threadCount = users.size();
+        final long start = System.nanoTime();
+        final long end = start + runFor.toNanos();
+        final long warmFrom = end - (long) (runFor.toNanos() * WARM_SHARE);
+        final CountDownLatch finished = new CountDownLatch(threadCount);
+        final LongAdder iterations = new LongAdder();
+        for (int i = 0; i < threadCount; i++) {
+            final String user = users.get(i);
+            final Thread worker = new Thread(() -> {
+                try {
+                    do {
+                        iterate(user, report, warmFrom);
+                        iterations.increment();
+                    } while (System.nanoTime() < end);
+                } finally {
+                    finished.countDown();
+                }
+            }, "warm-up-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final StringBuilder summary = new StringBuilder("Warm-up finished after ")
+                .append((System.nanoTime() - start) / 1_000_000).append(" ms, ")
+                .append(threadCount).append(" threads, ").append(iterations.sum()).append(" iterations");
+        report.forEach((step, stats) -> summary.append("\n  ").append(step).append(": ").append(stats));
+        logger.info(summary);
+    }
+
+    private void iterate(final String user, final Map<String, StepStats> report, final long warmFrom) {
+        final ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            measure(report.get("json"), warmFrom, this::exerciseJson);
+            measure(report.get("validation"), warmFrom, this::exerciseValidation);
+            measure(report.get("basket"), warmFrom, () -> exerciseBasket(user));
+            measure(report.get("order-dto"), warmFrom, this::exerciseOrderConversion);
+            measure(report.get("jpa"), warmFrom, () -> exerciseQueries(user));
+        } finally {
+            requestContext.terminate();
+        }
+    }
+
+    private void measure(final StepStats stats, final long warmFrom, final Runnable step) {
+        final long begin = System.nanoTime();
+        try {
+            step.run();
+        } catch (RuntimeException e) {
+            stats.errors.increment();
+            if (stats.errors.sum() == 1) {
+                logger.warn("Warm-up step failed (further failures of this step are logged at debug)", e);
+            } else {
+                logger.debug("Warm-up step failed", e);
+            }
+        }
+        final long now = System.nanoTime();
+        stats.record(now - begin, now >= warmFrom);
+    }
+
+    private void exerciseJson() {
+        try {
+            final Item item = objectMapper.readValue(objectMapper.writeValueAsString(scratchItem(1)), Item.class);
+            jsonb.fromJson(jsonb.toJson(item), Item.class);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void exerciseValidation() {
+        validator.validate(scratchItem(1));
+        final Item invalid = scratchItem(0);
+        invalid.setProductId("invalid");
+        validator.validate(invalid);
+        final Order order = new Order();
+        order.setItems(List.of(scratchItem(1), scratchItem(2)));
+        validator.validate(order);
+    }
+
+    private void exerciseBasket(final String user) {
+        // Leeren zuerst, falls ein abgebrochener Lauf den Artikel im Warenkorb zurückgelassen hat
+        basketController.clearBasket(user);
+        basketController.addItemToBasket(user, PRODUCT_ID, scratchItem(1));
+        basketController.changeItemCount(user, PRODUCT_ID, scratchItem(2));
+        basketController.getBasket(user);
+        basketController.removeItemFromBasket(user, PRODUCT_ID);
+    }
+
+    private void exerciseOrderConversion() {
+        final List<OrderItemEntity> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final OrderItemEntity item = new OrderItemEntity();
+            item.setProductId(ProductIds.tryPack(PRODUCT_ID));
+            item.setProductName("Warm-up");
+            item.setCount(i + 1);
+            item.setPrice(10f);
+            items.add(item);
+        }
+        final OrderEntity rows = new OrderEntity();
+        rows.setItems(items);
+        final OrderEntity embedded = new OrderEntity();
+        embedded.setItemsData(OrderItemsCodec.encode(items));
+        orderController.convertToOrderDTOs(List.of(rows, embedded));
+    }
+
+    private void exerciseQueries(final String user) {
+        userRepository.findByName(user);
+        userRepository.findByNameReadOnly(user);
+        orderController.getCompletedOrders(user);
+        orderController.getCompletedOrders(user, 0, 10);
+        orderController.getOrderStats(user);
+    }
+
+    private String ensureScratchUser(final String name) {
+        final ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            if (userRepository.findByName(name) == null) {
+                final UserEntity user = new UserEntity();
+                user.setName(name);
+                user.setBalance(1000f);
+                userRepository.persistUser(user);
+            }
+            return name;
+        } finally {
+            requestContext.terminate();
+        }
+    }
+
+    private void removeScratchUser(final String name) {
+        final ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            basketController.clearBasket(name);
+            final UserEntity user = userRepository.findByName(name);
+            if (user != null) {
+                userRepository.deleteUser(user.getId());
+                balanceLedger.invalidate(user.getId());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not remove warm-up user " + name + ": " + e.getMessage());
+        } finally {
+            requestContext.terminate();
+        }
+    }
+
+    private static Item scratchItem(final int count) {
+        final Item item = new Item();
+        item.setProductId(PRODUCT_ID);
+        item.setProductName("Warm-up");
+        item.setCount(count);
+        item.setPrice(10f);
+        return item;
+    }
+
+    /**
+     * Latenz eines Warm-up-Schritts beim ersten Aufruf und im aufgewärmten Zustand.
+     */
+    public static final class StepStats {
+
+        private final AtomicLong firstNanos = new AtomicLong(-1);
+        private final LongAdder warmCount = new LongAdder();
+        private final LongAdder warmNanos = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private void record(final long nanos, final boolean warm) {
+            firstNanos.compareAndSet(-1, nanos);
+            if (warm) {
+                warmCount.increment();
+                warmNanos.add(nanos);
+            }
+        }
+
+        /**
+         * @return Die Latenz des ersten Aufrufs in Millisekunden (kalt)
+         */
+        public double getFirstMillis() {
+            return Math.max(0, firstNanos.get()) / 1_000_000d;
+        }
+
+        /**
+         * @return Die mittlere Latenz am Ende des Warm-ups in Millisekunden
+         */
+        public double getWarmMillis() {
+            final long count = warmCount.sum();
+            return count == 0 ? 0d : warmNanos.sum() / (double) count / 1_000_000d;
+        }
+
+        /**
+         * @return Die Zahl fehlgeschlagener Aufrufe
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("first %.3f ms, warm %.3f ms (%d samples), %d errors",
+                    getFirstMillis(), getWarmMillis(), warmCount.sum(), getErrors());
+        }
+    }
+}
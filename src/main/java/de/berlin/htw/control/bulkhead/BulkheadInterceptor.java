@@ -0,0 +1,33 @@
+package de.berlin.htw.control.bulkhead;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Interceptor für {@link Bulkheaded}. Läuft vor dem Transaktions-Interceptor,
+ * damit eine abgelehnte Anfrage gar nicht erst eine Datenbankverbindung belegt.
+ */
+@Bulkheaded(WorkloadClass.CHECKOUT) // Wert ist @Nonbinding, die Klasse wird pro Aufruf ermittelt
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 100)
+public class BulkheadInterceptor {
+
+    @Inject
+    WorkloadBulkhead bulkhead;
+
+    @AroundInvoke
+    Object guard(final InvocationContext context) throws Exception {
+        return bulkhead.call(resolve(context), context::proceed);
+    }
+
+    private WorkloadClass resolve(final InvocationContext context) {
+        Bulkheaded binding = context.getMethod().getAnnotation(Bulkheaded.class);
+        if (binding == null) {
+            binding = context.getMethod().getDeclaringClass().getAnnotation(Bulkheaded.class);
+        }
+        return binding.value();
+    }
+}
@@ -0,0 +1,25 @@
+package de.berlin.htw.control.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import jakarta.enterprise.util.Nonbinding;
+import jakarta.interceptor.InterceptorBinding;
+
+/**
+ * Führt die annotierte Methode nur aus, wenn im Bulkhead der angegebenen
+ * {@link WorkloadClass} eine Genehmigung frei ist.
+ * Ist innerhalb der konfigurierten Wartezeit keine frei, wird mit 503 abgelehnt.
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Bulkheaded {
+
+    @Nonbinding
+    WorkloadClass value();
+}
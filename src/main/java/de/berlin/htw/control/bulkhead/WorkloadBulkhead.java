@@ -0,0 +1,143 @@
+package de.berlin.htw.control.bulkhead;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import org.eclipse.microprofile.config.Config;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Permit-basierte Bulkheads je {@link WorkloadClass}.
+ * Jede Klasse bekommt eine feste Anzahl gleichzeitiger Ausführungen und eine maximale Wartezeit.
+ * So kann z.B. eine Welle von {@code GET /orders} nicht alle Verbindungen des Pools belegen
+ * und den Checkout bis zum Socket-Timeout blockieren.
+ * Pro Klasse werden belegte Permits, Wartende, Wartezeit und Ablehnungen als Metriken veröffentlicht.
+ */
+@ApplicationScoped
+public class WorkloadBulkhead {
+
+    // Retry-After in Sekunden bei einer Ablehnung
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    private final Map<WorkloadClass, Compartment> compartments = new EnumMap<>(WorkloadClass.class);
+
+    @PostConstruct
+    void init() {
+        compartments.put(WorkloadClass.CHECKOUT, createCompartment(WorkloadClass.CHECKOUT, 8, Duration.ofSeconds(2)));
+        compartments.put(WorkloadClass.HISTORY, createCompartment(WorkloadClass.HISTORY, 6, Duration.ofMillis(200)));
+        compartments.put(WorkloadClass.AUTH, createCompartment(WorkloadClass.AUTH, 4, Duration.ofMillis(500)));
+    }
+
+    /**
+     * Führt die Aktion aus, sobald im Bulkhead der Lastklasse eine Genehmigung frei ist.
+     *
+     * @param workloadClass Die Lastklasse
+     * @param action Die auszuführende Aktion
+     * @return Das Ergebnis der Aktion
+     * @throws ServiceUnavailableException wenn innerhalb der maximalen Wartezeit keine Genehmigung frei wird (503)
+     * @throws Exception alle Ausnahmen der Aktion
+     */
+    public <T> T call(final WorkloadClass workloadClass, final Callable<T> action) throws Exception {
+        final Compartment compartment = compartments.get(workloadClass);
+        if (!compartment.acquire()) {
+            compartment.rejected.increment();
+            logger.warn("Bulkhead " + workloadClass.getKey() + " saturated, rejecting request");
+            throw new ServiceUnavailableException(RETRY_AFTER_SECONDS);
+        }
+        try {
+            return action.call();
+        } finally {
+            compartment.release();
+        }
+    }
+
+    private Compartment createCompartment(final WorkloadClass workloadClass, final int defaultMaxConcurrent,
+            final Duration defaultMaxWait) {
+        final String prefix = "app.bulkhead." + workloadClass.getKey();
+        final int maxConcurrent = config.getOptionalValue(prefix + ".max-concurrent", Integer.class)
+                .orElse(defaultMaxConcurrent);
+        final Duration maxWait = config.getOptionalValue(prefix + ".max-wait", Duration.class)
+                .orElse(defaultMaxWait);
+
+        final Compartment compartment = new Compartment(maxConcurrent, maxWait,
+                Counter.builder("bulkhead.rejected").tag("class", workloadClass.getKey()).register(registry),
+                Timer.builder("bulkhead.wait").tag("class", workloadClass.getKey()).register(registry));
+        Gauge.builder("bulkhead.in.use", compartment, c -> c.inUse.get())
+                .tag("class", workloadClass.getKey()).register(registry);
+        Gauge.builder("bulkhead.waiting", compartment, c -> c.waiting.get())
+                .tag("class", workloadClass.getKey()).register(registry);
+        Gauge.builder("bulkhead.saturation", compartment, c -> (double) c.inUse.get() / c.maxConcurrent)
+                .tag("class", workloadClass.getKey()).register(registry);
+        return compartment;
+    }
+
+    /**
+     * Ein einzelnes Bulkhead mit Semaphore, Wartegrenze und Metriken.
+     */
+    private static final class Compartment {
+
+        private final int maxConcurrent;
+        private final Duration maxWait;
+        private final Semaphore permits;
+        private final AtomicInteger inUse = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Counter rejected;
+        private final Timer waitTimer;
+
+        private Compartment(final int maxConcurrent, final Duration maxWait, final Counter rejected,
+                final Timer waitTimer) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxWait = maxWait;
+            this.permits = new Semaphore(maxConcurrent, true);
+            this.rejected = rejected;
+            this.waitTimer = waitTimer;
+        }
+
+        private boolean acquire() {
+            final long start = System.nanoTime();
+            waiting.incrementAndGet();
+            try {
+                final boolean acquired = permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+                if (acquired) {
+                    inUse.incrementAndGet();
+                }
+                return acquired;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiting.decrementAndGet();
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private void release() {
+            inUse.decrementAndGet();
+            permits.release();
+        }
+    }
+}
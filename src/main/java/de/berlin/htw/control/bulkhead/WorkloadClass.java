@@ -0,0 +1,27 @@
+package de.berlin.htw.control.bulkhead;
+
+/**
+ * Lastklassen, für die jeweils ein eigenes Bulkhead vor den Repositories existiert.
+ * Der Konfigurationsschlüssel wird unter {@code app.bulkhead.<key>} erwartet.
+ */
+public enum WorkloadClass {
+
+    /** Schreibender Checkout (Bestellung anlegen, Guthaben belasten). */
+    CHECKOUT("checkout"),
+
+    /** Lesen der Bestellhistorie. */
+    HISTORY("history"),
+
+    /** Principal-Lookup im Authentifizierungsfilter. */
+    AUTH("auth");
+
+    private final String key;
+
+    WorkloadClass(final String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,56 @@
+package de.berlin.htw.control.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR-Event für eine Änderung am Warenkorb. Die Dauer des Events umfasst die ganze Änderung inkl. Prüfungen,
+ * {@link #storeTime} nur den Zugriff auf den {@code BasketStore} (Redis oder In-Memory).
+ */
+@Name("de.berlin.htw.BasketMutation")
+@Label("Basket Mutation")
+@Category({ "VA-Lab", "Basket" })
+@Description("Change of a user's basket")
+@StackTrace(false)
+public class BasketMutationEvent extends Event {
+
+    public static final String ADD = "add";
+    public static final String CHANGE = "change";
+    public static final String REMOVE = "remove";
+    public static final String CLEAR = "clear";
+
+    @Label("User")
+    public String user;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Item Count")
+    @Description("Number of distinct items in the basket after the change")
+    public int itemCount;
+
+    @Label("Store Time")
+    @Description("Time spent in the basket store (Redis round trips)")
+    @Timespan(Timespan.NANOSECONDS)
+    public long storeTime;
+
+    /**
+     * Erzeugt und startet ein Event.
+     *
+     * @param user Der Benutzer
+     * @param operation Eine der Konstanten dieser Klasse
+     * @return Das laufende Event, mit {@link #commit()} abschließen
+     */
+    public static BasketMutationEvent begin(final String user, final String operation) {
+        final BasketMutationEvent event = new BasketMutationEvent();
+        event.user = user;
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+}
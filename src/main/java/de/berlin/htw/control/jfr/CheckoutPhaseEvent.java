@@ -0,0 +1,52 @@
+package de.berlin.htw.control.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR-Event für eine Phase des Checkouts, ein Event pro Phase und Bestellung. Phasen, die mit einer Exception
+ * abbrechen, werden nicht aufgezeichnet.
+ */
+@Name("de.berlin.htw.CheckoutPhase")
+@Label("Checkout Phase")
+@Category({ "VA-Lab", "Checkout" })
+@Description("One phase of placing an order")
+@StackTrace(false)
+public class CheckoutPhaseEvent extends Event {
+
+    /** Benutzer und Warenkorb laden. */
+    public static final String LOOKUP = "lookup";
+    /** Warenkorb prüfen, Summe berechnen, Vorprüfung des Guthabens. */
+    public static final String VALIDATION = "validation";
+    /** Kontosperre und verbindliche Prüfung des Guthabens. */
+    public static final String DEBIT = "debit";
+    /** Bestellung, Abbuchung im Journal und Statistik schreiben. */
+    public static final String INSERT = "insert";
+    /** Warenkorb im Store leeren. */
+    public static final String REDIS_CLEAR = "redis-clear";
+
+    @Label("User")
+    public String user;
+
+    @Label("Phase")
+    public String phase;
+
+    /**
+     * Erzeugt und startet ein Event.
+     *
+     * @param user Der Benutzer
+     * @param phase Eine der Konstanten dieser Klasse
+     * @return Das laufende Event, mit {@link #commit()} abschließen
+     */
+    public static CheckoutPhaseEvent begin(final String user, final String phase) {
+        final CheckoutPhaseEvent event = new CheckoutPhaseEvent();
+        event.user = user;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,204 @@
+package de.berlin.htw.control.jfr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.core.Response;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.boundary.dto.RecordingInfo;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Startet und beendet JFR-Aufzeichnungen zur Laufzeit (z.B. wenn die Produktion langsam wird).
+ * Jede Aufzeichnung hat eine Höchstdauer und wird danach von der JVM selbst beendet und nach
+ * {@code app.jfr.dir} geschrieben; {@link #stop(long)} beendet sie vorzeitig. Es läuft höchstens eine
+ * Aufzeichnung gleichzeitig, die eigenen Events liegen in {@link de.berlin.htw.control.jfr}.
+ */
+@ApplicationScoped
+public class FlightRecordings {
+
+    // wird in den Dateinamen übernommen, daher keine Pfadzeichen
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // beendete Aufzeichnungen bleiben für die Liste erhalten, die ältesten fallen heraus
+    private static final int MAX_KEPT = 20;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.jfr.dir", defaultValue = "data/jfr")
+    String recordingDir;
+
+    @ConfigProperty(name = "app.jfr.max-duration", defaultValue = "30m")
+    Duration maxDuration;
+
+    private final ConcurrentSkipListMap<Long, Entry> recordings = new ConcurrentSkipListMap<>();
+
+    /**
+     * Startet eine Aufzeichnung.
+     *
+     * @param name Name der Aufzeichnung (Buchstaben, Ziffern, - und _), Teil des Dateinamens
+     * @param duration Höchstdauer, null für {@code app.jfr.max-duration}
+     * @param settings Name einer JFR-Konfiguration, z.B. default (geringer Overhead) oder profile
+     * @return Die laufende Aufzeichnung
+     * @throws BadRequestException bei ungültigem Namen, Dauer oder Konfiguration
+     * @throws ClientErrorException (409) wenn bereits eine Aufzeichnung läuft
+     */
+    public synchronized RecordingInfo start(final String name, final Duration duration, final String settings) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            throw new BadRequestException("Ungültiger Name der Aufzeichnung: " + name);
+        }
+        final Duration limit = duration == null ? maxDuration : duration;
+        if (limit.isNegative() || limit.isZero() || limit.compareTo(maxDuration) > 0) {
+            throw new BadRequestException("Die Dauer muss zwischen 1s und " + maxDuration.toSeconds() + "s liegen");
+        }
+        if (settings == null) {
+            throw new BadRequestException("JFR-Konfiguration fehlt");
+        }
+        final Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new BadRequestException("Unbekannte JFR-Konfiguration: " + settings);
+        }
+        for (Entry entry : recordings.values()) {
+            if (entry.recording.getState() == RecordingState.RUNNING) {
+                throw new ClientErrorException("Es läuft bereits die Aufzeichnung " + entry.recording.getId(),
+                        Response.Status.CONFLICT);
+            }
+        }
+
+        final Path directory = Paths.get(recordingDir);
+        final Path file = directory.resolve(name + "-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        final Recording recording = new Recording(configuration);
+        try {
+            Files.createDirectories(directory);
+            recording.setName(name);
+            recording.setToDisk(true);
+            recording.setDuration(limit);
+            // mit Ziel schreibt die JVM die Datei beim Stoppen selbst, auch nach Ablauf der Dauer
+            recording.setDestination(file);
+            recording.start();
+        } catch (IOException e) {
+            recording.close();
+            throw new UncheckedIOException("JFR recording directory not usable: " + directory, e);
+        }
+        recordings.put(recording.getId(), new Entry(recording, configuration.getName()));
+        trim();
+        logger.infof("Started JFR recording %d (%s, %s) for at most %s, writing to %s", recording.getId(), name,
+                configuration.getName(), limit, file);
+        return toInfo(recordings.get(recording.getId()));
+    }
+
+    /**
+     * Beendet eine Aufzeichnung vorzeitig und schreibt die Datei.
+     *
+     * @param id Die ID der Aufzeichnung
+     * @return Die beendete Aufzeichnung
+     * @throws NotFoundException wenn die Aufzeichnung nicht bekannt ist
+     */
+    public synchronized RecordingInfo stop(final long id) {
+        final Entry entry = find(id);
+        if (entry.recording.getState() == RecordingState.RUNNING || entry.recording.getState() == RecordingState.DELAYED) {
+            entry.recording.stop();
+            logger.infof("Stopped JFR recording %d, written to %s", id, entry.recording.getDestination());
+        }
+        entry.recording.close();
+        return toInfo(entry);
+    }
+
+    /**
+     * @param id Die ID der Aufzeichnung
+     * @return Die Aufzeichnung
+     * @throws NotFoundException wenn die Aufzeichnung nicht bekannt ist
+     */
+    public RecordingInfo get(final long id) {
+        return toInfo(find(id));
+    }
+
+    /**
+     * @return Alle bekannten Aufzeichnungen, älteste zuerst
+     */
+    public List<RecordingInfo> list() {
+        final List<RecordingInfo> infos = new ArrayList<>();
+        for (Entry entry : recordings.values()) {
+            infos.add(toInfo(entry));
+        }
+        return infos;
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        // laufende Aufzeichnungen beim Herunterfahren noch schreiben
+        for (Entry entry : recordings.values()) {
+            if (entry.recording.getState() == RecordingState.RUNNING) {
+                entry.recording.stop();
+            }
+            entry.recording.close();
+        }
+    }
+
+    private Entry find(final long id) {
+        final Entry entry = recordings.get(id);
+        if (entry == null) {
+            throw new NotFoundException("Aufzeichnung nicht gefunden: " + id);
+        }
+        return entry;
+    }
+
+    private void trim() {
+        while (recordings.size() > MAX_KEPT) {
+            final Map.Entry<Long, Entry> oldest = recordings.pollFirstEntry();
+            oldest.getValue().recording.close();
+        }
+    }
+
+    private static RecordingInfo toInfo(final Entry entry) {
+        final Recording recording = entry.recording;
+        final RecordingInfo info = new RecordingInfo();
+        info.setId(recording.getId());
+        info.setName(recording.getName());
+        info.setState(recording.getState().name());
+        info.setSettings(entry.settings);
+        info.setStartTime(recording.getStartTime());
+        info.setDurationSeconds(recording.getDuration() == null ? null : recording.getDuration().toSeconds());
+        info.setFile(recording.getDestination() == null ? null : recording.getDestination().toString());
+        return info;
+    }
+
+    private static final class Entry {
+
+        private final Recording recording;
+        private final String settings;
+
+        private Entry(final Recording recording, final String settings) {
+            this.recording = recording;
+            this.settings = settings;
+        }
+    }
+}
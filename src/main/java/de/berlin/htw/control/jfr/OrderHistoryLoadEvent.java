@@ -0,0 +1,45 @@
+package de.berlin.htw.control.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR-Event für das Laden der Bestellhistorie eines Benutzers (Datenbank und Archiv).
+ */
+@Name("de.berlin.htw.OrderHistoryLoad")
+@Label("Order History Load")
+@Category({ "VA-Lab", "Orders" })
+@Description("Loading (a page of) a user's order history")
+@StackTrace(false)
+public class OrderHistoryLoadEvent extends Event {
+
+    @Label("User")
+    public String user;
+
+    @Label("Page")
+    @Description("Requested page, -1 for the whole history")
+    public int page;
+
+    @Label("Row Count")
+    @Description("Number of orders loaded")
+    public int rowCount;
+
+    /**
+     * Erzeugt und startet ein Event.
+     *
+     * @param user Der Benutzer
+     * @param page Die angefragte Seite oder -1
+     * @return Das laufende Event, mit {@link #commit()} abschließen
+     */
+    public static OrderHistoryLoadEvent begin(final String user, final int page) {
+        final OrderHistoryLoadEvent event = new OrderHistoryLoadEvent();
+        event.user = user;
+        event.page = page;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,91 @@
+package de.berlin.htw.control.limit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptives Concurrency-Limit nach AIMD (additive increase, multiplicative decrease).
+ * Jede abgeschlossene Anfrage ist eine Messung: Liegt ihre Latenz über der Schwelle oder war sie selbst
+ * überlastet (z.B. 503 aus einem Bulkhead), wird das Limit mit {@code backoffRatio} multipliziert;
+ * sonst wächst es um 1, sofern es zur Hälfte ausgenutzt war (ein ungenutztes Limit soll nicht wachsen).
+ * Anfragen über dem Limit werden sofort abgelehnt, statt sich in Warteschlangen zu stauen.
+ */
+public class AimdLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+
+    /**
+     * @param initialLimit Startwert
+     * @param minLimit Untergrenze
+     * @param maxLimit Obergrenze
+     * @param latencyThresholdNanos Latenz, ab der eine Anfrage als Überlastsignal zählt
+     * @param backoffRatio Faktor für die Verringerung (zwischen 0.5 und 1)
+     */
+    public AimdLimit(final int initialLimit, final int minLimit, final int maxLimit,
+            final long latencyThresholdNanos, final double backoffRatio) {
+        if (minLimit < 1 || minLimit > maxLimit || backoffRatio < 0.5 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Ungültige Limit-Konfiguration");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Belegt einen Platz, wenn das Limit noch nicht erreicht ist.
+     *
+     * @return Die Zahl laufender Anfragen inklusive dieser (für {@link #release(long, int, boolean)})
+     *         oder 0, wenn die Anfrage abgelehnt werden muss
+     */
+    public int tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= (int) limit) {
+                return 0;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Gibt den Platz frei und passt das Limit an die gemessene Latenz an.
+     *
+     * @param latencyNanos Dauer der Anfrage
+     * @param inFlightAtStart Rückgabewert von {@link #tryAcquire()}
+     * @param overloaded true, wenn die Anfrage selbst eine Überlastung meldet (z.B. 503)
+     */
+    public void release(final long latencyNanos, final int inFlightAtStart, final boolean overloaded) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            if (overloaded || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlightAtStart * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    /**
+     * @return Das aktuelle Limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return Die Zahl laufender Anfragen
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
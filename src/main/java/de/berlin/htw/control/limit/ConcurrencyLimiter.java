@@ -0,0 +1,131 @@
+package de.berlin.htw.control.limit;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+import org.jboss.logging.Logger;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Adaptive Concurrency-Limits je {@link EndpointGroup} (siehe {@link AimdLimit}).
+ * Anders als die festen Bulkheads vor den Repositories passt sich das Limit an die gemessene Latenz an:
+ * Steigt die Latenz von MySQL oder Redis, sinkt das Limit und überzählige Anfragen werden sofort mit
+ * 503 abgelehnt, bevor sich Warteschlangen bilden.
+ * Pro Gruppe werden aktuelles Limit, laufende Anfragen und Ablehnungen als Metriken veröffentlicht.
+ * Dahinter begrenzt der {@link PriorityScheduler} die Plätze auf den Worker-Threads. Damit er nicht unbemerkt
+ * unter den adaptiven Limits deckelt (die dann nie eine Überlast messen), wird die Obergrenze jeder Gruppe auf
+ * die Kapazität ihrer Priorität im Scheduler begrenzt: das AIMD-Limit lehnt ab, bevor der Scheduler staut.
+ */
+@ApplicationScoped
+public class ConcurrencyLimiter {
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    PriorityScheduler priorityScheduler;
+
+    @Inject
+    Logger logger;
+
+    private final Map<EndpointGroup, Group> groups = new EnumMap<>(EndpointGroup.class);
+
+    private boolean enabled;
+
+    @PostConstruct
+    void init() {
+        enabled = config.getOptionalValue("app.limit.enabled", Boolean.class).orElse(true);
+        groups.put(EndpointGroup.BASKET, createGroup(EndpointGroup.BASKET, 12, 2, 16, Duration.ofMillis(250)));
+        groups.put(EndpointGroup.CHECKOUT, createGroup(EndpointGroup.CHECKOUT, 8, 2, 16, Duration.ofSeconds(1)));
+        groups.put(EndpointGroup.ORDERS, createGroup(EndpointGroup.ORDERS, 6, 1, 6, Duration.ofMillis(500)));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Belegt einen Platz im Limit der Gruppe.
+     *
+     * @param group Die Endpunkt-Gruppe
+     * @return Wert für {@link #release(EndpointGroup, int, long, boolean)} oder 0, wenn abgelehnt werden muss
+     */
+    public int tryAcquire(final EndpointGroup group) {
+        final Group entry = groups.get(group);
+        final int inFlight = entry.limit.tryAcquire();
+        if (inFlight == 0) {
+            entry.rejected.increment();
+        }
+        return inFlight;
+    }
+
+    /**
+     * Gibt einen Platz frei und meldet die Latenz der Anfrage.
+     *
+     * @param group Die Endpunkt-Gruppe
+     * @param inFlightAtStart Rückgabewert von {@link #tryAcquire(EndpointGroup)}
+     * @param latencyNanos Dauer der Anfrage
+     * @param overloaded true, wenn die Anfrage selbst mit 503 beantwortet wurde
+     */
+    public void release(final EndpointGroup group, final int inFlightAtStart, final long latencyNanos,
+            final boolean overloaded) {
+        groups.get(group).limit.release(latencyNanos, inFlightAtStart, overloaded);
+    }
+
+    /**
+     * @param group Die Endpunkt-Gruppe
+     * @return Das aktuelle Limit der Gruppe
+     */
+    public int getLimit(final EndpointGroup group) {
+        return groups.get(group).limit.getLimit();
+    }
+
+    private Group createGroup(final EndpointGroup group, final int defaultInitial, final int defaultMin,
+            final int defaultMax, final Duration defaultLatencyThreshold) {
+        final String prefix = "app.limit." + group.getKey();
+        int max = config.getOptionalValue(prefix + ".max", Integer.class).orElse(defaultMax);
+        if (priorityScheduler.isEnabled() && max > priorityScheduler.getCapacity(group.getPriority())) {
+            max = priorityScheduler.getCapacity(group.getPriority());
+            logger.infof("Concurrency limit of %s capped at %d, the priority admission admits no more", group.getKey(), max);
+        }
+        final AimdLimit limit = new AimdLimit(
+                config.getOptionalValue(prefix + ".initial", Integer.class).orElse(defaultInitial),
+                Math.min(max, config.getOptionalValue(prefix + ".min", Integer.class).orElse(defaultMin)),
+                max,
+                config.getOptionalValue(prefix + ".latency-threshold", Duration.class).orElse(defaultLatencyThreshold).toNanos(),
+                config.getOptionalValue("app.limit.backoff-ratio", Double.class).orElse(0.9));
+
+        Gauge.builder("limit.current", limit, AimdLimit::getLimit)
+                .description("Aktuelles adaptives Concurrency-Limit")
+                .tag("group", group.getKey()).register(registry);
+        Gauge.builder("limit.in.flight", limit, AimdLimit::getInFlight)
+                .tag("group", group.getKey()).register(registry);
+        return new Group(limit, Counter.builder("limit.rejected").tag("group", group.getKey()).register(registry));
+    }
+
+    /**
+     * Limit und Ablehnungszähler einer Gruppe.
+     */
+    private static final class Group {
+
+        private final AimdLimit limit;
+        private final Counter rejected;
+
+        private Group(final AimdLimit limit, final Counter rejected) {
+            this.limit = limit;
+            this.rejected = rejected;
+        }
+    }
+}
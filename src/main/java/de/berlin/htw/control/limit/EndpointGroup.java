@@ -0,0 +1,36 @@
+package de.berlin.htw.control.limit;
+
+/**
+ * Endpunkt-Gruppen mit jeweils eigenem adaptiven Concurrency-Limit.
+ * Der Konfigurationsschlüssel wird unter {@code app.limit.<key>} erwartet.
+ */
+public enum EndpointGroup {
+
+    /** Lesen und Ändern des Warenkorbs ({@code /basket/...}); Änderungen laufen mit hoher Priorität. */
+    BASKET("basket", RequestPriority.HIGH),
+
+    /** Checkout ({@code POST /basket}). */
+    CHECKOUT("checkout", RequestPriority.HIGH),
+
+    /** Bestellhistorie, Suche und Statistik ({@code /orders/...}). */
+    ORDERS("orders", RequestPriority.LOW);
+
+    private final String key;
+    private final RequestPriority priority;
+
+    EndpointGroup(final String key, final RequestPriority priority) {
+        this.key = key;
+        this.priority = priority;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return Die höchste Priorität, mit der Anfragen dieser Gruppe zugelassen werden
+     */
+    public RequestPriority getPriority() {
+        return priority;
+    }
+}
@@ -0,0 +1,206 @@
+package de.berlin.htw.control.limit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prioritätsbewusste Zulassung mit fester Gesamtkapazität.
+ * Die letzten {@code reservedHigh} Plätze sind {@link RequestPriority#HIGH} vorbehalten, {@link RequestPriority#LOW}
+ * darf zusätzlich höchstens {@code lowMaxConcurrent} Plätze belegen. Ist kein passender Platz frei, wartet die
+ * Anfrage in der Warteschlange ihrer Klasse; frei werdende Plätze gehen immer zuerst an die höchste Klasse,
+ * innerhalb einer Klasse in Ankunftsreihenfolge.
+ * Die Callbacks werden außerhalb der Sperre aufgerufen, entweder direkt in {@link #submit(RequestPriority, Runnable)}
+ * oder in dem {@link #release(RequestPriority)}, das den Platz frei gemacht hat.
+ */
+public class PriorityGate {
+
+    private final int maxConcurrent;
+    private final int reservedHigh;
+    private final int lowMaxConcurrent;
+
+    private final Map<RequestPriority, Deque<Ticket>> queues = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Integer> inUse = new EnumMap<>(RequestPriority.class);
+
+    private int total;
+
+    /**
+     * @param maxConcurrent Gesamtzahl gleichzeitig zugelassener Anfragen
+     * @param reservedHigh Plätze, die nur {@link RequestPriority#HIGH} belegen darf
+     * @param lowMaxConcurrent Obergrenze für {@link RequestPriority#LOW}
+     */
+    public PriorityGate(final int maxConcurrent, final int reservedHigh, final int lowMaxConcurrent) {
+        if (maxConcurrent < 1 || reservedHigh < 0 || reservedHigh >= maxConcurrent || lowMaxConcurrent < 1) {
+            throw new IllegalArgumentException("Ungültige Konfiguration der Zulassung");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.reservedHigh = reservedHigh;
+        this.lowMaxConcurrent = lowMaxConcurrent;
+        for (RequestPriority priority : RequestPriority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            inUse.put(priority, 0);
+        }
+    }
+
+    /**
+     * Meldet eine Anfrage an. Ist sofort ein Platz frei und wartet keine Anfrage gleicher oder höherer
+     * Priorität, wird {@code onAdmit} noch in diesem Aufruf ausgeführt, sonst sobald ein Platz frei wird.
+     *
+     * @param priority Die Priorität der Anfrage
+     * @param onAdmit Wird genau einmal aufgerufen, wenn die Anfrage zugelassen ist
+     * @return Das Ticket, z.B. für {@link #cancel(Ticket)}
+     */
+    public Ticket submit(final RequestPriority priority, final Runnable onAdmit) {
+        final Ticket ticket = new Ticket(priority, onAdmit);
+        synchronized (this) {
+            if (hasWaitingAtOrAbove(priority) || !canAdmit(priority)) {
+                queues.get(priority).addLast(ticket);
+                return ticket;
+            }
+            occupy(ticket);
+        }
+        ticket.onAdmit.run();
+        return ticket;
+    }
+
+    /**
+     * Zieht eine wartende Anfrage zurück, z.B. nach Ablauf ihrer maximalen Wartezeit.
+     *
+     * @param ticket Das Ticket aus {@link #submit(RequestPriority, Runnable)}
+     * @return true, wenn die Anfrage noch wartete und jetzt abgelehnt werden muss;
+     *         false, wenn sie bereits zugelassen wurde
+     */
+    public synchronized boolean cancel(final Ticket ticket) {
+        return queues.get(ticket.priority).remove(ticket);
+    }
+
+    /**
+     * Gibt den Platz einer zugelassenen Anfrage frei und lässt wartende Anfragen nach Priorität nach.
+     *
+     * @param priority Die Priorität der beendeten Anfrage
+     */
+    public void release(final RequestPriority priority) {
+        final List<Ticket> admitted = new ArrayList<>();
+        synchronized (this) {
+            inUse.merge(priority, -1, Integer::sum);
+            total--;
+            for (RequestPriority next : RequestPriority.values()) {
+                final Deque<Ticket> queue = queues.get(next);
+                while (!queue.isEmpty() && canAdmit(next)) {
+                    final Ticket ticket = queue.pollFirst();
+                    occupy(ticket);
+                    admitted.add(ticket);
+                }
+                if (!queue.isEmpty()) {
+                    // niedrigere Klassen dürfen nicht an einer wartenden höheren vorbeiziehen
+                    break;
+                }
+            }
+        }
+        for (Ticket ticket : admitted) {
+            ticket.onAdmit.run();
+        }
+    }
+
+    /**
+     * @return true, wenn nur noch die reservierten Plätze frei sind oder Anfragen warten
+     */
+    public synchronized boolean isUnderPressure() {
+        if (total >= maxConcurrent - reservedHigh) {
+            return true;
+        }
+        for (Deque<Ticket> queue : queues.values()) {
+            if (!queue.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param priority Die Priorität
+     * @return Die Zahl der Plätze, die Anfragen dieser Priorität höchstens gleichzeitig belegen können
+     */
+    public int getCapacity(final RequestPriority priority) {
+        if (priority == RequestPriority.HIGH) {
+            return maxConcurrent;
+        }
+        if (priority == RequestPriority.LOW) {
+            return Math.min(lowMaxConcurrent, maxConcurrent - reservedHigh);
+        }
+        return maxConcurrent - reservedHigh;
+    }
+
+    /**
+     * @param priority Die Priorität
+     * @return Die Zahl zugelassener, noch laufender Anfragen dieser Priorität
+     */
+    public synchronized int getInUse(final RequestPriority priority) {
+        return inUse.get(priority);
+    }
+
+    /**
+     * @param priority Die Priorität
+     * @return Die Zahl wartender Anfragen dieser Priorität
+     */
+    public synchronized int getQueued(final RequestPriority priority) {
+        return queues.get(priority).size();
+    }
+
+    private boolean canAdmit(final RequestPriority priority) {
+        if (priority == RequestPriority.HIGH) {
+            return total < maxConcurrent;
+        }
+        if (total >= maxConcurrent - reservedHigh) {
+            return false;
+        }
+        return priority != RequestPriority.LOW || inUse.get(RequestPriority.LOW) < lowMaxConcurrent;
+    }
+
+    private boolean hasWaitingAtOrAbove(final RequestPriority priority) {
+        for (RequestPriority other : RequestPriority.values()) {
+            if (!queues.get(other).isEmpty()) {
+                return true;
+            }
+            if (other == priority) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void occupy(final Ticket ticket) {
+        inUse.merge(ticket.priority, 1, Integer::sum);
+        total++;
+        ticket.admitted = true;
+    }
+
+    /**
+     * Eine angemeldete Anfrage.
+     */
+    public static final class Ticket {
+
+        private final RequestPriority priority;
+        private final Runnable onAdmit;
+        private volatile boolean admitted;
+
+        private Ticket(final RequestPriority priority, final Runnable onAdmit) {
+            this.priority = priority;
+            this.onAdmit = onAdmit;
+        }
+
+        public RequestPriority getPriority() {
+            return priority;
+        }
+
+        /**
+         * @return true, sobald die Anfrage einen Platz belegt
+         */
+        public boolean isAdmitted() {
+            return admitted;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package de.berlin.htw.control.limit;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.Config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Prioritätsbewusste Zulassung vor den Worker-Threads (siehe {@link PriorityGate}).
+ * Checkouts und Warenkorb-Änderungen haben reservierte Plätze und werden bei Überlast vor dem Lesen
+ * des Warenkorbs und der Bestellhistorie zugelassen. Die Historie wartet höchstens
+ * {@code app.admission.low.max-wait} und wird unter Last nur als erste Seite ausgeliefert (spätere Seiten: 503).
+ * Pro Priorität werden Wartezeit, laufende und wartende Anfragen sowie Ablehnungen als Metriken veröffentlicht.
+ */
+@ApplicationScoped
+public class PriorityScheduler {
+
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<RequestPriority, Duration> maxWaits = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Timer> queueTimers = new EnumMap<>(RequestPriority.class);
+    private final Map<RequestPriority, Counter> rejections = new EnumMap<>(RequestPriority.class);
+
+    private PriorityGate gate;
+    private Counter degraded;
+    private boolean enabled;
+    private int degradedPageSize;
+
+    @PostConstruct
+    void init() {
+        enabled = config.getOptionalValue("app.admission.enabled", Boolean.class).orElse(true);
+        degradedPageSize = config.getOptionalValue("app.admission.degraded-page-size", Integer.class).orElse(10);
+        gate = new PriorityGate(
+                config.getOptionalValue("app.admission.max-concurrent", Integer.class).orElse(16),
+                config.getOptionalValue("app.admission.reserved-high", Integer.class).orElse(4),
+                config.getOptionalValue("app.admission.low.max-concurrent", Integer.class).orElse(6));
+        degraded = Counter.builder("admission.degraded")
+                .description("Unter Last gekürzte Antworten der Bestellhistorie").register(registry);
+
+        initPriority(RequestPriority.HIGH, Duration.ofSeconds(5));
+        initPriority(RequestPriority.NORMAL, Duration.ofSeconds(2));
+        initPriority(RequestPriority.LOW, Duration.ofSeconds(1));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Meldet eine Anfrage an, die Wartezeit bis zur Zulassung wird je Priorität gemessen.
+     *
+     * @param priority Die Priorität der Anfrage
+     * @param onAdmit Wird aufgerufen, sobald die Anfrage zugelassen ist
+     * @return Das Ticket für {@link #reject(PriorityGate.Ticket)}
+     */
+    public PriorityGate.Ticket submit(final RequestPriority priority, final Runnable onAdmit) {
+        final Timer queueTimer = queueTimers.get(priority);
+        final long start = System.nanoTime();
+        return gate.submit(priority, () -> {
+            queueTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            onAdmit.run();
+        });
+    }
+
+    /**
+     * Lehnt eine Anfrage ab, die nach ihrer maximalen Wartezeit noch nicht zugelassen ist.
+     *
+     * @param ticket Das Ticket aus {@link #submit(RequestPriority, Runnable)}
+     * @return true, wenn die Anfrage abgelehnt wurde; false, wenn sie inzwischen zugelassen ist
+     */
+    public boolean reject(final PriorityGate.Ticket ticket) {
+        if (!gate.cancel(ticket)) {
+            return false;
+        }
+        rejections.get(ticket.getPriority()).increment();
+        return true;
+    }
+
+    /**
+     * Gibt den Platz einer zugelassenen Anfrage frei.
+     *
+     * @param priority Die Priorität der beendeten Anfrage
+     */
+    public void release(final RequestPriority priority) {
+        gate.release(priority);
+    }
+
+    /**
+     * @param priority Die Priorität
+     * @return Die Zahl der Plätze, die Anfragen dieser Priorität höchstens gleichzeitig belegen können
+     */
+    public int getCapacity(final RequestPriority priority) {
+        return gate.getCapacity(priority);
+    }
+
+    /**
+     * @param priority Die Priorität
+     * @return Die maximale Wartezeit bis zur Zulassung
+     */
+    public Duration getMaxWait(final RequestPriority priority) {
+        return maxWaits.get(priority);
+    }
+
+    /**
+     * Prüft, ob eine Antwort der Bestellhistorie gekürzt werden soll, und zählt die gekürzten Antworten.
+     *
+     * @return true, wenn der Knoten ausgelastet ist und nur die erste Seite ausgeliefert werden soll
+     */
+    public boolean shouldDegrade() {
+        if (!enabled || !gate.isUnderPressure()) {
+            return false;
+        }
+        degraded.increment();
+        return true;
+    }
+
+    /**
+     * @return Die Seitengröße der Bestellhistorie unter Last
+     */
+    public int getDegradedPageSize() {
+        return degradedPageSize;
+    }
+
+    private void initPriority(final RequestPriority priority, final Duration defaultMaxWait) {
+        final String prefix = "app.admission." + priority.getKey();
+        maxWaits.put(priority, config.getOptionalValue(prefix + ".max-wait", Duration.class).orElse(defaultMaxWait));
+        queueTimers.put(priority, Timer.builder("admission.queue.time")
+                .description("Wartezeit bis zur Zulassung")
+                .publishPercentiles(0.5, 0.99)
+                .tag("priority", priority.getKey()).register(registry));
+        rejections.put(priority, Counter.builder("admission.rejected")
+                .tag("priority", priority.getKey()).register(registry));
+        Gauge.builder("admission.in.use", gate, g -> g.getInUse(priority))
+                .tag("priority", priority.getKey()).register(registry);
+        Gauge.builder("admission.queued", gate, g -> g.getQueued(priority))
+                .tag("priority", priority.getKey()).register(registry);
+    }
+}
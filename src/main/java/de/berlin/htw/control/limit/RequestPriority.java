@@ -0,0 +1,27 @@
+package de.berlin.htw.control.limit;
+
+/**
+ * Prioritätsklassen für die Zulassung von Anfragen (siehe {@link PriorityGate}).
+ * Der Konfigurationsschlüssel wird unter {@code app.admission.<key>} erwartet.
+ */
+public enum RequestPriority {
+
+    /** Checkout und Änderungen am Warenkorb, dürfen die reservierten Plätze nutzen. */
+    HIGH("high"),
+
+    /** Lesen des Warenkorbs. */
+    NORMAL("normal"),
+
+    /** Bestellhistorie, Suche und Statistik, werden unter Last zurückgestellt oder gekürzt. */
+    LOW("low");
+
+    private final String key;
+
+    RequestPriority(final String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,47 @@
+package de.berlin.htw.control.producer;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.control.store.BasketStore;
+import de.berlin.htw.control.store.InMemoryBasketStore;
+import de.berlin.htw.control.store.RedisBasketStore;
+
+/**
+ * Wählt die Implementierung des {@link BasketStore} über {@code app.basket.store} ({@code redis} oder {@code memory}).
+ * Die nicht gewählte Implementierung wird nie erzeugt.
+ */
+@ApplicationScoped
+public class BasketStoreProducer {
+
+    @Inject
+    Instance<RedisBasketStore> redisStore;
+
+    @Inject
+    Instance<InMemoryBasketStore> memoryStore;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.basket.store", defaultValue = "redis")
+    String store;
+
+    @Produces
+    @ApplicationScoped
+    public BasketStore createBasketStore() {
+        switch (store) {
+            case "redis":
+                return redisStore.get();
+            case "memory":
+                logger.info("Baskets are kept in memory of this node only");
+                return memoryStore.get();
+            default:
+                throw new IllegalStateException("Unknown basket store: " + store + " (expected redis or memory)");
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package de.berlin.htw.control.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Append-only Journal der Warenkorb-Änderungen des {@link InMemoryBasketStore}, damit ein Knoten nach einem
+ * Neustart mit seinen Warenkörben weiterarbeiten kann.
+ * Änderungen werden in Segmente fester Größe geschrieben, die per {@link MappedByteBuffer} in den Speicher
+ * eingeblendet sind (ein Append ist ein Speicherkopieren, kein Systemaufruf). Jeder Eintrag trägt Länge und
+ * CRC32; ein Eintrag der Länge 0 markiert das Ende eines Segments, ein beschädigter Eintrag (abgerissener
+ * Schreibvorgang) beendet die Wiedergabe des Segments.
+ * Periodisch wird der gesamte Zustand als Snapshot geschrieben, danach werden die älteren Segmente gelöscht.
+ * Beim Start wird der neueste Snapshot geladen und die jüngeren Segmente werden wiedergegeben; Warenkörbe,
+ * deren letzte Änderung länger als das Timeout zurückliegt, werden verworfen.
+ * Wann die Daten auf der Platte sind, bestimmt der {@link FsyncMode}.
+ */
+public class BasketJournal implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(BasketJournal.class);
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{16})\\.log");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d{16})\\.snap");
+
+    private static final int SNAPSHOT_MAGIC = 0x42534E50; // "BSNP"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    // Länge und CRC32 vor jedem Eintrag
+    private static final int RECORD_HEADER = 8;
+
+    /**
+     * Wann geschriebene Einträge auf die Platte erzwungen werden.
+     */
+    public enum FsyncMode {
+
+        /** Nie explizit, das Betriebssystem schreibt die Seiten irgendwann (übersteht nur Prozessabstürze). */
+        NONE,
+
+        /** Periodisch durch {@link BasketJournal#force()}, höchstens ein Intervall an Änderungen geht verloren. */
+        INTERVAL,
+
+        /** Nach jedem Eintrag, keine bestätigte Änderung geht verloren. */
+        PER_WRITE
+    }
+
+    /**
+     * Zustand eines Warenkorbs in Snapshot und Wiedergabe.
+     */
+    public static final class BasketState {
+
+        private final String userName;
+        private final Map<Long, String> items;
+        private long modifiedAt;
+
+        /**
+         * @param userName Der Benutzer
+         * @param items Die Artikel in Einfügereihenfolge
+         * @param modifiedAt Zeitpunkt der letzten Änderung in Millisekunden seit der Epoche
+         */
+        public BasketState(final String userName, final Map<Long, String> items, final long modifiedAt) {
+            this.userName = userName;
+            this.items = new LinkedHashMap<>(items);
+            this.modifiedAt = modifiedAt;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public Map<Long, String> getItems() {
+            return items;
+        }
+
+        public long getModifiedAt() {
+            return modifiedAt;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncMode fsyncMode;
+    private final CRC32 crc = new CRC32();
+
+    private long nextSegmentId;
+    private long currentSegmentId = -1;
+    private FileChannel currentChannel;
+    private MappedByteBuffer current;
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(1024);
+
+    /**
+     * @param directory Verzeichnis für Segmente und Snapshots, wird bei Bedarf angelegt
+     * @param segmentSize Größe eines Segments in Bytes (begrenzt auch die Größe eines Eintrags)
+     * @param fsyncMode Wann Einträge auf die Platte erzwungen werden
+     */
+    public BasketJournal(final Path directory, final int segmentSize, final FsyncMode fsyncMode) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncMode = fsyncMode;
+        try {
+            Files.createDirectories(directory);
+            nextSegmentId = Math.max(lastId(SEGMENT_NAME), lastId(SNAPSHOT_NAME)) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Basket journal directory not usable: " + directory, e);
+        }
+    }
+
+    /**
+     * Stellt den Zustand aus dem neuesten Snapshot und den jüngeren Segmenten wieder her.
+     * Muss vor dem ersten Eintrag aufgerufen werden.
+     *
+     * @param nowMillis Aktueller Zeitpunkt in Millisekunden seit der Epoche
+     * @param timeoutMillis Timeout eines Warenkorbs seit seiner letzten Änderung
+     * @return Die noch nicht abgelaufenen Warenkörbe
+     */
+    public synchronized List<BasketState> replay(final long nowMillis, final long timeoutMillis) {
+        final Map<String, BasketState> baskets = new HashMap<>();
+        try {
+            final TreeMap<Long, Path> snapshots = files(SNAPSHOT_NAME);
+            long fromSegment = 0;
+            if (!snapshots.isEmpty()) {
+                fromSegment = readSnapshot(snapshots.lastEntry().getValue(), baskets);
+            }
+            for (Map.Entry<Long, Path> segment : files(SEGMENT_NAME).tailMap(fromSegment, true).entrySet()) {
+                replaySegment(segment.getValue(), baskets, timeoutMillis);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Basket journal replay failed", e);
+        }
+        final List<BasketState> alive = new ArrayList<>();
+        for (BasketState state : baskets.values()) {
+            if (state.modifiedAt + timeoutMillis > nowMillis) {
+                alive.add(state);
+            }
+        }
+        return alive;
+    }
+
+    /**
+     * @param userName Der Benutzer
+     * @param productKey Die gepackte Produktnummer
+     * @param itemJson Der Artikel als JSON
+     * @param timeMillis Zeitpunkt der Änderung
+     */
+    public synchronized void appendPut(final String userName, final long productKey, final String itemJson,
+            final long timeMillis) {
+        final byte[] user = userName.getBytes(StandardCharsets.UTF_8);
+        final byte[] item = itemJson.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer record = record(1 + 8 + 2 + user.length + 8 + 4 + item.length);
+        record.put(OP_PUT).putLong(timeMillis).putShort((short) user.length).put(user)
+                .putLong(productKey).putInt(item.length).put(item);
+        append(record);
+    }
+
+    /**
+     * @param userName Der Benutzer
+     * @param productKey Die gepackte Produktnummer
+     * @param timeMillis Zeitpunkt der Änderung
+     */
+    public synchronized void appendRemove(final String userName, final long productKey, final long timeMillis) {
+        final byte[] user = userName.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer record = record(1 + 8 + 2 + user.length + 8);
+        record.put(OP_REMOVE).putLong(timeMillis).putShort((short) user.length).put(user).putLong(productKey);
+        append(record);
+    }
+
+    /**
+     * @param userName Der Benutzer
+     * @param timeMillis Zeitpunkt der Änderung
+     */
+    public synchronized void appendClear(final String userName, final long timeMillis) {
+        final byte[] user = userName.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer record = record(1 + 8 + 2 + user.length);
+        record.put(OP_CLEAR).putLong(timeMillis).putShort((short) user.length).put(user);
+        append(record);
+    }
+
+    /**
+     * Erzwingt alle bisher geschriebenen Einträge auf die Platte (für {@link FsyncMode#INTERVAL}).
+     */
+    public synchronized void force() {
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    /**
+     * Beginnt ein neues Segment. Ein anschließend geschriebener Snapshot ersetzt alle älteren Segmente.
+     *
+     * @return Die Nummer des neuen Segments für {@link #writeSnapshot(long, List)}
+     */
+    public synchronized long roll() {
+        closeSegment();
+        openSegment();
+        return currentSegmentId;
+    }
+
+    /**
+     * Schreibt einen Snapshot und löscht danach Segmente und Snapshots, die er ersetzt.
+     * Der Zustand muss nach {@link #roll()} erfasst worden sein; Änderungen, die er schon enthält und die auch
+     * im neuen Segment stehen, sind unschädlich, weil jede Änderung einen Artikel absolut setzt oder löscht.
+     *
+     * @param segmentId Rückgabewert von {@link #roll()}
+     * @param baskets Der Zustand aller Warenkörbe
+     */
+    public void writeSnapshot(final long segmentId, final List<BasketState> baskets) {
+        final Path target = directory.resolve(String.format("snapshot-%016d.snap", segmentId));
+        final Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+                final DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(segmentId);
+                out.writeInt(baskets.size());
+                for (BasketState basket : baskets) {
+                    writeString(out, basket.userName);
+                    out.writeLong(basket.modifiedAt);
+                    out.writeInt(basket.items.size());
+                    for (Map.Entry<Long, String> item : basket.items.entrySet()) {
+                        out.writeLong(item.getKey());
+                        writeString(out, item.getValue());
+                    }
+                }
+                out.flush();
+                final long checksum = checked.getChecksum().getValue();
+                out.writeLong(checksum);
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            for (Path old : files(SEGMENT_NAME).headMap(segmentId, false).values()) {
+                Files.deleteIfExists(old);
+            }
+            for (Path old : files(SNAPSHOT_NAME).headMap(segmentId, false).values()) {
+                Files.deleteIfExists(old);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Basket journal snapshot failed", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSegment();
+    }
+
+    private ByteBuffer record(final int payloadLength) {
+        final int length = RECORD_HEADER + payloadLength;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("Journal entry larger than a segment: " + length + " bytes");
+        }
+        if (recordBuffer.capacity() < length) {
+            recordBuffer = ByteBuffer.allocate(Math.max(length, recordBuffer.capacity() * 2));
+        }
+        recordBuffer.clear();
+        recordBuffer.position(RECORD_HEADER);
+        return recordBuffer;
+    }
+
+    private void append(final ByteBuffer record) {
+        final int length = record.position();
+        final int payloadLength = length - RECORD_HEADER;
+        crc.reset();
+        crc.update(record.array(), RECORD_HEADER, payloadLength);
+        record.putInt(0, payloadLength).putInt(4, (int) crc.getValue());
+        record.flip();
+
+        if (current == null) {
+            openSegment();
+        } else if (current.remaining() < length) {
+            // Rest des Segments bleibt mit Nullen gefüllt und markiert dessen Ende
+            closeSegment();
+            openSegment();
+        }
+        final int position = current.position();
+        current.put(record);
+        if (fsyncMode == FsyncMode.PER_WRITE) {
+            current.force(position, length);
+        }
+    }
+
+    private void openSegment() {
+        currentSegmentId = nextSegmentId++;
+        final Path path = directory.resolve(String.format("segment-%016d.log", currentSegmentId));
+        try {
+            currentChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            current = currentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + path, e);
+        }
+    }
+
+    private void closeSegment() {
+        if (current == null) {
+            return;
+        }
+        if (fsyncMode != FsyncMode.NONE) {
+            current.force();
+        }
+        try {
+            currentChannel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close journal segment " + currentSegmentId, e);
+        }
+        current = null;
+        currentChannel = null;
+    }
+
+    private long readSnapshot(final Path path, final Map<String, BasketState> baskets) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), new CRC32())) {
+            final DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a basket snapshot: " + path);
+            }
+            final long segmentId = in.readLong();
+            final int count = in.readInt();
+            final List<BasketState> loaded = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final String userName = readString(in);
+                final long modifiedAt = in.readLong();
+                final int itemCount = in.readInt();
+                final Map<Long, String> items = new LinkedHashMap<>();
+                for (int j = 0; j < itemCount; j++) {
+                    items.put(in.readLong(), readString(in));
+                }
+                loaded.add(new BasketState(userName, items, modifiedAt));
+            }
+            final long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Corrupt basket snapshot: " + path);
+            }
+            for (BasketState state : loaded) {
+                baskets.put(state.userName, state);
+            }
+            return segmentId;
+        } catch (EOFException e) {
+            throw new IOException("Truncated basket snapshot: " + path, e);
+        }
+    }
+
+    private void replaySegment(final Path path, final Map<String, BasketState> baskets, final long timeoutMillis)
+            throws IOException {
+        final ByteBuffer segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        final CRC32 check = new CRC32();
+        byte[] payload = new byte[1024];
+        while (segment.remaining() >= RECORD_HEADER) {
+            final int length = segment.getInt();
+            final int checksum = segment.getInt();
+            if (length <= 0 || length > segment.remaining()) {
+                return;
+            }
+            if (payload.length < length) {
+                payload = new byte[length];
+            }
+            segment.get(payload, 0, length);
+            check.reset();
+            check.update(payload, 0, length);
+            if ((int) check.getValue() != checksum) {
+                LOGGER.warn("Torn or corrupt entry in basket journal " + path.getFileName() + ", ignoring the rest of the segment");
+                return;
+            }
+            apply(ByteBuffer.wrap(payload, 0, length), baskets, timeoutMillis);
+        }
+    }
+
+    private static void apply(final ByteBuffer record, final Map<String, BasketState> baskets, final long timeoutMillis) {
+        final byte op = record.get();
+        final long time = record.getLong();
+        final byte[] user = new byte[record.getShort() & 0xFFFF];
+        record.get(user);
+        final String userName = new String(user, StandardCharsets.UTF_8);
+
+        BasketState state = baskets.get(userName);
+        if (state != null && state.modifiedAt + timeoutMillis <= time) {
+            // Der Warenkorb war zwischen zwei Änderungen abgelaufen
+            baskets.remove(userName);
+            state = null;
+        }
+        switch (op) {
+            case OP_PUT:
+                final long productKey = record.getLong();
+                final byte[] item = new byte[record.getInt()];
+                record.get(item);
+                if (state == null) {
+                    state = new BasketState(userName, Map.of(), time);
+                    baskets.put(userName, state);
+                }
+                state.items.put(productKey, new String(item, StandardCharsets.UTF_8));
+                state.modifiedAt = time;
+                break;
+            case OP_REMOVE:
+                if (state != null && state.items.remove(record.getLong()) != null) {
+                    state.modifiedAt = time;
+                    if (state.items.isEmpty()) {
+                        baskets.remove(userName);
+                    }
+                }
+                break;
+            case OP_CLEAR:
+                baskets.remove(userName);
+                break;
+            default:
+                throw new IllegalStateException("Unknown basket journal operation " + op);
+        }
+    }
+
+    private long lastId(final Pattern pattern) throws IOException {
+        final TreeMap<Long, Path> files = files(pattern);
+        return files.isEmpty() ? -1 : files.lastKey();
+    }
+
+    private TreeMap<Long, Path> files(final Pattern pattern) throws IOException {
+        final TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                final Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return files;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package de.berlin.htw.control.store;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Speicher für Warenkörbe. Ein Warenkorb bildet die gepackte Produktnummer (siehe
+ * {@link de.berlin.htw.control.ProductIds}) auf den Artikel als JSON ab, in Einfügereihenfolge.
+ * Jede Änderung erneuert das Timeout des Warenkorbs ({@link de.berlin.htw.control.BasketController#BASKET_TIMEOUT});
+ * wurde ein Warenkorb so lange nicht geändert, verfällt er. Lesen erneuert das Timeout nicht.
+ * Die Implementierung wird über {@code app.basket.store} gewählt: {@code redis} (Standard, von allen Knoten
+ * geteilt) oder {@code memory} (nur ein Knoten, ohne Netzwerk-Roundtrip).
+ * Zurückgegebene Abbildungen dürfen nicht verändert werden.
+ */
+public interface BasketStore {
+
+    /**
+     * @param userName Der Benutzer
+     * @return Der Inhalt des Warenkorbs, leer wenn es keinen gibt
+     */
+    Map<Long, String> getItems(String userName);
+
+    /**
+     * Prüft den aktuellen Stand und schreibt danach den Artikel. Zwischen Prüfung und Schreiben kann
+     * kein anderer Aufruf den Warenkorb ändern.
+     *
+     * @param userName Der Benutzer
+     * @param productKey Die gepackte Produktnummer
+     * @param itemJson Der Artikel als JSON
+     * @param check Prüft den aktuellen Stand und bricht das Schreiben mit einer Ausnahme ab
+     * @return Der Inhalt des Warenkorbs nach dem Schreiben
+     * @throws jakarta.ws.rs.ClientErrorException mit 409, wenn der Warenkorb auch nach mehreren Versuchen
+     *         gleichzeitig geändert wurde (nur bei optimistischen Implementierungen)
+     */
+    Map<Long, String> putItem(String userName, long productKey, String itemJson, Consumer<Map<Long, String>> check);
+
+    /**
+     * Entfernt einen Artikel.
+     *
+     * @param userName Der Benutzer
+     * @param productKey Die gepackte Produktnummer
+     * @return Der Inhalt des Warenkorbs nach dem Entfernen oder null, wenn der Artikel nicht im Warenkorb war
+     */
+    Map<Long, String> removeItem(String userName, long productKey);
+
+    /**
+     * Entfernt bestellte Artikel, aber nur die, deren Artikel-JSON noch dem gelesenen Stand entspricht.
+     * Artikel, die nach dem Lesen hinzugefügt oder geändert wurden, bleiben im Warenkorb. Prüfen und Entfernen
+     * sind atomar. Das Timeout wird nur erneuert, wenn etwas entfernt wurde und Artikel übrig bleiben.
+     *
+     * @param userName Der Benutzer
+     * @param ordered Die bestellten Artikel (gepackte Produktnummer auf das gelesene Artikel-JSON)
+     * @return Der Inhalt des Warenkorbs nach dem Entfernen, leer wenn nichts übrig ist
+     * @throws jakarta.ws.rs.ClientErrorException mit 409, wenn der Warenkorb auch nach mehreren Versuchen
+     *         gleichzeitig geändert wurde (nur bei optimistischen Implementierungen)
+     */
+    Map<Long, String> removeItems(String userName, Map<Long, String> ordered);
+
+    /**
+     * Löscht den Warenkorb.
+     *
+     * @param userName Der Benutzer
+     * @return true, wenn es einen Warenkorb gab
+     */
+    boolean clear(String userName);
+}
@@ -0,0 +1,112 @@
+package de.berlin.htw.control.store;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed Timing Wheel für viele Timeouts mit grober Auflösung (Varghese/Lauck, wie in Netty).
+ * Ein Timeout landet im Fach {@code deadline / tick mod wheelSize} und zählt die verbleibenden Umläufe herunter;
+ * Einplanen kostet O(1) unabhängig von der Zahl der Timeouts.
+ * {@link #schedule(Object, long)} ist threadsicher, {@link #advance(long, Consumer)} darf nur von einem Thread
+ * (dem Tick-Thread) aufgerufen werden. Einmal eingeplante Timeouts werden nicht gelöscht: Wer ein Timeout
+ * verlängern oder aufheben will, prüft beim Auslösen den aktuellen Stand und plant bei Bedarf neu ein.
+ *
+ * @param <T> Der Wert, der beim Ablauf gemeldet wird
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final int mask;
+    private final List<List<Timeout<T>>> wheel;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+
+    // Nummer des nächsten zu verarbeitenden Ticks
+    private long tick;
+
+    /**
+     * @param tickNanos Länge eines Ticks (Auflösung)
+     * @param wheelSize Anzahl Fächer, wird auf die nächste Zweierpotenz aufgerundet
+     * @param startNanos Startzeitpunkt nach {@link System#nanoTime()}
+     */
+    public HashedTimingWheel(final long tickNanos, final int wheelSize, final long startNanos) {
+        if (tickNanos <= 0 || wheelSize < 1) {
+            throw new IllegalArgumentException("Ungültige Konfiguration des Timing Wheels");
+        }
+        final int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Plant einen Timeout ein. Liegt die Deadline in der Vergangenheit, läuft er mit dem nächsten Tick ab.
+     *
+     * @param value Der zu meldende Wert
+     * @param deadlineNanos Ablaufzeitpunkt nach {@link System#nanoTime()}
+     */
+    public void schedule(final T value, final long deadlineNanos) {
+        pending.add(new Timeout<>(value, deadlineNanos));
+    }
+
+    /**
+     * Verarbeitet alle Ticks, die bis {@code nowNanos} vollständig vergangen sind.
+     *
+     * @param nowNanos Aktueller Zeitpunkt nach {@link System#nanoTime()}
+     * @param expired Erhält jeden abgelaufenen Wert
+     * @return Die Anzahl abgelaufener Timeouts
+     */
+    public int advance(final long nowNanos, final Consumer<T> expired) {
+        int count = 0;
+        while ((tick + 1) * tickNanos <= nowNanos - startNanos) {
+            transferPending();
+            final List<Timeout<T>> bucket = wheel.get((int) (tick & mask));
+            final Iterator<Timeout<T>> timeouts = bucket.iterator();
+            while (timeouts.hasNext()) {
+                final Timeout<T> timeout = timeouts.next();
+                if (timeout.remainingRounds <= 0) {
+                    timeouts.remove();
+                    expired.accept(timeout.value);
+                    count++;
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+            tick++;
+        }
+        return count;
+    }
+
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            final long calculated = Math.max(0, (timeout.deadlineNanos - startNanos) / tickNanos);
+            timeout.remainingRounds = (calculated - tick) / wheel.size();
+            final long ticks = Math.max(calculated, tick);
+            wheel.get((int) (ticks & mask)).add(timeout);
+        }
+    }
+
+    /**
+     * Ein eingeplanter Timeout.
+     */
+    private static final class Timeout<T> {
+
+        private final T value;
+        private final long deadlineNanos;
+        private long remainingRounds;
+
+        private Timeout(final T value, final long deadlineNanos) {
+            this.value = value;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
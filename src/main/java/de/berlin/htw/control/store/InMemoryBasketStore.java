@@ -0,0 +1,405 @@
+package de.berlin.htw.control.store;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.boundary.dto.BasketEvent;
+import de.berlin.htw.control.BasketController;
+import de.berlin.htw.control.BasketEventBus;
+import de.berlin.htw.control.store.BasketJournal.BasketState;
+import de.berlin.htw.control.store.BasketJournal.FsyncMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.configuration.MemorySize;
+
+/**
+ * Warenkörbe im Heap dieses Knotens, für kleine Installationen mit nur einem Knoten (kein Netzwerk-Roundtrip).
+ * Die Warenkörbe sind nach Benutzer auf {@code app.basket.memory.stripes} Streifen verteilt, jeder Streifen hat
+ * eine eigene Sperre, so blockieren sich nur Änderungen im selben Streifen. Ein Warenkorb speichert seine
+ * höchstens zehn Artikel in parallelen Arrays ({@code long} Produktnummern, Artikel-JSON) statt in einer Map
+ * mit geboxten Schlüsseln.
+ * Das gleitende Timeout läuft über ein {@link HashedTimingWheel}: Änderungen verschieben nur die Deadline
+ * des Warenkorbs, erst beim Auslösen wird geprüft, ob er wirklich abgelaufen ist. Abgelaufene Warenkörbe werden
+ * wie bei Redis als {@code expired}-Event gemeldet.
+ * Ohne Journal sind nach einem Neustart alle Warenkörbe verloren. Mit {@code app.basket.journal.enabled} wird
+ * jede Änderung unter der Sperre des Streifens in das {@link BasketJournal} geschrieben, periodisch als Snapshot
+ * verdichtet und beim Start wiedergegeben; Warenkörbe behalten dabei ihre restliche Laufzeit.
+ */
+@ApplicationScoped
+@Typed(InMemoryBasketStore.class)
+public class InMemoryBasketStore implements BasketStore {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    @Inject
+    BasketEventBus basketEvents;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.basket.memory.stripes", defaultValue = "64")
+    int stripeCount;
+
+    @ConfigProperty(name = "app.basket.memory.tick", defaultValue = "1s")
+    Duration tick;
+
+    @ConfigProperty(name = "app.basket.memory.wheel-size", defaultValue = "256")
+    int wheelSize;
+
+    @ConfigProperty(name = "app.basket.journal.enabled", defaultValue = "false")
+    boolean journalEnabled;
+
+    @ConfigProperty(name = "app.basket.journal.dir", defaultValue = "data/basket-journal")
+    String journalDir;
+
+    @ConfigProperty(name = "app.basket.journal.fsync", defaultValue = "interval")
+    String journalFsync;
+
+    @ConfigProperty(name = "app.basket.journal.fsync-interval", defaultValue = "1s")
+    Duration journalFsyncInterval;
+
+    @ConfigProperty(name = "app.basket.journal.segment-size", defaultValue = "64M")
+    MemorySize journalSegmentSize;
+
+    @ConfigProperty(name = "app.basket.journal.snapshot-interval", defaultValue = "1m")
+    Duration journalSnapshotInterval;
+
+    private Stripe[] stripes;
+
+    // null, wenn das Journal abgeschaltet ist
+    private BasketJournal journal;
+
+    private HashedTimingWheel<Entry> timeouts;
+
+    private ScheduledExecutorService ticker;
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final long timeoutNanos = BasketController.BASKET_TIMEOUT.toNanos();
+
+    private Counter expired;
+
+    @PostConstruct
+    void init() {
+        // Zweierpotenz, damit der Streifen per Bitmaske bestimmt werden kann
+        final int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        timeouts = new HashedTimingWheel<>(tick.toNanos(), wheelSize, System.nanoTime());
+        expired = registry.counter("basket.memory.expired");
+        Gauge.builder("basket.memory.size", size, AtomicInteger::get)
+                .description("Warenkörbe im In-Memory-Speicher").register(registry);
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "basket-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (journalEnabled) {
+            openJournal();
+        }
+        ticker.scheduleAtFixedRate(this::expire, tick.toNanos(), tick.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private void openJournal() {
+        final FsyncMode fsyncMode = FsyncMode.valueOf(journalFsync.toUpperCase(Locale.ROOT).replace('-', '_'));
+        journal = new BasketJournal(Paths.get(journalDir), (int) journalSegmentSize.asLongValue(), fsyncMode);
+
+        final long start = System.nanoTime();
+        final long nowMillis = System.currentTimeMillis();
+        final List<BasketState> restored = journal.replay(nowMillis, BasketController.BASKET_TIMEOUT.toMillis());
+        for (BasketState state : restored) {
+            final Entry entry = new Entry(state.getUserName());
+            state.getItems().forEach(entry::put);
+            entry.modifiedAt = state.getModifiedAt();
+            // restliche Laufzeit übernehmen, die Wanduhr des letzten Laufs ist die einzige gemeinsame Zeitbasis
+            entry.deadline = start + TimeUnit.MILLISECONDS.toNanos(state.getModifiedAt() - nowMillis) + timeoutNanos;
+            stripe(entry.userName).baskets.put(entry.userName, entry);
+            timeouts.schedule(entry, entry.deadline);
+        }
+        size.set(restored.size());
+        logger.infof("Restored %d baskets from the journal in %d ms", restored.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        // Sofort verdichten, damit die wiedergegebenen Segmente nicht bei jedem Start erneut gelesen werden
+        snapshot();
+        if (fsyncMode == FsyncMode.INTERVAL) {
+            ticker.scheduleAtFixedRate(this::forceJournal, journalFsyncInterval.toNanos(),
+                    journalFsyncInterval.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        ticker.scheduleAtFixedRate(this::snapshot, journalSnapshotInterval.toNanos(),
+                journalSnapshotInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Verdichtet das Journal: neues Segment beginnen, dann den Zustand Streifen für Streifen erfassen.
+     * Änderungen zwischen beiden Schritten stehen im neuen Segment und ggf. schon im Snapshot, die
+     * Wiedergabe ist dafür unempfindlich (siehe {@link BasketJournal#writeSnapshot(long, List)}).
+     */
+    void snapshot() {
+        try {
+            final long segmentId = journal.roll();
+            final List<BasketState> baskets = new ArrayList<>(size.get());
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    for (Entry entry : stripe.baskets.values()) {
+                        baskets.add(new BasketState(entry.userName, entry.toMap(), entry.modifiedAt));
+                    }
+                }
+            }
+            journal.writeSnapshot(segmentId, baskets);
+        } catch (RuntimeException e) {
+            logger.error("Basket journal snapshot failed", e);
+        }
+    }
+
+    private void forceJournal() {
+        try {
+            journal.force();
+        } catch (RuntimeException e) {
+            logger.error("Basket journal fsync failed", e);
+        }
+    }
+
+    @Override
+    public Map<Long, String> getItems(final String userName) {
+        final Stripe stripe = stripe(userName);
+        synchronized (stripe) {
+            final Entry entry = stripe.baskets.get(userName);
+            return entry == null ? Map.of() : entry.toMap();
+        }
+    }
+
+    @Override
+    public Map<Long, String> putItem(final String userName, final long productKey, final String itemJson,
+            final Consumer<Map<Long, String>> check) {
+        final Stripe stripe = stripe(userName);
+        synchronized (stripe) {
+            Entry entry = stripe.baskets.get(userName);
+            check.accept(entry == null ? Map.of() : Collections.unmodifiableMap(entry.toMap()));
+            if (entry == null) {
+                entry = new Entry(userName);
+                stripe.baskets.put(userName, entry);
+                size.incrementAndGet();
+                entry.deadline = System.nanoTime() + timeoutNanos;
+                timeouts.schedule(entry, entry.deadline);
+            } else {
+                entry.deadline = System.nanoTime() + timeoutNanos;
+            }
+            entry.put(productKey, itemJson);
+            entry.modifiedAt = System.currentTimeMillis();
+            if (journal != null) {
+                journal.appendPut(userName, productKey, itemJson, entry.modifiedAt);
+            }
+            return entry.toMap();
+        }
+    }
+
+    @Override
+    public Map<Long, String> removeItem(final String userName, final long productKey) {
+        final Stripe stripe = stripe(userName);
+        synchronized (stripe) {
+            final Entry entry = stripe.baskets.get(userName);
+            if (entry == null || !entry.remove(productKey)) {
+                return null;
+            }
+            entry.deadline = System.nanoTime() + timeoutNanos;
+            entry.modifiedAt = System.currentTimeMillis();
+            if (journal != null) {
+                journal.appendRemove(userName, productKey, entry.modifiedAt);
+            }
+            if (entry.size == 0) {
+                // wie bei Redis: ein leerer Hash existiert nicht mehr
+                stripe.baskets.remove(userName);
+                size.decrementAndGet();
+            }
+            return entry.toMap();
+        }
+    }
+
+    @Override
+    public Map<Long, String> removeItems(final String userName, final Map<Long, String> ordered) {
+        final Stripe stripe = stripe(userName);
+        synchronized (stripe) {
+            final Entry entry = stripe.baskets.get(userName);
+            if (entry == null) {
+                return Map.of();
+            }
+            boolean removed = false;
+            for (Map.Entry<Long, String> item : ordered.entrySet()) {
+                final int index = entry.indexOf(item.getKey());
+                if (index < 0 || !entry.items[index].equals(item.getValue())) {
+                    // nach dem Lesen geändert oder schon entfernt
+                    continue;
+                }
+                entry.remove(item.getKey());
+                removed = true;
+                entry.modifiedAt = System.currentTimeMillis();
+                if (journal != null) {
+                    journal.appendRemove(userName, item.getKey(), entry.modifiedAt);
+                }
+            }
+            if (removed) {
+                entry.deadline = System.nanoTime() + timeoutNanos;
+            }
+            if (entry.size == 0) {
+                stripe.baskets.remove(userName);
+                size.decrementAndGet();
+            }
+            return entry.toMap();
+        }
+    }
+
+    @Override
+    public boolean clear(final String userName) {
+        final Stripe stripe = stripe(userName);
+        synchronized (stripe) {
+            if (stripe.baskets.remove(userName) == null) {
+                return false;
+            }
+            if (journal != null) {
+                journal.appendClear(userName, System.currentTimeMillis());
+            }
+            size.decrementAndGet();
+            return true;
+        }
+    }
+
+    private void expire() {
+        try {
+            final long now = System.nanoTime();
+            timeouts.advance(now, entry -> {
+                final Stripe stripe = stripe(entry.userName);
+                synchronized (stripe) {
+                    // gelöscht oder durch einen neuen Warenkorb ersetzt: dieser Timeout ist hinfällig
+                    if (stripe.baskets.get(entry.userName) != entry) {
+                        return;
+                    }
+                    if (entry.deadline - now > 0) {
+                        // inzwischen geändert, gleitendes Timeout neu einplanen
+                        timeouts.schedule(entry, entry.deadline);
+                        return;
+                    }
+                    stripe.baskets.remove(entry.userName);
+                    size.decrementAndGet();
+                }
+                expired.increment();
+                basketEvents.publish(entry.userName, BasketEvent.of(BasketEvent.EXPIRED, null, null, null));
+            });
+        } catch (RuntimeException e) {
+            // Der Tick-Thread darf nicht sterben, sonst läuft kein Warenkorb mehr ab
+            logger.error("Basket expiry failed", e);
+        }
+    }
+
+    private Stripe stripe(final String userName) {
+        final int hash = userName.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * Ein Streifen der Warenkörbe mit eigener Sperre (das Objekt selbst).
+     */
+    private static final class Stripe {
+
+        private final Map<String, Entry> baskets = new HashMap<>();
+    }
+
+    /**
+     * Ein Warenkorb: Artikel in Einfügereihenfolge, Ablaufzeitpunkt und letzte Änderung. Nur unter der Sperre des Streifens benutzen.
+     */
+    private static final class Entry {
+
+        private final String userName;
+        private long[] productKeys = new long[INITIAL_CAPACITY];
+        private String[] items = new String[INITIAL_CAPACITY];
+        private int size;
+        private long deadline;
+        // Wanduhr der letzten Änderung, für Journal und Snapshot
+        private long modifiedAt;
+
+        private Entry(final String userName) {
+            this.userName = userName;
+        }
+
+        private void put(final long productKey, final String itemJson) {
+            final int index = indexOf(productKey);
+            if (index >= 0) {
+                items[index] = itemJson;
+                return;
+            }
+            if (size == productKeys.length) {
+                productKeys = Arrays.copyOf(productKeys, size * 2);
+                items = Arrays.copyOf(items, size * 2);
+            }
+            productKeys[size] = productKey;
+            items[size] = itemJson;
+            size++;
+        }
+
+        private boolean remove(final long productKey) {
+            final int index = indexOf(productKey);
+            if (index < 0) {
+                return false;
+            }
+            final int moved = size - index - 1;
+            System.arraycopy(productKeys, index + 1, productKeys, index, moved);
+            System.arraycopy(items, index + 1, items, index, moved);
+            items[--size] = null;
+            return true;
+        }
+
+        private int indexOf(final long productKey) {
+            for (int i = 0; i < size; i++) {
+                if (productKeys[i] == productKey) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Map<Long, String> toMap() {
+            final Map<Long, String> map = new LinkedHashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                map.put(productKeys[i], items[i]);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.berlin.htw.control.store;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Typed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.core.Response;
+
+import de.berlin.htw.control.BasketCache;
+import de.berlin.htw.control.BasketController;
+import de.berlin.htw.control.RedisCommandGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.hash.HashCommands;
+import io.quarkus.redis.datasource.keys.KeyCommands;
+import io.quarkus.redis.datasource.transactions.OptimisticLockingTransactionResult;
+
+/**
+ * Warenkörbe in Redis, von allen Knoten geteilt. Jeder Warenkorb ist ein Hash {@code basket:<user>}
+ * (Feld: gepackte Produktnummer, Wert: Artikel-JSON) mit TTL. Änderungen laufen als optimistische
+ * Transaktion (WATCH/MULTI/EXEC), alle Befehle über den {@link RedisCommandGuard}.
+ * Lesezugriffe nutzen den optionalen L1-Cache ({@link BasketCache}).
+ */
+@ApplicationScoped
+@Typed(RedisBasketStore.class)
+public class RedisBasketStore implements BasketStore {
+
+    // Maximale Anzahl Versuche, wenn ein Warenkorb während einer Änderung gleichzeitig geändert wurde (WATCH)
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 5;
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @Inject
+    RedisCommandGuard redisGuard;
+
+    @Inject
+    BasketCache basketCache;
+
+    @Inject
+    MeterRegistry registry;
+
+    private HashCommands<String, Long, String> hashCommands;
+
+    private KeyCommands<String> keyCommands;
+
+    // Zählt Wiederholungen von Änderungen, deren WATCH-Transaktion verworfen wurde
+    private Counter optimisticRetries;
+
+    @PostConstruct
+    void init() {
+        hashCommands = redisDS.hash(String.class, Long.class, String.class);
+        keyCommands = redisDS.key();
+        optimisticRetries = registry.counter("basket.optimistic.retries");
+    }
+
+    @Override
+    public Map<Long, String> getItems(final String userName) {
+        final String basketKey = getBasketKey(userName);
+        Map<Long, String> items = basketCache.get(basketKey);
+        if (items == null) {
+            final long loadEpoch = basketCache.beginLoad();
+            items = redisGuard.call(() -> hashCommands.hgetall(basketKey));
+            basketCache.put(basketKey, items, loadEpoch);
+        }
+        return items;
+    }
+
+    /**
+     * Die Prüfung läuft auf dem beobachteten Stand (HGETALL unter WATCH); wurde der Warenkorb
+     * zwischenzeitlich geändert, verwirft Redis die Transaktion und es wird erneut geprüft.
+     * Der Rückgabewert ist der beobachtete Stand plus Artikel, WATCH garantiert, dass sich dazwischen nichts geändert hat.
+     */
+    @Override
+    public Map<Long, String> putItem(final String userName, final long productKey, final String itemJson,
+            final Consumer<Map<Long, String>> check) {
+        final String basketKey = getBasketKey(userName);
+        for (int attempt = 1; attempt <= MAX_OPTIMISTIC_ATTEMPTS; attempt++) {
+            OptimisticLockingTransactionResult<Map<Long, String>> result = redisGuard.call(() -> redisDS.withTransaction(ds -> {
+                Map<Long, String> current = ds.hash(String.class, Long.class, String.class).hgetall(basketKey);
+                check.accept(current);
+                return current;
+            }, (observed, tx) -> {
+                tx.hash(String.class, Long.class, String.class).hset(basketKey, productKey, itemJson);
+                tx.key().expire(basketKey, BasketController.BASKET_TIMEOUT.getSeconds()); // Timeout bei jeder Änderung erneuern
+            }, basketKey));
+            if (!result.discarded()) {
+                basketCache.invalidate(basketKey);
+                Map<Long, String> updated = new LinkedHashMap<>(result.getPreTransactionResult());
+                updated.put(productKey, itemJson);
+                return updated;
+            }
+            optimisticRetries.increment();
+        }
+        throw new ClientErrorException("Der Warenkorb wurde gleichzeitig geändert, bitte erneut versuchen.", Response.Status.CONFLICT);
+    }
+
+    /**
+     * Prüfung unter WATCH (HGETALL), danach HDEL und EXPIRE in MULTI/EXEC, aber nur wenn der Artikel im
+     * beobachteten Stand liegt: ein DELETE auf einen fehlenden Artikel darf das Timeout nicht verlängern.
+     * Wurde der Warenkorb zwischenzeitlich geändert, verwirft Redis die Transaktion und es wird erneut geprüft.
+     */
+    @Override
+    public Map<Long, String> removeItem(final String userName, final long productKey) {
+        final String basketKey = getBasketKey(userName);
+        for (int attempt = 1; attempt <= MAX_OPTIMISTIC_ATTEMPTS; attempt++) {
+            OptimisticLockingTransactionResult<Map<Long, String>> result = redisGuard.call(() -> redisDS.withTransaction(
+                    ds -> ds.hash(String.class, Long.class, String.class).hgetall(basketKey),
+                    (observed, tx) -> {
+                        if (observed.containsKey(productKey)) {
+                            tx.hash(String.class, Long.class, String.class).hdel(basketKey, productKey);
+                            if (observed.size() > 1) {
+                                tx.key().expire(basketKey, BasketController.BASKET_TIMEOUT.getSeconds());
+                            }
+                        }
+                    }, basketKey));
+            if (!result.discarded()) {
+                if (!result.getPreTransactionResult().containsKey(productKey)) {
+                    return null;
+                }
+                basketCache.invalidate(basketKey);
+                Map<Long, String> remaining = new LinkedHashMap<>(result.getPreTransactionResult());
+                remaining.remove(productKey);
+                return remaining;
+            }
+            optimisticRetries.increment();
+        }
+        throw new ClientErrorException("Der Warenkorb wurde gleichzeitig geändert, bitte erneut versuchen.", Response.Status.CONFLICT);
+    }
+
+    /**
+     * Vergleich unter WATCH (HGETALL), danach HDEL der unveränderten Artikel in MULTI/EXEC; wurde der Warenkorb
+     * zwischenzeitlich geändert, verwirft Redis die Transaktion und es wird erneut verglichen.
+     */
+    @Override
+    public Map<Long, String> removeItems(final String userName, final Map<Long, String> ordered) {
+        final String basketKey = getBasketKey(userName);
+        for (int attempt = 1; attempt <= MAX_OPTIMISTIC_ATTEMPTS; attempt++) {
+            OptimisticLockingTransactionResult<Map<Long, String>> result = redisGuard.call(() -> redisDS.withTransaction(
+                    ds -> ds.hash(String.class, Long.class, String.class).hgetall(basketKey),
+                    (observed, tx) -> {
+                        List<Long> unchanged = unchangedItems(observed, ordered);
+                        if (!unchanged.isEmpty()) {
+                            tx.hash(String.class, Long.class, String.class).hdel(basketKey, unchanged.toArray(new Long[0]));
+                            if (unchanged.size() < observed.size()) {
+                                tx.key().expire(basketKey, BasketController.BASKET_TIMEOUT.getSeconds());
+                            }
+                        }
+                    }, basketKey));
+            if (!result.discarded()) {
+                basketCache.invalidate(basketKey);
+                Map<Long, String> remaining = new LinkedHashMap<>(result.getPreTransactionResult());
+                remaining.keySet().removeAll(unchangedItems(result.getPreTransactionResult(), ordered));
+                return remaining;
+            }
+            optimisticRetries.increment();
+        }
+        throw new ClientErrorException("Der Warenkorb wurde gleichzeitig geändert, bitte erneut versuchen.", Response.Status.CONFLICT);
+    }
+
+    private static List<Long> unchangedItems(final Map<Long, String> current, final Map<Long, String> ordered) {
+        List<Long> unchanged = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : current.entrySet()) {
+            if (entry.getValue().equals(ordered.get(entry.getKey()))) {
+                unchanged.add(entry.getKey());
+            }
+        }
+        return unchanged;
+    }
+
+    @Override
+    public boolean clear(final String userName) {
+        final String basketKey = getBasketKey(userName);
+        int deleted = redisGuard.call(() -> keyCommands.del(basketKey));
+        basketCache.invalidate(basketKey);
+        return deleted > 0;
+    }
+
+    private static String getBasketKey(final String userName) {
+        return BasketController.BASKET_KEY_PREFIX + userName;
+    }
+}
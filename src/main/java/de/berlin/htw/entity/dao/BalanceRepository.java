@@ -0,0 +1,281 @@
+package de.berlin.htw.entity.dao;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+
+/**
+ * Repository für das Guthaben-Journal: Buchungen in BALANCE_TRANSACTION und Zwischenstände in BALANCE_SNAPSHOT,
+ * beide hängen an einer Kontozeile in BALANCE_ACCOUNT und werden mit ihr (und damit mit dem Benutzer) gelöscht.
+ * Beide Tabellen werden nur angehängt, keine Zeile wird je geändert. Das Guthaben eines Benutzers ist der neueste
+ * Snapshot plus die Summe aller Buchungen mit größerer ID.
+ * <p>
+ * Wer bucht oder einen Snapshot schreibt, sperrt vorher die Kontozeile mit {@link #lockAccount(Integer)}; die Zeile
+ * in USER bleibt dabei frei, Änderungen am Benutzer warten also nicht auf Buchungen und umgekehrt. Dadurch werden
+ * die Buchungen eines Kontos in der Reihenfolge ihrer IDs festgeschrieben und ein Snapshot kann keine Buchung mit
+ * kleinerer ID übersehen, die erst nach ihm festgeschrieben wird.
+ */
+@ApplicationScoped
+public class BalanceRepository {
+
+    /**
+     * Buchungsarten, Gutschriften sind positiv, Abbuchungen negativ.
+     */
+    public enum Type {
+        TOPUP, DEBIT, REFUND, ADJUSTMENT
+    }
+
+    /**
+     * Eine Aufladung für {@link #appendTopUps(List)}.
+     */
+    public static final class TopUp {
+
+        private final Integer userId;
+        private final BigDecimal amount;
+        private final String reference;
+
+        public TopUp(final Integer userId, final BigDecimal amount, final String reference) {
+            this.userId = userId;
+            this.amount = amount;
+            this.reference = reference;
+        }
+
+        public Integer getUserId() {
+            return userId;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public String getReference() {
+            return reference;
+        }
+    }
+
+    // %1$s: leer für eine konsistente Leseoperation, " FOR SHARE" für eine sperrende (aktueller Stand)
+    private static final String BALANCE_QUERY =
+            "SELECT s.BALANCE + COALESCE((SELECT SUM(t.AMOUNT) FROM BALANCE_TRANSACTION t"
+            + " WHERE t.USER_ID = s.USER_ID AND t.ID > s.TRANSACTION_ID%1$s), 0)"
+            + " FROM BALANCE_SNAPSHOT s WHERE s.USER_ID = ?1 ORDER BY s.TRANSACTION_ID DESC LIMIT 1%1$s";
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Rechnet einen Betrag in die Genauigkeit der Tabellen um (2 Nachkommastellen).
+     *
+     * @param amount Der Betrag
+     * @return Der gerundete Betrag
+     */
+    public static BigDecimal toAmount(final float amount) {
+        return new BigDecimal(Float.toString(amount)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Sperrt das Konto eines Benutzers bis zum Ende der Transaktion (Zeilensperre auf BALANCE_ACCOUNT).
+     *
+     * @param userId Die ID des Benutzers
+     * @return true, wenn das Konto existiert
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public boolean lockAccount(final Integer userId) {
+        return !entityManager.createNativeQuery("SELECT USER_ID FROM BALANCE_ACCOUNT WHERE USER_ID = ?1 FOR UPDATE")
+                .setParameter(1, userId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    /**
+     * Liest das Guthaben eines Benutzers (konsistente Leseoperation, innerhalb einer Transaktion ggf. veraltet).
+     *
+     * @param userId Die ID des Benutzers
+     * @return Das Guthaben oder null, wenn das Konto kein Journal hat
+     */
+    public BigDecimal findBalance(final Integer userId) {
+        return queryBalance(userId, "");
+    }
+
+    /**
+     * Liest den aktuellen, festgeschriebenen Stand des Guthabens, unabhängig vom Lesezeitpunkt der Transaktion.
+     * Nur unter der Kontosperre verwenden, sonst kann sich das Ergebnis sofort wieder ändern.
+     *
+     * @param userId Die ID des Benutzers
+     * @return Das Guthaben oder null, wenn das Konto kein Journal hat
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public BigDecimal findCurrentBalance(final Integer userId) {
+        return queryBalance(userId, " FOR SHARE");
+    }
+
+    @SuppressWarnings("unchecked")
+    private BigDecimal queryBalance(final Integer userId, final String locking) {
+        final List<Object> rows = entityManager.createNativeQuery(String.format(BALANCE_QUERY, locking))
+                .setParameter(1, userId)
+                .getResultList();
+        if (rows.isEmpty() || rows.get(0) == null) {
+            return null;
+        }
+        return new BigDecimal(rows.get(0).toString());
+    }
+
+    /**
+     * Legt das Konto eines neuen Benutzers mit seinem Startguthaben an.
+     *
+     * @param userId Die ID des Benutzers
+     * @param balance Das Startguthaben
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void openAccount(final Integer userId, final BigDecimal balance) {
+        entityManager.createNativeQuery("INSERT INTO BALANCE_ACCOUNT (USER_ID, CREATED_AT) VALUES (?1, CURRENT_TIMESTAMP)")
+                .setParameter(1, userId)
+                .executeUpdate();
+        entityManager.createNativeQuery(
+                "INSERT INTO BALANCE_SNAPSHOT (USER_ID, TRANSACTION_ID, BALANCE, CREATED_AT)"
+                + " VALUES (?1, 0, ?2, CURRENT_TIMESTAMP)")
+                .setParameter(1, userId)
+                .setParameter(2, balance)
+                .executeUpdate();
+    }
+
+    /**
+     * Löscht ein Konto samt Journal (Buchungen und Snapshots folgen per ON DELETE CASCADE).
+     * Beim Löschen des Benutzers geschieht das ohnehin über den Fremdschlüssel.
+     *
+     * @param userId Die ID des Benutzers
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void closeAccount(final Integer userId) {
+        entityManager.createNativeQuery("DELETE FROM BALANCE_ACCOUNT WHERE USER_ID = ?1")
+                .setParameter(1, userId)
+                .executeUpdate();
+    }
+
+    /**
+     * Hängt eine Buchung an das Journal an. Das Konto muss gesperrt sein.
+     *
+     * @param userId Die ID des Benutzers
+     * @param type Die Buchungsart
+     * @param amount Der Betrag mit Vorzeichen
+     * @param orderId Die Bestellung einer Abbuchung oder null
+     * @param reference Eine je Benutzer eindeutige externe Referenz oder null
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void append(final Integer userId, final Type type, final BigDecimal amount, final Integer orderId,
+            final String reference) {
+        entityManager.createNativeQuery(
+                "INSERT INTO BALANCE_TRANSACTION (USER_ID, TYPE, AMOUNT, ORDER_ID, REFERENCE, CREATED_AT)"
+                + " VALUES (?1, ?2, ?3, ?4, ?5, CURRENT_TIMESTAMP)")
+                .setParameter(1, userId)
+                .setParameter(2, type.name())
+                .setParameter(3, amount)
+                .setParameter(4, orderId)
+                .setParameter(5, reference)
+                .executeUpdate();
+    }
+
+    /**
+     * Sperrt mehrere Konten bis zum Ende der Transaktion, in aufsteigender Reihenfolge der IDs
+     * (so können sich zwei Sammelbuchungen nicht gegenseitig blockieren).
+     *
+     * @param userIds Die IDs der Benutzer
+     * @return Die IDs der existierenden Konten
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    @SuppressWarnings("unchecked")
+    public Set<Integer> lockAccounts(final Collection<Integer> userIds) {
+        final List<Object> rows = entityManager.createNativeQuery(
+                "SELECT USER_ID FROM BALANCE_ACCOUNT WHERE USER_ID IN (?1) ORDER BY USER_ID FOR UPDATE")
+                .setParameter(1, userIds)
+                .getResultList();
+        final Set<Integer> existing = new HashSet<>(rows.size() * 2);
+        for (Object row : rows) {
+            existing.add(((Number) row).intValue());
+        }
+        return existing;
+    }
+
+    /**
+     * Hängt mehrere Aufladungen mit einer Anweisung an. Aufladungen, deren Referenz für den Benutzer schon
+     * gebucht ist, werden übersprungen (Wiederholung einer Importdatei). Die Konten müssen gesperrt sein.
+     * INSERT IGNORE übergeht auch andere Fehler (z.B. zu lange Werte), Betrag und Referenz müssen daher
+     * vorher geprüft sein.
+     *
+     * @param topUps Die Aufladungen mit Referenz (höchstens 64 Zeichen) und positivem Betrag
+     * @return Die Anzahl tatsächlich gebuchter Aufladungen
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public int appendTopUps(final List<TopUp> topUps) {
+        final StringBuilder sql = new StringBuilder(
+                "INSERT IGNORE INTO BALANCE_TRANSACTION (USER_ID, TYPE, AMOUNT, ORDER_ID, REFERENCE, CREATED_AT) VALUES ");
+        for (int i = 0; i < topUps.size(); i++) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append("(?, '").append(Type.TOPUP.name()).append("', ?, NULL, ?, CURRENT_TIMESTAMP)");
+        }
+
+        final Query query = entityManager.createNativeQuery(sql.toString());
+        int position = 1;
+        for (TopUp topUp : topUps) {
+            query.setParameter(position++, topUp.getUserId());
+            query.setParameter(position++, topUp.getAmount());
+            query.setParameter(position++, topUp.getReference());
+        }
+        return query.executeUpdate();
+    }
+
+    /**
+     * Schreibt einen Snapshot über alle Buchungen seit dem letzten Snapshot. Das Konto muss gesperrt sein.
+     *
+     * @param userId Die ID des Benutzers
+     * @return true, wenn ein Snapshot geschrieben wurde (false: keine neuen Buchungen)
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public boolean appendSnapshot(final Integer userId) {
+        return entityManager.createNativeQuery(
+                "INSERT INTO BALANCE_SNAPSHOT (USER_ID, TRANSACTION_ID, BALANCE, CREATED_AT)"
+                + " SELECT s.USER_ID, MAX(t.ID), s.BALANCE + SUM(t.AMOUNT), CURRENT_TIMESTAMP"
+                + " FROM BALANCE_SNAPSHOT s"
+                + " JOIN BALANCE_TRANSACTION t ON t.USER_ID = s.USER_ID AND t.ID > s.TRANSACTION_ID"
+                + " WHERE s.USER_ID = ?1"
+                + " AND s.TRANSACTION_ID = (SELECT MAX(l.TRANSACTION_ID) FROM BALANCE_SNAPSHOT l WHERE l.USER_ID = ?1)"
+                + " GROUP BY s.USER_ID, s.BALANCE")
+                .setParameter(1, userId)
+                .executeUpdate() == 1;
+    }
+
+    /**
+     * Sucht Konten, deren Guthaben aus vielen Buchungen seit dem letzten Snapshot berechnet werden muss.
+     *
+     * @param minTransactions Mindestanzahl Buchungen seit dem letzten Snapshot
+     * @param maxResults Maximale Anzahl Konten
+     * @return Die IDs der Benutzer
+     */
+    @SuppressWarnings("unchecked")
+    public List<Integer> findSnapshotCandidates(final int minTransactions, final int maxResults) {
+        final List<Object> rows = entityManager.createNativeQuery(
+                    "SELECT s.USER_ID FROM BALANCE_SNAPSHOT s"
+                    + " JOIN BALANCE_TRANSACTION t ON t.USER_ID = s.USER_ID AND t.ID > s.TRANSACTION_ID"
+                    + " WHERE s.TRANSACTION_ID = (SELECT MAX(l.TRANSACTION_ID) FROM BALANCE_SNAPSHOT l WHERE l.USER_ID = s.USER_ID)"
+                    + " GROUP BY s.USER_ID HAVING COUNT(*) >= ?1")
+                .setParameter(1, minTransactions)
+                .setMaxResults(maxResults)
+                .getResultList();
+        final List<Integer> userIds = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            userIds.add(((Number) row).intValue());
+        }
+        return userIds;
+    }
+}
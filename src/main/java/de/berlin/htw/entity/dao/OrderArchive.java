@@ -0,0 +1,205 @@
+package de.berlin.htw.entity.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import de.berlin.htw.entity.dao.OrderArchiveFile.Directory;
+import de.berlin.htw.entity.dao.OrderArchiveFile.Row;
+import de.berlin.htw.entity.dao.OrderArchiveFile.UserTotals;
+import de.berlin.htw.entity.dto.OrderEntity;
+import de.berlin.htw.entity.dto.UserEntity;
+
+/**
+ * Kalte Ablage für Bestellungen aus archivierten Partitionen: eine {@link OrderArchiveFile} pro Partition
+ * im Verzeichnis {@code app.orders.archive.dir}. Die Benutzerverzeichnisse aller Dateien bleiben im Speicher,
+ * so kostet eine Anfrage für einen Benutzer ohne archivierte Bestellungen keinen Plattenzugriff.
+ * Archivierte Bestellungen sind schreibgeschützt und werden als nicht persistente {@link OrderEntity} geliefert.
+ */
+@ApplicationScoped
+public class OrderArchive {
+
+    private static final String SUFFIX = ".oarc";
+    private static final String TEMP_SUFFIX = SUFFIX + ".tmp";
+
+    @ConfigProperty(name = "app.orders.archive.dir", defaultValue = "data/order-archive")
+    String archiveDir;
+
+    private Path directory;
+
+    private final Map<Path, Directory> directories = new ConcurrentHashMap<>();
+
+    // neueste Partition zuerst, wird bei jeder Änderung als Ganzes ersetzt
+    private volatile List<Map.Entry<Path, Directory>> files = List.of();
+
+    @PostConstruct
+    void init() {
+        directory = Paths.get(archiveDir);
+        refresh();
+    }
+
+    /**
+     * @param userId Die Benutzer-ID
+     * @return Anzahl archivierter Bestellungen des Benutzers
+     */
+    public int countOrders(final int userId) {
+        int count = 0;
+        for (Map.Entry<Path, Directory> file : files) {
+            count += file.getValue().count(userId);
+        }
+        return count;
+    }
+
+    /**
+     * Fasst Anzahl, Summe und letzte Bestellung je Benutzer über alle veröffentlichten Archive zusammen
+     * (aus den Verzeichnissen im Speicher, ohne Plattenzugriff).
+     *
+     * @return Die Summen je Benutzer mit archivierten Bestellungen
+     */
+    public Collection<UserTotals> summarizeUsers() {
+        final Map<Integer, UserTotals> totals = new HashMap<>();
+        for (Map.Entry<Path, Directory> file : files) {
+            for (UserTotals user : file.getValue().getUserTotals()) {
+                totals.merge(user.getUserId(), user, UserTotals::add);
+            }
+        }
+        return totals.values();
+    }
+
+    /**
+     * Liest archivierte Bestellungen eines Benutzers, neueste zuerst (wie die Historie im Hot-Tier).
+     *
+     * @param user Der Benutzer
+     * @param firstResult Index der ersten archivierten Bestellung
+     * @param maxResults Maximale Anzahl Bestellungen
+     * @return Die Bestellungen (nicht persistent, Positionen in ITEMS_DATA)
+     */
+    public List<OrderEntity> findOrdersByUser(final UserEntity user, final int firstResult, final int maxResults) {
+        final List<OrderEntity> orders = new ArrayList<>();
+        int skip = firstResult;
+        for (Map.Entry<Path, Directory> file : files) {
+            if (orders.size() >= maxResults) {
+                break;
+            }
+            final int count = file.getValue().count(user.getId());
+            if (skip >= count) {
+                skip -= count;
+                continue;
+            }
+            for (Row row : OrderArchiveFile.read(file.getKey(), file.getValue(), user.getId(), skip, maxResults - orders.size())) {
+                final OrderEntity order = new OrderEntity();
+                order.setId(row.getOrderId());
+                order.setUser(user);
+                order.setTotal(row.getTotal());
+                order.setOrderDate(row.getOrderDate());
+                order.setItemsData(row.getItemsData());
+                orders.add(order);
+            }
+            skip = 0;
+        }
+        return orders;
+    }
+
+    /**
+     * Schreibt das Archiv einer Partition zunächst als temporäre Datei; sichtbar wird es erst mit
+     * {@link #publish(String)}, nachdem die Partition in der Datenbank gelöscht ist.
+     *
+     * @param partition Der Partitionsname
+     * @param upperBound Obergrenze der Partition in Sekunden seit der Epoche
+     * @param rows Die Bestellungen der Partition
+     */
+    public void write(final String partition, final long upperBound, final List<Row> rows) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Order archive directory not usable: " + directory, e);
+        }
+        OrderArchiveFile.write(directory.resolve(partition + TEMP_SUFFIX), upperBound, rows);
+    }
+
+    /**
+     * Macht ein geschriebenes Archiv für Lesezugriffe sichtbar.
+     *
+     * @param partition Der Partitionsname
+     */
+    public void publish(final String partition) {
+        try {
+            Files.move(directory.resolve(partition + TEMP_SUFFIX), directory.resolve(partition + SUFFIX),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not publish order archive " + partition, e);
+        }
+        refresh();
+    }
+
+    /**
+     * Verwirft ein nicht veröffentlichtes Archiv.
+     *
+     * @param partition Der Partitionsname
+     */
+    public void discard(final String partition) {
+        try {
+            Files.deleteIfExists(directory.resolve(partition + TEMP_SUFFIX));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not discard order archive " + partition, e);
+        }
+    }
+
+    /**
+     * @return Partitionen, deren Archiv geschrieben, aber noch nicht veröffentlicht ist (z.B. nach einem Absturz)
+     */
+    public List<String> findUnpublished() {
+        return list(TEMP_SUFFIX);
+    }
+
+    /**
+     * @return Partitionen mit veröffentlichtem Archiv
+     */
+    public List<String> findPublished() {
+        return list(SUFFIX);
+    }
+
+    /**
+     * Liest das Archivverzeichnis neu ein (Verzeichnisse bereits bekannter Dateien kommen aus dem Cache).
+     */
+    public synchronized void refresh() {
+        final List<Map.Entry<Path, Directory>> loaded = new ArrayList<>();
+        for (String partition : list(SUFFIX)) {
+            final Path path = directory.resolve(partition + SUFFIX);
+            loaded.add(Map.entry(path, directories.computeIfAbsent(path, OrderArchiveFile::readDirectory)));
+        }
+        loaded.sort(Comparator.comparingLong((Map.Entry<Path, Directory> file) -> file.getValue().getUpperBound()).reversed());
+        directories.keySet().retainAll(loaded.stream().map(Map.Entry::getKey).toList());
+        files = List.copyOf(loaded);
+    }
+
+    private List<String> list(final String suffix) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(suffix))
+                    .map(name -> name.substring(0, name.length() - suffix.length()))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list order archive " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package de.berlin.htw.entity.dao;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archivdatei für eine Partition von ORDERS: ein komprimierter Block pro Benutzer.
+ * Aufbau (Version 2):
+ * <pre>
+ * int     Magic "OARC"
+ * byte    Version (2)
+ * long    Obergrenze der Partition (Sekunden seit der Epoche, exklusiv)
+ * int     Anzahl Bestellungen
+ * int     Anzahl Benutzer
+ * je Benutzer (nach ID sortiert):
+ *   int   Benutzer-ID
+ *   int   Anzahl Bestellungen
+ *   long  Summe TOTAL in Cent
+ *   long  letzte ORDER_DATE (Millisekunden)
+ *   long  Position des Blocks in der Datei
+ *   int   Rohlänge des Blocks
+ *   int   komprimierte Länge des Blocks
+ * je Benutzer ein Deflate-Block, darin je Bestellung:
+ *   ID           varint, Differenz zur Vorzeile (ZigZag)
+ *   TOTAL        varint, Cent (ZigZag)
+ *   ORDER_DATE   varlong, Millisekunden, Differenz zur Vorzeile (ZigZag)
+ *   ITEMS_LENGTH varint
+ *   ITEMS_DATA   siehe OrderItemsCodec
+ * long    CRC32 über alles davor
+ * </pre>
+ * Die Zeilen eines Blocks sind wie die Historie sortiert (neueste zuerst).
+ * Die Prüfsumme wird einmal beim Lesen des Verzeichnisses geprüft. Eine Seite der Historie liest danach nur
+ * den Block des Benutzers; Dateien, in denen der Benutzer in diesem Monat nicht bestellt hat, werden über das
+ * Verzeichnis ohne Plattenzugriff übersprungen.
+ */
+public final class OrderArchiveFile {
+
+    private static final int MAGIC = 0x4F415243; // "OARC"
+    private static final int VERSION = 2;
+
+    // Kopf und Verzeichniseintrag in Bytes
+    private static final int HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int ENTRY_SIZE = 4 * Integer.BYTES + 3 * Long.BYTES;
+
+    private static final Comparator<Row> HISTORY_ORDER = Comparator.comparingInt(Row::getUserId)
+            .thenComparing(Row::getOrderDate, Comparator.reverseOrder())
+            .thenComparing(Row::getOrderId, Comparator.reverseOrder());
+
+    private OrderArchiveFile() {
+    }
+
+    /**
+     * Eine archivierte Bestellung.
+     */
+    public static final class Row {
+
+        private final int orderId;
+        private final int userId;
+        private final float total;
+        private final LocalDateTime orderDate;
+        private final byte[] itemsData;
+
+        /**
+         * @param orderId ORDERS.ID
+         * @param userId ORDERS.USER_ID
+         * @param total ORDERS.TOTAL
+         * @param orderDate ORDERS.ORDER_DATE
+         * @param itemsData Die Positionen im Format von OrderItemsCodec
+         */
+        public Row(final int orderId, final int userId, final float total, final LocalDateTime orderDate,
+                final byte[] itemsData) {
+            this.orderId = orderId;
+            this.userId = userId;
+            this.total = total;
+            this.orderDate = orderDate;
+            this.itemsData = itemsData;
+        }
+
+        public int getOrderId() {
+            return orderId;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public float getTotal() {
+            return total;
+        }
+
+        public LocalDateTime getOrderDate() {
+            return orderDate;
+        }
+
+        public byte[] getItemsData() {
+            return itemsData;
+        }
+    }
+
+    /**
+     * Anzahl, Summe und letzte Bestellung eines Benutzers im Archiv (für USER_ORDER_STATS).
+     */
+    public static final class UserTotals {
+
+        private final int userId;
+        private final int orderCount;
+        private final long totalCents;
+        private final LocalDateTime lastOrderDate;
+
+        UserTotals(final int userId, final int orderCount, final long totalCents, final LocalDateTime lastOrderDate) {
+            this.userId = userId;
+            this.orderCount = orderCount;
+            this.totalCents = totalCents;
+            this.lastOrderDate = lastOrderDate;
+        }
+
+        public int getUserId() {
+            return userId;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        /**
+         * @return Summe der archivierten Bestellungen (auf Cent gerundet wie im Archiv)
+         */
+        public BigDecimal getTotalSpent() {
+            return BigDecimal.valueOf(totalCents, 2);
+        }
+
+        public LocalDateTime getLastOrderDate() {
+            return lastOrderDate;
+        }
+
+        UserTotals add(final UserTotals other) {
+            return new UserTotals(userId, orderCount + other.orderCount, totalCents + other.totalCents,
+                    lastOrderDate.isAfter(other.lastOrderDate) ? lastOrderDate : other.lastOrderDate);
+        }
+    }
+
+    /**
+     * Kopf und Benutzerverzeichnis einer Archivdatei.
+     */
+    public static final class Directory {
+
+        private final long upperBound;
+        private final int rowCount;
+        private final int[] userIds;
+        private final int[] rowCounts;
+        private final long[] totalCents;
+        private final long[] lastOrderMillis;
+        private final long[] blockOffsets;
+        private final int[] rawLengths;
+        private final int[] compressedLengths;
+
+        private Directory(final long upperBound, final int rowCount, final int userCount) {
+            this.upperBound = upperBound;
+            this.rowCount = rowCount;
+            this.userIds = new int[userCount];
+            this.rowCounts = new int[userCount];
+            this.totalCents = new long[userCount];
+            this.lastOrderMillis = new long[userCount];
+            this.blockOffsets = new long[userCount];
+            this.rawLengths = new int[userCount];
+            this.compressedLengths = new int[userCount];
+        }
+
+        /**
+         * @return Obergrenze der archivierten Partition in Sekunden seit der Epoche
+         */
+        public long getUpperBound() {
+            return upperBound;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @param userId Die Benutzer-ID
+         * @return Anzahl archivierter Bestellungen des Benutzers in dieser Datei
+         */
+        public int count(final int userId) {
+            final int index = Arrays.binarySearch(userIds, userId);
+            return index < 0 ? 0 : rowCounts[index];
+        }
+
+        /**
+         * @return Anzahl, Summe und letzte Bestellung je Benutzer in dieser Datei
+         */
+        public List<UserTotals> getUserTotals() {
+            final List<UserTotals> totals = new ArrayList<>(userIds.length);
+            for (int i = 0; i < userIds.length; i++) {
+                totals.add(new UserTotals(userIds[i], rowCounts[i], totalCents[i], toDateTime(lastOrderMillis[i])));
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Schreibt eine Archivdatei und erzwingt sie auf die Platte.
+     *
+     * @param path Ziel (wird überschrieben)
+     * @param upperBound Obergrenze der Partition in Sekunden seit der Epoche
+     * @param rows Die Bestellungen der Partition in beliebiger Reihenfolge
+     */
+    public static void write(final Path path, final long upperBound, final List<Row> rows) {
+        final List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(HISTORY_ORDER);
+
+        // Blöcke zuerst komprimieren, ihre Positionen stehen im Verzeichnis davor
+        final List<int[]> users = new ArrayList<>();
+        final List<long[]> sums = new ArrayList<>();
+        final List<byte[]> blocks = new ArrayList<>();
+        BlockWriter block = null;
+        long previousId = 0;
+        long previousDate = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            final Row row = sorted.get(i);
+            if (block == null || row.userId != sorted.get(i - 1).userId) {
+                if (block != null) {
+                    blocks.add(block.compress(users.get(users.size() - 1)));
+                }
+                block = new BlockWriter();
+                previousId = 0;
+                previousDate = 0;
+                users.add(new int[] { row.userId, 0, 0 });
+                // neueste Bestellung zuerst: die erste Zeile ist die letzte Bestellung
+                sums.add(new long[] { 0, toMillis(row.orderDate) });
+            }
+            users.get(users.size() - 1)[1]++;
+            final long cents = Math.round(row.total * 100d);
+            sums.get(sums.size() - 1)[0] += cents;
+            block.writeVarLong(zigZag(row.orderId - previousId));
+            previousId = row.orderId;
+            block.writeVarLong(zigZag(cents));
+            final long date = toMillis(row.orderDate);
+            block.writeVarLong(zigZag(date - previousDate));
+            previousDate = date;
+            block.writeVarLong(row.itemsData.length);
+            block.write(row.itemsData, 0, row.itemsData.length);
+        }
+        if (block != null) {
+            blocks.add(block.compress(users.get(users.size() - 1)));
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + users.size() * ENTRY_SIZE
+                + blocks.stream().mapToInt(compressed -> compressed.length).sum() + Long.BYTES);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(upperBound);
+            out.writeInt(sorted.size());
+            out.writeInt(users.size());
+            long offset = HEADER_SIZE + (long) users.size() * ENTRY_SIZE;
+            for (int i = 0; i < users.size(); i++) {
+                final int[] user = users.get(i);
+                out.writeInt(user[0]);
+                out.writeInt(user[1]);
+                out.writeLong(sums.get(i)[0]);
+                out.writeLong(sums.get(i)[1]);
+                out.writeLong(offset);
+                out.writeInt(user[2]);
+                out.writeInt(blocks.get(i).length);
+                offset += blocks.get(i).length;
+            }
+            for (byte[] compressed : blocks) {
+                out.write(compressed);
+            }
+            out.flush();
+
+            final CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+        } catch (IOException e) {
+            // ByteArrayOutputStream wirft keine IOException
+            throw new UncheckedIOException(e);
+        }
+
+        try (FileOutputStream file = new FileOutputStream(path.toFile())) {
+            bytes.writeTo(file);
+            file.getFD().sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write order archive " + path, e);
+        }
+    }
+
+    /**
+     * Liest Kopf und Benutzerverzeichnis und prüft die Prüfsumme der ganzen Datei (einmal je Datei,
+     * das Verzeichnis wird von {@link OrderArchive} gehalten).
+     *
+     * @param path Die Archivdatei
+     * @return Das Verzeichnis
+     * @throws IllegalStateException bei beschädigten oder fremden Dateien
+     */
+    public static Directory readDirectory(final Path path) {
+        final CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+                CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file), crc);
+                DataInputStream in = new DataInputStream(checked)) {
+            final long size = Files.size(path);
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IllegalStateException("Not an order archive: " + path);
+            }
+            final long upperBound = in.readLong();
+            final int rowCount = in.readInt();
+            final int userCount = in.readInt();
+            final long blocksOffset = HEADER_SIZE + (long) userCount * ENTRY_SIZE;
+            if (rowCount < 0 || userCount < 0 || blocksOffset > size - Long.BYTES) {
+                throw new IllegalStateException("Corrupt order archive: " + path);
+            }
+            final Directory directory = new Directory(upperBound, rowCount, userCount);
+            for (int i = 0; i < userCount; i++) {
+                directory.userIds[i] = in.readInt();
+                directory.rowCounts[i] = in.readInt();
+                directory.totalCents[i] = in.readLong();
+                directory.lastOrderMillis[i] = in.readLong();
+                directory.blockOffsets[i] = in.readLong();
+                directory.rawLengths[i] = in.readInt();
+                directory.compressedLengths[i] = in.readInt();
+                if (directory.blockOffsets[i] < blocksOffset || directory.rawLengths[i] < 0
+                        || directory.compressedLengths[i] < 0
+                        || directory.blockOffsets[i] + directory.compressedLengths[i] > size - Long.BYTES) {
+                    throw new IllegalStateException("Corrupt order archive: " + path);
+                }
+            }
+            // Blöcke nur für die Prüfsumme lesen
+            long remaining = size - Long.BYTES - blocksOffset;
+            while (remaining > 0) {
+                final long skipped = checked.skip(remaining);
+                if (skipped <= 0) {
+                    throw new IllegalStateException("Corrupt order archive: " + path);
+                }
+                remaining -= skipped;
+            }
+            final long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IllegalStateException("Corrupt order archive: " + path);
+            }
+            return directory;
+        } catch (EOFException e) {
+            throw new IllegalStateException("Corrupt order archive: " + path, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read order archive " + path, e);
+        }
+    }
+
+    /**
+     * Liest einen Ausschnitt der archivierten Bestellungen eines Benutzers, neueste zuerst.
+     * Gelesen und dekomprimiert wird nur der Block des Benutzers.
+     *
+     * @param path Die Archivdatei
+     * @param directory Ihr Verzeichnis
+     * @param userId Die Benutzer-ID
+     * @param offset Index der ersten Bestellung des Benutzers in dieser Datei
+     * @param maxRows Maximale Anzahl Bestellungen
+     * @return Die Bestellungen
+     */
+    public static List<Row> read(final Path path, final Directory directory, final int userId, final int offset,
+            final int maxRows) {
+        final int index = Arrays.binarySearch(directory.userIds, userId);
+        if (index < 0 || offset >= directory.rowCounts[index] || maxRows <= 0) {
+            return List.of();
+        }
+        final int to = Math.min(directory.rowCounts[index], offset + maxRows);
+        final ByteBuffer block = inflate(readBlock(path, directory.blockOffsets[index],
+                directory.compressedLengths[index]), directory.rawLengths[index], path);
+
+        final List<Row> rows = new ArrayList<>(to - offset);
+        long id = 0;
+        long date = 0;
+        for (int row = 0; row < to; row++) {
+            id += unZigZag(readVarLong(block));
+            final float total = unZigZag(readVarLong(block)) / 100f;
+            date += unZigZag(readVarLong(block));
+            final int length = (int) readVarLong(block);
+            if (row < offset) {
+                block.position(block.position() + length);
+                continue;
+            }
+            final byte[] itemsData = new byte[length];
+            block.get(itemsData);
+            rows.add(new Row((int) id, userId, total, toDateTime(date), itemsData));
+        }
+        return rows;
+    }
+
+    private static byte[] readBlock(final Path path, final long position, final int length) {
+        final ByteBuffer block = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (block.hasRemaining()) {
+                if (channel.read(block, position + block.position()) < 0) {
+                    throw new IllegalStateException("Corrupt order archive: " + path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read order archive " + path, e);
+        }
+        return block.array();
+    }
+
+    private static ByteBuffer inflate(final byte[] compressed, final int rawLength, final Path path) {
+        final byte[] raw = new byte[rawLength];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            if (inflater.inflate(raw) != rawLength) {
+                throw new IllegalStateException("Corrupt block in order archive " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block in order archive " + path, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static long toMillis(final LocalDateTime dateTime) {
+        // ORDER_DATE ist ohne Zeitzone gemappt, UTC dient nur als feste Umrechnung
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(final long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+
+    private static long zigZag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(final ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Puffer für den Block eines Benutzers, wird am Ende als Ganzes komprimiert.
+     */
+    private static final class BlockWriter extends ByteArrayOutputStream {
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        /**
+         * @param user Verzeichniseintrag [Benutzer-ID, Anzahl, Rohlänge], die Rohlänge wird gesetzt
+         * @return Der komprimierte Block
+         */
+        private byte[] compress(final int[] user) {
+            user[2] = count;
+            final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                deflater.setInput(buf, 0, count);
+                deflater.finish();
+                final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, count / 2));
+                final byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    compressed.write(chunk, 0, deflater.deflate(chunk));
+                }
+                return compressed.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package de.berlin.htw.entity.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+/**
+ * Repository für die Monatspartitionen von ORDERS und ORDER_ITEM (MySQL, RANGE über UNIX_TIMESTAMP(ORDER_DATE)).
+ * Beide Tabellen haben immer dieselben Partitionen: {@code p_old} (alles vor 2025), je Monat {@code pJJJJMM}
+ * und {@code p_future} (MAXVALUE), aus der neue Monate abgespalten werden.
+ * DDL-Anweisungen schließen in MySQL die laufende Transaktion implizit ab.
+ */
+@ApplicationScoped
+public class OrderPartitionRepository {
+
+    /** Die partitionierten Tabellen. */
+    public static final List<String> TABLES = List.of("ORDERS", "ORDER_ITEM");
+
+    /** Auffangpartition für die Zukunft. */
+    public static final String FUTURE = "p_future";
+
+    // Partitionsnamen werden in DDL eingesetzt, daher nur bekannte Formen zulassen
+    private static final Pattern PARTITION_NAME = Pattern.compile("p_old|p\\d{6}");
+
+    private static final DateTimeFormatter MONTH_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    // Name der Sperre für GET_LOCK, gilt für alle Knoten an derselben Datenbank
+    private static final String MAINTENANCE_LOCK = "order-partition-maintenance";
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    DataSource dataSource;
+
+    /**
+     * Eine Partition mit ihrer (exklusiven) Obergrenze.
+     */
+    public static final class Partition {
+
+        private final String name;
+        private final Long upperBound;
+        private final LocalDateTime upperDate;
+
+        Partition(final String name, final Long upperBound, final LocalDateTime upperDate) {
+            this.name = name;
+            this.upperBound = upperBound;
+            this.upperDate = upperDate;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return Obergrenze in Sekunden seit der Epoche, null bei MAXVALUE
+         */
+        public Long getUpperBound() {
+            return upperBound;
+        }
+
+        /**
+         * @return Obergrenze in der Zeitzone der Datenbank-Sitzung, null bei MAXVALUE
+         */
+        public LocalDateTime getUpperDate() {
+            return upperDate;
+        }
+    }
+
+    /**
+     * Cluster-weite Sperre für die Partitionspflege. MySQL bindet GET_LOCK an die Sitzung, daher hält die Sperre
+     * eine eigene Verbindung, bis sie geschlossen wird.
+     */
+    public static final class MaintenanceLock implements AutoCloseable {
+
+        private final Connection connection;
+
+        private MaintenanceLock(final Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() {
+            // die Verbindung geht zurück in den Pool, die Sperre muss also ausdrücklich freigegeben werden
+            try (Connection pooled = connection;
+                    PreparedStatement release = pooled.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                release.setString(1, MAINTENANCE_LOCK);
+                release.execute();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not release the order partition maintenance lock", e);
+            }
+        }
+    }
+
+    /**
+     * Versucht, die Sperre für die Partitionspflege ohne Warten zu bekommen.
+     *
+     * @return Die Sperre oder null, wenn ein anderer Knoten sie hält
+     */
+    public MaintenanceLock tryLock() {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                lock.setString(1, MAINTENANCE_LOCK);
+                try (ResultSet result = lock.executeQuery()) {
+                    if (result.next() && result.getInt(1) == 1) {
+                        final MaintenanceLock acquired = new MaintenanceLock(connection);
+                        connection = null;
+                        return acquired;
+                    }
+                    return null;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not acquire the order partition maintenance lock", e);
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    // Sperre wurde nicht vergeben, nichts freizugeben
+                }
+            }
+        }
+    }
+
+    /**
+     * @param month Ein Monat
+     * @return Der Name seiner Partition
+     */
+    public static String partitionName(final YearMonth month) {
+        return month.format(MONTH_NAME);
+    }
+
+    /**
+     * Liest die Partitionen einer Tabelle in aufsteigender Reihenfolge.
+     *
+     * @param table ORDERS oder ORDER_ITEM
+     * @return Die Partitionen, leer wenn die Tabelle nicht partitioniert ist
+     */
+    @SuppressWarnings("unchecked")
+    public List<Partition> findPartitions(final String table) {
+        final List<Object[]> rows = entityManager.createNativeQuery(
+                    "SELECT PARTITION_NAME, IF(PARTITION_DESCRIPTION = 'MAXVALUE', NULL, PARTITION_DESCRIPTION),"
+                    + " IF(PARTITION_DESCRIPTION = 'MAXVALUE', NULL, FROM_UNIXTIME(PARTITION_DESCRIPTION))"
+                    + " FROM information_schema.PARTITIONS"
+                    + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?1 AND PARTITION_NAME IS NOT NULL"
+                    + " ORDER BY PARTITION_ORDINAL_POSITION")
+                .setParameter(1, requireTable(table))
+                .getResultList();
+        final List<Partition> partitions = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            partitions.add(new Partition((String) row[0],
+                    row[1] == null ? null : Long.valueOf(row[1].toString()), toDateTime(row[2])));
+        }
+        return partitions;
+    }
+
+    /**
+     * Spaltet Monatspartitionen aus {@code p_future} ab (vorhandene Zeilen werden umverteilt).
+     *
+     * @param table ORDERS oder ORDER_ITEM
+     * @param months Die neuen Monate, aufsteigend und lückenlos nach der letzten Monatspartition
+     */
+    @Transactional
+    public void addMonthlyPartitions(final String table, final List<YearMonth> months) {
+        final StringBuilder ddl = new StringBuilder("ALTER TABLE ").append(requireTable(table))
+                .append(" REORGANIZE PARTITION ").append(FUTURE).append(" INTO (");
+        for (YearMonth month : months) {
+            ddl.append("PARTITION ").append(partitionName(month))
+                    .append(" VALUES LESS THAN (UNIX_TIMESTAMP('").append(month.plusMonths(1)).append("-01 00:00:00')), ");
+        }
+        ddl.append("PARTITION ").append(FUTURE).append(" VALUES LESS THAN MAXVALUE)");
+        entityManager.createNativeQuery(ddl.toString()).executeUpdate();
+    }
+
+    /**
+     * Liest alle Bestellungen einer Partition.
+     *
+     * @param partition Der Partitionsname
+     * @return Zeilen mit [ID (Integer), USER_ID (Integer), TOTAL (Number), ORDER_DATE (LocalDateTime), ITEMS_DATA (byte[])]
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findPartitionOrders(final String partition) {
+        final List<Object[]> rows = entityManager.createNativeQuery(
+                    "SELECT ID, USER_ID, TOTAL, ORDER_DATE, ITEMS_DATA FROM ORDERS PARTITION (" + requirePartition(partition) + ")")
+                .getResultList();
+        for (Object[] row : rows) {
+            row[3] = toDateTime(row[3]);
+        }
+        return rows;
+    }
+
+    /**
+     * Liest alle Positionen einer Partition, nach Bestellung und Einfügereihenfolge sortiert.
+     *
+     * @param partition Der Partitionsname
+     * @return Zeilen mit [ORDER_ID (Integer), PRODUCT_ID (Number), PRODUCT_NAME (String), COUNT (Integer), PRICE (Number)]
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findPartitionItems(final String partition) {
+        return entityManager.createNativeQuery(
+                    "SELECT ORDER_ID, PRODUCT_ID, PRODUCT_NAME, COUNT, PRICE FROM ORDER_ITEM PARTITION ("
+                    + requirePartition(partition) + ") ORDER BY ORDER_ID, ID")
+                .getResultList();
+    }
+
+    /**
+     * Löscht eine Partition mit allen Zeilen.
+     *
+     * @param table ORDERS oder ORDER_ITEM
+     * @param partition Der Partitionsname
+     */
+    @Transactional
+    public void dropPartition(final String table, final String partition) {
+        entityManager.createNativeQuery("ALTER TABLE " + requireTable(table) + " DROP PARTITION " + requirePartition(partition))
+                .executeUpdate();
+    }
+
+    private static String requireTable(final String table) {
+        if (!TABLES.contains(table)) {
+            throw new IllegalArgumentException("Not a partitioned table: " + table);
+        }
+        return table;
+    }
+
+    private static String requirePartition(final String partition) {
+        if (!PARTITION_NAME.matcher(partition).matches()) {
+            throw new IllegalArgumentException("Not an archivable partition: " + partition);
+        }
+        return partition;
+    }
+
+    private static LocalDateTime toDateTime(final Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
@@ -1,38 +1,212 @@
 package de.berlin.htw.entity.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import de.berlin.htw.entity.dto.OrderEntity;
 import de.berlin.htw.entity.dto.UserEntity;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 
 /**
- * Repository für Bestellungen
+ * Repository für Bestellungen.
+ * Die Historie eines Benutzers umfasst auch archivierte Partitionen ({@link OrderArchive}); diese liegen
+ * immer zeitlich vor allen Bestellungen in der Datenbank und werden hinten angehängt.
  */
 @ApplicationScoped
 public class OrderRepository {
 
     @PersistenceContext
     EntityManager entityManager;
+
+    @Inject
+    ReadReplicaRouter router;
+
+    @Inject
+    OrderArchive archive;
     
     /**
-     * Findet alle Bestellungen eines Benutzers
+     * Findet alle Bestellungen eines Benutzers einschließlich archivierter.
+     * Die Abfrage läuft über das Read-Replica, außer der Benutzer hat gerade selbst bestellt.
      * 
      * @param user Der Benutzer, dessen Bestellungen gesucht werden
      * @return Eine Liste aller Bestellungen des Benutzers
      */
     public List<OrderEntity> findOrdersByUser(UserEntity user) {
-        TypedQuery<OrderEntity> query = entityManager.createQuery(
-                "SELECT o FROM OrderEntity o WHERE o.user = :user ORDER BY o.orderDate DESC", 
-                OrderEntity.class);
-        query.setParameter("user", user);
-        return query.getResultList();
+        List<OrderEntity> orders = router.read(user.getName(), em -> {
+            TypedQuery<OrderEntity> query = em.createQuery(
+                    "SELECT o FROM OrderEntity o WHERE o.user.id = :userId ORDER BY o.orderDate DESC", 
+                    OrderEntity.class);
+            query.setParameter("userId", user.getId());
+            return query.getResultList();
+        });
+        if (archive.countOrders(user.getId()) == 0) {
+            return orders;
+        }
+        List<OrderEntity> all = new ArrayList<>(orders);
+        all.addAll(archive.findOrdersByUser(user, 0, Integer.MAX_VALUE));
+        return all;
+    }
+
+    /**
+     * Findet eine Seite der Bestellungen eines Benutzers, neueste zuerst.
+     * Reicht die Datenbank nicht mehr für die ganze Seite, wird sie aus dem Archiv aufgefüllt.
+     * 
+     * @param user Der Benutzer, dessen Bestellungen gesucht werden
+     * @param firstResult Index der ersten Bestellung
+     * @param maxResults Maximale Anzahl Bestellungen
+     * @return Die Bestellungen der Seite
+     */
+    public List<OrderEntity> findOrdersByUser(UserEntity user, int firstResult, int maxResults) {
+        List<OrderEntity> orders = router.read(user.getName(), em -> {
+            TypedQuery<OrderEntity> query = em.createQuery(
+                    "SELECT o FROM OrderEntity o WHERE o.user.id = :userId ORDER BY o.orderDate DESC, o.id DESC", 
+                    OrderEntity.class);
+            query.setParameter("userId", user.getId());
+            query.setFirstResult(firstResult);
+            query.setMaxResults(maxResults);
+            return query.getResultList();
+        });
+        if (orders.size() >= maxResults || archive.countOrders(user.getId()) == 0) {
+            return orders;
+        }
+        // Datenbank erschöpft: nur bei einer leeren Folgeseite ist die Anzahl dort unbekannt
+        long hotCount = orders.isEmpty() && firstResult > 0 ? countOrdersByUser(user) : (long) firstResult + orders.size();
+        int archiveOffset = (int) Math.max(0, firstResult - hotCount);
+        List<OrderEntity> page = new ArrayList<>(orders);
+        page.addAll(archive.findOrdersByUser(user, archiveOffset, maxResults - orders.size()));
+        return page;
+    }
+
+    /**
+     * Zählt die Bestellungen eines Benutzers in der Datenbank (ohne Archiv).
+     * 
+     * @param user Der Benutzer
+     * @return Die Anzahl
+     */
+    public long countOrdersByUser(UserEntity user) {
+        return router.read(user.getName(), em -> em.createQuery(
+                    "SELECT COUNT(o) FROM OrderEntity o WHERE o.user.id = :userId", Long.class)
+                .setParameter("userId", user.getId())
+                .getSingleResult());
     }
     
+    /**
+     * Lädt bestimmte Bestellungen eines Benutzers (z.B. Treffer einer Suche).
+     * Bestellungen anderer Benutzer werden nie zurückgegeben, auch wenn ihre ID übergeben wird.
+     * 
+     * @param user Der Benutzer
+     * @param orderIds Die IDs der gesuchten Bestellungen
+     * @return Die gefundenen Bestellungen, neueste zuerst
+     */
+    public List<OrderEntity> findOrdersByIds(UserEntity user, Collection<Integer> orderIds) {
+        return router.read(user.getName(), em -> em.createQuery(
+                    "SELECT o FROM OrderEntity o WHERE o.user.id = :userId AND o.id IN :orderIds ORDER BY o.orderDate DESC",
+                    OrderEntity.class)
+                .setParameter("userId", user.getId())
+                .setParameter("orderIds", orderIds)
+                .getResultList());
+    }
+
+    /**
+     * Liest für alle Positionen eines Benutzers nur Bestell-ID, Produktnummer und Produktname
+     * (z.B. für den Neuaufbau des Suchindex), ohne die Entities zu laden.
+     * Liest immer von der primären Datenbank: der Suchindex ist gemeinsamer Zustand und darf keinen
+     * veralteten Stand eines Replikats übernehmen.
+     * 
+     * @param user Der Benutzer
+     * @return Zeilen mit [Bestell-ID (Integer), Produktnummer (Long), Produktname (String)]
+     */
+    public List<Object[]> findItemSearchData(UserEntity user) {
+        return entityManager.createQuery(
+                    "SELECT i.order.id, i.productId, i.productName FROM OrderItemEntity i WHERE i.order.user.id = :userId",
+                    Object[].class)
+                .setParameter("userId", user.getId())
+                .getResultList();
+    }
+
+    /**
+     * Wie {@link #findItemSearchData(UserEntity)}, aber nur für die angegebenen Bestellungen.
+     * 
+     * @param user Der Benutzer
+     * @param orderIds Die IDs der Bestellungen
+     * @return Zeilen mit [Bestell-ID (Integer), Produktnummer (Long), Produktname (String)]
+     */
+    public List<Object[]> findItemSearchData(UserEntity user, Collection<Integer> orderIds) {
+        return entityManager.createQuery(
+                    "SELECT i.order.id, i.productId, i.productName FROM OrderItemEntity i"
+                    + " WHERE i.order.user.id = :userId AND i.order.id IN :orderIds",
+                    Object[].class)
+                .setParameter("userId", user.getId())
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * Liest für alle Bestellungen eines Benutzers mit eingebetteten Positionen nur ID und ITEMS_DATA
+     * (von der primären Datenbank, siehe {@link #findItemSearchData(UserEntity)}).
+     * 
+     * @param user Der Benutzer
+     * @return Zeilen mit [Bestell-ID (Integer), ITEMS_DATA (byte[])]
+     */
+    public List<Object[]> findEmbeddedItemData(UserEntity user) {
+        return entityManager.createQuery(
+                    "SELECT o.id, o.itemsData FROM OrderEntity o WHERE o.user.id = :userId AND o.itemsData IS NOT NULL",
+                    Object[].class)
+                .setParameter("userId", user.getId())
+                .getResultList();
+    }
+
+    /**
+     * Wie {@link #findEmbeddedItemData(UserEntity)}, aber nur für die angegebenen Bestellungen.
+     * 
+     * @param user Der Benutzer
+     * @param orderIds Die IDs der Bestellungen
+     * @return Zeilen mit [Bestell-ID (Integer), ITEMS_DATA (byte[])]
+     */
+    public List<Object[]> findEmbeddedItemData(UserEntity user, Collection<Integer> orderIds) {
+        return entityManager.createQuery(
+                    "SELECT o.id, o.itemsData FROM OrderEntity o"
+                    + " WHERE o.user.id = :userId AND o.id IN :orderIds AND o.itemsData IS NOT NULL",
+                    Object[].class)
+                .setParameter("userId", user.getId())
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    /**
+     * Liest die IDs aller Bestellungen eines Benutzers von der primären Datenbank (ohne Archiv).
+     * 
+     * @param user Der Benutzer
+     * @return Die Bestell-IDs
+     */
+    public List<Integer> findOrderIds(UserEntity user) {
+        return entityManager.createQuery(
+                    "SELECT o.id FROM OrderEntity o WHERE o.user.id = :userId", Integer.class)
+                .setParameter("userId", user.getId())
+                .getResultList();
+    }
+
+    /**
+     * Findet Bestellungen, deren Positionen noch nicht eingebettet sind (für den Backfill von ITEMS_DATA).
+     * 
+     * @param maxResults Maximale Anzahl Bestellungen
+     * @return Bestellungen mit ORDER_ITEM-Zeilen, aber ohne ITEMS_DATA, nach ID sortiert
+     */
+    public List<OrderEntity> findOrdersWithoutItemsData(int maxResults) {
+        return entityManager.createQuery(
+                    "SELECT o FROM OrderEntity o WHERE o.itemsData IS NULL"
+                    + " AND EXISTS (SELECT i.id FROM OrderItemEntity i WHERE i.order = o) ORDER BY o.id",
+                    OrderEntity.class)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
     /**
      * Speichert eine neue Bestellung in der Datenbank
      * 
@@ -0,0 +1,140 @@
+package de.berlin.htw.entity.dao;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import de.berlin.htw.entity.dto.ProductEntity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.transaction.Transactional;
+
+/**
+ * Repository für den Produktkatalog
+ */
+@ApplicationScoped
+public class ProductRepository {
+
+    // Anzahl Produkte pro Multi-Row-INSERT beim Massenimport
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * Lädt die ersten Produkte des Katalogs, z.B. zum Vorwärmen des Caches
+     * 
+     * @param maxResults Die maximale Anzahl an Produkten
+     * @return Die Produkte, sortiert nach ID
+     */
+    public List<ProductEntity> findAll(final int maxResults) {
+        return entityManager.createQuery("SELECT p FROM ProductEntity p ORDER BY p.id", ProductEntity.class)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Findet ein Produkt anhand seiner Produkt-ID
+     * 
+     * @param productId Die gepackte Produktnummer
+     * @return Das Produkt oder null, wenn es nicht existiert
+     */
+    public ProductEntity findByProductId(final long productId) {
+        TypedQuery<ProductEntity> query = entityManager.createQuery(
+                "SELECT p FROM ProductEntity p WHERE p.productId = :productId", ProductEntity.class);
+        query.setParameter("productId", productId);
+        try {
+            return query.getSingleResult();
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Findet alle Produkte, die seit dem angegebenen Zeitpunkt geändert wurden.
+     * Die Grenze ist inklusiv, da MODIFIED_AT nur sekundengenau gespeichert wird.
+     * 
+     * @param since Zeitpunkt der letzten Aktualisierung
+     * @return Die geänderten Produkte
+     */
+    public List<ProductEntity> findModifiedSince(final Date since) {
+        return entityManager.createQuery(
+                "SELECT p FROM ProductEntity p WHERE p.modifiedAt >= :since", ProductEntity.class)
+                .setParameter("since", since)
+                .getResultList();
+    }
+
+    /**
+     * Liest die aktuelle Uhrzeit der Datenbank. MODIFIED_AT wird mit dieser Uhr geschrieben,
+     * Vergleiche damit dürfen daher nicht die Uhr der JVM verwenden.
+     * 
+     * @return Die Uhrzeit der Datenbank
+     */
+    public Date currentTimestamp() {
+        final Object now = entityManager.createNativeQuery("SELECT CURRENT_TIMESTAMP").getSingleResult();
+        if (now instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) now);
+        }
+        return (Date) now;
+    }
+
+    /**
+     * Prüft, welche der angegebenen Produkte noch existieren
+     * 
+     * @param productIds Die gepackten Produktnummern
+     * @return Die gepackten Produktnummern der existierenden Produkte
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> findExistingProductIds(final Collection<Long> productIds) {
+        final List<Object> rows = entityManager.createNativeQuery("SELECT PRODUCT_ID FROM PRODUCT WHERE PRODUCT_ID IN (?1)")
+                .setParameter(1, productIds)
+                .getResultList();
+        final List<Long> existing = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            existing.add(((Number) row).longValue());
+        }
+        return existing;
+    }
+
+    /**
+     * Legt Produkte in einem Rutsch an oder aktualisiert sie (Upsert über die Produkt-ID).
+     * Es wird ein Multi-Row-INSERT pro Block ausgeführt statt eines Statements pro Produkt.
+     * 
+     * @param products Die zu speichernden Produkte
+     * @return Die Anzahl der betroffenen Zeilen laut MySQL
+     */
+    @Transactional
+    public int bulkUpsert(final List<ProductEntity> products) {
+        int affected = 0;
+        for (int from = 0; from < products.size(); from += BULK_CHUNK_SIZE) {
+            final List<ProductEntity> chunk = products.subList(from, Math.min(from + BULK_CHUNK_SIZE, products.size()));
+            final StringBuilder sql = new StringBuilder(
+                    "INSERT INTO PRODUCT (PRODUCT_ID, NAME, PRICE, CREATED_AT, MODIFIED_AT) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                if (i > 0) {
+                    sql.append(',');
+                }
+                sql.append("(?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+            }
+            sql.append(" ON DUPLICATE KEY UPDATE NAME = VALUES(NAME), PRICE = VALUES(PRICE),"
+                    + " MODIFIED_AT = CURRENT_TIMESTAMP");
+
+            final Query query = entityManager.createNativeQuery(sql.toString());
+            int position = 1;
+            for (ProductEntity product : chunk) {
+                query.setParameter(position++, product.getProductId());
+                query.setParameter(position++, product.getName());
+                query.setParameter(position++, product.getPrice());
+            }
+            affected += query.executeUpdate();
+        }
+        return affected;
+    }
+}
@@ -0,0 +1,205 @@
+package de.berlin.htw.entity.dao;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import de.berlin.htw.control.RedisCommandGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.hibernate.orm.PersistenceUnit;
+import io.quarkus.redis.datasource.RedisDataSource;
+
+/**
+ * Verteilt lesende Zugriffe zwischen der primären Datenbank und dem Read-Replica.
+ * Reine Lesezugriffe (Bestellhistorie, Principal-Lookup) laufen gegen das Replica,
+ * damit sie nicht mit dem Checkout um die Verbindungen des primären Pools konkurrieren.
+ * Nach einer eigenen Bestellung liest ein Benutzer für ein kurzes Zeitfenster
+ * (Read-your-writes) weiterhin von der primären Datenbank, da das Replica
+ * die Änderung eventuell noch nicht repliziert hat.
+ * <p>
+ * Damit das auch gilt, wenn der nächste Request auf einem anderen Knoten landet, wird der Schreibzugriff
+ * zusätzlich als Redis-Key {@value #MARKER_PREFIX}&lt;Benutzer&gt; mit der Fensterdauer als TTL abgelegt
+ * ({@code app.replica.read-your-writes-shared}, nur bei mehr als einem Knoten nötig). Knoten, die den Benutzer nicht
+ * lokal kennen, fragen diesen Key ab. Ein fehlender Key wird für {@code app.replica.read-your-writes-negative-ttl}
+ * lokal gemerkt, damit nicht jede Seite der Historie einen Redis-Aufruf kostet; eine Bestellung auf einem anderen
+ * Knoten wird dadurch höchstens um diese Dauer später bemerkt. Ist Redis nicht erreichbar, wird im Zweifel von
+ * der primären Datenbank gelesen. Ohne den geteilten Key (Standard, ein Knoten) braucht {@code /orders} kein Redis,
+ * Read-your-writes gilt dann nur auf dem Knoten, der die Bestellung angenommen hat.
+ */
+@ApplicationScoped
+public class ReadReplicaRouter {
+
+    static final String MARKER_PREFIX = "replica:ryw:";
+
+    // Obergrenze, ab der abgelaufene Read-your-writes-Einträge aktiv aufgeräumt werden
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    @PersistenceContext
+    EntityManager primary;
+
+    @Inject
+    @PersistenceUnit("replica")
+    EntityManager replica;
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @Inject
+    RedisCommandGuard redisGuard;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Logger logger;
+
+    @ConfigProperty(name = "app.replica.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.replica.fallback-to-primary", defaultValue = "true")
+    boolean fallbackToPrimary;
+
+    @ConfigProperty(name = "app.replica.read-your-writes-window", defaultValue = "5S")
+    Duration readYourWritesWindow;
+
+    @ConfigProperty(name = "app.replica.read-your-writes-shared", defaultValue = "false")
+    boolean shared;
+
+    @ConfigProperty(name = "app.replica.read-your-writes-negative-ttl", defaultValue = "500ms")
+    Duration negativeTtl;
+
+    // Benutzername -> Zeitpunkt (System.nanoTime) des letzten eigenen Schreibzugriffs
+    private final Map<String, Long> recentWriters = new ConcurrentHashMap<>();
+
+    // Benutzername -> Zeitpunkt (System.nanoTime), bis zu dem ohne Redis-Abfrage kein Marker angenommen wird
+    private final Map<String, Long> withoutMarker = new ConcurrentHashMap<>();
+
+    private Counter primaryReads;
+    private Counter replicaReads;
+
+    @PostConstruct
+    void initMetrics() {
+        primaryReads = Counter.builder("replica.reads").tag("target", "primary")
+                .description("Reine Lesezugriffe, die an die primäre Datenbank gingen").register(registry);
+        replicaReads = Counter.builder("replica.reads").tag("target", "replica")
+                .description("Reine Lesezugriffe, die an das Read-Replica gingen").register(registry);
+    }
+
+    /**
+     * Merkt sich, dass der Benutzer gerade geschrieben hat. Seine Lesezugriffe
+     * gehen danach für die Dauer des Read-your-writes-Fensters an die primäre Datenbank,
+     * auf anderen Knoten über den Redis-Key.
+     *
+     * @param userName Der Name des Benutzers
+     */
+    public void markWrite(final String userName) {
+        withoutMarker.remove(userName);
+        remember(userName, System.nanoTime());
+        if (!shared) {
+            return;
+        }
+        try {
+            redisGuard.call(() -> {
+                redisDS.value(String.class).psetex(MARKER_PREFIX + userName, readYourWritesWindow.toMillis(), "1");
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // die Bestellung ist gespeichert, nur andere Knoten könnten kurz einen veralteten Stand lesen
+            logger.warn("Could not share read-your-writes marker of " + userName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Führt einen reinen Lesezugriff aus. Ist das Replica deaktiviert oder liegt der letzte
+     * Schreibzugriff des Benutzers im Read-your-writes-Fenster, wird die primäre Datenbank verwendet.
+     * Schlägt der Zugriff auf das Replica fehl, wird je nach Konfiguration auf die primäre Datenbank ausgewichen.
+     *
+     * @param userName Der Name des Benutzers oder null, wenn kein Read-your-writes nötig ist
+     * @param query Die Abfrage, die mit dem gewählten EntityManager ausgeführt wird
+     * @return Das Ergebnis der Abfrage
+     */
+    public <T> T read(final String userName, final Function<EntityManager, T> query) {
+        if (!enabled || hasRecentlyWritten(userName)) {
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+        try {
+            final T result = query.apply(replica);
+            replicaReads.increment();
+            return result;
+        } catch (PersistenceException e) {
+            if (!fallbackToPrimary) {
+                throw e;
+            }
+            logger.warn("Read replica not available, falling back to primary: " + e.getMessage());
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+    }
+
+    private boolean hasRecentlyWritten(final String userName) {
+        if (userName == null) {
+            return false;
+        }
+        final Long writtenAt = recentWriters.get(userName);
+        if (writtenAt != null) {
+            if (!isExpired(writtenAt, System.nanoTime())) {
+                return true;
+            }
+            recentWriters.remove(userName, writtenAt);
+        }
+        return shared && hasSharedMarker(userName);
+    }
+
+    private boolean hasSharedMarker(final String userName) {
+        final long now = System.nanoTime();
+        final Long checkedUntil = withoutMarker.get(userName);
+        if (checkedUntil != null) {
+            if (now - checkedUntil < 0) {
+                return false;
+            }
+            withoutMarker.remove(userName, checkedUntil);
+        }
+        final String marker;
+        try {
+            marker = redisGuard.call(() -> redisDS.value(String.class).get(MARKER_PREFIX + userName));
+        } catch (RuntimeException e) {
+            // ohne Redis ist unbekannt, ob ein anderer Knoten gerade geschrieben hat
+            logger.debug("Read-your-writes marker of " + userName + " not readable, reading from primary: " + e.getMessage());
+            return true;
+        }
+        if (marker == null) {
+            withoutMarker.put(userName, now + negativeTtl.toNanos());
+            if (withoutMarker.size() > PRUNE_THRESHOLD) {
+                withoutMarker.values().removeIf(until -> now - until >= 0);
+            }
+            return false;
+        }
+        // lokal merken, spart weitere Redis-Abfragen; das Fenster verlängert sich dadurch höchstens auf diesem Knoten
+        remember(userName, now);
+        return true;
+    }
+
+    private void remember(final String userName, final long now) {
+        recentWriters.put(userName, now);
+        if (recentWriters.size() > PRUNE_THRESHOLD) {
+            recentWriters.values().removeIf(writtenAt -> isExpired(writtenAt, now));
+        }
+    }
+
+    private boolean isExpired(final long writtenAt, final long now) {
+        return now - writtenAt > readYourWritesWindow.toNanos();
+    }
+}
@@ -0,0 +1,95 @@
+package de.berlin.htw.entity.dao;
+
+import java.time.LocalDateTime;
+
+import de.berlin.htw.entity.dao.OrderArchiveFile.UserTotals;
+import de.berlin.htw.entity.dto.UserEntity;
+import de.berlin.htw.entity.dto.UserOrderStatsEntity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+/**
+ * Repository für die aggregierte Bestell-Statistik pro Benutzer
+ */
+@ApplicationScoped
+public class UserOrderStatsRepository {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    ReadReplicaRouter router;
+
+    @Inject
+    OrderArchive archive;
+
+    /**
+     * Liest die Statistik eines Benutzers (eine Zeile, unabhängig von der Länge der Historie).
+     * 
+     * @param user Der Benutzer
+     * @return Die Statistik oder null, wenn der Benutzer noch nie bestellt hat
+     */
+    public UserOrderStatsEntity findByUser(final UserEntity user) {
+        return router.read(user.getName(), em -> em.find(UserOrderStatsEntity.class, user.getId()));
+    }
+
+    /**
+     * Zählt eine neue Bestellung in die Statistik des Benutzers ein.
+     * Muss in der Transaktion der Bestellung laufen, damit Bestellung und Statistik konsistent bleiben.
+     * 
+     * @param userId Die ID des Benutzers
+     * @param total Der Gesamtbetrag der Bestellung
+     * @param orderDate Der Zeitpunkt der Bestellung
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordOrder(final Integer userId, final float total, final LocalDateTime orderDate) {
+        entityManager.createNativeQuery(
+                "INSERT INTO USER_ORDER_STATS (USER_ID, ORDER_COUNT, TOTAL_SPENT, LAST_ORDER_DATE, CREATED_AT, MODIFIED_AT)"
+                + " VALUES (?1, 1, ?2, ?3, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)"
+                + " ON DUPLICATE KEY UPDATE ORDER_COUNT = ORDER_COUNT + 1,"
+                + " TOTAL_SPENT = TOTAL_SPENT + VALUES(TOTAL_SPENT),"
+                + " LAST_ORDER_DATE = GREATEST(COALESCE(LAST_ORDER_DATE, VALUES(LAST_ORDER_DATE)), VALUES(LAST_ORDER_DATE)),"
+                + " MODIFIED_AT = CURRENT_TIMESTAMP")
+                .setParameter(1, userId)
+                .setParameter(2, total)
+                .setParameter(3, orderDate)
+                .executeUpdate();
+    }
+
+    /**
+     * Berechnet die Statistik aller Benutzer neu aus ORDERS und den Summen im {@link OrderArchive} (Backfill).
+     * Archivierte Bestellungen sind nicht mehr in ORDERS und werden aus den Archivverzeichnissen hinzugerechnet;
+     * Benutzer ohne Bestellungen in Datenbank und Archiv verlieren ihre Zeile.
+     * Sollte bei geringer Last laufen, da ORDERS dabei vollständig gelesen wird.
+     * 
+     * @return Die Anzahl der Benutzer mit Statistik
+     */
+    @Transactional
+    public int rebuildAll() {
+        entityManager.createNativeQuery("DELETE FROM USER_ORDER_STATS").executeUpdate();
+        entityManager.createNativeQuery(
+                "INSERT INTO USER_ORDER_STATS (USER_ID, ORDER_COUNT, TOTAL_SPENT, LAST_ORDER_DATE, CREATED_AT, MODIFIED_AT)"
+                + " SELECT USER_ID, COUNT(*), SUM(TOTAL), MAX(ORDER_DATE), CURRENT_TIMESTAMP, CURRENT_TIMESTAMP"
+                + " FROM ORDERS GROUP BY USER_ID")
+                .executeUpdate();
+        for (UserTotals archived : archive.summarizeUsers()) {
+            // nur für noch existierende Benutzer (FK_STATS_USER)
+            entityManager.createNativeQuery(
+                    "INSERT INTO USER_ORDER_STATS (USER_ID, ORDER_COUNT, TOTAL_SPENT, LAST_ORDER_DATE, CREATED_AT, MODIFIED_AT)"
+                    + " SELECT ID, ?2, ?3, ?4, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM USER WHERE ID = ?1"
+                    + " ON DUPLICATE KEY UPDATE ORDER_COUNT = ORDER_COUNT + VALUES(ORDER_COUNT),"
+                    + " TOTAL_SPENT = TOTAL_SPENT + VALUES(TOTAL_SPENT),"
+                    + " LAST_ORDER_DATE = GREATEST(COALESCE(LAST_ORDER_DATE, VALUES(LAST_ORDER_DATE)), VALUES(LAST_ORDER_DATE))")
+                    .setParameter(1, archived.getUserId())
+                    .setParameter(2, archived.getOrderCount())
+                    .setParameter(3, archived.getTotalSpent())
+                    .setParameter(4, archived.getLastOrderDate())
+                    .executeUpdate();
+        }
+        return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM USER_ORDER_STATS")
+                .getSingleResult()).intValue();
+    }
+}
@@ -1,12 +1,15 @@
 package de.berlin.htw.entity.dao;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 
+import de.berlin.htw.control.bulkhead.Bulkheaded;
+import de.berlin.htw.control.bulkhead.WorkloadClass;
 import de.berlin.htw.entity.dto.UserEntity;
 
 /**
@@ -17,10 +20,28 @@ public class UserRepository {
 
     @PersistenceContext
     EntityManager entityManager;
+
+    @Inject
+    ReadReplicaRouter router;
+
+    @Inject
+    BalanceRepository balanceRepository;
     
     public UserEntity findUserById(final Integer id) {
         return entityManager.find(UserEntity.class, id);
     }
+
+    /**
+     * Findet einen Benutzer anhand seiner ID über das Read-Replica (z.B. für den Principal-Lookup).
+     * Das Ergebnis darf nicht verändert werden.
+     * 
+     * @param id Die ID des Benutzers
+     * @return Den gefundenen Benutzer oder null
+     */
+    @Bulkheaded(WorkloadClass.AUTH)
+    public UserEntity findUserByIdReadOnly(final Integer id) {
+        return router.read(null, em -> em.find(UserEntity.class, id));
+    }
     
     /**
      * Findet einen Benutzer anhand seines Namens
@@ -29,7 +50,22 @@ public class UserRepository {
      * @return Den gefundenen Benutzer oder null, wenn kein Benutzer mit diesem Namen existiert
      */
     public UserEntity findByName(final String name) {
-        TypedQuery<UserEntity> query = entityManager.createQuery(
+        return findByName(entityManager, name);
+    }
+
+    /**
+     * Findet einen Benutzer anhand seines Namens über das Read-Replica.
+     * Nur für reine Lesezugriffe verwenden, das Ergebnis darf nicht verändert werden.
+     * 
+     * @param name Der Name des Benutzers
+     * @return Den gefundenen Benutzer oder null, wenn kein Benutzer mit diesem Namen existiert
+     */
+    public UserEntity findByNameReadOnly(final String name) {
+        return router.read(name, em -> findByName(em, name));
+    }
+
+    private static UserEntity findByName(final EntityManager em, final String name) {
+        TypedQuery<UserEntity> query = em.createQuery(
                 "SELECT u FROM UserEntity u WHERE u.name = :name", UserEntity.class);
         query.setParameter("name", name);
         try {
@@ -40,18 +76,31 @@ public class UserRepository {
     }
     
     /**
-     * Aktualisiert den Kontostand eines Benutzers
+     * Legt einen Benutzer an und eröffnet sein Guthaben-Journal mit {@link UserEntity#getBalance()} als Startguthaben.
      * 
-     * @param user Der zu aktualisierende Benutzer
-     * @return Der aktualisierte Benutzer
+     * @param user Der neue Benutzer
      */
-    @Transactional(Transactional.TxType.REQUIRES_NEW)
-    public UserEntity updateUserBalance(final UserEntity user) {
-        return entityManager.merge(user);
-    }
-    
     @Transactional(Transactional.TxType.REQUIRES_NEW)
     public void persistUser(final UserEntity user) {
         entityManager.persist(user);
+        balanceRepository.openAccount(user.getId(),
+                BalanceRepository.toAmount(user.getBalance() == null ? 0f : user.getBalance()));
+    }
+
+    /**
+     * Löscht einen Benutzer ohne Bestellungen samt Guthaben-Journal und Bestell-Statistik.
+     * 
+     * @param id Die ID des Benutzers
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void deleteUser(final Integer id) {
+        balanceRepository.closeAccount(id);
+        entityManager.createNativeQuery("DELETE FROM USER_ORDER_STATS WHERE USER_ID = ?1")
+                .setParameter(1, id)
+                .executeUpdate();
+        final UserEntity user = entityManager.find(UserEntity.class, id);
+        if (user != null) {
+            entityManager.remove(user);
+        }
     }
-}
\ No newline at end of file
+}
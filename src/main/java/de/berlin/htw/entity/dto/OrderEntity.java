@@ -37,9 +37,14 @@ public class OrderEntity extends AbstractEntity {
     @Column(name = "ORDER_DATE")
     private LocalDateTime orderDate;
     
-    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // Nur im normalisierten Layout befüllt; LAZY, damit eingebettete Bestellungen ohne Join gelesen werden
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<OrderItemEntity> items;
 
+    // Kompakt serialisierte Positionen (siehe OrderItemsCodec), null im normalisierten Layout
+    @Column(name = "ITEMS_DATA")
+    private byte[] itemsData;
+
     public Integer getId() {
         return id;
     }
@@ -79,4 +84,12 @@ public class OrderEntity extends AbstractEntity {
     public void setItems(List<OrderItemEntity> items) {
         this.items = items;
     }
+
+    public byte[] getItemsData() {
+        return itemsData;
+    }
+
+    public void setItemsData(byte[] itemsData) {
+        this.itemsData = itemsData;
+    }
 }
@@ -1,5 +1,7 @@
 package de.berlin.htw.entity.dto;
 
+import java.time.LocalDateTime;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -25,8 +27,9 @@ public class OrderItemEntity extends AbstractEntity {
     @JoinColumn(name = "ORDER_ID", nullable = false)
     private OrderEntity order;
     
+    // Gepackte Produktnummer, siehe ProductIds
     @Column(name = "PRODUCT_ID")
-    private String productId;
+    private Long productId;
     
     @Column(name = "PRODUCT_NAME")
     private String productName;
@@ -37,6 +40,10 @@ public class OrderItemEntity extends AbstractEntity {
     @Column(name = "PRICE")
     private Float price;
 
+    // Kopie von ORDERS.ORDER_DATE, Partitionsschlüssel von ORDER_ITEM
+    @Column(name = "ORDER_DATE")
+    private LocalDateTime orderDate;
+
     public Integer getId() {
         return id;
     }
@@ -53,11 +60,11 @@ public class OrderItemEntity extends AbstractEntity {
         this.order = order;
     }
 
-    public String getProductId() {
+    public Long getProductId() {
         return productId;
     }
 
-    public void setProductId(String productId) {
+    public void setProductId(Long productId) {
         this.productId = productId;
     }
 
@@ -84,4 +91,12 @@ public class OrderItemEntity extends AbstractEntity {
     public void setPrice(Float price) {
         this.price = price;
     }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public void setOrderDate(LocalDateTime orderDate) {
+        this.orderDate = orderDate;
+    }
 }
@@ -44,6 +44,9 @@ public class UserEntity extends AbstractEntity implements Principal {
         this.name = name;
     }
 
+    /**
+     * @return Das Startguthaben beim Anlegen; das aktuelle Guthaben liefert {@code BalanceLedger}
+     */
     public Float getBalance() {
         return balance;
     }
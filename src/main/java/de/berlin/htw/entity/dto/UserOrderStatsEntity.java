@@ -0,0 +1,62 @@
+package de.berlin.htw.entity.dto;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Entity-Klasse für die aggregierte Bestell-Statistik eines Benutzers.
+ * Wird nur per Upsert in derselben Transaktion wie die Bestellung geschrieben.
+ */
+@Entity
+@Table(name = "USER_ORDER_STATS")
+public class UserOrderStatsEntity extends AbstractEntity {
+
+    @Id
+    @Column(name = "USER_ID")
+    private Integer userId;
+
+    @Column(name = "ORDER_COUNT")
+    private Integer orderCount;
+
+    @Column(name = "TOTAL_SPENT")
+    private Float totalSpent;
+
+    @Column(name = "LAST_ORDER_DATE")
+    private LocalDateTime lastOrderDate;
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public Float getTotalSpent() {
+        return totalSpent;
+    }
+
+    public void setTotalSpent(Float totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
+    public LocalDateTime getLastOrderDate() {
+        return lastOrderDate;
+    }
+
+    public void setLastOrderDate(LocalDateTime lastOrderDate) {
+        this.lastOrderDate = lastOrderDate;
+    }
+}
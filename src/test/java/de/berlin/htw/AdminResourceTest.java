@@ -0,0 +1,90 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.boundary.AdminResource;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class AdminResourceTest {
+
+    // in app.admin.users des Testprofils
+    private static final String ADMIN = "4";
+
+    @Test
+    void testRecordingLifecycle() {
+        final int id = given()
+            .header("X-User-Id", ADMIN)
+            .queryParam("name", "admin-test")
+            .queryParam("duration", "1m")
+            .post("/admin/recordings")
+            .then()
+            .log().all()
+            .statusCode(201)
+            .body("state", is("RUNNING"))
+            .body("settings", is("default"))
+            .body("file", endsWith(".jfr"))
+            .extract().path("id");
+
+        // höchstens eine laufende Aufzeichnung
+        given()
+            .header("X-User-Id", ADMIN)
+            .post("/admin/recordings")
+            .then()
+            .statusCode(409);
+
+        final String file = given()
+            .header("X-User-Id", ADMIN)
+            .post("/admin/recordings/" + id + "/stop")
+            .then()
+            .log().all()
+            .statusCode(200)
+            .body("state", is("CLOSED"))
+            .extract().path("file");
+        assertTrue(Files.isRegularFile(Paths.get(file)), "Keine Datei geschrieben: " + file);
+    }
+
+    @Test
+    void testInvalidRecording() {
+        given()
+            .header("X-User-Id", ADMIN)
+            .queryParam("settings", "unknown")
+            .post("/admin/recordings")
+            .then()
+            .statusCode(400);
+        given()
+            .header("X-User-Id", ADMIN)
+            .queryParam("name", "../escape")
+            .post("/admin/recordings")
+            .then()
+            .statusCode(400);
+        given()
+            .header("X-User-Id", ADMIN)
+            .get("/admin/recordings/999999")
+            .then()
+            .statusCode(404);
+    }
+
+    @Test
+    void testNonAdminIsForbidden() {
+        given().header("X-User-Id", "2").post("/admin/recordings").then().statusCode(403);
+        given().header("X-User-Id", "2").get("/admin/recordings").then().statusCode(403);
+        given().header("X-User-Id", "2").get("/admin/recordings/1").then().statusCode(403);
+        given().header("X-User-Id", "2").post("/admin/recordings/1/stop").then().statusCode(403);
+        given().header("X-User-Id", "2").contentType(AdminResource.TEXT_CSV).body("reference,userId,amount\n")
+            .post("/admin/topups").then().statusCode(403);
+        given().header("X-User-Id", "2").contentType(AdminResource.APPLICATION_NDJSON).body("")
+            .post("/admin/topups").then().statusCode(403);
+        given().header("X-User-Id", "2").post("/admin/topups/files/topups.csv").then().statusCode(403);
+        given().header("X-User-Id", "2").get("/admin/topups").then().statusCode(403);
+        given().header("X-User-Id", "2").get("/admin/topups/1").then().statusCode(403);
+    }
+}
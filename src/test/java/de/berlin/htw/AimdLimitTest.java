@@ -0,0 +1,106 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.limit.AimdLimit;
+
+class AimdLimitTest {
+
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(20);
+
+    @Test
+    void rejectsAboveLimit() {
+        AimdLimit limit = new AimdLimit(3, 1, 10, THRESHOLD, 0.9);
+
+        assertEquals(1, limit.tryAcquire());
+        assertEquals(2, limit.tryAcquire());
+        assertEquals(3, limit.tryAcquire());
+        assertEquals(0, limit.tryAcquire());
+        assertEquals(3, limit.getInFlight());
+    }
+
+    @Test
+    void growsWhileLatencyIsLowAndUsed() {
+        AimdLimit limit = new AimdLimit(4, 1, 10, THRESHOLD, 0.9);
+
+        // wie bei 4 gleichzeitigen Anfragen: das Limit ist ausgenutzt
+        for (int i = 0; i < 3; i++) {
+            limit.tryAcquire();
+            limit.release(TimeUnit.MILLISECONDS.toNanos(1), 4, false);
+        }
+        assertEquals(7, limit.getLimit());
+
+        // kaum genutztes Limit wächst nicht
+        int inFlight = limit.tryAcquire();
+        limit.release(TimeUnit.MILLISECONDS.toNanos(1), inFlight, false);
+        assertEquals(7, limit.getLimit());
+    }
+
+    @Test
+    void shrinksOnSlowOrOverloadedRequests() {
+        AimdLimit limit = new AimdLimit(10, 2, 10, THRESHOLD, 0.5);
+
+        limit.tryAcquire();
+        limit.release(TimeUnit.MILLISECONDS.toNanos(50), 1, false);
+        assertEquals(5, limit.getLimit());
+
+        limit.tryAcquire();
+        limit.release(TimeUnit.MILLISECONDS.toNanos(1), 1, true);
+        assertEquals(2, limit.getLimit());
+
+        limit.tryAcquire();
+        limit.release(TimeUnit.MILLISECONDS.toNanos(50), 1, false);
+        assertEquals(2, limit.getLimit(), "Untergrenze");
+    }
+
+    /**
+     * Simuliert einen Dienst, dessen Latenz plötzlich steigt (z.B. langsame Datenbank):
+     * Das Limit muss fallen und überzählige Anfragen müssen abgelehnt werden.
+     * Die Latenz wird vorgegeben statt gemessen (keine Threads, kein Sleep), der Test ist deterministisch.
+     */
+    @Test
+    void adaptsToInjectedLatency() {
+        AimdLimit limit = new AimdLimit(8, 2, 64, THRESHOLD, 0.9);
+
+        runRounds(limit, TimeUnit.MILLISECONDS.toNanos(1));
+        int limitWhenFast = limit.getLimit();
+        int rejectedWhenSlow = runRounds(limit, TimeUnit.MILLISECONDS.toNanos(40));
+        int limitWhenSlow = limit.getLimit();
+
+        assertTrue(limitWhenFast > 8, "Limit wächst bei niedriger Latenz");
+        assertTrue(limitWhenSlow < limitWhenFast / 2, "Limit fällt bei hoher Latenz");
+        assertTrue(rejectedWhenSlow > 0, "überzählige Anfragen werden abgelehnt");
+        assertEquals(0, limit.getInFlight());
+    }
+
+    /**
+     * 20 Runden mit je 32 gleichzeitigen Clients: alle belegen einen Platz, soweit das Limit reicht,
+     * danach werden alle mit der vorgegebenen Latenz freigegeben.
+     *
+     * @return Die Zahl der abgelehnten Anfragen
+     */
+    private static int runRounds(final AimdLimit limit, final long latencyNanos) {
+        int rejected = 0;
+        for (int round = 0; round < 20; round++) {
+            List<Integer> admitted = new ArrayList<>();
+            for (int client = 0; client < 32; client++) {
+                int inFlight = limit.tryAcquire();
+                if (inFlight == 0) {
+                    rejected++;
+                } else {
+                    admitted.add(inFlight);
+                }
+            }
+            for (int inFlight : admitted) {
+                limit.release(latencyNanos, inFlight, false);
+            }
+        }
+        return rejected;
+    }
+}
@@ -0,0 +1,120 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.BalanceLedger;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Viele parallele Abbuchungen auf demselben Konto: bisherige Abbuchung per UPDATE auf USER.BALANCE gegen
+ * Kontosperre plus Buchung im Journal. Im dritten Lauf liest die Hälfte der Threads nur das Guthaben,
+ * während die andere Hälfte abbucht (wie Warenkorb-Anfragen neben Checkouts).
+ * Läuft nur mit dem Maven-Profil "load" (mvn test -Pload).
+ */
+@QuarkusTest
+@Tag("load")
+class BalanceContentionBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(BalanceContentionBenchmarkTest.class);
+
+    private static final int THREADS = 32;
+    private static final int ITERATIONS = 50;
+    private static final float INITIAL_BALANCE = 1_000_000f;
+    private static final String USER_NAME = "LedgerContention";
+
+    @Inject
+    BalanceLedger balanceLedger;
+
+    @Inject
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private Integer userId;
+
+    @BeforeEach
+    void createUser() {
+        final UserEntity user = new UserEntity();
+        user.setName(USER_NAME);
+        user.setBalance(INITIAL_BALANCE);
+        userRepository.persistUser(user);
+        userId = user.getId();
+    }
+
+    @Test
+    void compareDebits() throws Exception {
+        final LoadHarness harness = new LoadHarness(THREADS, ITERATIONS);
+
+        final LoadHarness.Report update = harness.run("debit (UPDATE USER.BALANCE)", (worker, iteration) -> {
+            userTransaction.begin();
+            entityManager.createNativeQuery(
+                    "UPDATE USER SET BALANCE = BALANCE - ?1, MODIFIED_AT = CURRENT_TIMESTAMP WHERE ID = ?2 AND BALANCE >= ?1")
+                    .setParameter(1, 1f)
+                    .setParameter(2, userId)
+                    .executeUpdate();
+            userTransaction.commit();
+        });
+        final LoadHarness.Report ledger = harness.run("debit (Journal)", (worker, iteration) -> debit());
+        final LoadHarness.Report mixed = harness.run("debit (Journal) + Guthaben lesen", (worker, iteration) -> {
+            if (worker % 2 == 0) {
+                debit();
+            } else {
+                balanceLedger.getBalance(userId);
+            }
+        });
+
+        LOGGER.info(update);
+        LOGGER.info(ledger);
+        LOGGER.info(mixed);
+        LOGGER.infof("Journal: %.2fx Durchsatz, p99 %.1f ms statt %.1f ms",
+                ledger.getThroughput() / update.getThroughput(), ledger.getLatencyMillis(0.99),
+                update.getLatencyMillis(0.99));
+        assertEquals(THREADS * ITERATIONS, ledger.getSuccesses(), "Fehler: " + ledger.getFailures());
+        assertEquals(THREADS * ITERATIONS, mixed.getSuccesses(), "Fehler: " + mixed.getFailures());
+        // jede erfolgreiche Abbuchung steht genau einmal im Journal
+        assertEquals(INITIAL_BALANCE - THREADS * ITERATIONS - THREADS / 2 * ITERATIONS,
+                balanceLedger.getBalance(userId), 0.001f);
+    }
+
+    private void debit() throws Exception {
+        userTransaction.begin();
+        try {
+            if (balanceLedger.checkCoverage(userId, 1f)) {
+                balanceLedger.debit(userId, 1f, null);
+            }
+            userTransaction.commit();
+        } catch (Exception e) {
+            if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                userTransaction.rollback();
+            }
+            throw e;
+        }
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        userTransaction.begin();
+        // Konto und Journal folgen dem Benutzer per ON DELETE CASCADE
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :userName")
+                .setParameter("userName", USER_NAME).executeUpdate();
+        userTransaction.commit();
+    }
+}
@@ -0,0 +1,157 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Callable;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.UserTransaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.BalanceLedger;
+import de.berlin.htw.entity.dao.BalanceRepository;
+import de.berlin.htw.entity.dao.BalanceRepository.Type;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class BalanceLedgerTest {
+
+    private static final String USER_NAME = "LedgerUser";
+
+    @Inject
+    BalanceLedger balanceLedger;
+
+    @Inject
+    BalanceRepository balanceRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private Integer userId;
+
+    @BeforeEach
+    void createUser() {
+        final UserEntity user = new UserEntity();
+        user.setName(USER_NAME);
+        user.setBalance(50f);
+        userRepository.persistUser(user);
+        userId = user.getId();
+    }
+
+    @Test
+    void testBookingsAndCache() throws Exception {
+        assertEquals(50f, balanceLedger.getBalance(userId));
+
+        inTransaction(() -> {
+            balanceLedger.credit(userId, Type.TOPUP, 25f, "topup-1");
+            return null;
+        });
+        // Cache-Eintrag wurde nach dem Commit verworfen
+        assertEquals(75f, balanceLedger.getBalance(userId));
+
+        assertFalse(inTransaction(() -> balanceLedger.checkCoverage(userId, 100f)));
+        inTransaction(() -> {
+            assertTrue(balanceLedger.checkCoverage(userId, 70f));
+            balanceLedger.debit(userId, 70f, null);
+            return null;
+        });
+        assertEquals(5f, balanceLedger.getBalance(userId));
+
+        balanceLedger.adjustBalance(userId, 20f);
+        assertEquals(20f, balanceLedger.getBalance(userId));
+    }
+
+    @Test
+    void testSnapshotKeepsBalance() throws Exception {
+        inTransaction(() -> {
+            balanceLedger.credit(userId, Type.TOPUP, 10f, null);
+            balanceLedger.credit(userId, Type.REFUND, 2.5f, null);
+            return null;
+        });
+
+        assertTrue(inTransaction(() -> balanceRepository.lockAccount(userId) && balanceRepository.appendSnapshot(userId)));
+        // ohne neue Buchungen kein weiterer Snapshot
+        assertFalse(inTransaction(() -> balanceRepository.appendSnapshot(userId)));
+        assertEquals(62.5f, balanceRepository.findBalance(userId).floatValue());
+
+        inTransaction(() -> {
+            balanceLedger.credit(userId, Type.TOPUP, 1f, null);
+            return null;
+        });
+        assertEquals(63.5f, balanceRepository.findBalance(userId).floatValue());
+    }
+
+    @Test
+    void testReferenceIsUniquePerUser() throws Exception {
+        inTransaction(() -> {
+            balanceLedger.credit(userId, Type.TOPUP, 10f, "payment-42");
+            return null;
+        });
+        assertThrows(Exception.class, () -> inTransaction(() -> {
+            balanceLedger.credit(userId, Type.TOPUP, 10f, "payment-42");
+            return null;
+        }));
+        assertEquals(60f, balanceLedger.getBalance(userId));
+    }
+
+    @Test
+    void testJournalIsDeletedWithUser() throws Exception {
+        inTransaction(() -> {
+            balanceLedger.credit(userId, Type.TOPUP, 10f, null);
+            return null;
+        });
+        assertTrue(inTransaction(() -> balanceRepository.lockAccount(userId) && balanceRepository.appendSnapshot(userId)));
+
+        userRepository.deleteUser(userId);
+
+        assertEquals(0L, countRows("BALANCE_ACCOUNT"));
+        assertEquals(0L, countRows("BALANCE_SNAPSHOT"));
+        assertEquals(0L, countRows("BALANCE_TRANSACTION"));
+        assertFalse(inTransaction(() -> balanceRepository.lockAccount(userId)));
+    }
+
+    private long countRows(final String table) {
+        return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM " + table + " WHERE USER_ID = ?1")
+                .setParameter(1, userId).getSingleResult()).longValue();
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        userTransaction.begin();
+        // Konto und Journal folgen dem Benutzer per ON DELETE CASCADE
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :userName")
+                .setParameter("userName", USER_NAME).executeUpdate();
+        userTransaction.commit();
+    }
+
+    private <T> T inTransaction(final Callable<T> action) throws Exception {
+        userTransaction.begin();
+        try {
+            final T result = action.call();
+            userTransaction.commit();
+            return result;
+        } catch (Exception e) {
+            if (userTransaction.getStatus() != Status.STATUS_NO_TRANSACTION) {
+                userTransaction.rollback();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.UUID;
+
+import jakarta.inject.Inject;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.BasketController;
+import de.berlin.htw.control.store.RedisBasketStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Prüft den L1-Cache für Warenkörbe: Wiederholte Lesezugriffe kommen aus dem Cache, und eine Änderung,
+ * die an diesem Knoten vorbei direkt in Redis geschrieben wird, invalidiert den Eintrag über Client Tracking.
+ */
+@QuarkusTest
+@TestProfile(BasketCacheTest.L1EnabledProfile.class)
+class BasketCacheTest {
+
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    @Inject
+    RedisBasketStore store;
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Test
+    void testRepeatedReadIsServedFromCache() throws Exception {
+        final String userName = "l1-hit-" + UUID.randomUUID();
+        try {
+            store.putItem(userName, 1L, "a", current -> { });
+            awaitCached(userName);
+
+            final double hits = hits();
+            assertEquals(Map.of(1L, "a"), store.getItems(userName));
+            assertEquals(Map.of(1L, "a"), store.getItems(userName));
+            assertEquals(hits + 2, hits(), 0.0001);
+        } finally {
+            store.clear(userName);
+        }
+    }
+
+    @Test
+    void testExternalWriteInvalidatesEntry() throws Exception {
+        final String userName = "l1-invalidate-" + UUID.randomUUID();
+        final String basketKey = BasketController.BASKET_KEY_PREFIX + userName;
+        try {
+            store.putItem(userName, 1L, "a", current -> { });
+            awaitCached(userName);
+
+            // Schreibzugriff über eine andere Verbindung, z.B. von einem anderen Knoten
+            redisDS.hash(String.class, Long.class, String.class).hset(basketKey, 2L, "b");
+
+            // die Invalidierung kommt asynchron über die Tracking-Verbindung
+            final double misses = misses();
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            Map<Long, String> items = store.getItems(userName);
+            while (items.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                items = store.getItems(userName);
+            }
+            assertEquals(Map.of(1L, "a", 2L, "b"), items);
+            assertTrue(misses() > misses, "Nach der Invalidierung wurde nicht aus Redis gelesen");
+
+            // danach liegt der neue Stand wieder im Cache
+            final double hits = hits();
+            assertEquals(Map.of(1L, "a", 2L, "b"), store.getItems(userName));
+            assertEquals(hits + 1, hits(), 0.0001);
+        } finally {
+            store.clear(userName);
+        }
+    }
+
+    /**
+     * Wartet, bis die Tracking-Verbindung steht und der Warenkorb im Cache liegt.
+     */
+    private void awaitCached(final String userName) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            final double hits = hits();
+            store.getItems(userName);
+            store.getItems(userName);
+            if (hits() > hits) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Basket L1 cache did not become active within " + TIMEOUT_MILLIS + " ms");
+    }
+
+    private double hits() {
+        return registry.counter("basket.l1.requests", "result", "hit").count();
+    }
+
+    private double misses() {
+        return registry.counter("basket.l1.requests", "result", "miss").count();
+    }
+
+    public static class L1EnabledProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "app.basket.store", "redis",
+                    "app.basket.l1.enabled", "true");
+        }
+    }
+}
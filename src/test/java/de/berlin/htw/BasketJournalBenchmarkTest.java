@@ -0,0 +1,67 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.berlin.htw.control.store.BasketJournal;
+import de.berlin.htw.control.store.BasketJournal.FsyncMode;
+
+/**
+ * Misst den Durchsatz des Warenkorb-Journals je fsync-Modus (Einträge wie ein typischer Artikel)
+ * und die Dauer der Wiedergabe beim Start.
+ * Läuft nur mit dem Maven-Profil "load" (mvn test -Pload).
+ */
+@Tag("load")
+class BasketJournalBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(BasketJournalBenchmarkTest.class);
+
+    private static final int USERS = 10_000;
+    private static final int BUFFERED_WRITES = 500_000;
+    // fsync pro Eintrag kostet je nach Platte 0,1 bis 10 ms
+    private static final int SYNCED_WRITES = 2_000;
+    private static final String ITEM = "{\"productName\":\"Wasserkocher\",\"productId\":\"1-2-3-4-5-6\",\"count\":2,\"price\":10.00}";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compareFsyncModes() {
+        for (FsyncMode mode : FsyncMode.values()) {
+            final int writes = mode == FsyncMode.PER_WRITE ? SYNCED_WRITES : BUFFERED_WRITES;
+            final Path modeDir = dir.resolve(mode.name().toLowerCase());
+            final long elapsed;
+            try (BasketJournal journal = new BasketJournal(modeDir, 64 << 20, mode)) {
+                ScheduledExecutorService fsync = Executors.newSingleThreadScheduledExecutor();
+                if (mode == FsyncMode.INTERVAL) {
+                    fsync.scheduleAtFixedRate(journal::force, 1, 1, TimeUnit.SECONDS);
+                }
+                final long start = System.nanoTime();
+                for (int i = 0; i < writes; i++) {
+                    journal.appendPut("user-" + (i % USERS), i % 10, ITEM, System.currentTimeMillis());
+                }
+                elapsed = System.nanoTime() - start;
+                fsync.shutdownNow();
+            }
+            LOGGER.infof("%-9s %,9d writes in %,6d ms = %,10.0f writes/s", mode, writes,
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), writes * 1e9 / elapsed);
+
+            final long replayStart = System.nanoTime();
+            try (BasketJournal journal = new BasketJournal(modeDir, 64 << 20, mode)) {
+                final int baskets = journal.replay(System.currentTimeMillis(), 120_000).size();
+                assertEquals(Math.min(writes, USERS), baskets);
+            }
+            LOGGER.infof("%-9s replay in %,d ms", mode,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStart));
+        }
+    }
+}
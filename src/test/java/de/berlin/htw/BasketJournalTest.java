@@ -0,0 +1,144 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.berlin.htw.control.store.BasketJournal;
+import de.berlin.htw.control.store.BasketJournal.BasketState;
+import de.berlin.htw.control.store.BasketJournal.FsyncMode;
+
+class BasketJournalTest {
+
+    private static final long TIMEOUT = 120_000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysMutationsInOrder() {
+        try (BasketJournal journal = open()) {
+            journal.appendPut("alice", 1L, "a", T0);
+            journal.appendPut("alice", 2L, "b", T0 + 1);
+            journal.appendPut("alice", 1L, "a2", T0 + 2);
+            journal.appendRemove("alice", 2L, T0 + 3);
+            journal.appendPut("bob", 3L, "c", T0 + 4);
+            journal.appendClear("bob", T0 + 5);
+            journal.appendPut("carol", 4L, "d", T0 + 6);
+            journal.appendRemove("carol", 4L, T0 + 7);
+        }
+
+        Map<String, BasketState> restored = replay(T0 + 10);
+        assertEquals(Map.of("alice", Map.of(1L, "a2")), items(restored));
+        assertEquals(T0 + 3, restored.get("alice").getModifiedAt());
+    }
+
+    @Test
+    void dropsExpiredBaskets() {
+        try (BasketJournal journal = open()) {
+            journal.appendPut("old", 1L, "a", T0);
+            journal.appendPut("fresh", 1L, "a", T0 + TIMEOUT);
+        }
+
+        assertEquals(Map.of("fresh", Map.of(1L, "a")), items(replay(T0 + TIMEOUT + 1)));
+    }
+
+    @Test
+    void basketExpiredBetweenMutationsStartsEmpty() {
+        try (BasketJournal journal = open()) {
+            journal.appendPut("alice", 1L, "a", T0);
+            // zur Laufzeit abgelaufen (steht nicht im Journal), danach neu befüllt
+            journal.appendPut("alice", 2L, "b", T0 + TIMEOUT + 5);
+        }
+
+        assertEquals(Map.of("alice", Map.of(2L, "b")), items(replay(T0 + TIMEOUT + 10)));
+    }
+
+    @Test
+    void snapshotReplacesOlderSegments() throws Exception {
+        try (BasketJournal journal = open()) {
+            journal.appendPut("alice", 1L, "a", T0);
+            journal.appendPut("bob", 1L, "b", T0);
+            long segment = journal.roll();
+            // schon im neuen Segment und im Snapshot: doppelte Wiedergabe muss unschädlich sein
+            journal.appendRemove("bob", 1L, T0 + 1);
+            journal.appendPut("alice", 2L, "c", T0 + 2);
+            journal.writeSnapshot(segment, List.of(new BasketState("alice", Map.of(1L, "a", 2L, "c"), T0 + 2)));
+            journal.appendPut("dave", 5L, "e", T0 + 3);
+        }
+
+        assertEquals(1, count("segment-"));
+        assertEquals(1, count("snapshot-"));
+        assertEquals(Map.of("alice", Map.of(1L, "a", 2L, "c"), "dave", Map.of(5L, "e")), items(replay(T0 + 10)));
+    }
+
+    @Test
+    void ignoresTornTail() throws Exception {
+        try (BasketJournal journal = open()) {
+            journal.appendPut("alice", 1L, "a", T0);
+            journal.appendPut("alice", 2L, "b", T0 + 1);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(path -> path.getFileName().toString().startsWith("segment-")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // letzten Eintrag beschädigen: Länge des ersten Eintrags überspringen, dann ein Byte der Nutzlast kippen
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            long second = 8 + header.flip().getInt();
+            channel.write(ByteBuffer.wrap(new byte[] { 0x7F }), second + 12);
+        }
+
+        assertEquals(Map.of("alice", Map.of(1L, "a")), items(replay(T0 + 10)));
+    }
+
+    @Test
+    void rollsOverFullSegments() throws Exception {
+        try (BasketJournal journal = new BasketJournal(dir, 256, FsyncMode.PER_WRITE)) {
+            for (long product = 0; product < 50; product++) {
+                journal.appendPut("alice", product, "item-" + product, T0 + product);
+            }
+        }
+
+        assertTrue(count("segment-") > 1);
+        assertEquals(50, replay(T0 + 100).get("alice").getItems().size());
+    }
+
+    private BasketJournal open() {
+        return new BasketJournal(dir, 1 << 16, FsyncMode.NONE);
+    }
+
+    private Map<String, BasketState> replay(final long now) {
+        try (BasketJournal journal = open()) {
+            return journal.replay(now, TIMEOUT).stream()
+                    .collect(Collectors.toMap(BasketState::getUserName, state -> state));
+        }
+    }
+
+    private static Map<String, Map<Long, String>> items(final Map<String, BasketState> baskets) {
+        Map<String, Map<Long, String>> items = new HashMap<>();
+        baskets.forEach((user, state) -> items.put(user, state.getItems()));
+        return items;
+    }
+
+    private long count(final String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
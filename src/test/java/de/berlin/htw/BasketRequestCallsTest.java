@@ -0,0 +1,134 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.boundary.dto.Item;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+
+/**
+ * Prüft, dass Benutzer und Warenkorb pro Request höchstens einmal geladen werden (BasketUnitOfWork):
+ * gezählt werden die Ausführungen der Benutzer-Abfrage auf der primären Datenbank (Hibernate-Statistik)
+ * und die Redis-Aufrufe über den RedisCommandGuard.
+ */
+@QuarkusTest
+class BasketRequestCallsTest {
+
+    private static final String USER_NAME = "CallCount";
+    private static final String FIND_USER_BY_NAME = "SELECT u FROM UserEntity u WHERE u.name = :name";
+    private static final String PRODUCT_ID = "1-2-3-4-5-3";
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private String userId;
+
+    private long userLookups;
+    private double redisCalls;
+
+    @BeforeEach
+    void createUser() {
+        UserEntity user = new UserEntity();
+        user.setName(USER_NAME);
+        user.setBalance(1000f);
+        userRepository.persistUser(user);
+        userId = String.valueOf(user.getId());
+    }
+
+    @Test
+    void eachEndpointLoadsUserAndBasketAtMostOnce() {
+        mark();
+        given().header("X-User-Id", userId).get("/basket").then().statusCode(200);
+        assertCalls("GET /basket", 1, 1);
+
+        mark();
+        given().header("X-User-Id", userId).contentType(ContentType.JSON).body(item(1))
+                .post("/basket/" + PRODUCT_ID).then().statusCode(201);
+        // WATCH-Transaktion liest den Warenkorb, die Antwort kommt aus dem fortgeschriebenen Stand
+        assertCalls("POST /basket/{productId}", 1, 1);
+
+        mark();
+        given().header("X-User-Id", userId).contentType(ContentType.JSON).body(item(2))
+                .patch("/basket/" + PRODUCT_ID).then().statusCode(200);
+        assertCalls("PATCH /basket/{productId}", 1, 1);
+
+        mark();
+        given().header("X-User-Id", userId).delete("/basket/" + PRODUCT_ID).then().statusCode(200);
+        assertCalls("DELETE /basket/{productId}", 1, 1);
+
+        mark();
+        given().header("X-User-Id", userId).delete("/basket").then().statusCode(204);
+        assertCalls("DELETE /basket", 0, 1);
+
+        given().header("X-User-Id", userId).contentType(ContentType.JSON).body(item(1))
+                .post("/basket/" + PRODUCT_ID).then().statusCode(201);
+        mark();
+        given().header("X-User-Id", userId).post("/basket").then().statusCode(201);
+        // Warenkorb lesen und leeren, Read-your-writes-Marker, dazu Bestseller-Ranking und Suchindex nach dem Commit
+        assertCalls("POST /basket", 1, 5);
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        given().header("X-User-Id", userId).delete("/basket");
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE FROM ORDER_ITEM WHERE ORDER_ID IN"
+                + " (SELECT o.ID FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1)")
+                .setParameter(1, USER_NAME).executeUpdate();
+        entityManager.createNativeQuery("DELETE o FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, USER_NAME).executeUpdate();
+        entityManager.createNativeQuery("DELETE s FROM USER_ORDER_STATS s JOIN USER u ON s.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, USER_NAME).executeUpdate();
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :name")
+                .setParameter("name", USER_NAME).executeUpdate();
+        userTransaction.commit();
+    }
+
+    private void mark() {
+        userLookups = sessionFactory.getStatistics().getQueryStatistics(FIND_USER_BY_NAME).getExecutionCount();
+        redisCalls = registry.counter("redis.commands").count();
+    }
+
+    private void assertCalls(final String endpoint, final long expectedUserLookups, final int expectedRedisCalls) {
+        assertEquals(expectedUserLookups,
+                sessionFactory.getStatistics().getQueryStatistics(FIND_USER_BY_NAME).getExecutionCount() - userLookups,
+                endpoint + ": Benutzer-Abfragen");
+        assertEquals(expectedRedisCalls, registry.counter("redis.commands").count() - redisCalls, 0.0001,
+                endpoint + ": Redis-Aufrufe");
+    }
+
+    private static Item item(final int count) {
+        Item item = new Item();
+        item.setProductId(PRODUCT_ID);
+        item.setProductName("Test Item 3");
+        item.setPrice(10f);
+        item.setCount(count);
+        return item;
+    }
+}
@@ -2,14 +2,31 @@ package de.berlin.htw;
 
 import io.quarkus.redis.datasource.RedisDataSource;
 import io.quarkus.redis.datasource.value.ValueCommands;
+import io.quarkus.test.common.http.TestHTTPResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import org.junit.jupiter.api.Test;
 import static io.restassured.RestAssured.given;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.hamcrest.Matchers.*;
 import jakarta.inject.Inject;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import de.berlin.htw.boundary.CborProvider;
+import de.berlin.htw.boundary.dto.Basket;
+import de.berlin.htw.boundary.dto.Item;
+
 @QuarkusTest
 class BasketResourceTest {
 
@@ -19,6 +36,12 @@ class BasketResourceTest {
     @Inject
     protected de.berlin.htw.entity.dao.UserRepository userRepository;
 
+    @Inject
+    protected de.berlin.htw.control.BalanceLedger balanceLedger;
+
+    @TestHTTPResource("/basket/events")
+    URI eventsUri;
+
     @Test
     void testGetBasket() {
         ValueCommands<String, Integer> countCommands = redisDS.value(Integer.class);
@@ -97,6 +120,109 @@ class BasketResourceTest {
                 .statusCode(400);
     }
 
+    @Test
+    void testAddItemAsCbor() throws Exception {
+        final String productId = "1-2-3-4-5-8";
+        Item item = new Item();
+        item.setProductId(productId);
+        item.setProductName("Test Item CBOR");
+        item.setPrice(10.0f);
+        item.setCount(1);
+        given().header("X-User-Id", "5").delete("/basket");
+
+        byte[] response = given()
+                .log().all()
+                .when().header("X-User-Id", "5")
+                .contentType(CborProvider.APPLICATION_CBOR)
+                .accept(CborProvider.APPLICATION_CBOR)
+                .body(CborProvider.mapper().writeValueAsBytes(item))
+                .post("/basket/" + productId)
+                .then()
+                .log().all()
+                .statusCode(201)
+                .contentType(CborProvider.APPLICATION_CBOR)
+                .extract().asByteArray();
+
+        try {
+            Basket basket = CborProvider.mapper().readValue(response, Basket.class);
+            assertEquals(1, basket.getItems().stream().filter(i -> productId.equals(i.getProductId())).count());
+
+            // ohne Accept-Header bleibt JSON der Standard
+            given()
+                    .when().header("X-User-Id", "5")
+                    .get("/basket")
+                    .then()
+                    .statusCode(200)
+                    .contentType(ContentType.JSON);
+        } finally {
+            given().header("X-User-Id", "5").delete("/basket/" + productId);
+        }
+    }
+
+    @Test
+    void testAddInvalidItemAsCbor() throws Exception {
+        // dieselbe Bean Validation wie bei JSON: Preis unter 10 Euro
+        Item item = new Item();
+        item.setProductId("1-2-3-4-7-1");
+        item.setProductName("Test Item CBOR");
+        item.setPrice(5.0f);
+        item.setCount(1);
+
+        given()
+                .log().all()
+                .when().header("X-User-Id", "5")
+                .contentType(CborProvider.APPLICATION_CBOR)
+                .body(CborProvider.mapper().writeValueAsBytes(item))
+                .post("/basket/1-2-3-4-7-1")
+                .then()
+                .log().all()
+                .statusCode(400);
+    }
+
+    @Test
+    void testBasketEventStream() throws Exception {
+        final String productId = "1-2-3-4-5-9";
+        given().header("X-User-Id", "5").delete("/basket");
+
+        HttpRequest request = HttpRequest.newBuilder(eventsUri)
+                .header("X-User-Id", "5")
+                .header("Accept", "text/event-stream")
+                .build();
+        HttpResponse<Stream<String>> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, response.statusCode());
+
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        CompletableFuture.runAsync(() -> response.body().forEach(lines::add));
+        try {
+            Item item = new Item();
+            item.setProductId(productId);
+            item.setProductName("Test Item SSE");
+            item.setPrice(10.0f);
+            item.setCount(2);
+            given()
+                    .header("X-User-Id", "5")
+                    .contentType(ContentType.JSON)
+                    .body(item)
+                    .post("/basket/" + productId)
+                    .then()
+                    .statusCode(201);
+
+            // Event-Name und Daten (Änderung und neue Zusammenfassung) kommen über die offene Verbindung
+            String line;
+            do {
+                line = lines.poll(5, TimeUnit.SECONDS);
+            } while (line != null && !(line.startsWith("event:") && line.endsWith("item-added")));
+            assertNotNull(line, "kein item-added-Event empfangen");
+            String data = lines.poll(5, TimeUnit.SECONDS);
+            assertNotNull(data);
+            assertTrue(data.startsWith("data:") && data.contains(productId) && data.contains("\"total\""), data);
+        } finally {
+            response.body().close();
+            given().header("X-User-Id", "5").delete("/basket/" + productId);
+        }
+    }
+
     @Test
     void testRemoveNonExistentItem() {
         // Test removing an item that doesn't exist in basket
@@ -159,8 +285,7 @@ class BasketResourceTest {
             userRepository.persistUser(user);
         } else {
             // Wenn der User schon existiert, Guthaben zurücksetzen, um Teststabilität zu gewährleisten
-            user.setBalance(1000.0f);
-            userRepository.updateUserBalance(user);
+            balanceLedger.adjustBalance(user.getId(), 1000.0f);
         }
 
         final Integer userId = user.getId();
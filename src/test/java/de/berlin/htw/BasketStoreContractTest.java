@@ -0,0 +1,166 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.core.Response;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.store.BasketStore;
+
+/**
+ * Gemeinsame Tests, die jede Implementierung von {@link BasketStore} bestehen muss.
+ */
+abstract class BasketStoreContractTest {
+
+    private String userName;
+
+    /**
+     * @return Die zu testende Implementierung
+     */
+    protected abstract BasketStore store();
+
+    @BeforeEach
+    void createUserName() {
+        userName = "contract-" + UUID.randomUUID();
+    }
+
+    @AfterEach
+    void clearBasket() {
+        store().clear(userName);
+    }
+
+    @Test
+    void testMissingBasket() {
+        assertTrue(store().getItems(userName).isEmpty());
+        assertNull(store().removeItem(userName, 1L));
+        assertFalse(store().clear(userName));
+    }
+
+    @Test
+    void testPutKeepsInsertionOrder() {
+        store().putItem(userName, 3L, "c", current -> { });
+        store().putItem(userName, 1L, "a", current -> { });
+        Map<Long, String> items = store().putItem(userName, 2L, "b", current -> { });
+
+        assertEquals(List.of(3L, 1L, 2L), new ArrayList<>(items.keySet()));
+        assertEquals(items, store().getItems(userName));
+    }
+
+    @Test
+    void testPutReplacesItem() {
+        store().putItem(userName, 1L, "old", current -> { });
+        Map<Long, String> items = store().putItem(userName, 1L, "new", current -> { });
+
+        assertEquals(Map.of(1L, "new"), items);
+        assertEquals(Map.of(1L, "new"), store().getItems(userName));
+    }
+
+    @Test
+    void testCheckSeesCurrentState() {
+        store().putItem(userName, 1L, "a", current -> { });
+        AtomicReference<Map<Long, String>> seen = new AtomicReference<>();
+        store().putItem(userName, 2L, "b", seen::set);
+
+        assertEquals(Map.of(1L, "a"), seen.get());
+    }
+
+    @Test
+    void testFailedCheckWritesNothing() {
+        store().putItem(userName, 1L, "a", current -> { });
+
+        assertThrows(ClientErrorException.class, () -> store().putItem(userName, 2L, "b", current -> {
+            throw new ClientErrorException(Response.Status.CONFLICT);
+        }));
+        assertEquals(Map.of(1L, "a"), store().getItems(userName));
+    }
+
+    @Test
+    void testRemoveAndClear() {
+        store().putItem(userName, 1L, "a", current -> { });
+        store().putItem(userName, 2L, "b", current -> { });
+
+        assertEquals(Map.of(2L, "b"), store().removeItem(userName, 1L));
+        assertNull(store().removeItem(userName, 1L));
+        assertTrue(store().clear(userName));
+        assertTrue(store().getItems(userName).isEmpty());
+        assertFalse(store().clear(userName));
+    }
+
+    @Test
+    void testRemovingLastItemDeletesBasket() {
+        store().putItem(userName, 1L, "a", current -> { });
+
+        assertTrue(store().removeItem(userName, 1L).isEmpty());
+        assertFalse(store().clear(userName));
+    }
+
+    @Test
+    void testRemoveItemsKeepsChangedAndAddedItems() {
+        store().putItem(userName, 1L, "a", current -> { });
+        store().putItem(userName, 2L, "b", current -> { });
+        Map<Long, String> ordered = store().getItems(userName);
+        // nach dem Lesen geändert bzw. hinzugefügt
+        store().putItem(userName, 2L, "b2", current -> { });
+        store().putItem(userName, 3L, "c", current -> { });
+
+        Map<Long, String> remaining = store().removeItems(userName, ordered);
+
+        assertEquals(Map.of(2L, "b2", 3L, "c"), remaining);
+        assertEquals(remaining, store().getItems(userName));
+    }
+
+    @Test
+    void testRemoveItemsDeletesUnchangedBasket() {
+        store().putItem(userName, 1L, "a", current -> { });
+        store().putItem(userName, 2L, "b", current -> { });
+
+        assertTrue(store().removeItems(userName, store().getItems(userName)).isEmpty());
+        assertFalse(store().clear(userName));
+        assertTrue(store().removeItems(userName, Map.of(1L, "a")).isEmpty());
+    }
+
+    @Test
+    void testCheckAndPutAreAtomic() throws Exception {
+        final int limit = 10;
+        final AtomicInteger rejected = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (long product = 1; product <= 32; product++) {
+            final long productKey = product;
+            futures.add(executor.submit(() -> {
+                try {
+                    store().putItem(userName, productKey, "item-" + productKey, current -> {
+                        if (current.size() >= limit) {
+                            throw new ClientErrorException(Response.Status.CONFLICT);
+                        }
+                    });
+                } catch (ClientErrorException e) {
+                    // Limit erreicht oder (Redis) zu oft gleichzeitig geändert
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        final int size = store().getItems(userName).size();
+        assertTrue(size <= limit, "Limit überschritten: " + size);
+        assertEquals(32, size + rejected.get());
+    }
+}
@@ -0,0 +1,65 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+
+import jakarta.ws.rs.BadRequestException;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.BestSellerRanking;
+
+class BestSellerRankingTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    // 100 Stunden und 30 Minuten nach der Epoche: mitten in Stunde 100 und am Anfang von Minute 6030
+    private static final long NOW = 100 * HOUR + 30 * MINUTE;
+
+    @Test
+    void testParseWindow() {
+        assertEquals(Duration.ofMinutes(15), BestSellerRanking.parseWindow("15m"));
+        assertEquals(Duration.ofMinutes(90), BestSellerRanking.parseWindow("90m"));
+        assertEquals(Duration.ofHours(24), BestSellerRanking.parseWindow("24h"));
+        assertEquals(Duration.ofDays(7), BestSellerRanking.parseWindow("7d"));
+
+        for (String invalid : new String[] { null, "", "m", "0m", "-1h", "8d", "169h", "1w", "1.5h", "h1" }) {
+            assertThrows(BadRequestException.class, () -> BestSellerRanking.parseWindow(invalid), String.valueOf(invalid));
+        }
+    }
+
+    @Test
+    void testMinuteBuckets() {
+        // 15 volle Minuten zurück plus die laufende
+        final String[] keys = BestSellerRanking.bucketKeys("qty", Duration.ofMinutes(15), NOW + 20_000);
+        assertEquals(16, keys.length);
+        assertEquals("bestseller:qty:m:6030", keys[0]);
+        assertEquals("bestseller:qty:m:6015", keys[15]);
+
+        // genau auf der Grenze: der Beginn des Fensters fällt in Minute 6029
+        assertEquals(2, BestSellerRanking.bucketKeys("qty", Duration.ofMinutes(1), NOW).length);
+        assertEquals(61, BestSellerRanking.bucketKeys("rev", Duration.ofHours(1), NOW + 20_000).length);
+    }
+
+    @Test
+    void testHourBucketsRoundUp() {
+        // 90m: von 99:00 (Beginn um 99:00) bis zur laufenden Stunde 100, nicht nur die angebrochene Stunde
+        assertArrayEquals(new String[] { "bestseller:qty:h:100", "bestseller:qty:h:99" },
+                BestSellerRanking.bucketKeys("qty", Duration.ofMinutes(90), NOW));
+        assertArrayEquals(new String[] { "bestseller:qty:h:100", "bestseller:qty:h:99", "bestseller:qty:h:98" },
+                BestSellerRanking.bucketKeys("qty", Duration.ofMinutes(91), NOW));
+
+        // 2h und 24h decken mindestens das ganze Fenster ab
+        final String[] twoHours = BestSellerRanking.bucketKeys("rev", Duration.ofHours(2), NOW);
+        assertEquals(3, twoHours.length);
+        assertEquals("bestseller:rev:h:98", twoHours[2]);
+        final String[] day = BestSellerRanking.bucketKeys("rev", Duration.ofHours(24), NOW);
+        assertEquals(25, day.length);
+        assertEquals("bestseller:rev:h:76", day[24]);
+        assertEquals(169, BestSellerRanking.bucketKeys("qty", Duration.ofDays(7), NOW).length);
+    }
+}
@@ -0,0 +1,197 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.boundary.dto.Item;
+import de.berlin.htw.boundary.dto.Order;
+import de.berlin.htw.control.BalanceLedger;
+import de.berlin.htw.control.BasketController;
+import de.berlin.htw.control.OrderController;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Stresstest für parallele Warenkorb-Änderungen (Hinzufügen, Anzahl ändern) und Checkouts desselben Benutzers.
+ * Läuft nur mit dem Maven-Profil "load" (mvn test -Pload).
+ */
+@QuarkusTest
+@Tag("load")
+class CheckoutConcurrencyStressTest {
+
+    private static final Logger LOGGER = Logger.getLogger(CheckoutConcurrencyStressTest.class);
+
+    private static final int THREADS = 16;
+    private static final int MAX_ITEMS_IN_BASKET = 10;
+    // Der Katalog enthält 11 Testprodukte zu je 10.00 (1-2-3-4-5-0 bis 1-2-3-4-5-9 und 1-2-3-4-6-0)
+    private static final String[] PRODUCT_IDS = {
+        "1-2-3-4-5-0", "1-2-3-4-5-1", "1-2-3-4-5-2", "1-2-3-4-5-3", "1-2-3-4-5-4", "1-2-3-4-5-5",
+        "1-2-3-4-5-6", "1-2-3-4-5-7", "1-2-3-4-5-8", "1-2-3-4-5-9", "1-2-3-4-6-0"
+    };
+    // erwartete Ablehnungen unter Last; alles andere (z.B. NullPointerException) ist ein Fehler
+    private static final Set<String> EXPECTED_FAILURES = Set.of(
+            "BadRequestException", "NotFoundException", "ClientErrorException", "ServiceUnavailableException");
+
+    @Inject
+    BasketController basketController;
+
+    @Inject
+    OrderController orderController;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    BalanceLedger balanceLedger;
+
+    @Inject
+    MeterRegistry registry;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private String userName;
+
+    @Test
+    void testBasketLimitUnderConcurrentAdds() throws Exception {
+        createUser("StressBasket", 1000f);
+        final LoadHarness harness = new LoadHarness(THREADS, 20);
+        final double retriesBefore = registry.counter("basket.optimistic.retries").count();
+        final AtomicInteger violations = new AtomicInteger();
+
+        final LoadHarness.Report report = harness.run("basket-add", (worker, iteration) -> {
+            if (worker == 0 && iteration % 5 == 0) {
+                basketController.clearBasket(userName);
+            }
+            try {
+                basketController.addItemToBasket(userName, PRODUCT_IDS[(worker + iteration) % PRODUCT_IDS.length],
+                        item(PRODUCT_IDS[(worker + iteration) % PRODUCT_IDS.length]));
+            } finally {
+                if (basketController.getBasket(userName).getItems().size() > MAX_ITEMS_IN_BASKET) {
+                    violations.incrementAndGet();
+                }
+            }
+        });
+
+        LOGGER.infof("%s, WATCH-Wiederholungen %.0f", report,
+                registry.counter("basket.optimistic.retries").count() - retriesBefore);
+        assertEquals(0, violations.get(), "Warenkorb hatte mehr als " + MAX_ITEMS_IN_BASKET + " Artikel");
+        assertTrue(report.getSuccesses() > 0);
+    }
+
+    @Test
+    void testBalanceNeverNegativeUnderConcurrentCheckouts() throws Exception {
+        final float initialBalance = 95f;
+        createUser("StressCheckout", initialBalance);
+        final LoadHarness harness = new LoadHarness(THREADS, 10);
+        final AtomicInteger placedOrders = new AtomicInteger();
+        final Timer debitTimer = registry.timer("checkout.balance.debit");
+        final long debitsBefore = debitTimer.count();
+
+        final LoadHarness.Report report = harness.run("checkout", (worker, iteration) -> {
+            final String productId = PRODUCT_IDS[worker % PRODUCT_IDS.length];
+            if (worker % 2 == 1) {
+                // Anzahl ändern, während andere Threads bestellen
+                final Item changed = item(productId);
+                changed.setCount(1 + iteration % 3);
+                basketController.changeItemCount(userName, productId, changed);
+                return;
+            }
+            try {
+                basketController.addItemToBasket(userName, productId, item(productId));
+            } catch (Exception e) {
+                // Artikel liegt schon im Warenkorb oder das Guthaben reicht nicht mehr, trotzdem bestellen
+            }
+            final Order order = orderController.placeOrder(userName);
+            if (order != null) {
+                placedOrders.incrementAndGet();
+            }
+        });
+
+        final float finalBalance = inRequestContext(
+                () -> balanceLedger.getBalance(userRepository.findByName(userName).getId()));
+        LOGGER.infof("%s, Bestellungen %d, Restguthaben %.2f, Abbuchungen %d, max. Abbuchungsdauer %.1f ms", report,
+                placedOrders.get(), finalBalance, debitTimer.count() - debitsBefore,
+                debitTimer.max(TimeUnit.MILLISECONDS));
+        assertTrue(EXPECTED_FAILURES.containsAll(report.getFailures().keySet()),
+                "Unerwartete Fehler: " + report.getFailures());
+        assertTrue(finalBalance >= 0f, "Guthaben ist negativ: " + finalBalance);
+        assertTrue(placedOrders.get() > 0);
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        if (userName == null) {
+            return;
+        }
+        inRequestContext(() -> {
+            basketController.clearBasket(userName);
+            return null;
+        });
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE FROM ORDER_ITEM WHERE ORDER_ID IN"
+                + " (SELECT o.ID FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1)")
+                .setParameter(1, userName).executeUpdate();
+        entityManager.createNativeQuery("DELETE o FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, userName).executeUpdate();
+        entityManager.createNativeQuery("DELETE s FROM USER_ORDER_STATS s JOIN USER u ON s.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, userName).executeUpdate();
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :userName")
+                .setParameter("userName", userName).executeUpdate();
+        userTransaction.commit();
+        userName = null;
+    }
+
+    private void createUser(final String name, final float balance) {
+        final UserEntity user = new UserEntity();
+        user.setName(name);
+        user.setBalance(balance);
+        userRepository.persistUser(user);
+        userName = name;
+    }
+
+    private static Item item(final String productId) {
+        final Item item = new Item();
+        item.setProductId(productId);
+        item.setProductName("Test Item");
+        item.setCount(1);
+        item.setPrice(10f);
+        return item;
+    }
+
+    private static <T> T inRequestContext(final Callable<T> action) throws Exception {
+        final ManagedContext requestContext = Arc.container().requestContext();
+        if (requestContext.isActive()) {
+            return action.call();
+        }
+        requestContext.activate();
+        try {
+            return action.call();
+        } finally {
+            requestContext.terminate();
+        }
+    }
+}
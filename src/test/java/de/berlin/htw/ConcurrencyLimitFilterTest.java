@@ -0,0 +1,71 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Prüft das adaptive Concurrency-Limit über HTTP: Mit einem Limit von 1 für {@code /orders} hält eine Anfrage,
+ * deren Body noch nicht vollständig gesendet ist, den einzigen Platz; die nächste Anfrage derselben Gruppe
+ * muss sofort mit 503 und den Limit-Headern abgelehnt werden, andere Gruppen bleiben erreichbar.
+ */
+@QuarkusTest
+@TestProfile(ConcurrencyLimitFilterTest.SingleSlotProfile.class)
+class ConcurrencyLimitFilterTest {
+
+    @TestHTTPResource("/orders/search/index")
+    URL blockingUrl;
+
+    @Test
+    void testRejectsAboveLimitWithHeaders() throws Exception {
+        try (Socket socket = new Socket(blockingUrl.getHost(), blockingUrl.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            // Content-Length ohne Body: die Anfrage bleibt offen und belegt den Platz
+            out.write(("POST " + blockingUrl.getPath() + " HTTP/1.1\r\n"
+                    + "Host: " + blockingUrl.getHost() + "\r\n"
+                    + "X-User-Id: 5\r\n"
+                    + "Content-Type: application/json\r\n"
+                    + "Content-Length: 100\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Thread.sleep(200);
+
+            given()
+                .when().header("X-User-Id", "5")
+                .get("/orders/stats")
+                .then()
+                .statusCode(503)
+                .header("Retry-After", equalTo("1"))
+                .header("X-Concurrency-Limit", equalTo("1"));
+
+            // eigene Gruppe mit eigenem Limit
+            given()
+                .when().header("X-User-Id", "5")
+                .get("/basket")
+                .then()
+                .statusCode(200);
+        }
+    }
+
+    public static class SingleSlotProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "app.limit.orders.initial", "1",
+                    "app.limit.orders.min", "1",
+                    "app.limit.orders.max", "1");
+        }
+    }
+}
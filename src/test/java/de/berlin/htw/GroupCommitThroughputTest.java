@@ -0,0 +1,132 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.boundary.dto.Item;
+import de.berlin.htw.control.BasketController;
+import de.berlin.htw.control.CheckoutCoordinator;
+import de.berlin.htw.control.OrderController;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Vergleicht den Durchsatz von Checkouts mit eigener Transaktion und mit Group Commit
+ * (CheckoutCoordinator). Jeder Lastthread bestellt als eigener Benutzer.
+ * Läuft nur mit dem Maven-Profil "load" (mvn test -Pload).
+ */
+@QuarkusTest
+@TestProfile(GroupCommitThroughputTest.GroupCommitProfile.class)
+@Tag("load")
+class GroupCommitThroughputTest {
+
+    private static final Logger LOGGER = Logger.getLogger(GroupCommitThroughputTest.class);
+
+    private static final int THREADS = 32;
+    private static final int ITERATIONS = 20;
+    private static final String PRODUCT_ID = "1-2-3-4-5-0";
+
+    @Inject
+    BasketController basketController;
+
+    @Inject
+    OrderController orderController;
+
+    @Inject
+    CheckoutCoordinator checkoutCoordinator;
+
+    @Inject
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private final List<String> userNames = new ArrayList<>();
+
+    @BeforeEach
+    void createUsers() {
+        for (int i = 0; i < THREADS; i++) {
+            final UserEntity user = new UserEntity();
+            user.setName("GroupCommit" + i);
+            user.setBalance(1_000_000f);
+            userRepository.persistUser(user);
+            userNames.add(user.getName());
+        }
+    }
+
+    @Test
+    void compareThroughput() throws Exception {
+        final LoadHarness harness = new LoadHarness(THREADS, ITERATIONS);
+
+        final LoadHarness.Report single = harness.run("checkout (eigene Transaktion)", (worker, iteration) -> {
+            basketController.addItemToBasket(userNames.get(worker), PRODUCT_ID, item());
+            orderController.placeOrder(userNames.get(worker));
+        });
+        final LoadHarness.Report grouped = harness.run("checkout (Group Commit)", (worker, iteration) -> {
+            basketController.addItemToBasket(userNames.get(worker), PRODUCT_ID, item());
+            checkoutCoordinator.submit(userNames.get(worker));
+        });
+
+        LOGGER.info(single);
+        LOGGER.info(grouped);
+        LOGGER.infof("Group Commit: %.2fx Durchsatz", grouped.getThroughput() / single.getThroughput());
+        assertEquals(THREADS * ITERATIONS, single.getSuccesses(), "Fehler: " + single.getFailures());
+        assertEquals(THREADS * ITERATIONS, grouped.getSuccesses(), "Fehler: " + grouped.getFailures());
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        for (String userName : userNames) {
+            basketController.clearBasket(userName);
+        }
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE FROM ORDER_ITEM WHERE ORDER_ID IN"
+                + " (SELECT o.ID FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME LIKE 'GroupCommit%')")
+                .executeUpdate();
+        entityManager.createNativeQuery("DELETE o FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME LIKE 'GroupCommit%'")
+                .executeUpdate();
+        entityManager.createNativeQuery("DELETE s FROM USER_ORDER_STATS s JOIN USER u ON s.USER_ID = u.ID WHERE u.NAME LIKE 'GroupCommit%'")
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name LIKE 'GroupCommit%'").executeUpdate();
+        userTransaction.commit();
+        userNames.clear();
+    }
+
+    private static Item item() {
+        final Item item = new Item();
+        item.setProductId(PRODUCT_ID);
+        item.setProductName("Test Item 0");
+        item.setCount(1);
+        item.setPrice(10f);
+        return item;
+    }
+
+    public static class GroupCommitProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            // der Hintergrund-Thread läuft nur bei eingeschaltetem Group Commit
+            return Map.of("app.checkout.group-commit.enabled", "true");
+        }
+    }
+}
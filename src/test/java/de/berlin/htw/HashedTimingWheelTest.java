@@ -0,0 +1,56 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.store.HashedTimingWheel;
+
+class HashedTimingWheelTest {
+
+    private static final long TICK = 1_000;
+
+    private final List<String> expired = new ArrayList<>();
+
+    @Test
+    void expiresAfterDeadlineTick() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 8, 0);
+        wheel.schedule("past", -5);
+        wheel.schedule("soon", 2_500);
+
+        assertEquals(1, wheel.advance(1_000, expired::add));
+        assertEquals(List.of("past"), expired);
+
+        // der Tick mit der Deadline ist erst bei 3000 vollständig vergangen
+        assertEquals(0, wheel.advance(2_999, expired::add));
+        assertEquals(1, wheel.advance(3_000, expired::add));
+        assertEquals(List.of("past", "soon"), expired);
+    }
+
+    @Test
+    void countsRoundsForDeadlinesBeyondOneRevolution() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 8, 0);
+        wheel.schedule("late", 20_000);
+        wheel.schedule("early", 4_000);
+
+        wheel.advance(20_999, expired::add);
+        assertEquals(List.of("early"), expired);
+        wheel.advance(21_000, expired::add);
+        assertEquals(List.of("early", "late"), expired);
+    }
+
+    @Test
+    void acceptsReschedulingWhileAdvancing() {
+        HashedTimingWheel<String> wheel = new HashedTimingWheel<>(TICK, 4, 0);
+        wheel.schedule("sliding", 1_500);
+
+        // wie ein gleitendes Timeout: beim ersten Auslösen auf später verschieben
+        wheel.advance(2_000, value -> wheel.schedule(value, 6_500));
+        assertEquals(0, wheel.advance(6_999, expired::add));
+        assertEquals(1, wheel.advance(7_000, expired::add));
+        assertEquals(List.of("sliding"), expired);
+    }
+}
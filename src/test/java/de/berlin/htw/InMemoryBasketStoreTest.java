@@ -0,0 +1,19 @@
+package de.berlin.htw;
+
+import jakarta.inject.Inject;
+
+import de.berlin.htw.control.store.BasketStore;
+import de.berlin.htw.control.store.InMemoryBasketStore;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class InMemoryBasketStoreTest extends BasketStoreContractTest {
+
+    @Inject
+    InMemoryBasketStore store;
+
+    @Override
+    protected BasketStore store() {
+        return store;
+    }
+}
@@ -0,0 +1,155 @@
+package de.berlin.htw;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+
+/**
+ * Kleiner In-Process-Lastgenerator für Tests: startet mehrere Threads gleichzeitig,
+ * führt eine Aufgabe wiederholt in einem eigenen Request-Kontext aus und sammelt
+ * Durchsatz, Latenzen und Fehler (nach Exception-Klasse).
+ */
+public final class LoadHarness {
+
+    /**
+     * Eine Aufgabe, die von einem Lastthread ausgeführt wird.
+     */
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * @param worker Nummer des Threads (0 bis threads - 1)
+         * @param iteration Nummer der Wiederholung innerhalb des Threads
+         */
+        void run(int worker, int iteration) throws Exception;
+    }
+
+    private final int threads;
+    private final int iterations;
+
+    public LoadHarness(final int threads, final int iterations) {
+        this.threads = threads;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Führt die Aufgabe threads * iterations mal aus. Alle Threads starten gleichzeitig.
+     * Exceptions der Aufgabe werden gezählt, nicht weitergeworfen.
+     */
+    public Report run(final String name, final Task task) throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[][] latencies = new long[threads][iterations];
+        final LongAdder successes = new LongAdder();
+        final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+        final List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            final int worker = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                final ManagedContext requestContext = Arc.container().requestContext();
+                for (int i = 0; i < iterations; i++) {
+                    final long begin = System.nanoTime();
+                    requestContext.activate();
+                    try {
+                        task.run(worker, i);
+                        successes.increment();
+                    } catch (Exception e) {
+                        failures.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+                    } finally {
+                        requestContext.terminate();
+                        latencies[worker][i] = System.nanoTime() - begin;
+                    }
+                }
+                return null;
+            }));
+        }
+
+        final long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Lastthread abgebrochen", e.getCause());
+            }
+        }
+        final long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        final long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        final Map<String, Long> failureCounts = new ConcurrentHashMap<>();
+        failures.forEach((k, v) -> failureCounts.put(k, v.sum()));
+        return new Report(name, all.length, successes.sum(), failureCounts, elapsed, all);
+    }
+
+    /**
+     * Ergebnis eines Laufs.
+     */
+    public static final class Report {
+
+        private final String name;
+        private final long operations;
+        private final long successes;
+        private final Map<String, Long> failures;
+        private final long elapsedNanos;
+        private final long[] sortedLatencies;
+
+        Report(final String name, final long operations, final long successes, final Map<String, Long> failures,
+                final long elapsedNanos, final long[] sortedLatencies) {
+            this.name = name;
+            this.operations = operations;
+            this.successes = successes;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getSuccesses() {
+            return successes;
+        }
+
+        public Map<String, Long> getFailures() {
+            return failures;
+        }
+
+        public double getThroughput() {
+            return operations / (elapsedNanos / 1_000_000_000d);
+        }
+
+        /**
+         * @param quantile z.B. 0.99
+         * @return Latenz in Millisekunden
+         */
+        public double getLatencyMillis(final double quantile) {
+            if (sortedLatencies.length == 0) {
+                return 0d;
+            }
+            final int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(quantile * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1_000_000d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d Operationen, %d erfolgreich, Fehler %s, %.1f ops/s, p50 %.2f ms, p99 %.2f ms",
+                    name, operations, successes, failures, getThroughput(), getLatencyMillis(0.5), getLatencyMillis(0.99));
+        }
+    }
+}
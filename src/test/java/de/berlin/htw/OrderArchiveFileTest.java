@@ -0,0 +1,123 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.berlin.htw.entity.dao.OrderArchiveFile;
+import de.berlin.htw.entity.dao.OrderArchiveFile.Directory;
+import de.berlin.htw.entity.dao.OrderArchiveFile.Row;
+import de.berlin.htw.entity.dao.OrderArchiveFile.UserTotals;
+
+class OrderArchiveFileTest {
+
+    private static final LocalDateTime MONTH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsUserRowsNewestFirst() {
+        Path file = dir.resolve("p202401.oarc");
+        List<Row> rows = new ArrayList<>();
+        rows.add(row(10, 7, 1));
+        rows.add(row(11, 3, 2));
+        rows.add(row(12, 7, 3));
+        rows.add(row(13, 7, 3));
+        rows.add(row(14, 9, 4));
+        OrderArchiveFile.write(file, 1_706_742_000L, rows);
+
+        Directory directory = OrderArchiveFile.readDirectory(file);
+        assertEquals(1_706_742_000L, directory.getUpperBound());
+        assertEquals(5, directory.getRowCount());
+        assertEquals(3, directory.count(7));
+        assertEquals(0, directory.count(8));
+
+        List<Row> user = OrderArchiveFile.read(file, directory, 7, 0, 10);
+        assertEquals(List.of(13, 12, 10), user.stream().map(Row::getOrderId).toList());
+        Row newest = user.get(0);
+        assertEquals(7, newest.getUserId());
+        assertEquals(MONTH.plusDays(3).plusNanos(123_000_000), newest.getOrderDate());
+        assertEquals(13.37f, newest.getTotal());
+        assertArrayEquals(new byte[] { 1, 13 }, newest.getItemsData());
+    }
+
+    @Test
+    void readsSlices() {
+        Path file = dir.resolve("p202401.oarc");
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(row(100 + i, i % 2, i));
+        }
+        OrderArchiveFile.write(file, 1_706_742_000L, rows);
+        Directory directory = OrderArchiveFile.readDirectory(file);
+
+        assertEquals(List.of(115, 113), ids(OrderArchiveFile.read(file, directory, 1, 2, 2)));
+        assertEquals(List.of(101), ids(OrderArchiveFile.read(file, directory, 1, 9, 5)));
+        assertTrue(OrderArchiveFile.read(file, directory, 1, 10, 5).isEmpty());
+        assertTrue(OrderArchiveFile.read(file, directory, 5, 0, 5).isEmpty());
+    }
+
+    @Test
+    void detectsCorruption() throws Exception {
+        Path file = dir.resolve("p202401.oarc");
+        OrderArchiveFile.write(file, 1_706_742_000L, List.of(row(1, 1, 1)));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(file, bytes);
+
+        assertThrows(IllegalStateException.class, () -> OrderArchiveFile.readDirectory(file));
+    }
+
+    @Test
+    void readsOnlyTheUsersBlock() throws Exception {
+        Path file = dir.resolve("p202401.oarc");
+        List<Row> rows = new ArrayList<>();
+        rows.add(row(10, 7, 1));
+        rows.add(row(11, 9, 2));
+        OrderArchiveFile.write(file, 1_706_742_000L, rows);
+        Directory directory = OrderArchiveFile.readDirectory(file);
+
+        // letzter Block (Benutzer 9) direkt vor der Prüfsumme; die Prüfsumme wird nur im Verzeichnis geprüft
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - Long.BYTES - 1] ^= 0x55;
+        Files.write(file, bytes);
+
+        assertEquals(List.of(10), ids(OrderArchiveFile.read(file, directory, 7, 0, 10)));
+        assertThrows(IllegalStateException.class, () -> OrderArchiveFile.readDirectory(file));
+    }
+
+    @Test
+    void recordsTotalsPerUser() {
+        Path file = dir.resolve("p202401.oarc");
+        List<Row> rows = new ArrayList<>();
+        rows.add(row(10, 7, 1));
+        rows.add(row(12, 7, 5));
+        rows.add(row(11, 3, 2));
+        OrderArchiveFile.write(file, 1_706_742_000L, rows);
+
+        List<UserTotals> totals = OrderArchiveFile.readDirectory(file).getUserTotals();
+        assertEquals(List.of(3, 7), totals.stream().map(UserTotals::getUserId).toList());
+        UserTotals user = totals.get(1);
+        assertEquals(2, user.getOrderCount());
+        assertEquals(new BigDecimal("22.74"), user.getTotalSpent());
+        assertEquals(MONTH.plusDays(5).plusNanos(123_000_000), user.getLastOrderDate());
+    }
+
+    private static Row row(final int orderId, final int userId, final int day) {
+        return new Row(orderId, userId, orderId + 0.37f, MONTH.plusDays(day).plusNanos(123_000_000),
+                new byte[] { 1, (byte) orderId });
+    }
+
+    private static List<Integer> ids(final List<Row> rows) {
+        return rows.stream().map(Row::getOrderId).toList();
+    }
+}
@@ -0,0 +1,175 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.OrderItemsCodec;
+import de.berlin.htw.control.OrderStorage;
+import de.berlin.htw.control.ProductIds;
+import de.berlin.htw.entity.dao.OrderArchive;
+import de.berlin.htw.entity.dao.OrderArchiveFile.Row;
+import de.berlin.htw.entity.dao.OrderRepository;
+import de.berlin.htw.entity.dao.UserOrderStatsRepository;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.OrderEntity;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+import de.berlin.htw.entity.dto.UserEntity;
+import de.berlin.htw.entity.dto.UserOrderStatsEntity;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Historie und Statistik über Datenbank und Archiv: zwei Bestellungen in ORDERS, drei in einer archivierten Partition.
+ */
+@QuarkusTest
+class OrderArchiveTest {
+
+    private static final String USER_NAME = "ArchiveUser";
+    private static final String PARTITION = "p202401";
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    OrderRepository orderRepository;
+
+    @Inject
+    OrderStorage orderStorage;
+
+    @Inject
+    OrderArchive archive;
+
+    @Inject
+    UserOrderStatsRepository statsRepository;
+
+    @ConfigProperty(name = "app.orders.archive.dir")
+    String archiveDir;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private UserEntity user;
+
+    private final List<Integer> hotIds = new ArrayList<>();
+
+    @BeforeEach
+    void createOrders() throws Exception {
+        user = new UserEntity();
+        user.setName(USER_NAME);
+        user.setBalance(100f);
+        userRepository.persistUser(user);
+
+        userTransaction.begin();
+        for (int hours = 1; hours <= 2; hours++) {
+            OrderEntity order = new OrderEntity();
+            order.setUser(entityManager.find(UserEntity.class, user.getId()));
+            order.setTotal(10f);
+            order.setOrderDate(LocalDateTime.now().minusHours(hours));
+            orderStorage.saveOrder(order, List.of(item(order)));
+            hotIds.add(order.getId());
+        }
+        userTransaction.commit();
+
+        List<Row> rows = new ArrayList<>();
+        for (int day = 1; day <= 3; day++) {
+            rows.add(new Row(-day, user.getId(), 10f, LocalDateTime.of(2024, 1, 31 - day, 12, 0),
+                    OrderItemsCodec.encode(List.of(item(null)))));
+        }
+        // Bestellung eines anderen Benutzers in derselben Partition
+        rows.add(new Row(-99, user.getId() + 1, 20f, LocalDateTime.of(2024, 1, 15, 12, 0),
+                OrderItemsCodec.encode(List.of(item(null)))));
+        archive.write(PARTITION, 1_706_742_000L, rows);
+        archive.publish(PARTITION);
+    }
+
+    @Test
+    void testPagesSpanBothTiers() {
+        assertEquals(List.of(hotIds.get(0), hotIds.get(1), -1, -2, -3), ids(orderRepository.findOrdersByUser(user)));
+        assertEquals(List.of(hotIds.get(0), hotIds.get(1), -1), ids(orderRepository.findOrdersByUser(user, 0, 3)));
+        assertEquals(List.of(hotIds.get(1), -1), ids(orderRepository.findOrdersByUser(user, 1, 2)));
+        assertEquals(List.of(-2, -3), ids(orderRepository.findOrdersByUser(user, 3, 2)));
+        // erste Seite hinter der Datenbank: deren Anzahl muss gezählt werden
+        assertEquals(List.of(-3), ids(orderRepository.findOrdersByUser(user, 4, 2)));
+        assertEquals(List.of(), ids(orderRepository.findOrdersByUser(user, 6, 2)));
+    }
+
+    @Test
+    void testArchivedOrdersViaResource() {
+        given()
+            .when().header("X-User-Id", String.valueOf(user.getId()))
+            .queryParam("page", 1)
+            .queryParam("size", 2)
+            .get("/orders")
+            .then()
+            .statusCode(200)
+            .body("size()", equalTo(2))
+            .body("[1].items[0].productId", equalTo("1-2-3-4-5-0"));
+    }
+
+    @Test
+    void testStatsRebuildCountsArchivedOrders() {
+        statsRepository.rebuildAll();
+
+        // zwei Bestellungen in ORDERS, drei im Archiv
+        final UserOrderStatsEntity stats = statsRepository.findByUser(user);
+        assertEquals(5, stats.getOrderCount());
+        assertEquals(50f, stats.getTotalSpent(), 0.001f);
+        assertTrue(stats.getLastOrderDate().isAfter(LocalDateTime.now().minusHours(3)), String.valueOf(stats.getLastOrderDate()));
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        Files.deleteIfExists(Paths.get(archiveDir, PARTITION + ".oarc"));
+        archive.refresh();
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE s FROM USER_ORDER_STATS s JOIN USER u ON s.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, USER_NAME)
+                .executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM ORDER_ITEM WHERE ORDER_ID IN"
+                + " (SELECT o.ID FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1)")
+                .setParameter(1, USER_NAME)
+                .executeUpdate();
+        entityManager.createNativeQuery("DELETE o FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, USER_NAME)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :name")
+                .setParameter("name", USER_NAME)
+                .executeUpdate();
+        userTransaction.commit();
+        hotIds.clear();
+    }
+
+    private static OrderItemEntity item(final OrderEntity order) {
+        OrderItemEntity item = new OrderItemEntity();
+        item.setOrder(order);
+        item.setProductId(ProductIds.pack("1-2-3-4-5-0"));
+        item.setProductName("Test Item 0");
+        item.setCount(1);
+        item.setPrice(10f);
+        return item;
+    }
+
+    private static List<Integer> ids(final List<OrderEntity> orders) {
+        return orders.stream().map(OrderEntity::getId).toList();
+    }
+}
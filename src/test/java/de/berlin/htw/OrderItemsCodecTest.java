@@ -0,0 +1,65 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.OrderItemsCodec;
+import de.berlin.htw.control.ProductIds;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+
+class OrderItemsCodecTest {
+
+    @Test
+    void encodeAndDecodeRoundTrip() {
+        List<OrderItemEntity> items = new ArrayList<>();
+        items.add(item("1-2-3-4-5-6", "Schokolade", 2, 1.99f));
+        items.add(item("1023-0-0-0-0-1023", "Käse (mit Umlaut)", 300, 12.5f));
+
+        List<OrderItemEntity> decoded = OrderItemsCodec.decode(OrderItemsCodec.encode(items));
+
+        assertEquals(2, decoded.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(items.get(i).getProductId(), decoded.get(i).getProductId());
+            assertEquals(items.get(i).getProductName(), decoded.get(i).getProductName());
+            assertEquals(items.get(i).getCount(), decoded.get(i).getCount());
+            assertEquals(items.get(i).getPrice(), decoded.get(i).getPrice());
+        }
+    }
+
+    @Test
+    void fullBasketIsCompact() {
+        List<OrderItemEntity> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(item("1-2-3-4-5-" + i, "Test Item " + i, 1, 10f));
+        }
+        byte[] data = OrderItemsCodec.encode(items);
+        // 2 Byte Kopf + je 8 (Produktnummer) + 1 (Anzahl) + 4 (Preis) + 2 + 11 (Name)
+        assertEquals(2 + 10 * 26, data.length);
+    }
+
+    @Test
+    void emptyOrder() {
+        assertTrue(OrderItemsCodec.decode(OrderItemsCodec.encode(List.of())).isEmpty());
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        byte[] data = OrderItemsCodec.encode(List.of(item("1-2-3-4-5-6", "Test", 1, 1f)));
+        data[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> OrderItemsCodec.decode(data));
+        assertThrows(IllegalArgumentException.class, () -> OrderItemsCodec.decode(new byte[] { 1, 1, 0 }), "abgeschnitten");
+    }
+
+    private static OrderItemEntity item(String productId, String name, int count, float price) {
+        OrderItemEntity item = new OrderItemEntity();
+        item.setProductId(ProductIds.pack(productId));
+        item.setProductName(name);
+        item.setCount(count);
+        item.setPrice(price);
+        return item;
+    }
+}
@@ -1,13 +1,52 @@
 package de.berlin.htw;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import de.berlin.htw.boundary.CborProvider;
+import de.berlin.htw.boundary.dto.Item;
+import de.berlin.htw.boundary.dto.OrderStats;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.redis.datasource.RedisDataSource;
 import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
 
 @QuarkusTest
 class OrderResourceTest {
 
+    private static final String ORDER_USER = "OrderResourceTest";
+    private static final String PRODUCT_ID = "1-2-3-4-5-3";
+    private static final int SEARCH_ROUNDS = 10;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
     @Test
     void testUnauthorized() {
         given()
@@ -29,4 +68,139 @@ class OrderResourceTest {
         	.statusCode(415);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testOrderStats() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .get("/orders/stats")
+            .then()
+            .log().all()
+            .statusCode(200)
+            .body("orderCount", greaterThanOrEqualTo(0))
+            .body("totalSpent", notNullValue());
+    }
+
+
+    @Test
+    void testOrderStatsAsCbor() throws Exception {
+        String userId = createOrderUser();
+        given().header("X-User-Id", userId).contentType(ContentType.JSON).body(orderItem())
+            .post("/basket/" + PRODUCT_ID).then().statusCode(201);
+        given().header("X-User-Id", userId).post("/basket").then().statusCode(201);
+
+        byte[] response = given()
+            .log().all()
+            .when().header("X-User-Id", userId)
+            .accept(CborProvider.APPLICATION_CBOR)
+            .get("/orders/stats")
+            .then()
+            .log().all()
+            .statusCode(200)
+            .contentType(CborProvider.APPLICATION_CBOR)
+            .extract().asByteArray();
+
+        // LocalDateTime braucht das JavaTimeModule, sonst scheitert die Serialisierung mit 500
+        OrderStats stats = CborProvider.mapper().readValue(response, OrderStats.class);
+        assertEquals(1, stats.getOrderCount());
+        assertNotNull(stats.getLastOrderDate());
+    }
+
+    @Test
+    void testSearchFindsOrderCommittedDuringRebuild() throws Exception {
+        String userId = createOrderUser();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int round = 1; round <= SEARCH_ROUNDS; round++) {
+                given().header("X-User-Id", userId).contentType(ContentType.JSON).body(orderItem())
+                    .post("/basket/" + PRODUCT_ID).then().statusCode(201);
+                // Neuaufbau und Checkout laufen gleichzeitig, die Bestellung muss danach trotzdem gefunden werden
+                Future<?> rebuild = executor.submit(() -> given().header("X-User-Id", userId)
+                    .post("/orders/search/index").then().statusCode(204));
+                given().header("X-User-Id", userId).post("/basket").then().statusCode(201);
+                rebuild.get();
+
+                given()
+                    .when().header("X-User-Id", userId)
+                    .queryParam("q", "test item")
+                    .get("/orders/search")
+                    .then()
+                    .statusCode(200)
+                    .body("size()", is(round));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSearchOrdersWithoutQuery() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .get("/orders/search")
+            .then()
+            .log().all()
+            .statusCode(400);
+    }
+
+    @Test
+    void testOrdersPage() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .queryParam("page", 0)
+            .queryParam("size", 1)
+            .get("/orders")
+            .then()
+            .log().all()
+            .statusCode(200)
+            .body("size()", lessThanOrEqualTo(1));
+    }
+
+    @Test
+    void testOrdersInvalidPageSize() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .queryParam("size", 0)
+            .get("/orders")
+            .then()
+            .log().all()
+            .statusCode(400);
+    }
+
+    @AfterEach
+    void cleanUpOrderUser() throws Exception {
+        redisDS.key().del("orders:search:" + ORDER_USER);
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE FROM ORDER_ITEM WHERE ORDER_ID IN"
+                + " (SELECT o.ID FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1)")
+                .setParameter(1, ORDER_USER).executeUpdate();
+        entityManager.createNativeQuery("DELETE o FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, ORDER_USER).executeUpdate();
+        entityManager.createNativeQuery("DELETE s FROM USER_ORDER_STATS s JOIN USER u ON s.USER_ID = u.ID WHERE u.NAME = ?1")
+                .setParameter(1, ORDER_USER).executeUpdate();
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :name")
+                .setParameter("name", ORDER_USER).executeUpdate();
+        userTransaction.commit();
+    }
+
+    private String createOrderUser() {
+        UserEntity user = new UserEntity();
+        user.setName(ORDER_USER);
+        user.setBalance(1000f);
+        userRepository.persistUser(user);
+        return String.valueOf(user.getId());
+    }
+
+    private static Item orderItem() {
+        Item item = new Item();
+        item.setProductId(PRODUCT_ID);
+        item.setProductName("Test Item 3");
+        item.setPrice(10f);
+        item.setCount(1);
+        return item;
+    }
+}
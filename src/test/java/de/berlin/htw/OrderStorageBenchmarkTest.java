@@ -0,0 +1,165 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.OrderStorage;
+import de.berlin.htw.control.ProductIds;
+import de.berlin.htw.entity.dao.OrderRepository;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.OrderEntity;
+import de.berlin.htw.entity.dto.OrderItemEntity;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.test.junit.QuarkusTest;
+
+/**
+ * Vergleicht Schreib- und Lesekosten sowie den Platzbedarf der Bestellpositionen im
+ * normalisierten Layout (ORDER_ITEM) und im eingebetteten Layout (ORDERS.ITEMS_DATA).
+ * Läuft nur mit dem Maven-Profil "load" (mvn test -Pload).
+ */
+@QuarkusTest
+@Tag("load")
+class OrderStorageBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(OrderStorageBenchmarkTest.class);
+
+    private static final int ORDERS = 2000;
+    private static final int ITEMS_PER_ORDER = 10;
+    private static final int READ_PAGE = 50;
+    private static final String USER_NAME = "StorageBenchmark";
+
+    @Inject
+    OrderStorage orderStorage;
+
+    @Inject
+    OrderRepository orderRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private UserEntity user;
+
+    @BeforeEach
+    void createUser() {
+        user = new UserEntity();
+        user.setName(USER_NAME);
+        user.setBalance(0f);
+        userRepository.persistUser(user);
+    }
+
+    @Test
+    void compareNormalizedAndEmbedded() throws Exception {
+        for (OrderStorage.Mode mode : new OrderStorage.Mode[] { OrderStorage.Mode.NORMALIZED, OrderStorage.Mode.EMBEDDED }) {
+            final long sizeBefore = tableBytes();
+
+            final List<Integer> orderIds = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                userTransaction.begin();
+                final OrderEntity order = newOrder(entityManager.find(UserEntity.class, user.getId()));
+                orderStorage.saveOrder(order, newItems(order), mode);
+                userTransaction.commit();
+                orderIds.add(order.getId());
+            }
+            final long writeNanos = System.nanoTime() - start;
+
+            final long sizeAfter = tableBytes();
+
+            int readItems = 0;
+            start = System.nanoTime();
+            for (int from = 0; from < orderIds.size(); from += READ_PAGE) {
+                readItems += readPage(orderIds.subList(from, Math.min(from + READ_PAGE, orderIds.size())));
+            }
+            final long readNanos = System.nanoTime() - start;
+
+            assertEquals(ORDERS * ITEMS_PER_ORDER, readItems);
+            LOGGER.infof("%s: write %.3f ms/order, read %.3f ms/order, on disk ~%d bytes/order",
+                    mode, writeNanos / 1_000_000d / ORDERS, readNanos / 1_000_000d / ORDERS,
+                    (sizeAfter - sizeBefore) / ORDERS);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE FROM ORDER_ITEM WHERE ORDER_ID IN (SELECT ID FROM ORDERS WHERE USER_ID = ?1)")
+                .setParameter(1, user.getId()).executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM ORDERS WHERE USER_ID = ?1")
+                .setParameter(1, user.getId()).executeUpdate();
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.id = :id")
+                .setParameter("id", user.getId()).executeUpdate();
+        userTransaction.commit();
+    }
+
+    private int readPage(final List<Integer> orderIds) {
+        final ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            int items = 0;
+            for (OrderEntity order : orderRepository.findOrdersByIds(user, orderIds)) {
+                items += orderStorage.readItems(order).size();
+            }
+            return items;
+        } finally {
+            requestContext.terminate();
+        }
+    }
+
+    /**
+     * Belegter Platz (Daten und Indizes) von ORDERS und ORDER_ITEM laut InnoDB-Statistik.
+     */
+    private long tableBytes() throws Exception {
+        userTransaction.begin();
+        entityManager.createNativeQuery("ANALYZE TABLE ORDERS, ORDER_ITEM").getResultList();
+        final Number bytes = (Number) entityManager.createNativeQuery(
+                "SELECT SUM(DATA_LENGTH + INDEX_LENGTH) FROM information_schema.TABLES"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME IN ('ORDERS', 'ORDER_ITEM')")
+                .getSingleResult();
+        userTransaction.commit();
+        return bytes.longValue();
+    }
+
+    private static OrderEntity newOrder(final UserEntity user) {
+        final OrderEntity order = new OrderEntity();
+        order.setUser(user);
+        order.setTotal(10f * ITEMS_PER_ORDER);
+        order.setOrderDate(LocalDateTime.now());
+        return order;
+    }
+
+    private static List<OrderItemEntity> newItems(final OrderEntity order) {
+        final List<OrderItemEntity> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            final OrderItemEntity item = new OrderItemEntity();
+            item.setOrder(order);
+            item.setProductId(ProductIds.pack("1-2-3-4-5-" + i));
+            item.setProductName("Test Item " + i);
+            item.setCount(1);
+            item.setPrice(10f);
+            items.add(item);
+        }
+        return items;
+    }
+}
@@ -0,0 +1,102 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+
+import de.berlin.htw.boundary.CborProvider;
+import de.berlin.htw.boundary.dto.Basket;
+import de.berlin.htw.boundary.dto.Item;
+import de.berlin.htw.boundary.dto.Order;
+
+/**
+ * Vergleicht Nutzlastgröße und Serialisierungskosten von JSON (JSON-B, wie in den Ressourcen)
+ * und CBOR für einen vollen Warenkorb und eine Bestellhistorie.
+ * Läuft nur mit dem Maven-Profil "load" (mvn test -Pload).
+ */
+@Tag("load")
+class PayloadFormatBenchmarkTest {
+
+    private static final Logger LOGGER = Logger.getLogger(PayloadFormatBenchmarkTest.class);
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+    private static final int HISTORY_ORDERS = 20;
+
+    @Test
+    void compareJsonAndCbor() throws Exception {
+        final Basket basket = basket();
+        final List<Order> history = new ArrayList<>();
+        for (int i = 0; i < HISTORY_ORDERS; i++) {
+            history.add(basket);
+        }
+
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            final CBORMapper cbor = CborProvider.mapper();
+
+            final byte[] basketJson = jsonb.toJson(basket).getBytes(StandardCharsets.UTF_8);
+            final byte[] basketCbor = cbor.writeValueAsBytes(basket);
+            final byte[] historyJson = jsonb.toJson(history).getBytes(StandardCharsets.UTF_8);
+            final byte[] historyCbor = cbor.writeValueAsBytes(history);
+
+            LOGGER.infof("Basket (10 Artikel): JSON %d Byte, CBOR %d Byte (%.0f%%)",
+                    basketJson.length, basketCbor.length, 100d * basketCbor.length / basketJson.length);
+            LOGGER.infof("Historie (%d Bestellungen): JSON %d Byte, CBOR %d Byte (%.0f%%)",
+                    HISTORY_ORDERS, historyJson.length, historyCbor.length, 100d * historyCbor.length / historyJson.length);
+
+            final String basketJsonText = new String(basketJson, StandardCharsets.UTF_8);
+            report("JSON schreiben", () -> jsonb.toJson(basket).getBytes(StandardCharsets.UTF_8));
+            report("CBOR schreiben", () -> cbor.writeValueAsBytes(basket));
+            report("JSON lesen", () -> jsonb.fromJson(basketJsonText, Basket.class));
+            report("CBOR lesen", () -> cbor.readValue(basketCbor, Basket.class));
+
+            assertTrue(basketCbor.length < basketJson.length);
+            assertTrue(historyCbor.length < historyJson.length);
+        }
+    }
+
+    private static void report(final String name, final Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run();
+        }
+        final long nanos = System.nanoTime() - start;
+        LOGGER.infof("%s: %.2f µs/Basket", name, nanos / 1_000d / ITERATIONS);
+    }
+
+    private static Basket basket() {
+        final List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Item item = new Item();
+            item.setProductId("1-2-3-4-5-" + i);
+            item.setProductName("Test Item " + i);
+            item.setCount(i + 1);
+            item.setPrice(10f + i);
+            items.add(item);
+        }
+        final Basket basket = new Basket();
+        basket.setItems(items);
+        basket.setTotal(595f);
+        basket.setRemainingBalance(405f);
+        return basket;
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object run() throws Exception;
+    }
+}
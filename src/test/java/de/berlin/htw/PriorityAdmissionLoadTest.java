@@ -0,0 +1,156 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.boundary.OrderResource;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+
+/**
+ * Lasttest für die Zulassung nach Priorität: Die p99-Latenz der Checkouts darf nicht einbrechen,
+ * während eine Welle von {@code GET /orders} den Knoten flutet.
+ * Läuft nur mit dem Maven-Profil "load" (mvn test -Pload).
+ */
+@QuarkusTest
+@Tag("load")
+class PriorityAdmissionLoadTest {
+
+    private static final Logger LOGGER = Logger.getLogger(PriorityAdmissionLoadTest.class);
+
+    private static final int CHECKOUT_THREADS = 4;
+    private static final int CHECKOUTS_PER_THREAD = 25;
+    private static final int FLOOD_THREADS = 48;
+    private static final String[] PRODUCT_IDS = {
+        "1-2-3-4-5-0", "1-2-3-4-5-1", "1-2-3-4-5-2", "1-2-3-4-5-3", "1-2-3-4-5-4"
+    };
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private final List<String> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void createUsers() {
+        for (int i = 0; i < CHECKOUT_THREADS; i++) {
+            final UserEntity user = new UserEntity();
+            user.setName("PriorityCheckout" + i);
+            user.setBalance(1_000_000f);
+            // legt auch das Guthaben-Konto an, ohne das kein Checkout bucht
+            userRepository.persistUser(user);
+            userIds.add(String.valueOf(user.getId()));
+        }
+    }
+
+    @Test
+    void testCheckoutLatencyStableDuringHistoryFlood() throws Exception {
+        final LoadHarness harness = new LoadHarness(CHECKOUT_THREADS, CHECKOUTS_PER_THREAD);
+        final LoadHarness.Report baseline = harness.run("checkout", this::checkout);
+
+        final AtomicBoolean flooding = new AtomicBoolean(true);
+        final Map<String, LongAdder> historyResults = new ConcurrentHashMap<>();
+        final ExecutorService flood = Executors.newFixedThreadPool(FLOOD_THREADS);
+        for (int t = 0; t < FLOOD_THREADS; t++) {
+            flood.submit(() -> {
+                while (flooding.get()) {
+                    final Response response = given().header("X-User-Id", "5").get("/orders");
+                    final String result = response.getHeader(OrderResource.DEGRADED_HEADER) != null
+                            ? "degraded" : String.valueOf(response.statusCode());
+                    historyResults.computeIfAbsent(result, k -> new LongAdder()).increment();
+                }
+            });
+        }
+        final LoadHarness.Report flooded;
+        try {
+            // Die Welle erst anlaufen lassen
+            Thread.sleep(500);
+            flooded = harness.run("checkout-flooded", this::checkout);
+        } finally {
+            flooding.set(false);
+            flood.shutdown();
+            flood.awaitTermination(30, TimeUnit.SECONDS);
+        }
+
+        LOGGER.info(baseline);
+        LOGGER.info(flooded);
+        LOGGER.info("history " + historyResults);
+        for (String priority : List.of("high", "normal", "low")) {
+            final Timer queueTime = registry.timer("admission.queue.time", "priority", priority);
+            LOGGER.infof("queue time %s: %d requests, mean %.1f ms, max %.1f ms", priority, queueTime.count(),
+                    queueTime.mean(TimeUnit.MILLISECONDS), queueTime.max(TimeUnit.MILLISECONDS));
+        }
+
+        assertTrue(flooded.getSuccesses() >= baseline.getSuccesses() * 0.9, "Checkouts wurden während der Welle abgelehnt");
+        assertTrue(flooded.getLatencyMillis(0.99) <= baseline.getLatencyMillis(0.99) * 3 + 100,
+                "Checkout-p99 bricht unter der Welle ein: " + flooded.getLatencyMillis(0.99) + " ms");
+        assertTrue(historyResults.containsKey("degraded") || historyResults.containsKey("503"),
+                "Die Historie wurde unter Last weder gekürzt noch zurückgestellt");
+    }
+
+    private void checkout(final int worker, final int iteration) {
+        final String userId = userIds.get(worker);
+        final String productId = PRODUCT_IDS[iteration % PRODUCT_IDS.length];
+        given().header("X-User-Id", userId)
+                .contentType(ContentType.JSON)
+                .body("{\"productId\":\"" + productId + "\",\"productName\":\"Test Item\",\"count\":1,\"price\":10.0}")
+                .post("/basket/" + productId);
+        final int status = given().header("X-User-Id", userId).post("/basket").statusCode();
+        if (status != 201) {
+            throw new IllegalStateException("Checkout mit Status " + status);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        userTransaction.begin();
+        for (int i = 0; i < CHECKOUT_THREADS; i++) {
+            final String userName = "PriorityCheckout" + i;
+            entityManager.createNativeQuery("DELETE FROM ORDER_ITEM WHERE ORDER_ID IN"
+                    + " (SELECT o.ID FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1)")
+                    .setParameter(1, userName).executeUpdate();
+            entityManager.createNativeQuery("DELETE o FROM ORDERS o JOIN USER u ON o.USER_ID = u.ID WHERE u.NAME = ?1")
+                    .setParameter(1, userName).executeUpdate();
+            entityManager.createNativeQuery("DELETE s FROM USER_ORDER_STATS s JOIN USER u ON s.USER_ID = u.ID WHERE u.NAME = ?1")
+                    .setParameter(1, userName).executeUpdate();
+            entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :userName")
+                    .setParameter("userName", userName).executeUpdate();
+        }
+        userTransaction.commit();
+        userIds.clear();
+    }
+}
@@ -0,0 +1,80 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.limit.PriorityGate;
+import de.berlin.htw.control.limit.RequestPriority;
+
+class PriorityGateTest {
+
+    private final List<String> admitted = new ArrayList<>();
+
+    @Test
+    void keepsReservedCapacityForHighPriority() {
+        PriorityGate gate = new PriorityGate(4, 1, 4);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(gate.submit(RequestPriority.NORMAL, admit("normal-" + i)).isAdmitted());
+        }
+        assertFalse(gate.submit(RequestPriority.NORMAL, admit("normal-3")).isAdmitted());
+        assertTrue(gate.submit(RequestPriority.HIGH, admit("high")).isAdmitted());
+        assertTrue(gate.isUnderPressure());
+        assertEquals(1, gate.getQueued(RequestPriority.NORMAL));
+    }
+
+    @Test
+    void limitsLowPriority() {
+        PriorityGate gate = new PriorityGate(8, 2, 2);
+
+        assertTrue(gate.submit(RequestPriority.LOW, admit("low-0")).isAdmitted());
+        assertTrue(gate.submit(RequestPriority.LOW, admit("low-1")).isAdmitted());
+        assertFalse(gate.submit(RequestPriority.LOW, admit("low-2")).isAdmitted());
+        // die Obergrenze der Historie bremst das Lesen des Warenkorbs nicht
+        assertTrue(gate.submit(RequestPriority.NORMAL, admit("normal")).isAdmitted());
+
+        gate.release(RequestPriority.LOW);
+        assertEquals(List.of("low-0", "low-1", "normal", "low-2"), admitted);
+    }
+
+    @Test
+    void admitsHighestPriorityFirst() {
+        PriorityGate gate = new PriorityGate(2, 0, 2);
+        gate.submit(RequestPriority.LOW, admit("low-0"));
+        gate.submit(RequestPriority.LOW, admit("low-1"));
+
+        gate.submit(RequestPriority.LOW, admit("low-2"));
+        gate.submit(RequestPriority.NORMAL, admit("normal"));
+        gate.submit(RequestPriority.HIGH, admit("high"));
+
+        gate.release(RequestPriority.LOW);
+        gate.release(RequestPriority.LOW);
+        assertEquals(List.of("low-0", "low-1", "high", "normal"), admitted);
+
+        gate.release(RequestPriority.HIGH);
+        assertEquals("low-2", admitted.get(admitted.size() - 1));
+    }
+
+    @Test
+    void cancelsOnlyWaitingTickets() {
+        PriorityGate gate = new PriorityGate(1, 0, 1);
+        PriorityGate.Ticket running = gate.submit(RequestPriority.LOW, admit("running"));
+        PriorityGate.Ticket waiting = gate.submit(RequestPriority.LOW, admit("waiting"));
+
+        assertFalse(gate.cancel(running));
+        assertTrue(gate.cancel(waiting));
+        gate.release(RequestPriority.LOW);
+
+        assertEquals(List.of("running"), admitted);
+        assertEquals(0, gate.getInUse(RequestPriority.LOW));
+        assertFalse(gate.isUnderPressure());
+    }
+
+    private Runnable admit(final String name) {
+        return () -> admitted.add(name);
+    }
+}
@@ -0,0 +1,44 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.ProductIds;
+
+class ProductIdsTest {
+
+    @Test
+    void packAndRenderRoundTrip() {
+        long packed = ProductIds.pack("1-2-3-4-5-6");
+        assertEquals("1-2-3-4-5-6", ProductIds.render(packed));
+
+        packed = ProductIds.pack("1023-0-0-0-0-1023");
+        assertEquals("1023-0-0-0-0-1023", ProductIds.render(packed));
+    }
+
+    @Test
+    void leadingZerosAreCanonicalized() {
+        assertEquals(ProductIds.pack("1-2-3-4-5-6"), ProductIds.pack("01-2-3-4-5-006"));
+    }
+
+    @Test
+    void invalidProductIds() {
+        assertFalse(ProductIds.isValid("1-2-3-4-5"), "nur 5 Zahlen");
+        assertFalse(ProductIds.isValid("1-2-3-4-5-6-7"), "7 Zahlen");
+        assertFalse(ProductIds.isValid("1-2-3-4-5-"), "leere Zahl am Ende");
+        assertFalse(ProductIds.isValid("-1-2-3-4-5"), "leere Zahl am Anfang");
+        assertFalse(ProductIds.isValid("1--2-3-4-5"), "doppelter Bindestrich");
+        assertFalse(ProductIds.isValid("1-2-3-4-5-a"), "keine Zahl");
+        assertFalse(ProductIds.isValid("1024-2-3-4-5-6"), "Zahl zu groß");
+        assertFalse(ProductIds.isValid(""));
+        assertFalse(ProductIds.isValid(null));
+        assertThrows(IllegalArgumentException.class, () -> ProductIds.pack("test-product"));
+    }
+
+    @Test
+    void packedValuesKeepOrderOfComponents() {
+        assertTrue(ProductIds.pack("1-2-3-4-5-6") < ProductIds.pack("1-2-3-4-6-0"));
+        assertTrue(ProductIds.pack("1-2-3-4-5-6") < ProductIds.pack("2-0-0-0-0-0"));
+    }
+}
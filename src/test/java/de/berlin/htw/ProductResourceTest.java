@@ -0,0 +1,125 @@
+package de.berlin.htw;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import de.berlin.htw.boundary.dto.Product;
+import de.berlin.htw.control.ProductCatalog;
+import de.berlin.htw.control.ProductIds;
+
+@QuarkusTest
+class ProductResourceTest {
+
+    private static final String PRODUCT_ID = "9-8-7-6-5-4";
+
+    @Inject
+    ProductCatalog catalog;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Test
+    void testTopProducts() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .queryParam("window", "1h")
+            .queryParam("limit", 5)
+            .get("/products/top")
+            .then()
+            .log().all()
+            .statusCode(200)
+            .body("size()", lessThanOrEqualTo(5));
+    }
+
+    @Test
+    void testTopProductsInvalidWindow() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .queryParam("window", "8d")
+            .get("/products/top")
+            .then()
+            .log().all()
+            .statusCode(400);
+
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .queryParam("window", "eine Stunde")
+            .get("/products/top")
+            .then()
+            .log().all()
+            .statusCode(400);
+    }
+
+    @Test
+    void testBulkLoadRequiresAdmin() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "2")
+            .contentType(ContentType.JSON)
+            .body(List.of(product(10f)))
+            .post("/products")
+            .then()
+            .log().all()
+            .statusCode(403);
+        assertNull(catalog.resolve(ProductIds.pack(PRODUCT_ID)));
+    }
+
+    @Test
+    void testBulkLoadAndEvictDeleted() throws Exception {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "4")
+            .contentType(ContentType.JSON)
+            .body(List.of(product(42f)))
+            .post("/products")
+            .then()
+            .log().all()
+            .statusCode(204);
+        final ProductCatalog.CatalogEntry entry = catalog.resolve(ProductIds.pack(PRODUCT_ID));
+        assertNotNull(entry);
+        assertEquals(42f, entry.getPrice());
+
+        deleteProduct();
+        // ohne Eviction würde der Cache das gelöschte Produkt weiter liefern
+        catalog.evictDeleted();
+        assertNull(catalog.resolve(ProductIds.pack(PRODUCT_ID)));
+    }
+
+    @AfterEach
+    void deleteProduct() throws Exception {
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE FROM PRODUCT WHERE PRODUCT_ID = ?1")
+                .setParameter(1, ProductIds.pack(PRODUCT_ID))
+                .executeUpdate();
+        userTransaction.commit();
+    }
+
+    private static Product product(final float price) {
+        Product product = new Product();
+        product.setProductId(PRODUCT_ID);
+        product.setProductName("Katalog-Testprodukt");
+        product.setPrice(price);
+        return product;
+    }
+}
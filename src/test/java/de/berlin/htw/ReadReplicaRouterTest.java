@@ -0,0 +1,81 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import jakarta.inject.Inject;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.entity.dao.ReadReplicaRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class ReadReplicaRouterTest {
+
+    private static final String MARKER_PREFIX = "replica:ryw:";
+
+    @Inject
+    ReadReplicaRouter router;
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Test
+    void testReadsGoToReplicaWithoutWrite() {
+        assertRoutedTo("replica", () -> router.read("ryw-reader", em -> em.createNativeQuery("SELECT 1").getSingleResult()));
+        assertRoutedTo("replica", () -> router.read(null, em -> em.createNativeQuery("SELECT 1").getSingleResult()));
+    }
+
+    @Test
+    void testOwnWriteReadsFromPrimary() {
+        router.markWrite("ryw-writer");
+        assertNotNull(redisDS.value(String.class).get(MARKER_PREFIX + "ryw-writer"), "Marker nicht in Redis geteilt");
+        assertRoutedTo("primary", () -> router.read("ryw-writer", em -> em.createNativeQuery("SELECT 1").getSingleResult()));
+    }
+
+    @Test
+    void testWriteOnOtherNodeReadsFromPrimary() {
+        // Marker, wie ihn ein anderer Knoten nach einer Bestellung setzt; dieser Knoten kennt den Benutzer nicht
+        redisDS.value(String.class).psetex(MARKER_PREFIX + "ryw-remote", 5000, "1");
+        assertRoutedTo("primary", () -> router.read("ryw-remote", em -> em.createNativeQuery("SELECT 1").getSingleResult()));
+    }
+
+    @Test
+    void testMissingMarkerIsCachedBriefly() throws InterruptedException {
+        assertRoutedTo("replica", () -> router.read("ryw-late", em -> em.createNativeQuery("SELECT 1").getSingleResult()));
+
+        // weitere Seiten innerhalb der negativen TTL fragen Redis nicht erneut
+        final double redisCalls = registry.counter("redis.commands").count();
+        redisDS.value(String.class).psetex(MARKER_PREFIX + "ryw-late", 5000, "1");
+        assertRoutedTo("replica", () -> router.read("ryw-late", em -> em.createNativeQuery("SELECT 1").getSingleResult()));
+        assertEquals(redisCalls, registry.counter("redis.commands").count(), 0.0001, "Redis-Aufrufe");
+
+        // nach der negativen TTL (Testprofil: 500ms) wird der Marker eines anderen Knotens bemerkt
+        Thread.sleep(600);
+        assertRoutedTo("primary", () -> router.read("ryw-late", em -> em.createNativeQuery("SELECT 1").getSingleResult()));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        redisDS.key().del(MARKER_PREFIX + "ryw-writer", MARKER_PREFIX + "ryw-remote", MARKER_PREFIX + "ryw-late");
+    }
+
+    private void assertRoutedTo(final String target, final Runnable read) {
+        final double primary = count("primary");
+        final double replica = count("replica");
+        read.run();
+        assertEquals("primary".equals(target) ? 1 : 0, count("primary") - primary, 0.0001, "Zugriffe auf primary");
+        assertEquals("replica".equals(target) ? 1 : 0, count("replica") - replica, 0.0001, "Zugriffe auf replica");
+    }
+
+    private double count(final String target) {
+        return registry.counter("replica.reads", "target", target).count();
+    }
+}
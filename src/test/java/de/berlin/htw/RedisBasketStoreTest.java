@@ -0,0 +1,47 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import jakarta.inject.Inject;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.BasketController;
+import de.berlin.htw.control.store.BasketStore;
+import de.berlin.htw.control.store.RedisBasketStore;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class RedisBasketStoreTest extends BasketStoreContractTest {
+
+    @Inject
+    RedisBasketStore store;
+
+    @Inject
+    RedisDataSource redisDS;
+
+    @Override
+    protected BasketStore store() {
+        return store;
+    }
+
+    @Test
+    void testRemovingMissingItemKeepsTimeout() {
+        final String userName = "redis-ttl-" + UUID.randomUUID();
+        final String basketKey = BasketController.BASKET_KEY_PREFIX + userName;
+        try {
+            store.putItem(userName, 1L, "a", current -> { });
+            redisDS.key().expire(basketKey, 10);
+
+            assertNull(store.removeItem(userName, 2L));
+            final long ttl = redisDS.key().ttl(basketKey);
+            assertTrue(ttl > 0 && ttl <= 10, "Timeout wurde verlängert: " + ttl);
+        } finally {
+            store.clear(userName);
+        }
+    }
+}
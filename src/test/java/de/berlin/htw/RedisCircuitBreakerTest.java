@@ -0,0 +1,98 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.RedisCommandGuard;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.faulttolerance.api.CircuitBreakerState;
+
+/**
+ * Simuliert ein langsames Redis: Befehle hinter dem Guard brauchen länger als das Zeitlimit,
+ * bis der Circuit Breaker öffnet. Danach müssen Warenkorb-Requests sofort mit 503 scheitern,
+ * während Endpunkte ohne Redis weiter antworten.
+ */
+@QuarkusTest
+@TestProfile(RedisCircuitBreakerTest.SlowRedisProfile.class)
+class RedisCircuitBreakerTest {
+
+    private static final long INJECTED_LATENCY_MS = 200;
+
+    @Inject
+    RedisCommandGuard redisGuard;
+
+    @AfterEach
+    void resetBreaker() {
+        redisGuard.reset();
+    }
+
+    @Test
+    void testBreakerOpensOnSlowRedis() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(TimeoutException.class, () -> redisGuard.call(this::slowCommand));
+        }
+        assertEquals(CircuitBreakerState.OPEN, redisGuard.getState());
+        // Offener Breaker: kein Warten mehr auf Redis
+        assertThrows(CircuitBreakerOpenException.class, () -> redisGuard.call(() -> "nicht ausgeführt"));
+
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .get("/basket")
+            .then()
+            .log().all()
+            .statusCode(503)
+            .header("Retry-After", notNullValue());
+
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .get("/orders/stats")
+            .then()
+            .log().all()
+            .statusCode(200);
+    }
+
+    @Test
+    void testBasketAvailableWhenBreakerClosed() {
+        given()
+            .log().all()
+            .when().header("X-User-Id", "5")
+            .get("/basket")
+            .then()
+            .log().all()
+            .statusCode(200);
+    }
+
+    private String slowCommand() {
+        try {
+            Thread.sleep(INJECTED_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "OK";
+    }
+
+    public static class SlowRedisProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "de.berlin.htw.control.RedisCommandGuard/call/Timeout/value", "50",
+                    "de.berlin.htw.control.RedisCommandGuard/call/CircuitBreaker/requestVolumeThreshold", "4");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.SchemaVerifier;
+import io.quarkus.liquibase.LiquibaseFactory;
+import io.quarkus.test.junit.QuarkusTest;
+import liquibase.Liquibase;
+
+@QuarkusTest
+class SchemaVerifierTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SchemaVerifierTest.class);
+
+    private static final int ROUNDS = 20;
+
+    @Inject
+    SchemaVerifier schemaVerifier;
+
+    @Inject
+    LiquibaseFactory liquibaseFactory;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Test
+    void testMigratedChangelogIsAccepted() {
+        // im Testprofil migriert die Anwendung beim Start und trägt die Checksumme ein
+        assertEquals(64, schemaVerifier.fingerprint().length());
+        schemaVerifier.verify();
+    }
+
+    @Test
+    void testUnmigratedChangelogIsRejected() throws Exception {
+        final String fingerprint = schemaVerifier.fingerprint();
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE FROM SCHEMA_FINGERPRINT WHERE CHANGELOG_SHA256 = ?1")
+                .setParameter(1, fingerprint).executeUpdate();
+        userTransaction.commit();
+        try {
+            final IllegalStateException e = assertThrows(IllegalStateException.class, schemaVerifier::verify);
+            assertTrue(e.getMessage().contains(fingerprint), e.getMessage());
+        } finally {
+            schemaVerifier.recordFingerprint();
+        }
+        schemaVerifier.verify();
+    }
+
+    @Test
+    @Tag("load")
+    void compareWithLiquibaseValidation() throws Exception {
+        // beide Varianten einmal aufwärmen
+        schemaVerifier.verify();
+        liquibaseCheck();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            schemaVerifier.verify();
+        }
+        final double fingerprintMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            liquibaseCheck();
+        }
+        final double liquibaseMillis = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+        LOGGER.infof("Schema check: checksum lookup %.2f ms, Liquibase validate + unrun change sets %.2f ms",
+                fingerprintMillis, liquibaseMillis);
+        assertTrue(fingerprintMillis < liquibaseMillis);
+    }
+
+    private void liquibaseCheck() throws Exception {
+        try (Liquibase liquibase = liquibaseFactory.createLiquibase()) {
+            liquibase.validate();
+            assertTrue(liquibase.listUnrunChangeSets(liquibaseFactory.createContexts(),
+                    liquibaseFactory.createLabels()).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.boundary.AdminResource;
+import de.berlin.htw.control.BalanceLedger;
+import de.berlin.htw.entity.dao.UserRepository;
+import de.berlin.htw.entity.dto.UserEntity;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.response.ExtractableResponse;
+import io.restassured.response.Response;
+import io.restassured.response.ValidatableResponse;
+
+@QuarkusTest
+class TopUpImportTest {
+
+    // in app.admin.users des Testprofils
+    private static final String ADMIN = "4";
+
+    // app.balance.import.directory des Testprofils
+    private static final Path IMPORT_DIRECTORY = Paths.get("target", "topup-imports");
+
+    private static final String USER_NAME = "TopUpImportUser";
+
+    @Inject
+    BalanceLedger balanceLedger;
+
+    @Inject
+    UserRepository userRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    private Integer userId;
+
+    @BeforeEach
+    void createUser() {
+        final UserEntity user = new UserEntity();
+        user.setName(USER_NAME);
+        user.setBalance(10f);
+        userRepository.persistUser(user);
+        userId = user.getId();
+    }
+
+    @Test
+    void testCsvImportIsIdempotent() throws Exception {
+        // liest den Cache vorher, damit die Invalidierung nach dem Import geprüft wird
+        assertEquals(10f, balanceLedger.getBalance(userId));
+
+        final String csv = "reference,userId,amount\n"
+                + "import-1," + userId + ",5.25\n"
+                + "import-2," + userId + ",4.75\n"
+                + "import-3,999999999,1\n"
+                + "import-4," + userId + ",-1\n";
+        final int id = upload(AdminResource.TEXT_CSV, csv);
+        awaitImport(id)
+            .body("state", is("COMPLETED"))
+            .body("rowsRead", is(4))
+            .body("applied", is(2))
+            .body("duplicates", is(0))
+            .body("unknownUsers", is(1))
+            .body("rejected", is(1));
+        assertEquals(20f, balanceLedger.getBalance(userId));
+
+        // Wiederholung der Datei bucht nichts doppelt
+        awaitImport(upload(AdminResource.TEXT_CSV, csv))
+            .body("state", is("COMPLETED"))
+            .body("applied", is(0))
+            .body("duplicates", is(2));
+        assertEquals(20f, balanceLedger.getBalance(userId));
+
+        given()
+            .header("X-User-Id", ADMIN)
+            .get("/admin/topups")
+            .then()
+            .statusCode(200)
+            .body("id", hasItem(id));
+    }
+
+    @Test
+    void testNdjsonImport() throws Exception {
+        final String ndjson = "{\"reference\": \"import-json-1\", \"userId\": " + userId + ", \"amount\": 2.5}\n"
+                + "{\"reference\": \"import-json-1\", \"userId\": " + userId + ", \"amount\": 2.5}\n"
+                + "kein json\n";
+        awaitImport(upload(AdminResource.APPLICATION_NDJSON, ndjson))
+            .body("state", is("COMPLETED"))
+            .body("applied", is(1))
+            .body("duplicates", is(1))
+            .body("rejected", is(1));
+        assertEquals(12.5f, balanceLedger.getBalance(userId));
+    }
+
+    @Test
+    void testImportFromDirectory() throws Exception {
+        Files.createDirectories(IMPORT_DIRECTORY);
+        final Path file = IMPORT_DIRECTORY.resolve("topups-" + userId + ".csv");
+        Files.writeString(file, "reference,userId,amount\nimport-file-1," + userId + ",7\n");
+        try {
+            final int id = given()
+                .header("X-User-Id", ADMIN)
+                .post("/admin/topups/files/" + file.getFileName())
+                .then()
+                .log().all()
+                .statusCode(202)
+                .extract().path("id");
+            awaitImport(id)
+                .body("state", is("COMPLETED"))
+                .body("applied", is(1));
+            assertEquals(17f, balanceLedger.getBalance(userId));
+            // Dateien aus dem Importverzeichnis bleiben erhalten
+            assertTrue(Files.exists(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        given()
+            .header("X-User-Id", ADMIN)
+            .post("/admin/topups/files/missing.csv")
+            .then()
+            .statusCode(404);
+        given()
+            .header("X-User-Id", ADMIN)
+            .post("/admin/topups/files/topups.txt")
+            .then()
+            .statusCode(400);
+    }
+
+    @Test
+    void testCsvWithoutHeader() {
+        given()
+            .header("X-User-Id", ADMIN)
+            .contentType(AdminResource.TEXT_CSV)
+            .body("import-1," + userId + ",5\n")
+            .post("/admin/topups")
+            .then()
+            .statusCode(400);
+        given()
+            .header("X-User-Id", ADMIN)
+            .get("/admin/topups/999999")
+            .then()
+            .statusCode(404);
+    }
+
+    private static int upload(final String contentType, final String body) {
+        final ExtractableResponse<Response> response = given()
+            .header("X-User-Id", ADMIN)
+            .contentType(contentType)
+            .body(body)
+            .post("/admin/topups")
+            .then()
+            .log().all()
+            .statusCode(202)
+            .extract();
+        final int id = response.path("id");
+        assertTrue(response.header("Location").endsWith("/admin/topups/" + id), response.header("Location"));
+        return id;
+    }
+
+    private static ValidatableResponse awaitImport(final int id) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            final ValidatableResponse response = given()
+                .header("X-User-Id", ADMIN)
+                .get("/admin/topups/" + id)
+                .then()
+                .statusCode(200);
+            final String state = response.extract().path("state");
+            if (!"QUEUED".equals(state) && !"RUNNING".equals(state) || System.nanoTime() > deadline) {
+                return response;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        userTransaction.begin();
+        // Konto und Journal folgen dem Benutzer per ON DELETE CASCADE
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name = :userName")
+                .setParameter("userName", USER_NAME).executeUpdate();
+        userTransaction.commit();
+    }
+}
@@ -0,0 +1,100 @@
+package de.berlin.htw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+
+import jakarta.ws.rs.BadRequestException;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.berlin.htw.control.TopUpReader;
+import de.berlin.htw.control.TopUpReader.Format;
+import de.berlin.htw.control.TopUpReader.Line;
+
+class TopUpReaderTest {
+
+    @Test
+    void testCsv() throws Exception {
+        final TopUpReader reader = reader(Format.CSV,
+                "provider,amount,\"reference\",user_id\n"
+                + "psp,12.5,pay-1,7\n"
+                + "\n"
+                + "psp,\"3\",\"pay-2\",8\n"
+                + "psp,1,pay-3\n");
+
+        Line line = reader.next();
+        assertEquals(2, line.getNumber());
+        assertNull(line.getError());
+        assertEquals(7, line.getTopUp().getUserId());
+        assertEquals(new BigDecimal("12.50"), line.getTopUp().getAmount());
+        assertEquals("pay-1", line.getTopUp().getReference());
+
+        line = reader.next();
+        assertEquals(4, line.getNumber());
+        assertEquals(new BigDecimal("3.00"), line.getTopUp().getAmount());
+        assertEquals("pay-2", line.getTopUp().getReference());
+
+        line = reader.next();
+        assertNull(line.getTopUp());
+        assertNotNull(line.getError());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testCsvWithoutHeader() {
+        assertThrows(BadRequestException.class, () -> reader(Format.CSV, "pay-1,7,12.50\n").next());
+    }
+
+    @Test
+    void testNdjson() throws Exception {
+        final TopUpReader reader = reader(Format.NDJSON,
+                "{\"reference\": \"pay-1\", \"userId\": 7, \"amount\": 0.99}\n"
+                + "{\"reference\": \"pay-2\", \"userId\": \"8\", \"amount\": \"100\"}\n"
+                + "[1, 2]\n"
+                + "{\"reference\": \"pay-3\"\n");
+
+        Line line = reader.next();
+        assertEquals(new BigDecimal("0.99"), line.getTopUp().getAmount());
+        line = reader.next();
+        assertEquals(8, line.getTopUp().getUserId());
+        assertEquals(new BigDecimal("100.00"), line.getTopUp().getAmount());
+        assertNotNull(reader.next().getError());
+        assertNotNull(reader.next().getError());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void testInvalidValues() throws Exception {
+        final String longReference = "r".repeat(65);
+        final TopUpReader reader = reader(Format.CSV,
+                "reference,userId,amount\n"
+                + ",1,10\n"
+                + longReference + ",1,10\n"
+                + "pay-1,0,10\n"
+                + "pay-1,abc,10\n"
+                + "pay-1,1,-5\n"
+                + "pay-1,1,0\n"
+                + "pay-1,1,1.005\n"
+                + "pay-1,1,10000000000\n");
+
+        Line line;
+        int errors = 0;
+        while ((line = reader.next()) != null) {
+            assertNull(line.getTopUp(), "Zeile " + line.getNumber() + " hätte abgelehnt werden müssen");
+            errors++;
+        }
+        assertEquals(8, errors);
+    }
+
+    private static TopUpReader reader(final Format format, final String content) {
+        return new TopUpReader(new BufferedReader(new StringReader(content)), format, new ObjectMapper());
+    }
+}
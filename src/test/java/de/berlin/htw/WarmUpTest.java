@@ -0,0 +1,76 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.UserTransaction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.WarmUp;
+import io.quarkus.test.junit.QuarkusTest;
+
+@QuarkusTest
+class WarmUpTest {
+
+    @Inject
+    WarmUp warmUp;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction userTransaction;
+
+    @Test
+    void testWarmUpExercisesAllSteps() {
+        long orphanedRows = countOrphanedBalanceRows();
+
+        Map<String, WarmUp.StepStats> report = warmUp.run(Duration.ofMillis(500), 2);
+
+        assertEquals(5, report.size());
+        report.forEach((step, stats) -> {
+            assertEquals(0, stats.getErrors(), step + " ist fehlgeschlagen");
+            assertTrue(stats.getFirstMillis() > 0, step + " wurde nicht ausgeführt");
+        });
+        // Scratch-Benutzer samt Guthaben-Journal sind wieder gelöscht
+        assertEquals(0L, ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM USER WHERE NAME LIKE 'warmup-%'")
+                .getSingleResult()).longValue());
+        assertEquals(orphanedRows, countOrphanedBalanceRows());
+    }
+
+    @Test
+    void testReadiness() {
+        // im Testprofil ist der Warm-up beim Start abgeschaltet
+        given()
+            .when().get("/q/health/ready")
+            .then()
+            .statusCode(200)
+            .body("status", equalTo("UP"));
+    }
+
+    private long countOrphanedBalanceRows() {
+        return ((Number) entityManager.createNativeQuery("SELECT"
+                + " (SELECT COUNT(*) FROM BALANCE_SNAPSHOT WHERE USER_ID NOT IN (SELECT ID FROM USER))"
+                + " + (SELECT COUNT(*) FROM BALANCE_TRANSACTION WHERE USER_ID NOT IN (SELECT ID FROM USER))")
+                .getSingleResult()).longValue();
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        userTransaction.begin();
+        entityManager.createNativeQuery("DELETE s FROM USER_ORDER_STATS s JOIN USER u ON s.USER_ID = u.ID WHERE u.NAME LIKE 'warmup-%'")
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM UserEntity u WHERE u.name LIKE 'warmup-%'").executeUpdate();
+        userTransaction.commit();
+    }
+}
@@ -0,0 +1,130 @@
+package de.berlin.htw;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+import org.junit.jupiter.api.Test;
+
+import de.berlin.htw.control.bulkhead.WorkloadBulkhead;
+import de.berlin.htw.control.bulkhead.WorkloadClass;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+/**
+ * Prüft das Bulkhead der Historie mit einem einzigen Permit: Solange ein Aufruf den Permit hält, wird
+ * {@code GET /orders} nach der Wartezeit mit 503 und Retry-After abgelehnt und die Ablehnung gezählt;
+ * der Permit wird auch freigegeben, wenn die Aktion eine Ausnahme wirft.
+ */
+@QuarkusTest
+@TestProfile(WorkloadBulkheadTest.SinglePermitProfile.class)
+class WorkloadBulkheadTest {
+
+    @Inject
+    WorkloadBulkhead bulkhead;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Test
+    void testRejectsWhileSaturated() throws Exception {
+        final CountDownLatch holding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> holder = executor.submit(() -> bulkhead.call(WorkloadClass.HISTORY, () -> {
+                holding.countDown();
+                release.await(10, TimeUnit.SECONDS);
+                return "done";
+            }));
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+            assertEquals(1, gauge("bulkhead.in.use"), 0.0001);
+
+            final double rejected = rejected();
+            final long start = System.nanoTime();
+            given()
+                .when().header("X-User-Id", "2")
+                .get("/orders")
+                .then()
+                .statusCode(503)
+                .header("Retry-After", equalTo("1"));
+            // erst nach max-wait (Profil: 100ms) abgelehnt
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertEquals(rejected + 1, rejected(), 0.0001, "bulkhead.rejected{class=history}");
+
+            release.countDown();
+            assertEquals("done", holder.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, gauge("bulkhead.in.use"), 0.0001);
+        given()
+            .when().header("X-User-Id", "2")
+            .get("/orders")
+            .then()
+            .statusCode(200);
+    }
+
+    @Test
+    void testReleasesPermitOnException() throws Exception {
+        assertThrows(IllegalStateException.class, () -> bulkhead.call(WorkloadClass.HISTORY, () -> {
+            throw new IllegalStateException("Fehler in der Aktion");
+        }));
+        assertEquals(0, gauge("bulkhead.in.use"), 0.0001);
+
+        // der einzige Permit ist wieder frei
+        final double rejected = rejected();
+        assertEquals("ok", bulkhead.call(WorkloadClass.HISTORY, () -> "ok"));
+        assertEquals(rejected, rejected(), 0.0001);
+    }
+
+    @Test
+    void testRejectsNestedCallAfterMaxWait() throws Exception {
+        final double rejected = rejected();
+        final long waits = registry.timer("bulkhead.wait", "class", "history").count();
+        bulkhead.call(WorkloadClass.HISTORY, () -> {
+            // der Semaphore ist nicht reentrant: derselbe Thread bekommt keinen zweiten Permit
+            assertThrows(ServiceUnavailableException.class, () -> bulkhead.call(WorkloadClass.HISTORY, () -> "nie"));
+            return null;
+        });
+        assertEquals(rejected + 1, rejected(), 0.0001);
+        assertTrue(registry.timer("bulkhead.wait", "class", "history").count() > waits);
+        assertEquals(0, gauge("bulkhead.in.use"), 0.0001);
+    }
+
+    private double rejected() {
+        return registry.counter("bulkhead.rejected", "class", "history").count();
+    }
+
+    private double gauge(final String name) {
+        return registry.get(name).tag("class", "history").gauge().value();
+    }
+
+    public static class SinglePermitProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of(
+                    "app.bulkhead.history.max-concurrent", "1",
+                    "app.bulkhead.history.max-wait", "100ms",
+                    // das adaptive Limit vor den Endpunkten soll nicht vor dem Bulkhead ablehnen
+                    "app.limit.enabled", "false");
+        }
+    }
+}